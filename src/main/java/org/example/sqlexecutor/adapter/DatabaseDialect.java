@@ -0,0 +1,100 @@
+package org.example.sqlexecutor.adapter;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Thông tin dialect của một datasource, phát hiện một lần và được {@link DialectRegistry} cache lại.
+ */
+public class DatabaseDialect {
+    private final String dataSourceName;
+    // mysql, sqlserver, oracle, postgresql, ...
+    private final String type;
+    private final String productName;
+    private final String productVersion;
+    private final int majorVersion;
+    private final SqlDatabaseAdapter.DatabaseStrategy strategy;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Capabilities
+    private final boolean supportsOffsetFetch;
+    private final boolean supportsWindowFunctions;
+    private final String explainFormat;
+
+    public DatabaseDialect(String dataSourceName, String type, String productName, String productVersion,
+                           int majorVersion, SqlDatabaseAdapter.DatabaseStrategy strategy, JdbcTemplate jdbcTemplate) {
+        this.dataSourceName = dataSourceName;
+        this.type = type;
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.majorVersion = majorVersion;
+        this.strategy = strategy;
+        this.jdbcTemplate = jdbcTemplate;
+
+        switch (type) {
+            case "oracle":
+                this.supportsOffsetFetch = majorVersion >= 12;
+                this.supportsWindowFunctions = true;
+                this.explainFormat = "EXPLAIN PLAN";
+                break;
+            case "sqlserver":
+                // OFFSET ... FETCH có từ SQL Server 2012 (11.x)
+                this.supportsOffsetFetch = majorVersion >= 11;
+                this.supportsWindowFunctions = true;
+                this.explainFormat = "SHOWPLAN_XML";
+                break;
+            case "postgresql":
+                this.supportsOffsetFetch = true;
+                this.supportsWindowFunctions = true;
+                this.explainFormat = "EXPLAIN (FORMAT JSON)";
+                break;
+            case "mysql":
+            default:
+                this.supportsOffsetFetch = false;
+                // MySQL 8+, MariaDB 10.2+
+                this.supportsWindowFunctions = productName != null && productName.toLowerCase().contains("mariadb")
+                        ? majorVersion >= 10
+                        : majorVersion >= 8;
+                this.explainFormat = "EXPLAIN";
+        }
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductVersion() {
+        return productVersion;
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public SqlDatabaseAdapter.DatabaseStrategy getStrategy() {
+        return strategy;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public boolean isSupportsOffsetFetch() {
+        return supportsOffsetFetch;
+    }
+
+    public boolean isSupportsWindowFunctions() {
+        return supportsWindowFunctions;
+    }
+
+    public String getExplainFormat() {
+        return explainFormat;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.sqlexecutor.adapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry dialect theo datasource: tên/phiên bản database, capabilities và JdbcTemplate dùng chung.
+ * Metadata chỉ được đọc một lần (lúc khởi động hoặc lần dùng đầu tiên) thay vì mở connection mỗi request.
+ */
+@Component
+public class DialectRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(DialectRegistry.class);
+
+    public static final String DEFAULT_DATA_SOURCE = "mysql";
+
+    @Autowired
+    private Map<String, DataSource> dataSourceMap;
+
+    @Autowired
+    private SqlDatabaseAdapter databaseAdapter;
+
+    @Autowired
+    @Qualifier("queryExecutor")
+    private ThreadPoolTaskExecutor queryExecutor;
+
+    private final Map<String, DatabaseDialect> dialects = new ConcurrentHashMap<>();
+    private final Map<String, JdbcTemplate> jdbcTemplates = new ConcurrentHashMap<>();
+
+    // Phát hiện dialect ở background để database chưa sẵn sàng không làm chậm quá trình khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String dataSourceName : dataSourceMap.keySet()) {
+            queryExecutor.execute(() -> {
+                DatabaseDialect dialect = getDialect(dataSourceName);
+                logger.info("Datasource [{}]: {} {} ({})", dataSourceName, dialect.getProductName(),
+                        dialect.getProductVersion(), dialect.getType());
+            });
+        }
+    }
+
+    /**
+     * Tên datasource thực tế; tên không tồn tại được chuyển về datasource mặc định.
+     */
+    public String resolveName(String dataSourceName) {
+        return dataSourceName != null && dataSourceMap.containsKey(dataSourceName)
+                ? dataSourceName
+                : DEFAULT_DATA_SOURCE;
+    }
+
+    public DataSource getDataSource(String dataSourceName) {
+        return dataSourceMap.get(resolveName(dataSourceName));
+    }
+
+    // Tạo JdbcTemplate không cần mở connection nên không phụ thuộc việc phát hiện dialect
+    public JdbcTemplate getJdbcTemplate(String dataSourceName) {
+        return jdbcTemplates.computeIfAbsent(resolveName(dataSourceName),
+                name -> new JdbcTemplate(dataSourceMap.get(name)));
+    }
+
+    public DatabaseDialect getDialect(String dataSourceName) {
+        String name = resolveName(dataSourceName);
+        DatabaseDialect dialect = dialects.get(name);
+        if (dialect != null) {
+            return dialect;
+        }
+
+        try (Connection connection = dataSourceMap.get(name).getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String productName = metaData.getDatabaseProductName();
+            String type = detectType(productName);
+            dialect = new DatabaseDialect(name, type, productName, metaData.getDatabaseProductVersion(),
+                    metaData.getDatabaseMajorVersion(), databaseAdapter.getStrategy(type), getJdbcTemplate(name));
+            dialects.put(name, dialect);
+            return dialect;
+        } catch (Exception e) {
+            // Không cache khi lỗi để lần sau thử phát hiện lại
+            logger.warn("Could not detect dialect for datasource [{}], falling back to MySQL: {}", name, e.getMessage());
+            return new DatabaseDialect(name, "mysql", "MySQL", "", 0,
+                    databaseAdapter.getStrategy("mysql"), getJdbcTemplate(name));
+        }
+    }
+
+    public static String detectType(String databaseProductName) {
+        String productName = databaseProductName == null ? "" : databaseProductName.toLowerCase();
+        if (productName.contains("mysql") || productName.contains("mariadb")) {
+            return "mysql";
+        } else if (productName.contains("microsoft") || productName.contains("sql server")) {
+            return "sqlserver";
+        } else if (productName.contains("oracle")) {
+            return "oracle";
+        } else if (productName.contains("postgresql")) {
+            return "postgresql";
+        }
+        return "mysql";
+    }
+}
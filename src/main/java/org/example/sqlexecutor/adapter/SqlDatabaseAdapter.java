@@ -1,15 +1,31 @@
 package org.example.sqlexecutor.adapter;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 public class SqlDatabaseAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(SqlDatabaseAdapter.class);
+    private static final Pattern SHOWPLAN_EST_ROWS = Pattern.compile("StatementEstRows=\"([0-9.Ee+\\-]+)\"");
+
     private final Map<String, DatabaseStrategy> strategies = new HashMap<>();
 
     public SqlDatabaseAdapter() {
@@ -19,36 +35,181 @@ public class SqlDatabaseAdapter {
     }
 
     public DatabaseStrategy getStrategy(JdbcTemplate jdbcTemplate) {
-        try {
-            DatabaseMetaData metaData = jdbcTemplate.getDataSource().getConnection().getMetaData();
-            String databaseProductName = metaData.getDatabaseProductName().toLowerCase();
-
-            if (databaseProductName.contains("mysql") || databaseProductName.contains("mariadb")) {
-                return strategies.get("mysql");
-            } else if (databaseProductName.contains("microsoft") || databaseProductName.contains("sql server")) {
-                return strategies.get("sqlserver");
-            } else if (databaseProductName.contains("oracle")) {
-                return strategies.get("oracle");
-            }
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            return getStrategy(DialectRegistry.detectType(metaData.getDatabaseProductName()));
         } catch (SQLException e) {
             // Fallback to MySQL
         }
         return strategies.get("mysql");
     }
 
+    // PostgreSQL và các database khác dùng chung cú pháp LIMIT/OFFSET với MySQL
+    public DatabaseStrategy getStrategy(String databaseType) {
+        return strategies.getOrDefault(databaseType, strategies.get("mysql"));
+    }
+
     public interface DatabaseStrategy {
         String getPaginatedQuery(String query, int offset, int limit);
+
+        /**
+         * Bọc query thành truy vấn keyset: lọc theo seek predicate trên các cột khóa
+         * (chỉ khi có cursor), sắp xếp theo khóa và giới hạn {@code limit} dòng.
+         * Khóa luôn sắp xếp tăng dần; {@code backward} đảo chiều để đọc trang trước.
+         */
+        String getKeysetQuery(String query, List<String> keyColumns, boolean hasCursor, boolean backward, int limit);
+
+        /**
+         * Tham số bind cho seek predicate tương ứng với {@link #getKeysetQuery}.
+         */
+        Object[] getKeysetParameters(List<Object> cursorValues);
+
+        /**
+         * Cấu hình statement forward-only để driver stream kết quả thay vì nạp toàn bộ vào heap.
+         */
+        void applyStreamingFetchSize(Statement statement, int fetchSize) throws SQLException;
+
+        /**
+         * Cấu hình statement cho ResultSet được giữ mở lâu giữa các request (cursor session):
+         * đọc theo lô qua cursor phía server để đóng giữa chừng không phải đọc bỏ phần còn lại.
+         */
+        void applyCursorFetchSize(Statement statement, int fetchSize) throws SQLException;
+
+        /**
+         * Dừng truy vấn streaming bị bỏ dở (client ngắt, ghi lỗi) trước khi đóng ResultSet, để driver không
+         * đọc nốt phần kết quả còn lại. Trả về true nếu connection đã bị hủy và không được dùng tiếp.
+         */
+        boolean stopStreaming(Connection connection, Statement statement);
+
+        /**
+         * Ước lượng số dòng query trả về từ kế hoạch thực thi của optimizer, không chạy query.
+         * Trả về null nếu không lấy được ước lượng.
+         */
+        Long estimateRowCount(JdbcTemplate jdbcTemplate, String query);
+
         String getTableListQuery();
         String getColumnListQuery(String tableName);
         String getTableInfoQuery();
     }
 
+    // (k1, k2) > (?, ?)
+    private static String rowValueSeekPredicate(List<String> keyColumns, boolean backward) {
+        String columns = String.join(", ", keyColumns);
+        String placeholders = String.join(", ", Collections.nCopies(keyColumns.size(), "?"));
+        return "(" + columns + ") " + (backward ? "<" : ">") + " (" + placeholders + ")";
+    }
+
+    // (k1 > ? OR (k1 = ? AND k2 > ?))
+    private static String expandedSeekPredicate(List<String> keyColumns, boolean backward) {
+        String operator = backward ? " < ?" : " > ?";
+        List<String> branches = new ArrayList<>();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            StringBuilder branch = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                branch.append(keyColumns.get(j)).append(" = ? AND ");
+            }
+            branch.append(keyColumns.get(i)).append(operator);
+            branches.add(i == 0 ? branch.toString() : "(" + branch + ")");
+        }
+        return "(" + String.join(" OR ", branches) + ")";
+    }
+
+    private static Object[] expandedSeekParameters(List<Object> cursorValues) {
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < cursorValues.size(); i++) {
+            parameters.addAll(cursorValues.subList(0, i + 1));
+        }
+        return parameters.toArray();
+    }
+
+    // Driver hủy được statement ngay cả khi đang đọc giữa chừng ResultSet
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            logger.debug("Could not cancel streaming statement: {}", e.getMessage());
+        }
+    }
+
+    private static String keysetOrderBy(List<String> keyColumns, boolean backward) {
+        String direction = backward ? " DESC" : " ASC";
+        List<String> orderBy = new ArrayList<>();
+        for (String column : keyColumns) {
+            orderBy.add(column + direction);
+        }
+        return String.join(", ", orderBy);
+    }
+
     private static class MySqlStrategy implements DatabaseStrategy {
         @Override
         public String getPaginatedQuery(String query, int offset, int limit) {
             return query + " LIMIT " + limit + " OFFSET " + offset;
         }
 
+        @Override
+        public String getKeysetQuery(String query, List<String> keyColumns, boolean hasCursor, boolean backward, int limit) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM (").append(query).append(") keyset_query");
+            if (hasCursor) {
+                sql.append(" WHERE ").append(rowValueSeekPredicate(keyColumns, backward));
+            }
+            sql.append(" ORDER BY ").append(keysetOrderBy(keyColumns, backward));
+            sql.append(" LIMIT ").append(limit);
+            return sql.toString();
+        }
+
+        @Override
+        public Object[] getKeysetParameters(List<Object> cursorValues) {
+            return cursorValues.toArray();
+        }
+
+        @Override
+        public void applyStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+            // Connector/J chỉ stream từng dòng khi fetchSize = Integer.MIN_VALUE
+            statement.setFetchSize(Integer.MIN_VALUE);
+        }
+
+        @Override
+        public void applyCursorFetchSize(Statement statement, int fetchSize) throws SQLException {
+            // Fetch size dương + useCursorFetch=true trên URL: server giữ cursor, không bị net_write_timeout
+            // khi client ngừng đọc và đóng sớm không phải đọc bỏ các dòng còn lại như streaming MIN_VALUE
+            statement.setFetchSize(Math.max(fetchSize, 1));
+        }
+
+        @Override
+        public boolean stopStreaming(Connection connection, Statement statement) {
+            // Connector/J bỏ qua cancel() khi executeQuery đã trả về, còn đóng ResultSet streaming thì đọc bỏ mọi
+            // dòng còn lại: hủy hẳn connection (pool sẽ loại bỏ nó) thay vì kéo hết kết quả qua mạng
+            try {
+                connection.abort(Runnable::run);
+                return true;
+            } catch (SQLException e) {
+                logger.debug("Could not abort streaming connection: {}", e.getMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public Long estimateRowCount(JdbcTemplate jdbcTemplate, String query) {
+            // Nhân rows * filtered của các bảng ở SELECT ngoài cùng (id = 1) theo thứ tự join
+            double[] estimate = {1, 0};
+            jdbcTemplate.query("EXPLAIN " + query, rs -> {
+                if (rs.getInt("id") != 1) {
+                    return;
+                }
+                double rows = rs.getDouble("rows");
+                if (rs.wasNull()) {
+                    return;
+                }
+                double filtered = rs.getDouble("filtered");
+                if (rs.wasNull()) {
+                    filtered = 100;
+                }
+                estimate[0] *= rows * filtered / 100;
+                estimate[1]++;
+            });
+            return estimate[1] > 0 ? Math.round(estimate[0]) : null;
+        }
+
         @Override
         public String getTableListQuery() {
             return "SHOW TABLES";
@@ -71,6 +232,60 @@ public class SqlDatabaseAdapter {
             return query + " OFFSET " + offset + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
         }
 
+        @Override
+        public String getKeysetQuery(String query, List<String> keyColumns, boolean hasCursor, boolean backward, int limit) {
+            // SQL Server không hỗ trợ so sánh row value (k1, k2) > (?, ?)
+            StringBuilder sql = new StringBuilder("SELECT * FROM (").append(query).append(") keyset_query");
+            if (hasCursor) {
+                sql.append(" WHERE ").append(expandedSeekPredicate(keyColumns, backward));
+            }
+            sql.append(" ORDER BY ").append(keysetOrderBy(keyColumns, backward));
+            sql.append(" OFFSET 0 ROWS FETCH NEXT ").append(limit).append(" ROWS ONLY");
+            return sql.toString();
+        }
+
+        @Override
+        public Object[] getKeysetParameters(List<Object> cursorValues) {
+            return expandedSeekParameters(cursorValues);
+        }
+
+        @Override
+        public void applyStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+            statement.setFetchSize(fetchSize);
+        }
+
+        @Override
+        public void applyCursorFetchSize(Statement statement, int fetchSize) throws SQLException {
+            applyStreamingFetchSize(statement, fetchSize);
+        }
+
+        @Override
+        public boolean stopStreaming(Connection connection, Statement statement) {
+            cancelQuietly(statement);
+            return false;
+        }
+
+        @Override
+        public Long estimateRowCount(JdbcTemplate jdbcTemplate, String query) {
+            // SHOWPLAN_XML phải bật trên cùng connection và trong batch riêng
+            return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET SHOWPLAN_XML ON");
+                    try (ResultSet rs = statement.executeQuery(query)) {
+                        if (rs.next()) {
+                            Matcher matcher = SHOWPLAN_EST_ROWS.matcher(rs.getString(1));
+                            if (matcher.find()) {
+                                return Math.round(Double.parseDouble(matcher.group(1)));
+                            }
+                        }
+                        return null;
+                    } finally {
+                        statement.execute("SET SHOWPLAN_XML OFF");
+                    }
+                }
+            });
+        }
+
         @Override
         public String getTableListQuery() {
             return "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_TYPE = 'BASE TABLE'";
@@ -95,6 +310,66 @@ public class SqlDatabaseAdapter {
                     ") a WHERE ROWNUM <= " + (offset + limit) + ") WHERE rnum > " + offset;
         }
 
+        @Override
+        public String getKeysetQuery(String query, List<String> keyColumns, boolean hasCursor, boolean backward, int limit) {
+            // Oracle chỉ hỗ trợ row value cho so sánh bằng, nên dùng dạng mở rộng
+            StringBuilder sql = new StringBuilder("SELECT * FROM (SELECT * FROM (").append(query).append(") keyset_query");
+            if (hasCursor) {
+                sql.append(" WHERE ").append(expandedSeekPredicate(keyColumns, backward));
+            }
+            sql.append(" ORDER BY ").append(keysetOrderBy(keyColumns, backward));
+            sql.append(") WHERE ROWNUM <= ").append(limit);
+            return sql.toString();
+        }
+
+        @Override
+        public Object[] getKeysetParameters(List<Object> cursorValues) {
+            return expandedSeekParameters(cursorValues);
+        }
+
+        @Override
+        public void applyStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+            statement.setFetchSize(fetchSize);
+        }
+
+        @Override
+        public void applyCursorFetchSize(Statement statement, int fetchSize) throws SQLException {
+            applyStreamingFetchSize(statement, fetchSize);
+        }
+
+        @Override
+        public boolean stopStreaming(Connection connection, Statement statement) {
+            cancelQuietly(statement);
+            return false;
+        }
+
+        @Override
+        public Long estimateRowCount(JdbcTemplate jdbcTemplate, String query) {
+            String statementId = "sqlexec_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+            return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("EXPLAIN PLAN SET STATEMENT_ID = '" + statementId + "' FOR " + query);
+                    try (PreparedStatement plan = connection.prepareStatement(
+                            "SELECT CARDINALITY FROM PLAN_TABLE WHERE STATEMENT_ID = ? AND ID = 0")) {
+                        plan.setString(1, statementId);
+                        try (ResultSet rs = plan.executeQuery()) {
+                            if (rs.next()) {
+                                long cardinality = rs.getLong(1);
+                                return rs.wasNull() ? null : cardinality;
+                            }
+                            return null;
+                        }
+                    } finally {
+                        try (PreparedStatement cleanup = connection.prepareStatement(
+                                "DELETE FROM PLAN_TABLE WHERE STATEMENT_ID = ?")) {
+                            cleanup.setString(1, statementId);
+                            cleanup.executeUpdate();
+                        }
+                    }
+                }
+            });
+        }
+
         @Override
         public String getTableListQuery() {
             return "SELECT TABLE_NAME FROM ALL_TABLES WHERE OWNER = USER";
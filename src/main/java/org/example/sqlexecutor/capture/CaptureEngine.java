@@ -0,0 +1,725 @@
+package org.example.sqlexecutor.capture;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.example.sqlexecutor.model.TransformRequest;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Engine truy vấn nhỏ chạy trên trang cột đã capture: lọc, group by với count/sum/min/max, sắp xếp và top-N.
+ * Làm việc trên mảng chỉ số dòng {@code int[]} và đọc thẳng vector nguyên thủy của {@link ColumnarPage};
+ * cột chuỗi được so sánh qua mã từ điển.
+ */
+public final class CaptureEngine {
+
+    private CaptureEngine() {
+    }
+
+    /**
+     * Kết quả biến đổi: bảng nguồn (hoặc bảng đã group) cùng thứ tự dòng được chọn.
+     */
+    public static class Result {
+        private final ColumnarPage table;
+        private final List<ColumnInfo> columns;
+        private final int[] rows;
+
+        private Result(ColumnarPage table, List<ColumnInfo> columns, int[] rows) {
+            this.table = table;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public List<ColumnInfo> getColumns() {
+            return columns;
+        }
+
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        /**
+         * Dựng trang gồm {@code size} dòng kể từ {@code offset} của kết quả.
+         */
+        public ColumnarPage page(long offset, int size) {
+            int columnCount = table.getColumnCount();
+            ColumnarPage.Kind[] kinds = new ColumnarPage.Kind[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                kinds[i] = table.getKind(i);
+            }
+            ColumnarPage page = new ColumnarPage(table.getColumnNames(), kinds);
+            Object[] values = new Object[columnCount];
+            long end = Math.min(rows.length, offset + size);
+            for (long position = offset; position < end; position++) {
+                int row = rows[(int) position];
+                for (int i = 0; i < columnCount; i++) {
+                    values[i] = table.getValue(row, i);
+                }
+                page.appendRow(values);
+            }
+            return page;
+        }
+    }
+
+    public static Result transform(ColumnarPage source, List<ColumnInfo> columns, TransformRequest request) {
+        int[] rows = filter(source, request.getFilters());
+
+        ColumnarPage table = source;
+        List<ColumnInfo> resultColumns = columns;
+        if (!isEmpty(request.getGroupBy()) || !isEmpty(request.getAggregates())) {
+            List<ColumnInfo> groupedColumns = new ArrayList<>();
+            table = aggregate(source, columns, rows, request.getGroupBy(), request.getAggregates(), groupedColumns);
+            resultColumns = groupedColumns;
+            rows = identity(table.getRowCount());
+        }
+
+        Integer limit = request.getLimit();
+        if (limit != null && limit < 0) {
+            throw new SqlExecutionException("Limit must not be negative");
+        }
+        if (!isEmpty(request.getSort())) {
+            RowComparator comparator = comparator(table, request.getSort());
+            if (limit != null && limit < rows.length / 8) {
+                rows = topN(rows, comparator, limit);
+            } else {
+                ParallelRowSorter.sort(rows, comparator);
+            }
+        }
+        if (limit != null && limit < rows.length) {
+            rows = Arrays.copyOf(rows, limit);
+        }
+        return new Result(table, resultColumns, rows);
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static int[] identity(int rowCount) {
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private static int column(ColumnarPage page, String name) {
+        int column = name == null ? -1 : page.findColumn(name.trim());
+        if (column < 0) {
+            throw new SqlExecutionException("Column not found in captured result: " + name);
+        }
+        return column;
+    }
+
+    // ---------------------------------------------------------------- filter
+
+    private static int[] filter(ColumnarPage page, List<TransformRequest.Filter> filters) {
+        int rowCount = page.getRowCount();
+        if (isEmpty(filters)) {
+            return identity(rowCount);
+        }
+        IntPredicate[] predicates = new IntPredicate[filters.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = predicate(page, filters.get(i));
+        }
+        int[] selected = new int[rowCount];
+        int count = 0;
+        rows:
+        for (int row = 0; row < rowCount; row++) {
+            for (IntPredicate predicate : predicates) {
+                if (!predicate.test(row)) {
+                    continue rows;
+                }
+            }
+            selected[count++] = row;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private static IntPredicate predicate(ColumnarPage page, TransformRequest.Filter filter) {
+        int column = column(page, filter.getColumn());
+        String op = normalizeOp(filter.getOp());
+        switch (op) {
+            case "isNull":
+                return row -> page.isNull(row, column);
+            case "notNull":
+                return row -> !page.isNull(row, column);
+            case "in":
+                if (filter.getValues() == null) {
+                    throw new SqlExecutionException("Filter 'in' requires values");
+                }
+                List<IntPredicate> alternatives = new ArrayList<>();
+                for (Object value : filter.getValues()) {
+                    alternatives.add(comparison(page, column, "eq", value));
+                }
+                return row -> {
+                    for (IntPredicate alternative : alternatives) {
+                        if (alternative.test(row)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            case "like":
+                return like(page, column, filter.getValue());
+            default:
+                return comparison(page, column, op, filter.getValue());
+        }
+    }
+
+    private static String normalizeOp(String op) {
+        if (op == null) {
+            throw new SqlExecutionException("Filter operator is required");
+        }
+        switch (op.trim().toLowerCase()) {
+            case "=":
+            case "eq":
+                return "eq";
+            case "!=":
+            case "<>":
+            case "ne":
+                return "ne";
+            case "<":
+            case "lt":
+                return "lt";
+            case "<=":
+            case "le":
+                return "le";
+            case ">":
+            case "gt":
+                return "gt";
+            case ">=":
+            case "ge":
+                return "ge";
+            case "like":
+                return "like";
+            case "in":
+                return "in";
+            case "isnull":
+            case "is null":
+                return "isNull";
+            case "notnull":
+            case "is not null":
+                return "notNull";
+            default:
+                throw new SqlExecutionException("Unsupported filter operator: " + op);
+        }
+    }
+
+    private static boolean matches(int comparison, String op) {
+        switch (op) {
+            case "eq":
+                return comparison == 0;
+            case "ne":
+                return comparison != 0;
+            case "lt":
+                return comparison < 0;
+            case "le":
+                return comparison <= 0;
+            case "gt":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    // So sánh với NULL luôn sai, giống SQL
+    private static IntPredicate comparison(ColumnarPage page, int column, String op, Object value) {
+        if (value == null) {
+            return row -> false;
+        }
+        switch (page.getKind(column)) {
+            case LONG:
+                if (isIntegral(value)) {
+                    long target = ((Number) toNumber(value)).longValue();
+                    return row -> !page.isNull(row, column)
+                            && matches(Long.compare(page.getLong(row, column), target), op);
+                }
+                double longTarget = toNumber(value).doubleValue();
+                return row -> !page.isNull(row, column)
+                        && matches(Double.compare(page.getLong(row, column), longTarget), op);
+            case DOUBLE:
+                double doubleTarget = toNumber(value).doubleValue();
+                return row -> !page.isNull(row, column)
+                        && matches(Double.compare(page.getDouble(row, column), doubleTarget), op);
+            case STRING:
+                // Đánh giá một lần cho mỗi giá trị trong từ điển, sau đó mỗi dòng chỉ tra theo mã
+                String text = value.toString();
+                List<String> dictionary = page.getDictionary(column);
+                boolean[] accepted = new boolean[dictionary.size()];
+                for (int code = 0; code < accepted.length; code++) {
+                    accepted[code] = matches(dictionary.get(code).compareTo(text), op);
+                }
+                return row -> {
+                    int code = page.getCode(row, column);
+                    return code >= 0 && accepted[code];
+                };
+            default:
+                return row -> {
+                    Object current = page.getValue(row, column);
+                    return current != null && matches(compareToFilterValue(current, value), op);
+                };
+        }
+    }
+
+    private static IntPredicate like(ColumnarPage page, int column, Object value) {
+        if (value == null) {
+            return row -> false;
+        }
+        Pattern pattern = likePattern(value.toString());
+        if (page.getKind(column) == ColumnarPage.Kind.STRING) {
+            List<String> dictionary = page.getDictionary(column);
+            boolean[] accepted = new boolean[dictionary.size()];
+            for (int code = 0; code < accepted.length; code++) {
+                accepted[code] = pattern.matcher(dictionary.get(code)).matches();
+            }
+            return row -> {
+                int code = page.getCode(row, column);
+                return code >= 0 && accepted[code];
+            };
+        }
+        return row -> {
+            Object current = page.getValue(row, column);
+            return current != null && pattern.matcher(current.toString()).matches();
+        };
+    }
+
+    // LIKE của SQL: % là chuỗi bất kỳ, _ là một ký tự; không phân biệt hoa thường như collation mặc định của MySQL
+    private static Pattern likePattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    private static boolean isIntegral(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() < 64;
+        }
+        if (value instanceof String) {
+            try {
+                Long.parseLong(((String) value).trim());
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        try {
+            String text = value.toString().trim();
+            return isIntegral(text) ? (Number) Long.parseLong(text) : (Number) new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new SqlExecutionException("Invalid numeric filter value: " + value);
+        }
+    }
+
+    private static BigDecimal toDecimal(Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    private static int compareToFilterValue(Object current, Object value) {
+        if (current instanceof Number) {
+            return toDecimal((Number) current).compareTo(toDecimal(toNumber(value)));
+        }
+        if (current instanceof Boolean) {
+            return ((Boolean) current).compareTo(Boolean.parseBoolean(value.toString()));
+        }
+        return compareValues(current, value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return toDecimal((Number) a).compareTo(toDecimal((Number) b));
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    // ---------------------------------------------------------------- sort / top-N
+
+    private static RowComparator comparator(ColumnarPage page, List<String> sort) {
+        RowComparator comparator = null;
+        for (String item : sort) {
+            String[] parts = item.trim().split("\\s+");
+            RowComparator next = columnComparator(page, column(page, parts[0]));
+            if (parts.length > 1 && "desc".equalsIgnoreCase(parts[1])) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    // NULL đứng đầu khi tăng dần (giống MySQL)
+    private static RowComparator columnComparator(ColumnarPage page, int column) {
+        switch (page.getKind(column)) {
+            case LONG:
+                return (a, b) -> {
+                    boolean nullA = page.isNull(a, column);
+                    boolean nullB = page.isNull(b, column);
+                    if (nullA || nullB) {
+                        return Boolean.compare(!nullA, !nullB);
+                    }
+                    return Long.compare(page.getLong(a, column), page.getLong(b, column));
+                };
+            case DOUBLE:
+                return (a, b) -> {
+                    boolean nullA = page.isNull(a, column);
+                    boolean nullB = page.isNull(b, column);
+                    if (nullA || nullB) {
+                        return Boolean.compare(!nullA, !nullB);
+                    }
+                    return Double.compare(page.getDouble(a, column), page.getDouble(b, column));
+                };
+            case STRING:
+                // Thứ hạng của từng mã từ điển: so sánh chuỗi quy về so sánh int
+                List<String> dictionary = page.getDictionary(column);
+                Integer[] byValue = new Integer[dictionary.size()];
+                for (int code = 0; code < byValue.length; code++) {
+                    byValue[code] = code;
+                }
+                Arrays.sort(byValue, (x, y) -> dictionary.get(x).compareTo(dictionary.get(y)));
+                int[] rank = new int[byValue.length];
+                for (int i = 0; i < byValue.length; i++) {
+                    rank[byValue[i]] = i;
+                }
+                return (a, b) -> {
+                    int codeA = page.getCode(a, column);
+                    int codeB = page.getCode(b, column);
+                    if (codeA < 0 || codeB < 0) {
+                        return Boolean.compare(codeA >= 0, codeB >= 0);
+                    }
+                    return Integer.compare(rank[codeA], rank[codeB]);
+                };
+            default:
+                return (a, b) -> {
+                    Object valueA = page.getValue(a, column);
+                    Object valueB = page.getValue(b, column);
+                    if (valueA == null || valueB == null) {
+                        return Boolean.compare(valueA != null, valueB != null);
+                    }
+                    return compareValues(valueA, valueB);
+                };
+        }
+    }
+
+    /**
+     * N dòng đầu theo thứ tự sắp xếp bằng max-heap kích thước N: O(n log N) thay vì sắp toàn bộ.
+     * Dòng bằng nhau giữ thứ tự ban đầu như khi sắp xếp ổn định.
+     */
+    private static int[] topN(int[] rows, RowComparator comparator, int n) {
+        RowComparator order = comparator.thenComparing(Integer::compare);
+        int[] heap = new int[n];
+        int size = 0;
+        for (int row : rows) {
+            if (size < n) {
+                heap[size] = row;
+                siftUp(heap, size++, order);
+            } else if (n > 0 && order.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, size, order);
+            }
+        }
+        int[] result = Arrays.copyOf(heap, size);
+        ParallelRowSorter.sort(result, order);
+        return result;
+    }
+
+    private static void siftUp(int[] heap, int index, RowComparator order) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int size, RowComparator order) {
+        int index = 0;
+        int row = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(row, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    // ---------------------------------------------------------------- group by
+
+    private interface Accumulator {
+        void add(int row);
+
+        Object result();
+    }
+
+    private static ColumnarPage aggregate(ColumnarPage source, List<ColumnInfo> columns, int[] rows,
+                                          List<String> groupBy, List<TransformRequest.Aggregate> aggregates,
+                                          List<ColumnInfo> resultColumns) {
+        List<String> keys = groupBy != null ? groupBy : Collections.emptyList();
+        List<TransformRequest.Aggregate> functions = aggregates != null ? aggregates : Collections.emptyList();
+
+        int[] keyColumns = new int[keys.size()];
+        int outputCount = keyColumns.length + functions.size();
+        String[] names = new String[outputCount];
+        ColumnarPage.Kind[] kinds = new ColumnarPage.Kind[outputCount];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyColumns[i] = column(source, keys.get(i));
+            names[i] = source.getColumnName(keyColumns[i]);
+            kinds[i] = source.getKind(keyColumns[i]);
+            resultColumns.add(columns.get(keyColumns[i]));
+        }
+        List<Supplier<Accumulator>> factories = new ArrayList<>();
+        for (int i = 0; i < functions.size(); i++) {
+            TransformRequest.Aggregate aggregate = functions.get(i);
+            int output = keyColumns.length + i;
+            factories.add(accumulatorFactory(source, columns, aggregate, output, names, kinds, resultColumns));
+        }
+
+        // Khóa nhóm: cột chuỗi dùng mã từ điển, cột khác dùng giá trị; dòng đầu tiên của nhóm đại diện cho khóa
+        Map<List<Object>, Integer> groupIndex = new HashMap<>();
+        List<Integer> firstRows = new ArrayList<>();
+        List<Accumulator[]> groups = new ArrayList<>();
+        Object[] keyValues = new Object[keyColumns.length];
+        for (int row : rows) {
+            for (int i = 0; i < keyColumns.length; i++) {
+                int column = keyColumns[i];
+                keyValues[i] = source.getKind(column) == ColumnarPage.Kind.STRING
+                        ? (Object) source.getCode(row, column)
+                        : source.getValue(row, column);
+            }
+            List<Object> key = Arrays.asList(keyValues.clone());
+            Integer group = groupIndex.get(key);
+            if (group == null) {
+                group = groups.size();
+                groupIndex.put(key, group);
+                firstRows.add(row);
+                groups.add(newAccumulators(factories));
+            }
+            for (Accumulator accumulator : groups.get(group)) {
+                accumulator.add(row);
+            }
+        }
+        // Gộp không có group by luôn trả về một dòng, kể cả khi không có dòng nào thỏa điều kiện
+        if (groups.isEmpty() && keyColumns.length == 0) {
+            firstRows.add(-1);
+            groups.add(newAccumulators(factories));
+        }
+
+        ColumnarPage result = new ColumnarPage(names, kinds);
+        Object[] values = new Object[outputCount];
+        for (int group = 0; group < groups.size(); group++) {
+            int firstRow = firstRows.get(group);
+            for (int i = 0; i < keyColumns.length; i++) {
+                values[i] = source.getValue(firstRow, keyColumns[i]);
+            }
+            Accumulator[] accumulators = groups.get(group);
+            for (int i = 0; i < accumulators.length; i++) {
+                values[keyColumns.length + i] = accumulators[i].result();
+            }
+            result.appendRow(values);
+        }
+        return result;
+    }
+
+    private static Accumulator[] newAccumulators(List<Supplier<Accumulator>> factories) {
+        Accumulator[] accumulators = new Accumulator[factories.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = factories.get(i).get();
+        }
+        return accumulators;
+    }
+
+    private static Supplier<Accumulator> accumulatorFactory(ColumnarPage source, List<ColumnInfo> columns,
+                                                            TransformRequest.Aggregate aggregate, int output,
+                                                            String[] names, ColumnarPage.Kind[] kinds,
+                                                            List<ColumnInfo> resultColumns) {
+        String function = aggregate.getFunction() == null ? "" : aggregate.getFunction().trim().toLowerCase();
+        String columnName = aggregate.getColumn();
+        boolean countAll = "count".equals(function) && (columnName == null || "*".equals(columnName.trim()));
+        int column = countAll ? -1 : column(source, columnName);
+        names[output] = aggregate.getAlias() != null && !aggregate.getAlias().isBlank()
+                ? aggregate.getAlias()
+                : function + "(" + (countAll ? "*" : source.getColumnName(column)) + ")";
+
+        switch (function) {
+            case "count":
+                kinds[output] = ColumnarPage.Kind.LONG;
+                resultColumns.add(new ColumnInfo(names[output], "BIGINT"));
+                return () -> new Accumulator() {
+                    private long count;
+
+                    @Override
+                    public void add(int row) {
+                        if (column < 0 || !source.isNull(row, column)) {
+                            count++;
+                        }
+                    }
+
+                    @Override
+                    public Object result() {
+                        return count;
+                    }
+                };
+            case "sum":
+                return sumFactory(source, column, output, names, kinds, resultColumns);
+            case "min":
+            case "max":
+                kinds[output] = source.getKind(column);
+                resultColumns.add(new ColumnInfo(names[output], columns.get(column).getType()));
+                int sign = "min".equals(function) ? -1 : 1;
+                RowComparator comparator = columnComparator(source, column);
+                return () -> new Accumulator() {
+                    private int best = -1;
+
+                    @Override
+                    public void add(int row) {
+                        if (!source.isNull(row, column) && (best < 0 || sign * comparator.compare(row, best) > 0)) {
+                            best = row;
+                        }
+                    }
+
+                    @Override
+                    public Object result() {
+                        return best < 0 ? null : source.getValue(best, column);
+                    }
+                };
+            default:
+                throw new SqlExecutionException("Unsupported aggregate function: " + aggregate.getFunction());
+        }
+    }
+
+    // SUM trả về NULL khi nhóm không có giá trị khác NULL, giống SQL
+    private static Supplier<Accumulator> sumFactory(ColumnarPage source, int column, int output, String[] names,
+                                                    ColumnarPage.Kind[] kinds, List<ColumnInfo> resultColumns) {
+        switch (source.getKind(column)) {
+            case LONG:
+                kinds[output] = ColumnarPage.Kind.LONG;
+                resultColumns.add(new ColumnInfo(names[output], "BIGINT"));
+                return () -> new Accumulator() {
+                    private long sum;
+                    private boolean seen;
+
+                    @Override
+                    public void add(int row) {
+                        if (!source.isNull(row, column)) {
+                            try {
+                                sum = Math.addExact(sum, source.getLong(row, column));
+                            } catch (ArithmeticException e) {
+                                throw new SqlExecutionException("SUM overflow on column " + names[output]);
+                            }
+                            seen = true;
+                        }
+                    }
+
+                    @Override
+                    public Object result() {
+                        return seen ? sum : null;
+                    }
+                };
+            case DOUBLE:
+                kinds[output] = ColumnarPage.Kind.DOUBLE;
+                resultColumns.add(new ColumnInfo(names[output], "DOUBLE"));
+                return () -> new Accumulator() {
+                    private double sum;
+                    private boolean seen;
+
+                    @Override
+                    public void add(int row) {
+                        if (!source.isNull(row, column)) {
+                            sum += source.getDouble(row, column);
+                            seen = true;
+                        }
+                    }
+
+                    @Override
+                    public Object result() {
+                        return seen ? sum : null;
+                    }
+                };
+            case OBJECT:
+                kinds[output] = ColumnarPage.Kind.OBJECT;
+                resultColumns.add(new ColumnInfo(names[output], "DECIMAL"));
+                return () -> new Accumulator() {
+                    private BigDecimal sum;
+
+                    @Override
+                    public void add(int row) {
+                        Object value = source.getValue(row, column);
+                        if (value == null) {
+                            return;
+                        }
+                        if (!(value instanceof Number)) {
+                            throw new SqlExecutionException("SUM requires a numeric column: "
+                                    + source.getColumnName(column));
+                        }
+                        BigDecimal decimal = toDecimal((Number) value);
+                        sum = sum == null ? decimal : sum.add(decimal);
+                    }
+
+                    @Override
+                    public Object result() {
+                        return sum;
+                    }
+                };
+            default:
+                throw new SqlExecutionException("SUM requires a numeric column: " + source.getColumnName(column));
+        }
+    }
+}
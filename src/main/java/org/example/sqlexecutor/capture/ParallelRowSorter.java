@@ -0,0 +1,94 @@
+package org.example.sqlexecutor.capture;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Merge sort ổn định trên mảng chỉ số dòng {@code int[]}: nửa trái/phải được sắp song song bằng fork-join
+ * khi đủ lớn, đoạn nhỏ sắp tuần tự bằng insertion sort.
+ */
+final class ParallelRowSorter {
+    // Đoạn nhỏ hơn ngưỡng này không chia task nữa
+    private static final int PARALLEL_THRESHOLD = 8192;
+    private static final int INSERTION_THRESHOLD = 32;
+
+    private ParallelRowSorter() {
+    }
+
+    static void sort(int[] rows, RowComparator comparator) {
+        int[] buffer = new int[rows.length];
+        if (rows.length < PARALLEL_THRESHOLD) {
+            mergeSort(rows, buffer, 0, rows.length, comparator);
+        } else {
+            ForkJoinPool.commonPool().invoke(new SortTask(rows, buffer, 0, rows.length, comparator));
+        }
+    }
+
+    private static class SortTask extends RecursiveAction {
+        private final int[] rows;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final RowComparator comparator;
+
+        private SortTask(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+            this.rows = rows;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                mergeSort(rows, buffer, from, to, comparator);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(rows, buffer, from, middle, comparator),
+                    new SortTask(rows, buffer, middle, to, comparator));
+            merge(rows, buffer, from, middle, to, comparator);
+        }
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            insertionSort(rows, from, to, comparator);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+        merge(rows, buffer, from, middle, to, comparator);
+    }
+
+    private static void insertionSort(int[] rows, int from, int to, RowComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void merge(int[] rows, int[] buffer, int from, int middle, int to, RowComparator comparator) {
+        // Hai nửa đã đúng thứ tự thì bỏ qua
+        if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+}
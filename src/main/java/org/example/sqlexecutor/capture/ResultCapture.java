@@ -0,0 +1,93 @@
+package org.example.sqlexecutor.capture;
+
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.example.sqlexecutor.model.TransformRequest;
+
+import java.util.List;
+
+/**
+ * Kết quả SELECT được giữ trong bộ nhớ dạng cột (chỉ đọc) để biến đổi lại mà không truy vấn database.
+ * Kết quả biến đổi gần nhất được giữ lại để lật trang không phải lọc/sắp xếp lại.
+ */
+public class ResultCapture {
+    private final String id;
+    private final String dataSourceName;
+    private final String query;
+    private final List<ColumnInfo> columns;
+    private final ColumnarPage data;
+    private final boolean truncated;
+    private final long sizeBytes;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long lastAccess = createdAt;
+    private volatile LastTransform lastTransform;
+
+    private static class LastTransform {
+        private final String signature;
+        private final CaptureEngine.Result result;
+
+        private LastTransform(String signature, CaptureEngine.Result result) {
+            this.signature = signature;
+            this.result = result;
+        }
+    }
+
+    public ResultCapture(String id, String dataSourceName, String query, List<ColumnInfo> columns,
+                         ColumnarPage data, boolean truncated) {
+        this.id = id;
+        this.dataSourceName = dataSourceName;
+        this.query = query;
+        this.columns = columns;
+        this.data = data;
+        this.truncated = truncated;
+        this.sizeBytes = data.estimateSizeBytes();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return data.getRowCount();
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public CaptureEngine.Result transform(TransformRequest request) {
+        touch();
+        String signature = request.getSignature();
+        LastTransform last = lastTransform;
+        if (last != null && last.signature.equals(signature)) {
+            return last.result;
+        }
+        CaptureEngine.Result result = CaptureEngine.transform(data, columns, request);
+        lastTransform = new LastTransform(signature, result);
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.sqlexecutor.capture;
+
+/**
+ * So sánh hai chỉ số dòng không qua boxing.
+ */
+@FunctionalInterface
+interface RowComparator {
+    int compare(int a, int b);
+
+    default RowComparator reversed() {
+        return (a, b) -> compare(b, a);
+    }
+
+    default RowComparator thenComparing(RowComparator next) {
+        return (a, b) -> {
+            int result = compare(a, b);
+            return result != 0 ? result : next.compare(a, b);
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.sqlexecutor.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Đọc metadata vào {@link SchemaCatalog}. Lần đầu (hoặc khi refresh toàn bộ) đọc tất cả cột bằng một query;
+ * các lần sau chỉ đọc danh sách bảng kèm dấu thời gian DDL rồi nạp lại cột của bảng mới/thay đổi.
+ * Database không có dấu thời gian DDL (PostgreSQL, view của MySQL) luôn được nạp lại.
+ */
+public final class CatalogLoader {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogLoader.class);
+
+    // Mỗi query trả về cột theo thứ tự cố định:
+    // tables: tên, loại (TABLE/VIEW), comment, dấu thời gian DDL
+    // columns: tên bảng, tên cột, kiểu, comment (bản theo bảng nhận tên bảng qua tham số bind)
+    private static final class Queries {
+        private final String tables;
+        private final String columns;
+        private final String tableColumns;
+
+        private Queries(String tables, String columns, String tableColumns) {
+            this.tables = tables;
+            this.columns = columns;
+            this.tableColumns = tableColumns;
+        }
+    }
+
+    private static final Map<String, Queries> QUERIES = new HashMap<>();
+    static {
+        String mysqlColumns = "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, COLUMN_COMMENT " +
+                "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE()";
+        QUERIES.put("mysql", new Queries(
+                "SELECT TABLE_NAME, CASE WHEN TABLE_TYPE = 'VIEW' THEN 'VIEW' ELSE 'TABLE' END, TABLE_COMMENT, CREATE_TIME " +
+                        "FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE()",
+                mysqlColumns + " ORDER BY TABLE_NAME, ORDINAL_POSITION",
+                mysqlColumns + " AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION"));
+
+        String oracleColumns = "SELECT t.TABLE_NAME, t.COLUMN_NAME, t.DATA_TYPE, c.COMMENTS " +
+                "FROM ALL_TAB_COLUMNS t " +
+                "LEFT JOIN ALL_COL_COMMENTS c ON c.OWNER = t.OWNER AND c.TABLE_NAME = t.TABLE_NAME AND c.COLUMN_NAME = t.COLUMN_NAME " +
+                "WHERE t.OWNER = USER";
+        QUERIES.put("oracle", new Queries(
+                "SELECT o.OBJECT_NAME, o.OBJECT_TYPE, c.COMMENTS, TO_CHAR(o.LAST_DDL_TIME, 'YYYY-MM-DD HH24:MI:SS') " +
+                        "FROM ALL_OBJECTS o " +
+                        "LEFT JOIN ALL_TAB_COMMENTS c ON c.OWNER = o.OWNER AND c.TABLE_NAME = o.OBJECT_NAME " +
+                        "WHERE o.OWNER = USER AND o.OBJECT_TYPE IN ('TABLE', 'VIEW')",
+                oracleColumns + " ORDER BY t.TABLE_NAME, t.COLUMN_ID",
+                oracleColumns + " AND t.TABLE_NAME = ? ORDER BY t.COLUMN_ID"));
+
+        String sqlServerColumns = "SELECT o.name, c.name, t.name, CAST(ep.value AS NVARCHAR(4000)) " +
+                "FROM sys.columns c " +
+                "JOIN sys.objects o ON o.object_id = c.object_id " +
+                "JOIN sys.types t ON c.user_type_id = t.user_type_id " +
+                "LEFT JOIN sys.extended_properties ep ON ep.major_id = c.object_id AND ep.minor_id = c.column_id AND ep.name = 'MS_Description' " +
+                "WHERE o.type IN ('U', 'V')";
+        QUERIES.put("sqlserver", new Queries(
+                "SELECT o.name, CASE WHEN o.type = 'V' THEN 'VIEW' ELSE 'TABLE' END, CAST(ep.value AS NVARCHAR(4000)), " +
+                        "CONVERT(VARCHAR(30), o.modify_date, 126) " +
+                        "FROM sys.objects o " +
+                        "LEFT JOIN sys.extended_properties ep ON ep.major_id = o.object_id AND ep.minor_id = 0 AND ep.name = 'MS_Description' " +
+                        "WHERE o.type IN ('U', 'V')",
+                sqlServerColumns + " ORDER BY o.name, c.column_id",
+                sqlServerColumns + " AND o.name = ? ORDER BY c.column_id"));
+
+        String postgresColumns = "SELECT c.relname, a.attname, format_type(a.atttypid, a.atttypmod), col_description(c.oid, a.attnum) " +
+                "FROM pg_catalog.pg_attribute a " +
+                "JOIN pg_catalog.pg_class c ON c.oid = a.attrelid " +
+                "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = current_schema() AND c.relkind IN ('r', 'p', 'v', 'm') AND a.attnum > 0 AND NOT a.attisdropped";
+        QUERIES.put("postgresql", new Queries(
+                "SELECT c.relname, CASE WHEN c.relkind IN ('v', 'm') THEN 'VIEW' ELSE 'TABLE' END, obj_description(c.oid, 'pg_class'), NULL " +
+                        "FROM pg_catalog.pg_class c " +
+                        "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                        "WHERE n.nspname = current_schema() AND c.relkind IN ('r', 'p', 'v', 'm')",
+                postgresColumns + " ORDER BY c.relname, a.attnum",
+                postgresColumns + " AND c.relname = ? ORDER BY a.attnum"));
+    }
+
+    private CatalogLoader() {
+    }
+
+    /**
+     * Tạo snapshot mới từ {@code previous}: bảng mới, bảng có dấu thời gian DDL thay đổi và các bảng trong
+     * {@code forcedKeys} được nạp lại cột; bảng không còn tồn tại bị bỏ. {@code previous} null hoặc {@code full}
+     * hoặc số bảng cần nạp vượt {@code maxIncrementalTables} thì đọc lại toàn bộ cột bằng một query.
+     */
+    public static SchemaCatalog load(JdbcTemplate jdbcTemplate, String dataSourceName, String databaseType,
+                                     SchemaCatalog previous, Set<String> forcedKeys, boolean full,
+                                     int maxIncrementalTables) {
+        Queries queries = QUERIES.getOrDefault(databaseType, QUERIES.get("mysql"));
+        long startTime = System.currentTimeMillis();
+
+        Map<String, SchemaCatalog.Table> tableRows = new HashMap<>();
+        jdbcTemplate.query(queries.tables, rs -> {
+            String name = rs.getString(1);
+            String comment = rs.getString(3);
+            tableRows.put(SchemaCatalog.key(name), new SchemaCatalog.Table(name, rs.getString(2),
+                    comment != null && !comment.isEmpty() ? comment : null, rs.getString(4), List.of()));
+        });
+
+        Map<String, SchemaCatalog.Table> previousTables = previous != null ? previous.getTablesByKey() : Map.of();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, SchemaCatalog.Table> entry : tableRows.entrySet()) {
+            SchemaCatalog.Table old = previousTables.get(entry.getKey());
+            String marker = entry.getValue().getChangeMarker();
+            if (old == null || marker == null || !Objects.equals(marker, old.getChangeMarker())
+                    || forcedKeys.contains(entry.getKey())) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        boolean fullLoad = previous == null || full || changed.size() > maxIncrementalTables;
+        Map<String, List<SchemaCatalog.Column>> columns = new HashMap<>();
+        if (fullLoad) {
+            jdbcTemplate.query(queries.columns, rs -> {
+                columns.computeIfAbsent(SchemaCatalog.key(rs.getString(1)), key -> new ArrayList<>())
+                        .add(column(rs.getString(2), rs.getString(3), rs.getString(4)));
+            });
+        } else {
+            for (String key : changed) {
+                List<SchemaCatalog.Column> tableColumns = new ArrayList<>();
+                jdbcTemplate.query(queries.tableColumns, rs -> {
+                    tableColumns.add(column(rs.getString(2), rs.getString(3), rs.getString(4)));
+                }, tableRows.get(key).getName());
+                columns.put(key, tableColumns);
+            }
+        }
+
+        Map<String, SchemaCatalog.Table> tables = new LinkedHashMap<>();
+        for (Map.Entry<String, SchemaCatalog.Table> entry : tableRows.entrySet()) {
+            SchemaCatalog.Table row = entry.getValue();
+            List<SchemaCatalog.Column> tableColumns = columns.get(entry.getKey());
+            if (tableColumns == null) {
+                // Không thay đổi: giữ cột của snapshot cũ
+                SchemaCatalog.Table old = previousTables.get(entry.getKey());
+                tableColumns = fullLoad || old == null ? List.of() : old.getColumns();
+            }
+            tables.put(entry.getKey(), new SchemaCatalog.Table(row.getName(), row.getType(), row.getComment(),
+                    row.getChangeMarker(), tableColumns));
+        }
+
+        long version = previous != null ? previous.getVersion() + 1 : 1;
+        SchemaCatalog catalog = new SchemaCatalog(dataSourceName, databaseType, version, tables);
+        int removed = 0;
+        for (String key : previousTables.keySet()) {
+            if (!tableRows.containsKey(key)) {
+                removed++;
+            }
+        }
+        logger.info("Catalog [{}] v{}: {} tables, {} columns ({}; {} reloaded, {} removed) in {} ms",
+                dataSourceName, version, tables.size(), catalog.getColumnCount(),
+                fullLoad ? "full" : "incremental", fullLoad ? tables.size() : changed.size(), removed,
+                System.currentTimeMillis() - startTime);
+        return catalog;
+    }
+
+    private static SchemaCatalog.Column column(String name, String dataType, String comment) {
+        return new SchemaCatalog.Column(name, dataType, comment != null && !comment.isEmpty() ? comment : null);
+    }
+}
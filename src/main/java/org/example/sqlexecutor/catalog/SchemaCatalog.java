@@ -0,0 +1,145 @@
+package org.example.sqlexecutor.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Snapshot metadata (bảng, view, cột, kiểu, comment) của một datasource, chỉ đọc.
+ * Mỗi lần refresh tạo snapshot mới nên request gợi ý đọc không cần khóa.
+ */
+public final class SchemaCatalog {
+    private final String dataSourceName;
+    private final String databaseType;
+    private final long version;
+    private final long loadedAt = System.currentTimeMillis();
+    private final Map<String, Table> tablesByKey;
+    private final List<Table> tables;
+
+    public SchemaCatalog(String dataSourceName, String databaseType, long version, Map<String, Table> tablesByKey) {
+        this.dataSourceName = dataSourceName;
+        this.databaseType = databaseType;
+        this.version = version;
+        this.tablesByKey = Collections.unmodifiableMap(new HashMap<>(tablesByKey));
+        List<Table> sorted = new ArrayList<>(tablesByKey.values());
+        sorted.sort(Comparator.comparing(Table::getName, String.CASE_INSENSITIVE_ORDER));
+        this.tables = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Khóa tra cứu không phân biệt hoa thường, bỏ schema và dấu quote: {@code [dbo].[Orders]} → {@code ORDERS}.
+     */
+    public static String key(String tableName) {
+        String name = tableName.trim();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        return name.replaceAll("[`\"\\[\\]]", "").toUpperCase(Locale.ROOT);
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getDatabaseType() {
+        return databaseType;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    // Theo thứ tự tên
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    public Table getTable(String tableName) {
+        return tableName == null ? null : tablesByKey.get(key(tableName));
+    }
+
+    Map<String, Table> getTablesByKey() {
+        return tablesByKey;
+    }
+
+    public int getColumnCount() {
+        int count = 0;
+        for (Table table : tables) {
+            count += table.getColumns().size();
+        }
+        return count;
+    }
+
+    public static final class Table {
+        private final String name;
+        private final String type;
+        private final String comment;
+        // Dấu thời gian DDL của database (Oracle LAST_DDL_TIME, SQL Server modify_date...); null nếu không có
+        private final String changeMarker;
+        private final List<Column> columns;
+
+        public Table(String name, String type, String comment, String changeMarker, List<Column> columns) {
+            this.name = name;
+            this.type = type;
+            this.comment = comment;
+            this.changeMarker = changeMarker;
+            // List.copyOf giữ nguyên list bất biến sẵn có nên cột của bảng không đổi được dùng chung giữa các snapshot
+            this.columns = List.copyOf(columns);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // "TABLE" hoặc "VIEW"
+        public String getType() {
+            return type;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public String getChangeMarker() {
+            return changeMarker;
+        }
+
+        public List<Column> getColumns() {
+            return columns;
+        }
+
+        public boolean isView() {
+            return "VIEW".equals(type);
+        }
+    }
+
+    public static final class Column {
+        private final String name;
+        private final String dataType;
+        private final String comment;
+
+        public Column(String name, String dataType, String comment) {
+            this.name = name;
+            this.dataType = dataType;
+            this.comment = comment;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDataType() {
+            return dataType;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+    }
+}
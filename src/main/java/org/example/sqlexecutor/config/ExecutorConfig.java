@@ -0,0 +1,121 @@
+package org.example.sqlexecutor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Executor có giới hạn cho các truy vấn chạy nền (đếm deferred, phát hiện dialect); hàng đợi đầy thì
+    // từ chối (TaskRejectedException) để thread request không phải tự chạy tác vụ nền
+    @Bean(name = "queryExecutor")
+    public ThreadPoolTaskExecutor queryExecutor(
+            @Value("${sql.query-executor.core-size:4}") int coreSize,
+            @Value("${sql.query-executor.max-size:8}") int maxSize,
+            @Value("${sql.query-executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sql-query-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // COUNT exact song song với truy vấn trang: thread riêng, không hàng đợi; hết thread rảnh thì
+    // SqlExecutorServiceImpl đếm ngay trên thread request thay vì xếp hàng sau deferred count / nạp catalog
+    @Bean(name = "countExecutor")
+    public ThreadPoolTaskExecutor countExecutor(@Value("${sql.count.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("sql-count-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Thread đọc ResultSet cho export dạng pipeline; không dùng CallerRunsPolicy vì thread gọi
+    // chính là thread ghi, chạy cả hai trên cùng thread sẽ kẹt khi hàng đợi batch đầy
+    @Bean(name = "exportReaderExecutor")
+    public ThreadPoolTaskExecutor exportReaderExecutor(
+            @Value("${sql.export.reader-threads:4}") int threads,
+            @Value("${sql.export.reader-queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("export-reader-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Thread chạy export job nền; số job mỗi datasource do ExportJobService giới hạn
+    @Bean(name = "exportJobExecutor")
+    public ThreadPoolTaskExecutor exportJobExecutor(
+            @Value("${sql.export-job.threads:2}") int threads,
+            @Value("${sql.export-job.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("export-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Prefetch trang kế tiếp: thread ưu tiên thấp, hàng đợi nhỏ; đầy thì PrefetchService bỏ qua prefetch
+    // (không dùng CallerRunsPolicy vì prefetch không được làm chậm request hiện tại)
+    @Bean(name = "prefetchExecutor")
+    public ThreadPoolTaskExecutor prefetchExecutor(
+            @Value("${sql.prefetch.threads:2}") int threads,
+            @Value("${sql.prefetch.queue-capacity:8}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sql-prefetch-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Nạp schema catalog ở background, tách khỏi queryExecutor để không tranh thread với các lượt đếm;
+    // mỗi datasource chỉ có một lượt nạp nên hàng đợi nhỏ là đủ, đầy thì lượt nạp chờ lần yêu cầu sau
+    @Bean(name = "catalogExecutor")
+    public ThreadPoolTaskExecutor catalogExecutor(
+            @Value("${sql.catalog.threads:1}") int threads,
+            @Value("${sql.catalog.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sql-catalog-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Lookup metadata song song cho gợi ý; hàng đợi đầy thì lookup bị bỏ qua thay vì chạy trên thread request
+    // (CallerRunsPolicy sẽ làm request vượt deadline)
+    @Bean(name = "suggestionExecutor")
+    public ThreadPoolTaskExecutor suggestionExecutor(
+            @Value("${sql.suggest.threads:4}") int threads,
+            @Value("${sql.suggest.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sql-suggest-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
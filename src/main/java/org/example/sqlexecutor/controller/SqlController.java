@@ -2,23 +2,43 @@ package org.example.sqlexecutor.controller;
 
 import jakarta.servlet.http.HttpServletResponse;
 import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.export.ExportOptions;
+import org.example.sqlexecutor.model.ResultFormat;
 import org.example.sqlexecutor.model.SqlQuery;
 import org.example.sqlexecutor.model.SqlResult;
-import org.example.sqlexecutor.service.ExcelExportService;
+import org.example.sqlexecutor.model.TransformRequest;
+import org.example.sqlexecutor.service.ArrowResultWriter;
+import org.example.sqlexecutor.sql.SqlStatementType;
+import org.example.sqlexecutor.service.CursorSessionService;
+import org.example.sqlexecutor.service.DeferredCountService;
+import org.example.sqlexecutor.service.ExportJobService;
+import org.example.sqlexecutor.service.ExportService;
+import org.example.sqlexecutor.service.PrefetchService;
+import org.example.sqlexecutor.service.QueryResultCache;
+import org.example.sqlexecutor.service.ResultCaptureService;
+import org.example.sqlexecutor.service.QuerySingleFlight;
+import org.example.sqlexecutor.service.ResultSnapshotService;
 import org.example.sqlexecutor.service.SqlExecutorService;
 import org.example.sqlexecutor.validator.ConfirmationValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/sql")
 @CrossOrigin(origins = "*")
 public class SqlController {
 
     @Autowired
-    private ExcelExportService excelExportService;
+    private ExportService exportService;
 
     @Autowired
     private SqlExecutorService sqlExecutorService;
@@ -26,14 +46,38 @@ public class SqlController {
     @Autowired
     private ConfirmationValidator confirmationValidator;
 
+    @Autowired
+    private CursorSessionService cursorSessionService;
+
+    @Autowired
+    private DeferredCountService deferredCountService;
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private QuerySingleFlight querySingleFlight;
+
+    @Autowired
+    private ResultSnapshotService resultSnapshotService;
+
+    @Autowired
+    private ResultCaptureService resultCaptureService;
+
+    @Autowired
+    private PrefetchService prefetchService;
+
     @PostMapping("/execute")
-    public ResponseEntity<?> executeSql(@RequestBody SqlQuery sqlQuery) {
+    public ResponseEntity<?> executeSql(@RequestBody SqlQuery sqlQuery, HttpServletResponse response) {
         try {
             // Xác định loại truy vấn
-            String queryType = sqlExecutorService.determineQueryType(sqlQuery.getQuery().trim());
+            SqlStatementType statementType = sqlQuery.getStatementType();
 
             // Xác thực mã xác nhận
-            if (!confirmationValidator.validateConfirmationCode(sqlQuery.getConfirmationCode(), queryType)) {
+            if (!confirmationValidator.validateConfirmationCode(sqlQuery.getConfirmationCode(), statementType)) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new SqlResult() {{
                             setSuccess(false);
@@ -41,6 +85,29 @@ public class SqlController {
                         }});
             }
 
+            // Định dạng Arrow: ghi thẳng record batch ra response thay vì trả SqlResult dạng JSON
+            if (sqlQuery.getResultFormat() == ResultFormat.ARROW) {
+                if (!statementType.isSelect()) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(new SqlResult() {{
+                                setSuccess(false);
+                                setMessage("Arrow result format is only available for SELECT queries");
+                            }});
+                }
+                try {
+                    response.setContentType(ArrowResultWriter.CONTENT_TYPE);
+                    sqlExecutorService.writeArrowPage(sqlQuery, response.getOutputStream());
+                    response.flushBuffer();
+                    return null;
+                } catch (RuntimeException e) {
+                    // Lỗi trước khi ghi dữ liệu: bỏ content type Arrow để trả lỗi dạng JSON như bình thường
+                    if (!response.isCommitted()) {
+                        response.reset();
+                    }
+                    throw e;
+                }
+            }
+
             SqlResult result = sqlExecutorService.executeSql(sqlQuery);
             return ResponseEntity.ok(result);
         } catch (SqlExecutionException e) {
@@ -58,37 +125,227 @@ public class SqlController {
         }
     }
 
-    @GetMapping("/export-excel")
+    /**
+     * Trả toàn bộ kết quả SELECT dạng NDJSON, ghi lần lượt từng dòng ra response (không phân trang).
+     */
+    @PostMapping("/execute-stream")
+    public void executeSqlStream(@RequestBody SqlQuery sqlQuery, HttpServletResponse response) {
+        try {
+            SqlStatementType statementType = sqlQuery.getStatementType();
+
+            if (!confirmationValidator.validateConfirmationCode(sqlQuery.getConfirmationCode(), statementType)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("Invalid confirmation code");
+                return;
+            }
+
+            if (!statementType.isSelect()) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("Only SELECT queries can be streamed");
+                return;
+            }
+
+            response.setContentType("application/x-ndjson");
+            response.setCharacterEncoding("UTF-8");
+            sqlExecutorService.streamSelect(sqlQuery, response.getOutputStream());
+            response.flushBuffer();
+        } catch (Exception e) {
+            try {
+                if (!response.isCommitted()) {
+                    response.reset();
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("Error streaming query: " + e.getMessage());
+                }
+            } catch (Exception ex) {
+                // Ignore
+            }
+        }
+    }
+
+    @GetMapping("/count/{countId}")
+    public Map<String, Object> getDeferredCount(@PathVariable String countId) {
+        return deferredCountService.getStatus(countId);
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> closeCursorSession(@PathVariable String sessionId) {
+        cursorSessionService.close(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/snapshots/{snapshotId}")
+    public ResponseEntity<Void> deleteSnapshot(@PathVariable String snapshotId) {
+        resultSnapshotService.delete(snapshotId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/snapshots/stats")
+    public Map<String, Object> getSnapshotStats() {
+        return resultSnapshotService.getStats();
+    }
+
+    /**
+     * Sắp xếp / lọc / group by / top-N trong bộ nhớ trên kết quả đã capture (SELECT gửi kèm "capture": true).
+     */
+    @PostMapping("/captures/{captureId}/transform")
+    public ResponseEntity<SqlResult> transformCapture(@PathVariable String captureId,
+                                                      @RequestBody TransformRequest request) {
+        try {
+            return ResponseEntity.ok(sqlExecutorService.transformCapture(captureId, request));
+        } catch (SqlExecutionException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new SqlResult() {{
+                        setSuccess(false);
+                        setMessage(e.getMessage());
+                    }});
+        }
+    }
+
+    @DeleteMapping("/captures/{captureId}")
+    public ResponseEntity<Void> deleteCapture(@PathVariable String captureId) {
+        resultCaptureService.delete(captureId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/captures/stats")
+    public Map<String, Object> getCaptureStats() {
+        return resultCaptureService.getStats();
+    }
+
+    /**
+     * Export kết quả SELECT; {@code format} chọn xlsx (mặc định), csv, tsv hoặc jsonl,
+     * {@code gzip} nén các định dạng văn bản, {@code engine} chọn engine ghi XLSX.
+     */
+    @GetMapping({"/export-excel", "/export"})
     public void exportToExcel(@RequestParam String query,
                               @RequestParam String confirmationCode,
+                              @RequestParam(required = false) String dataSourceName,
+                              @RequestParam(required = false) String format,
+                              @RequestParam(required = false) String engine,
+                              @RequestParam(required = false) Boolean gzip,
                               HttpServletResponse response) {
         try {
+            ExportOptions options;
+            try {
+                options = ExportOptions.of(format, engine, gzip);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write(e.getMessage());
+                return;
+            }
+
             // Xác định loại truy vấn
-            String queryType = sqlExecutorService.determineQueryType(query.trim());
+            SqlStatementType statementType = SqlStatementType.classify(query);
 
             // Xác thực mã xác nhận
-            if (!confirmationValidator.validateConfirmationCode(confirmationCode, queryType)) {
+            if (!confirmationValidator.validateConfirmationCode(confirmationCode, statementType)) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 response.getWriter().write("Invalid confirmation code");
                 return;
             }
 
-            // Xuất Excel chỉ cho truy vấn SELECT
-            if (!"SELECT".equals(queryType)) {
+            // Chỉ export cho truy vấn SELECT
+            if (!statementType.isSelect()) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                response.getWriter().write("Only SELECT queries can be exported to Excel");
+                response.getWriter().write("Only SELECT queries can be exported");
                 return;
             }
 
-            excelExportService.exportToExcel(query, response);
+            exportService.export(dataSourceName, query, options, response);
 
         } catch (Exception e) {
             try {
                 response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                response.getWriter().write("Error exporting to Excel: " + e.getMessage());
+                response.getWriter().write("Error exporting query results: " + e.getMessage());
             } catch (Exception ex) {
                 // Ignore
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tạo job export chạy nền, trả về jobId để poll tiến độ và tải file khi xong.
+     */
+    @PostMapping("/export-jobs")
+    public ResponseEntity<Map<String, Object>> submitExportJob(@RequestBody SqlQuery sqlQuery,
+                                                               @RequestParam(required = false) String format,
+                                                               @RequestParam(required = false) String engine,
+                                                               @RequestParam(required = false) Boolean gzip) {
+        ExportOptions options;
+        try {
+            options = ExportOptions.of(format, engine, gzip);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+        try {
+            SqlStatementType statementType = sqlQuery.getStatementType();
+
+            if (!confirmationValidator.validateConfirmationCode(sqlQuery.getConfirmationCode(), statementType)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "Invalid confirmation code"));
+            }
+
+            if (!statementType.isSelect()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "Only SELECT queries can be exported"));
+            }
+
+            ExportJobService.ExportJob job =
+                    exportJobService.submit(sqlQuery.getDataSourceName(), sqlQuery.getQuery().trim(), options);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(exportJobService.getStatus(job.getId()));
+        } catch (SqlExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/export-jobs/{jobId}")
+    public Map<String, Object> getExportJob(@PathVariable String jobId) {
+        return exportJobService.getStatus(jobId);
+    }
+
+    /**
+     * Tải file của job đã xong; hỗ trợ header Range để tải tiếp khi bị ngắt.
+     */
+    @GetMapping("/export-jobs/{jobId}/file")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String jobId) {
+        ExportJobService.ExportJob job;
+        try {
+            job = exportJobService.getCompleted(jobId);
+        } catch (SqlExecutionException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(job.getFileName()).build().toString())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(MediaType.parseMediaType(job.getOptions().getContentType()))
+                .body(new FileSystemResource(job.getFile()));
+    }
+
+    @DeleteMapping("/export-jobs/{jobId}")
+    public ResponseEntity<Void> deleteExportJob(@PathVariable String jobId) {
+        exportJobService.cancel(jobId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return queryResultCache.getStats();
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() {
+        queryResultCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/single-flight/stats")
+    public Map<String, Object> getSingleFlightStats() {
+        return querySingleFlight.getStats();
+    }
+
+    @GetMapping("/prefetch/stats")
+    public Map<String, Object> getPrefetchStats() {
+        return prefetchService.getStats();
+    }
+}
@@ -1,10 +1,22 @@
 package org.example.sqlexecutor.controller;
 
 import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.model.SqlSuggestion;
+import org.example.sqlexecutor.model.SuggestionContextRequest;
 import org.example.sqlexecutor.service.DataSourceService;
+import org.example.sqlexecutor.service.SchemaBundleService;
+import org.example.sqlexecutor.service.SchemaCatalogService;
+import org.example.sqlexecutor.service.SqlSuggestionService;
+import org.example.sqlexecutor.service.SuggestionIndexService;
+import org.example.sqlexecutor.suggest.SuggestionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,78 +31,34 @@ public class SqlSuggestionController {
     @Autowired
     private DataSourceService dataSourceService;
 
-    private static final List<String> COMMON_SQL_KEYWORDS = Arrays.asList(
-            "SELECT", "FROM", "WHERE", "GROUP BY", "HAVING", "ORDER BY",
-            "INSERT", "UPDATE", "DELETE", "JOIN", "LEFT JOIN", "RIGHT JOIN",
-            "INNER JOIN", "FULL JOIN", "UNION", "CREATE", "ALTER", "DROP",
-            "TABLE", "VIEW", "INDEX", "AND", "OR", "NOT", "IN", "BETWEEN",
-            "LIKE", "IS NULL", "IS NOT NULL"
-    );
-
-    private static final List<String> COMMON_SQL_FUNCTIONS = Arrays.asList(
-            "COUNT", "SUM", "AVG", "MIN", "MAX", "CONCAT", "SUBSTRING",
-            "TRIM", "LENGTH", "UPPER", "LOWER", "ROUND", "NOW()"
-    );
-
-    // Database-specific keywords
-    private static final Map<String, List<String>> DB_SPECIFIC_KEYWORDS = new HashMap<>();
-    static {
-        // MySQL keywords
-        DB_SPECIFIC_KEYWORDS.put("mysql", Arrays.asList(
-                "LIMIT", "OFFSET", "SHOW", "DESCRIBE", "EXPLAIN", "USE", "IGNORE"
-        ));
-
-        // SQL Server keywords
-        DB_SPECIFIC_KEYWORDS.put("sqlserver", Arrays.asList(
-                "TOP", "OFFSET FETCH", "OUTPUT", "IDENTITY", "MERGE", "PIVOT", "UNPIVOT",
-                "OVER", "PARTITION BY", "WITH TIES", "CROSS APPLY", "OUTER APPLY"
-        ));
-
-        // Oracle keywords
-        DB_SPECIFIC_KEYWORDS.put("oracle", Arrays.asList(
-                "ROWNUM", "ROWID", "CONNECT BY", "START WITH", "PRIOR", "LEVEL",
-                "CONNECT_BY_ROOT", "SYS_CONNECT_BY_PATH", "NOCYCLE"
-        ));
-    }
+    @Autowired
+    private SchemaCatalogService schemaCatalogService;
 
-    // Database-specific functions
-    private static final Map<String, List<String>> DB_SPECIFIC_FUNCTIONS = new HashMap<>();
-    static {
-        // MySQL functions
-        DB_SPECIFIC_FUNCTIONS.put("mysql", Arrays.asList(
-                "NOW()", "CURDATE()", "CURTIME()", "DATE_FORMAT", "STR_TO_DATE",
-                "IFNULL", "IF", "CASE", "GROUP_CONCAT"
-        ));
-
-        // SQL Server functions
-        DB_SPECIFIC_FUNCTIONS.put("sqlserver", Arrays.asList(
-                "GETDATE()", "GETUTCDATE()", "ISNULL", "COALESCE", "CONVERT", "CAST",
-                "DATEADD", "DATEDIFF", "DATENAME", "FORMAT", "STRING_AGG"
-        ));
-
-        // Oracle functions
-        DB_SPECIFIC_FUNCTIONS.put("oracle", Arrays.asList(
-                "SYSDATE", "SYSTIMESTAMP", "NVL", "DECODE", "TO_CHAR", "TO_DATE",
-                "TO_NUMBER", "LISTAGG", "REGEXP_LIKE", "REGEXP_REPLACE"
-        ));
-    }
+    @Autowired
+    private SuggestionIndexService suggestionIndexService;
+
+    @Autowired
+    private SchemaBundleService schemaBundleService;
+
+    @Autowired
+    private SqlSuggestionService sqlSuggestionService;
 
     @GetMapping("/all")
     public Map<String, Object> getAllSuggestions(
             @RequestParam(required = false) String query,
-            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Integer limit) {
 
         Map<String, Object> result = new HashMap<>();
         String searchTerm = query != null ? query.toLowerCase() : "";
 
         // Lấy JdbcTemplate của data source đã chọn
         JdbcTemplate jdbcTemplate = dataSourceService.getJdbcTemplate(dataSource);
-        String dbType = dataSourceService.getDatabaseType(dataSource);
         SqlDatabaseAdapter.DatabaseStrategy strategy = dataSourceService.getDatabaseStrategy(dataSource);
 
-        result.put("tables", getFilteredTables(jdbcTemplate, strategy, searchTerm));
-        result.put("keywords", getFilteredKeywords(dbType, searchTerm));
-        result.put("functions", getFilteredFunctions(dbType, searchTerm));
+        result.put("tables", getFilteredTables(dataSource, jdbcTemplate, strategy, searchTerm, limit));
+        result.put("keywords", toItems(suggestionIndexService.search(dataSource, searchTerm, limit, SuggestionType.KEYWORD)));
+        result.put("functions", toItems(suggestionIndexService.search(dataSource, searchTerm, limit, SuggestionType.FUNCTION)));
 
         return result;
     }
@@ -98,57 +66,130 @@ public class SqlSuggestionController {
     @GetMapping("/tables")
     public List<Map<String, Object>> getTables(
             @RequestParam(required = false) String query,
-            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Integer limit) {
 
         String searchTerm = query != null ? query.toLowerCase() : "";
         JdbcTemplate jdbcTemplate = dataSourceService.getJdbcTemplate(dataSource);
         SqlDatabaseAdapter.DatabaseStrategy strategy = dataSourceService.getDatabaseStrategy(dataSource);
 
-        return getFilteredTables(jdbcTemplate, strategy, searchTerm);
+        return getFilteredTables(dataSource, jdbcTemplate, strategy, searchTerm, limit);
     }
 
     @GetMapping("/columns")
     public List<Map<String, Object>> getColumns(
             @RequestParam String table,
             @RequestParam(required = false) String query,
-            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Integer limit) {
 
         String searchTerm = query != null ? query.toLowerCase() : "";
         JdbcTemplate jdbcTemplate = dataSourceService.getJdbcTemplate(dataSource);
         SqlDatabaseAdapter.DatabaseStrategy strategy = dataSourceService.getDatabaseStrategy(dataSource);
 
-        return getFilteredColumns(jdbcTemplate, strategy, table, searchTerm);
+        return getFilteredColumns(dataSource, jdbcTemplate, strategy, table, searchTerm, limit);
     }
 
     @GetMapping("/keywords")
     public List<Map<String, Object>> getKeywords(
             @RequestParam(required = false) String query,
-            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
-
-        String searchTerm = query != null ? query.toLowerCase() : "";
-        String dbType = dataSourceService.getDatabaseType(dataSource);
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Integer limit) {
 
-        return getFilteredKeywords(dbType, searchTerm);
+        return toItems(suggestionIndexService.search(dataSource, query, limit, SuggestionType.KEYWORD));
     }
 
     @GetMapping("/functions")
     public List<Map<String, Object>> getFunctions(
             @RequestParam(required = false) String query,
-            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Integer limit) {
 
-        String searchTerm = query != null ? query.toLowerCase() : "";
-        String dbType = dataSourceService.getDatabaseType(dataSource);
+        return toItems(suggestionIndexService.search(dataSource, query, limit, SuggestionType.FUNCTION));
+    }
 
-        return getFilteredFunctions(dbType, searchTerm);
+    /**
+     * Gợi ý tại con trỏ theo ngữ cảnh câu lệnh: bảng sau FROM/JOIN, cột của bảng mà alias trỏ tới,
+     * từ khóa sau một biểu thức hoàn chỉnh.
+     */
+    @PostMapping("/context")
+    public List<Map<String, Object>> getContextSuggestions(@RequestBody SuggestionContextRequest request) {
+        return toItems(sqlSuggestionService.getContextSuggestions(request.getDataSource(), request.getSessionId(),
+                request.getText(), request.getCursor(), request.getLimit()));
+    }
+
+    @GetMapping("/index/stats")
+    public Map<String, Object> getIndexStats() {
+        return suggestionIndexService.getStats();
+    }
+
+    /**
+     * Bundle schema nén gzip cho autocomplete phía client. Gửi {@code since} là version đang giữ để nhận delta;
+     * If-None-Match khớp ETag hiện tại thì trả 304.
+     */
+    @GetMapping("/bundle")
+    public ResponseEntity<byte[]> getSchemaBundle(
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        SchemaBundleService.Bundle bundle = schemaBundleService.getBundle(dataSource, since);
+        if (bundle == null) {
+            // Catalog đang nạp lần đầu
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(bundle.getEtag());
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        headers.set("X-Schema-Version", String.valueOf(bundle.getVersion()));
+        if (ifNoneMatch != null && ifNoneMatch.contains(bundle.getEtag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Schema-Delta", String.valueOf(bundle.isDelta()));
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(bundle.getGzip(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(bundle.getJson(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/bundle/stats")
+    public Map<String, Object> getBundleStats() {
+        return schemaBundleService.getStats();
+    }
+
+    @GetMapping("/catalog/stats")
+    public Map<String, Object> getCatalogStats() {
+        return schemaCatalogService.getStats();
+    }
+
+    // Nạp lại toàn bộ catalog của datasource ở background
+    @PostMapping("/catalog/refresh")
+    public Map<String, Object> refreshCatalog(
+            @RequestParam(required = false, defaultValue = "mysql") String dataSource) {
+        schemaCatalogService.requestRefresh(dataSource, Collections.emptySet(), true);
+        return schemaCatalogService.getStats();
     }
 
     private List<Map<String, Object>> getFilteredTables(
+            String dataSource,
             JdbcTemplate jdbcTemplate,
             SqlDatabaseAdapter.DatabaseStrategy strategy,
-            String searchTerm) {
+            String searchTerm,
+            Integer limit) {
 
         List<Map<String, Object>> tables = new ArrayList<>();
 
+        // Index trong bộ nhớ; catalog chưa nạp xong thì mới đọc danh sách bảng từ database
+        if (suggestionIndexService.hasSchema(dataSource)) {
+            return toItems(suggestionIndexService.search(dataSource, searchTerm, limit, SuggestionType.TABLE));
+        }
+
         try {
             String query = strategy.getTableListQuery();
             jdbcTemplate.query(query, rs -> {
@@ -170,13 +211,20 @@ public class SqlSuggestionController {
     }
 
     private List<Map<String, Object>> getFilteredColumns(
+            String dataSource,
             JdbcTemplate jdbcTemplate,
             SqlDatabaseAdapter.DatabaseStrategy strategy,
             String table,
-            String searchTerm) {
+            String searchTerm,
+            Integer limit) {
 
         List<Map<String, Object>> columns = new ArrayList<>();
 
+        List<SqlSuggestion> indexed = suggestionIndexService.searchColumns(dataSource, table, searchTerm, limit);
+        if (indexed != null) {
+            return toItems(indexed);
+        }
+
         try {
             String query = strategy.getColumnListQuery(table);
             jdbcTemplate.query(query, rs -> {
@@ -199,45 +247,18 @@ public class SqlSuggestionController {
         return columns;
     }
 
-    private List<Map<String, Object>> getFilteredKeywords(String dbType, String searchTerm) {
-        List<Map<String, Object>> keywords = new ArrayList<>();
-
-        // Kết hợp từ khóa chung và từ khóa đặc thù cho loại DB
-        List<String> allKeywords = new ArrayList<>(COMMON_SQL_KEYWORDS);
-        List<String> dbSpecificKeywords = DB_SPECIFIC_KEYWORDS.getOrDefault(dbType, Collections.emptyList());
-        allKeywords.addAll(dbSpecificKeywords);
-
-        for (String keyword : allKeywords) {
-            if (searchTerm.isEmpty() || keyword.toLowerCase().contains(searchTerm)) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("name", keyword);
-                item.put("type", "keyword");
-                item.put("description", "SQL Keyword");
-                keywords.add(item);
-            }
-        }
-
-        return keywords;
-    }
-
-    private List<Map<String, Object>> getFilteredFunctions(String dbType, String searchTerm) {
-        List<Map<String, Object>> functions = new ArrayList<>();
-
-        // Kết hợp hàm chung và hàm đặc thù cho loại DB
-        List<String> allFunctions = new ArrayList<>(COMMON_SQL_FUNCTIONS);
-        List<String> dbSpecificFunctions = DB_SPECIFIC_FUNCTIONS.getOrDefault(dbType, Collections.emptyList());
-        allFunctions.addAll(dbSpecificFunctions);
-
-        for (String function : allFunctions) {
-            if (searchTerm.isEmpty() || function.toLowerCase().contains(searchTerm)) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("name", function);
-                item.put("type", "function");
-                item.put("description", "SQL Function");
-                functions.add(item);
+    private List<Map<String, Object>> toItems(List<SqlSuggestion> suggestions) {
+        List<Map<String, Object>> items = new ArrayList<>(suggestions.size());
+        for (SqlSuggestion suggestion : suggestions) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", suggestion.getName());
+            item.put("type", suggestion.getType());
+            item.put("description", suggestion.getDescription());
+            if (suggestion.getCategory() != null) {
+                item.put("table", suggestion.getCategory());
             }
+            items.add(item);
         }
-
-        return functions;
+        return items;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package org.example.sqlexecutor.export;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Định dạng file export.
+ */
+public enum ExportFormat {
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    CSV("csv", "text/csv"),
+    TSV("tsv", "text/tab-separated-values"),
+    JSONL("jsonl", "application/x-ndjson");
+
+    private final String value;
+    private final String contentType;
+
+    ExportFormat(String value, String contentType) {
+        this.value = value;
+        this.contentType = contentType;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // XLSX đã là file zip, nén gzip thêm không có lợi
+    public boolean isCompressible() {
+        return this != XLSX;
+    }
+
+    @JsonCreator
+    public static ExportFormat fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return XLSX;
+        }
+        for (ExportFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        if ("ndjson".equalsIgnoreCase(value)) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Unknown export format: " + value);
+    }
+}
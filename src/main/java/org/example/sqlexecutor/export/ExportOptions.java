@@ -0,0 +1,40 @@
+package org.example.sqlexecutor.export;
+
+/**
+ * Tùy chọn của một lần export: định dạng, engine Excel (chỉ dùng cho XLSX) và nén gzip (CSV/TSV/JSON Lines).
+ */
+public class ExportOptions {
+    private final ExportFormat format;
+    private final String engine;
+    private final boolean gzip;
+
+    public ExportOptions(ExportFormat format, String engine, boolean gzip) {
+        this.format = format != null ? format : ExportFormat.XLSX;
+        this.engine = engine;
+        this.gzip = gzip && this.format.isCompressible();
+    }
+
+    public static ExportOptions of(String format, String engine, Boolean gzip) {
+        return new ExportOptions(ExportFormat.fromValue(format), engine, Boolean.TRUE.equals(gzip));
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public String getContentType() {
+        return gzip ? "application/gzip" : format.getContentType();
+    }
+
+    public String getFileName(String baseName) {
+        return baseName + "." + format.getValue() + (gzip ? ".gz" : "");
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.sqlexecutor.export;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Đọc ResultSet một lần và đẩy từng dòng vào {@link RowSink}. Reader chạy trên thread riêng và trao
+ * batch dòng qua hàng đợi có giới hạn, thread gọi ghi ra sink: chờ mạng JDBC và định dạng/nén chạy song song.
+ */
+@Component
+public class ExportPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ExportPipeline.class);
+
+    // Batch rỗng đánh dấu reader đã đọc hết (hoặc dừng vì lỗi)
+    private static final Object[][] END_OF_DATA = new Object[0][];
+
+    @Autowired
+    @Qualifier("exportReaderExecutor")
+    private ThreadPoolTaskExecutor exportReaderExecutor;
+
+    @Value("${sql.export.batch-rows:500}")
+    private int batchRows;
+
+    @Value("${sql.export.queue-batches:8}")
+    private int queueBatches;
+
+    /**
+     * Ghi toàn bộ ResultSet vào sink (kể cả header và phần kết thúc); trả về số dòng đã ghi.
+     * {@code progress} nhận số dòng đã ghi sau mỗi batch.
+     */
+    public long run(ResultSet resultSet, RowSink sink, LongConsumer progress) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] headers = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            headers[i - 1] = metaData.getColumnName(i);
+        }
+        sink.start(headers);
+
+        RowBatchReader reader = new RowBatchReader(resultSet, columnCount);
+        Future<?> readerTask;
+        try {
+            readerTask = exportReaderExecutor.submit(reader);
+        } catch (TaskRejectedException e) {
+            throw new SqlExecutionException("Too many concurrent exports, please try again later", e);
+        }
+
+        long startTime = System.currentTimeMillis();
+        long rowCount = 0;
+        try {
+            while (true) {
+                Object[][] batch = reader.take();
+                if (batch == END_OF_DATA) {
+                    break;
+                }
+                for (Object[] values : batch) {
+                    sink.writeRow(values);
+                }
+                rowCount += batch.length;
+                progress.accept(rowCount);
+            }
+            reader.rethrowFailure();
+        } finally {
+            reader.cancel();
+            awaitReader(readerTask);
+        }
+        sink.finish();
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        logger.info("Export pipeline completed: {} rows, {} ms ({} rows/s), "
+                        + "reader waited {} ms on full queue, writer waited {} ms on empty queue, "
+                        + "queue depth avg {} / max {} of {}",
+                rowCount, elapsed, rowCount * 1000 / elapsed,
+                reader.producerWaitNanos / 1_000_000, reader.consumerWaitNanos / 1_000_000,
+                String.format("%.1f", reader.averageDepth()), reader.maxDepth, queueBatches);
+        return rowCount;
+    }
+
+    // Đợi reader dừng hẳn trước khi đóng ResultSet/connection mà nó đang dùng
+    private void awaitReader(Future<?> readerTask) {
+        try {
+            readerTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.debug("Export reader finished with error", e.getCause());
+        }
+    }
+
+    /**
+     * Đọc ResultSet thành các batch dòng cố định và đẩy vào hàng đợi có giới hạn.
+     * Hàng đợi đầy thì reader chờ (writer là nút cổ chai), rỗng thì writer chờ (JDBC là nút cổ chai).
+     */
+    private class RowBatchReader implements Runnable {
+        private final ResultSet resultSet;
+        private final int columnCount;
+        private final BlockingQueue<Object[][]> queue = new ArrayBlockingQueue<>(queueBatches);
+        private volatile boolean cancelled;
+        private volatile Exception failure;
+
+        private long producerWaitNanos;
+        private long consumerWaitNanos;
+        private long depthSum;
+        private long depthSamples;
+        private int maxDepth;
+
+        private RowBatchReader(ResultSet resultSet, int columnCount) {
+            this.resultSet = resultSet;
+            this.columnCount = columnCount;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Object[][] batch = new Object[batchRows][];
+                int size = 0;
+                while (!cancelled && resultSet.next()) {
+                    Object[] values = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = resultSet.getObject(i + 1);
+                    }
+                    batch[size++] = values;
+                    if (size == batchRows) {
+                        put(batch);
+                        batch = new Object[batchRows][];
+                        size = 0;
+                    }
+                }
+                if (size > 0) {
+                    Object[][] last = new Object[size][];
+                    System.arraycopy(batch, 0, last, 0, size);
+                    put(last);
+                }
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                putEnd();
+            }
+        }
+
+        private void put(Object[][] batch) throws InterruptedException {
+            long start = System.nanoTime();
+            while (!cancelled) {
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+            producerWaitNanos += System.nanoTime() - start;
+        }
+
+        private void putEnd() {
+            try {
+                while (!cancelled && !queue.offer(END_OF_DATA, 100, TimeUnit.MILLISECONDS)) {
+                    // Chờ writer lấy bớt batch
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Object[][] take() {
+            int depth = queue.size();
+            depthSum += depth;
+            depthSamples++;
+            maxDepth = Math.max(maxDepth, depth);
+            long start = System.nanoTime();
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SqlExecutionException("Export interrupted", e);
+            } finally {
+                consumerWaitNanos += System.nanoTime() - start;
+            }
+        }
+
+        private double averageDepth() {
+            return depthSamples == 0 ? 0 : (double) depthSum / depthSamples;
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private void rethrowFailure() throws SQLException {
+            Exception e = failure;
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            } else if (e != null) {
+                throw new SqlExecutionException("Error reading export rows", e);
+            }
+        }
+    }
+}
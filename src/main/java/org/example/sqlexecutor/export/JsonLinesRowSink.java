@@ -0,0 +1,54 @@
+package org.example.sqlexecutor.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON Lines: mỗi dòng kết quả là một JSON object trên một dòng.
+ */
+class JsonLinesRowSink implements RowSink {
+    private final ObjectWriter valueWriter;
+    private final JsonGenerator gen;
+    private String[] names;
+
+    JsonLinesRowSink(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+        // Mặc định ObjectMapper flush sau mỗi giá trị, ở đây chỉ flush khi kết thúc
+        this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.gen = objectMapper.getFactory().createGenerator(outputStream);
+        // Không đóng output stream đích khi đóng generator
+        this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Các dòng đã được ngăn bằng '\n', bỏ dấu cách mặc định giữa các giá trị gốc
+        this.gen.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void start(String[] columnNames) {
+        this.names = columnNames;
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            gen.writeFieldName(names[i]);
+            valueWriter.writeValue(gen, values[i]);
+        }
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        gen.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        gen.close();
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.sqlexecutor.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Đích nhận các dòng của một lần export. ResultSet chỉ được đọc một lần, mỗi định dạng là một cài đặt.
+ * {@link #close()} chỉ giải phóng tài nguyên riêng của sink, không đóng output stream đích.
+ */
+public interface RowSink extends Closeable {
+    void start(String[] columnNames) throws IOException;
+
+    void writeRow(Object[] values) throws IOException;
+
+    void finish() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
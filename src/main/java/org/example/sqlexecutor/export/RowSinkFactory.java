@@ -0,0 +1,60 @@
+package org.example.sqlexecutor.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Tạo {@link RowSink} theo định dạng export.
+ */
+@Component
+public class RowSinkFactory {
+
+    // Engine ghi XLSX: POI SXSSF hoặc ghi thẳng OOXML (XlsxStreamWriter)
+    public static final String ENGINE_SXSSF = "sxssf";
+    public static final String ENGINE_OOXML = "ooxml";
+
+    // Giới hạn của một sheet XLSX là 1.048.576 dòng, trừ 1 dòng header
+    private static final int MAX_DATA_ROWS_PER_SHEET = 1_048_575;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${sql.export.rows-per-sheet:" + MAX_DATA_ROWS_PER_SHEET + "}")
+    private int rowsPerSheet;
+
+    @Value("${sql.export.excel-engine:" + ENGINE_SXSSF + "}")
+    private String defaultEngine;
+
+    @Value("${sql.export.ooxml.max-shared-strings:65536}")
+    private int maxSharedStrings;
+
+    public RowSink create(ExportOptions options, OutputStream outputStream) throws IOException {
+        switch (options.getFormat()) {
+            case CSV:
+                return new CsvRowSink(outputStream, ',');
+            case TSV:
+                return new CsvRowSink(outputStream, '\t');
+            case JSONL:
+                return new JsonLinesRowSink(outputStream, objectMapper);
+            default:
+                SheetWriter sheetWriter = ENGINE_OOXML.equals(resolveEngine(options.getEngine()))
+                        ? new XlsxStreamWriter(outputStream, maxSharedStrings)
+                        : new SxssfSheetWriter(outputStream);
+                return new XlsxRowSink(sheetWriter, rowsPerSheet);
+        }
+    }
+
+    public String resolveEngine(String engine) {
+        String selected = engine == null || engine.isBlank() ? defaultEngine : engine.trim().toLowerCase();
+        if (!ENGINE_SXSSF.equals(selected) && !ENGINE_OOXML.equals(selected)) {
+            throw new SqlExecutionException("Unknown Excel engine: " + engine);
+        }
+        return selected;
+    }
+}
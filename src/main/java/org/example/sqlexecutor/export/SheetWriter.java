@@ -0,0 +1,15 @@
+package org.example.sqlexecutor.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Đích ghi workbook theo từng sheet; mỗi engine Excel là một cài đặt.
+ */
+interface SheetWriter extends Closeable {
+    void startSheet(String name, String[] headers) throws IOException;
+
+    void writeRow(Object[] values) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -0,0 +1,76 @@
+package org.example.sqlexecutor.export;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Engine POI SXSSF: chỉ giữ một cửa sổ dòng trong bộ nhớ, phần còn lại ra file tạm.
+ */
+class SxssfSheetWriter implements SheetWriter {
+    private static final int BATCH_SIZE = 100;
+
+    private final OutputStream outputStream;
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(BATCH_SIZE); // Chỉ giữ 100 rows trong memory
+    private SXSSFSheet sheet;
+    private int rowIndex;
+
+    SxssfSheetWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+        workbook.setCompressTempFiles(true);
+    }
+
+    @Override
+    public void startSheet(String name, String[] headers) {
+        sheet = workbook.createSheet(name);
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+        }
+        rowIndex = 1;
+    }
+
+    @Override
+    public void writeRow(Object[] values) {
+        Row dataRow = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.length; i++) {
+            Cell cell = dataRow.createCell(i);
+            setCellValueBasedOnType(cell, values[i]);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        workbook.write(outputStream);
+    }
+
+    @Override
+    public void close() throws IOException {
+        workbook.close();
+    }
+
+    private void setCellValueBasedOnType(Cell cell, Object value) {
+        if (value == null) {
+            cell.setCellValue("");
+        } else if (value instanceof Number) {
+            if (value instanceof Double || value instanceof Float) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else {
+                cell.setCellValue(((Number) value).longValue());
+            }
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof java.sql.Date) {
+            cell.setCellValue(((java.sql.Date) value).toLocalDate().toString());
+        } else if (value instanceof java.sql.Timestamp) {
+            cell.setCellValue(((java.sql.Timestamp) value).toLocalDateTime().toString());
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.sqlexecutor.export;
+
+import java.io.IOException;
+
+/**
+ * Ghi XLSX qua một engine {@link SheetWriter}; tự sang sheet mới (Data_2, Data_3, ...) khi đạt giới hạn dòng.
+ */
+class XlsxRowSink implements RowSink {
+    private final SheetWriter sheetWriter;
+    private final int rowsPerSheet;
+    private String[] headers;
+    private int sheetCount;
+    private int sheetRow;
+
+    XlsxRowSink(SheetWriter sheetWriter, int rowsPerSheet) {
+        this.sheetWriter = sheetWriter;
+        this.rowsPerSheet = rowsPerSheet;
+    }
+
+    @Override
+    public void start(String[] columnNames) {
+        this.headers = columnNames;
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        if (sheetCount == 0 || sheetRow >= rowsPerSheet) {
+            sheetCount++;
+            sheetWriter.startSheet(sheetCount == 1 ? "Data" : "Data_" + sheetCount, headers);
+            sheetRow = 0;
+        }
+        sheetWriter.writeRow(values);
+        sheetRow++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Kết quả rỗng vẫn có một sheet chứa header
+        if (sheetCount == 0) {
+            sheetWriter.startSheet("Data", headers);
+            sheetCount = 1;
+        }
+        sheetWriter.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sheetWriter.close();
+    }
+}
@@ -0,0 +1,368 @@
+package org.example.sqlexecutor.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Ghi XLSX trực tiếp: XML của sheet được ghi thẳng vào ZipOutputStream, không tạo đối tượng Row/Cell của POI
+ * và không qua file tạm. Chuỗi lặp lại dùng shared string (bảng dedup có giới hạn, vượt giới hạn thì ghi inline),
+ * số và ngày giờ được ghi thành cell có kiểu với style dựng sẵn nên Excel sắp xếp/lọc được.
+ */
+class XlsxStreamWriter implements SheetWriter {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    // Chỉ số cellXfs trong styles.xml
+    private static final int STYLE_HEADER = 1;
+    private static final int STYLE_DATE = 2;
+    private static final int STYLE_DATETIME = 3;
+
+    // Ngày 0 của Excel (hệ 1900) tính theo epoch day: 1899-12-30
+    private static final long EXCEL_EPOCH_DAY = LocalDate.of(1899, 12, 30).toEpochDay();
+
+    private static final double NANOS_PER_DAY = 86_400_000_000_000d;
+
+    // Chuỗi dài hiếm khi lặp lại, không đưa vào bảng dedup
+    private static final int MAX_SHARED_STRING_LENGTH = 256;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final int maxSharedStrings;
+    private final Map<String, Integer> sharedStringIndex = new HashMap<>();
+    private final List<String> sharedStrings = new ArrayList<>();
+    private final List<String> sheetNames = new ArrayList<>();
+    private long sharedStringRefs;
+    private String[] columnRefs = new String[0];
+    private boolean sheetOpen;
+    private int rowNumber;
+
+    XlsxStreamWriter(OutputStream outputStream, int maxSharedStrings) {
+        this.zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        // Ưu tiên tốc độ: nén nhanh hơn đổi lấy file lớn hơn một chút
+        this.zip.setLevel(Deflater.BEST_SPEED);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.maxSharedStrings = maxSharedStrings;
+    }
+
+    @Override
+    public void startSheet(String name, String[] headers) throws IOException {
+        endSheet();
+        sheetNames.add(name);
+        if (columnRefs.length < headers.length) {
+            columnRefs = new String[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                columnRefs[i] = columnName(i);
+            }
+        }
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        writer.write(XML_HEADER);
+        writer.write("<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">");
+        writer.write("<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" "
+                + "activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>");
+        writer.write("<sheetData>");
+        sheetOpen = true;
+        rowNumber = 0;
+
+        startRow();
+        for (int i = 0; i < headers.length; i++) {
+            writeInlineString(i, headers[i], STYLE_HEADER);
+        }
+        writer.write("</row>");
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        startRow();
+        for (int i = 0; i < values.length; i++) {
+            writeCell(i, values[i]);
+        }
+        writer.write("</row>");
+    }
+
+    /**
+     * Ghi các phần còn lại của package (workbook, styles, shared strings) và đóng zip.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (sheetNames.isEmpty()) {
+            startSheet("Data", new String[0]);
+        }
+        endSheet();
+        writeEntry("[Content_Types].xml", contentTypes());
+        writeEntry("_rels/.rels", XML_HEADER
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/workbook.xml", workbook());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRels());
+        writeEntry("xl/styles.xml", styles());
+        writeSharedStrings();
+        writer.flush();
+        zip.finish();
+    }
+
+    // Không đóng zip: output stream thuộc về nơi gọi
+    @Override
+    public void close() {
+    }
+
+    private void startRow() throws IOException {
+        rowNumber++;
+        writer.write("<row r=\"");
+        writer.write(Integer.toString(rowNumber));
+        writer.write("\">");
+    }
+
+    private void endSheet() throws IOException {
+        if (!sheetOpen) {
+            return;
+        }
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void writeCell(int column, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger) {
+            writeNumber(column, value.toString(), 0);
+        } else if (value instanceof BigDecimal) {
+            writeNumber(column, ((BigDecimal) value).toPlainString(), 0);
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                writeString(column, value.toString());
+            } else {
+                writeNumber(column, Double.toString(number), 0);
+            }
+        } else if (value instanceof Boolean) {
+            cellStart(column, "b", 0);
+            writer.write(((Boolean) value) ? "1" : "0");
+            writer.write("</v></c>");
+        } else if (value instanceof java.sql.Timestamp) {
+            writeNumber(column, serial(((java.sql.Timestamp) value).toLocalDateTime()), STYLE_DATETIME);
+        } else if (value instanceof LocalDateTime) {
+            writeNumber(column, serial((LocalDateTime) value), STYLE_DATETIME);
+        } else if (value instanceof java.sql.Date) {
+            writeNumber(column, Long.toString(((java.sql.Date) value).toLocalDate().toEpochDay() - EXCEL_EPOCH_DAY),
+                    STYLE_DATE);
+        } else if (value instanceof LocalDate) {
+            writeNumber(column, Long.toString(((LocalDate) value).toEpochDay() - EXCEL_EPOCH_DAY), STYLE_DATE);
+        } else {
+            writeString(column, value.toString());
+        }
+    }
+
+    private static String serial(LocalDateTime dateTime) {
+        double fraction = dateTime.toLocalTime().toNanoOfDay() / NANOS_PER_DAY;
+        return Double.toString(dateTime.toLocalDate().toEpochDay() - EXCEL_EPOCH_DAY + fraction);
+    }
+
+    private void writeNumber(int column, String number, int style) throws IOException {
+        cellStart(column, null, style);
+        writer.write(number);
+        writer.write("</v></c>");
+    }
+
+    private void writeString(int column, String value) throws IOException {
+        if (value.length() > MAX_SHARED_STRING_LENGTH) {
+            writeInlineString(column, value, 0);
+            return;
+        }
+        Integer index = sharedStringIndex.get(value);
+        if (index == null) {
+            if (sharedStrings.size() >= maxSharedStrings) {
+                // Bảng dedup đầy: ghi inline để bộ nhớ không tăng theo số chuỗi khác nhau
+                writeInlineString(column, value, 0);
+                return;
+            }
+            index = sharedStrings.size();
+            sharedStrings.add(value);
+            sharedStringIndex.put(value, index);
+        }
+        sharedStringRefs++;
+        cellStart(column, "s", 0);
+        writer.write(Integer.toString(index));
+        writer.write("</v></c>");
+    }
+
+    private void writeInlineString(int column, String value, int style) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(columnRefs[column]);
+        writer.write(Integer.toString(rowNumber));
+        writer.write("\" t=\"inlineStr\"");
+        if (style != 0) {
+            writer.write(" s=\"" + style + "\"");
+        }
+        writer.write("><is>");
+        writeText(value);
+        writer.write("</is></c>");
+    }
+
+    private void cellStart(int column, String type, int style) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(columnRefs[column]);
+        writer.write(Integer.toString(rowNumber));
+        writer.write('"');
+        if (type != null) {
+            writer.write(" t=\"");
+            writer.write(type);
+            writer.write('"');
+        }
+        if (style != 0) {
+            writer.write(" s=\"");
+            writer.write(Integer.toString(style));
+            writer.write('"');
+        }
+        writer.write("><v>");
+    }
+
+    private void writeText(String value) throws IOException {
+        boolean preserve = !value.isEmpty()
+                && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+        writer.write(preserve ? "<t xml:space=\"preserve\">" : "<t>");
+        escape(writer, value);
+        writer.write("</t>");
+    }
+
+    private static void escape(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    // Ký tự điều khiển không hợp lệ trong XML 1.0 thì bỏ qua
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        out.write(c);
+                    }
+            }
+        }
+    }
+
+    private static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private void writeSharedStrings() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        writer.write(XML_HEADER);
+        writer.write("<sst xmlns=\"" + MAIN_NS + "\" count=\"" + sharedStringRefs
+                + "\" uniqueCount=\"" + sharedStrings.size() + "\">");
+        for (String value : sharedStrings) {
+            writer.write("<si>");
+            writeText(value);
+            writer.write("</si>");
+        }
+        writer.write("</sst>");
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private String contentTypes() {
+        StringBuilder xml = new StringBuilder(XML_HEADER)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>")
+                .append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private String workbook() throws IOException {
+        StringBuilder xml = new StringBuilder(XML_HEADER)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<sheet name=\"");
+            StringWriter name = new StringWriter();
+            escape(name, sheetNames.get(i - 1));
+            xml.append(name).append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        StringBuilder xml = new StringBuilder(XML_HEADER)
+                .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        int sheetCount = sheetNames.size();
+        for (int i = 1; i <= sheetCount; i++) {
+            xml.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheetCount + 1).append("\" Type=\"").append(REL_NS)
+                .append("/styles\" Target=\"styles.xml\"/>");
+        xml.append("<Relationship Id=\"rId").append(sheetCount + 2).append("\" Type=\"").append(REL_NS)
+                .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        return xml.append("</Relationships>").toString();
+    }
+
+    // Style dựng sẵn: 0 mặc định, 1 header in đậm, 2 ngày (numFmt 14), 3 ngày giờ (numFmt tùy chỉnh 164)
+    private String styles() {
+        return XML_HEADER
+                + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd hh:mm:ss\"/></numFmts>"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"4\">"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "</cellXfs>"
+                + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                + "</styleSheet>";
+    }
+}
@@ -0,0 +1,583 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Một trang kết quả lưu theo cột: mảng tên cột dùng chung và vector có kiểu cho từng cột
+ * ({@code long[]}, {@code double[]} kèm null bitmap, chuỗi mã hóa từ điển, hoặc Object cho kiểu còn lại).
+ * Được đọc thẳng từ ResultSet theo chỉ số cột, không tạo Map cho từng dòng.
+ * <p>
+ * Tên cột là label của JDBC (alias {@code AS} nếu có, thay cho tên cột gốc như trước đây) và luôn duy nhất:
+ * label trùng lặp, ví dụ {@code SELECT a.id, b.id}, được đánh số {@code id}, {@code id_2}, ... xem
+ * {@link #columnLabels(ResultSetMetaData)}.
+ */
+@JsonSerialize(using = ColumnarPageSerializer.class)
+public class ColumnarPage {
+
+    public enum Kind {
+        LONG, DOUBLE, STRING, OBJECT
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Số dòng giữa hai lần ước lượng dung lượng khi đọc có giới hạn byte
+    private static final int SIZE_CHECK_ROWS = 4096;
+
+    private final String[] names;
+    private final Kind[] kinds;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] codes;
+    private final Object[][] objects;
+    private final long[][] nulls;
+    private final List<List<String>> dictionaries;
+    private int rowCount;
+    private int capacity;
+    // Chỉ mục từ điển cho appendRow, tạo khi cần
+    private List<Map<String, Integer>> dictionaryIndexes;
+
+    public ColumnarPage(String[] names, Kind[] kinds) {
+        this.names = names;
+        this.kinds = kinds;
+        int columnCount = names.length;
+        this.longs = new long[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.codes = new int[columnCount][];
+        this.objects = new Object[columnCount][];
+        this.nulls = new long[columnCount][];
+        this.dictionaries = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            dictionaries.add(kinds[i] == Kind.STRING ? new ArrayList<>() : null);
+        }
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Đọc tối đa {@code maxRows} dòng từ vị trí hiện tại của ResultSet.
+     */
+    public static ColumnarPage read(ResultSet resultSet, int maxRows) throws SQLException {
+        return read(resultSet, maxRows, Long.MAX_VALUE);
+    }
+
+    /**
+     * Như {@link #read(ResultSet, int)} nhưng dừng với lỗi khi dung lượng ước lượng vượt {@code maxBytes}
+     * (kiểm tra sau mỗi {@value #SIZE_CHECK_ROWS} dòng và khi đọc xong), để giới hạn heap ngay trong lúc đọc.
+     */
+    public static ColumnarPage read(ResultSet resultSet, int maxRows, long maxBytes) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = columnLabels(metaData);
+        Kind[] kinds = new Kind[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            kinds[i] = kindOf(metaData, i + 1);
+        }
+        boolean[] singlePrecision = singlePrecisionColumns(metaData);
+
+        ColumnarPage page = new ColumnarPage(names, kinds);
+        List<Map<String, Integer>> dictionaryIndexes = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            dictionaryIndexes.add(kinds[i] == Kind.STRING ? new HashMap<>() : null);
+        }
+
+        while (page.rowCount < maxRows && resultSet.next()) {
+            int row = page.rowCount;
+            page.ensureCapacity(row + 1);
+            for (int i = 0; i < columnCount; i++) {
+                int index = i + 1;
+                switch (kinds[i]) {
+                    case LONG:
+                        page.longs[i][row] = resultSet.getLong(index);
+                        if (resultSet.wasNull()) {
+                            page.setNull(i, row);
+                        }
+                        break;
+                    case DOUBLE:
+                        page.doubles[i][row] = readDouble(resultSet, index, singlePrecision[i]);
+                        if (resultSet.wasNull()) {
+                            page.setNull(i, row);
+                        }
+                        break;
+                    case STRING:
+                        page.codes[i][row] = page.encode(i, dictionaryIndexes.get(i), resultSet.getString(index));
+                        break;
+                    default:
+                        page.objects[i][row] = resultSet.getObject(index);
+                }
+            }
+            page.rowCount++;
+            if (maxBytes != Long.MAX_VALUE && page.rowCount % SIZE_CHECK_ROWS == 0) {
+                page.checkSize(maxBytes);
+            }
+        }
+        if (maxBytes != Long.MAX_VALUE) {
+            page.checkSize(maxBytes);
+        }
+        return page;
+    }
+
+    private void checkSize(long maxBytes) {
+        long bytes = estimateSizeBytes();
+        if (bytes > maxBytes) {
+            throw new SqlExecutionException("Result is about " + bytes + " bytes after " + rowCount
+                    + " rows, over the limit of " + maxBytes + " bytes; narrow the query or use a snapshot");
+        }
+    }
+
+    /**
+     * Thêm một dòng (giá trị theo thứ tự cột, null cho NULL); dùng khi dựng trang từ nguồn khác ResultSet.
+     */
+    public void appendRow(Object[] values) {
+        if (dictionaryIndexes == null) {
+            dictionaryIndexes = new ArrayList<>(names.length);
+            for (int i = 0; i < names.length; i++) {
+                Map<String, Integer> index = null;
+                if (kinds[i] == Kind.STRING) {
+                    index = new HashMap<>();
+                    List<String> dictionary = dictionaries.get(i);
+                    for (int code = 0; code < dictionary.size(); code++) {
+                        index.put(dictionary.get(code), code);
+                    }
+                }
+                dictionaryIndexes.add(index);
+            }
+        }
+        int row = rowCount;
+        ensureCapacity(row + 1);
+        for (int i = 0; i < names.length; i++) {
+            Object value = values[i];
+            switch (kinds[i]) {
+                case LONG:
+                    if (value == null) {
+                        setNull(i, row);
+                    } else {
+                        longs[i][row] = ((Number) value).longValue();
+                    }
+                    break;
+                case DOUBLE:
+                    if (value == null) {
+                        setNull(i, row);
+                    } else {
+                        doubles[i][row] = ((Number) value).doubleValue();
+                    }
+                    break;
+                case STRING:
+                    codes[i][row] = encode(i, dictionaryIndexes.get(i), value == null ? null : value.toString());
+                    break;
+                default:
+                    objects[i][row] = value;
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * Label của các cột, đổi tên label trùng (JOIN nhiều bảng có cùng tên cột) thành {@code name_2}, {@code name_3}...
+     * để mỗi dòng JSON không có key trùng; label đầu tiên giữ nguyên.
+     */
+    public static String[] columnLabels(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+            used.add(labels[i]);
+        }
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < columnCount; i++) {
+            if (seen.add(labels[i])) {
+                continue;
+            }
+            int suffix = 2;
+            while (used.contains(labels[i] + "_" + suffix)) {
+                suffix++;
+            }
+            labels[i] = labels[i] + "_" + suffix;
+            used.add(labels[i]);
+            seen.add(labels[i]);
+        }
+        return labels;
+    }
+
+    public static Kind kindOf(ResultSetMetaData metaData, int index) throws SQLException {
+        switch (metaData.getColumnType(index)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Kind.LONG;
+            case Types.BIGINT:
+                // BIGINT UNSIGNED có thể vượt quá long
+                return metaData.isSigned(index) ? Kind.LONG : Kind.OBJECT;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Kind.DOUBLE;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return Kind.STRING;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    /**
+     * Cột số thực 4 byte (Types.REAL, là FLOAT của MySQL và REAL của SQL Server) theo chỉ số cột 0-based.
+     */
+    public static boolean[] singlePrecisionColumns(ResultSetMetaData metaData) throws SQLException {
+        boolean[] columns = new boolean[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnType(i + 1) == Types.REAL;
+        }
+        return columns;
+    }
+
+    /**
+     * Đọc giá trị cột {@link Kind#DOUBLE}. Cột 4 byte được đọc dạng float rồi mở rộng qua dạng thập phân ngắn nhất
+     * của float, để 0.1 vẫn là 0.1 thay vì 0.10000000149011612 như khi đọc thẳng bằng getDouble.
+     */
+    public static double readDouble(ResultSet resultSet, int index, boolean singlePrecision) throws SQLException {
+        if (singlePrecision) {
+            return Double.parseDouble(Float.toString(resultSet.getFloat(index)));
+        }
+        return resultSet.getDouble(index);
+    }
+
+    private int encode(int column, Map<String, Integer> dictionaryIndex, String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = dictionaryIndex.get(value);
+        if (code == null) {
+            List<String> dictionary = dictionaries.get(column);
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndex.put(value, code);
+        }
+        return code;
+    }
+
+    private void allocate(int newCapacity) {
+        for (int i = 0; i < names.length; i++) {
+            switch (kinds[i]) {
+                case LONG:
+                    longs[i] = longs[i] == null ? new long[newCapacity] : Arrays.copyOf(longs[i], newCapacity);
+                    nulls[i] = resizeBitmap(nulls[i], newCapacity);
+                    break;
+                case DOUBLE:
+                    doubles[i] = doubles[i] == null ? new double[newCapacity] : Arrays.copyOf(doubles[i], newCapacity);
+                    nulls[i] = resizeBitmap(nulls[i], newCapacity);
+                    break;
+                case STRING:
+                    codes[i] = codes[i] == null ? new int[newCapacity] : Arrays.copyOf(codes[i], newCapacity);
+                    break;
+                default:
+                    objects[i] = objects[i] == null ? new Object[newCapacity] : Arrays.copyOf(objects[i], newCapacity);
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    private static long[] resizeBitmap(long[] bitmap, int capacity) {
+        int words = (capacity + 63) >>> 6;
+        return bitmap == null ? new long[words] : Arrays.copyOf(bitmap, words);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > capacity) {
+            allocate(Math.max(required, capacity * 2));
+        }
+    }
+
+    private void setNull(int column, int row) {
+        nulls[column][row >>> 6] |= 1L << row;
+    }
+
+    private void clearNull(int column, int row) {
+        nulls[column][row >>> 6] &= ~(1L << row);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(int column) {
+        return names[column];
+    }
+
+    public String[] getColumnNames() {
+        return names;
+    }
+
+    public Kind getKind(int column) {
+        return kinds[column];
+    }
+
+    /**
+     * Chỉ số cột theo tên (ưu tiên khớp chính xác, sau đó không phân biệt hoa thường), -1 nếu không có.
+     */
+    public int findColumn(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isNull(int row, int column) {
+        switch (kinds[column]) {
+            case LONG:
+            case DOUBLE:
+                return (nulls[column][row >>> 6] & (1L << row)) != 0;
+            case STRING:
+                return codes[column][row] < 0;
+            default:
+                return objects[column][row] == null;
+        }
+    }
+
+    public long getLong(int row, int column) {
+        return longs[column][row];
+    }
+
+    public double getDouble(int row, int column) {
+        return doubles[column][row];
+    }
+
+    public int getCode(int row, int column) {
+        return codes[column][row];
+    }
+
+    public List<String> getDictionary(int column) {
+        return dictionaries.get(column);
+    }
+
+    public String getString(int row, int column) {
+        int code = codes[column][row];
+        return code < 0 ? null : dictionaries.get(column).get(code);
+    }
+
+    public Object getValue(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        switch (kinds[column]) {
+            case LONG:
+                return longs[column][row];
+            case DOUBLE:
+                return doubles[column][row];
+            case STRING:
+                return getString(row, column);
+            default:
+                return objects[column][row];
+        }
+    }
+
+    /**
+     * Ước lượng số byte trên heap của dữ liệu trang (dùng để giới hạn cache theo dung lượng).
+     */
+    public long estimateSizeBytes() {
+        long bytes = 64;
+        for (int i = 0; i < names.length; i++) {
+            bytes += 40 + 2L * names[i].length();
+            switch (kinds[i]) {
+                case LONG:
+                case DOUBLE:
+                    bytes += 8L * capacity + 8L * nulls[i].length;
+                    break;
+                case STRING:
+                    bytes += 4L * capacity;
+                    for (String value : dictionaries.get(i)) {
+                        bytes += 48 + 2L * value.length();
+                    }
+                    break;
+                default:
+                    bytes += 8L * capacity;
+                    for (int row = 0; row < rowCount; row++) {
+                        Object value = objects[i][row];
+                        if (value instanceof String) {
+                            bytes += 48 + 2L * ((String) value).length();
+                        } else if (value instanceof byte[]) {
+                            bytes += 16 + ((byte[]) value).length;
+                        } else if (value != null) {
+                            bytes += 32;
+                        }
+                    }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Giữ lại {@code rows} dòng đầu (dùng khi đọc thừa 1 dòng để biết còn trang sau).
+     */
+    public void truncate(int rows) {
+        if (rows >= rowCount) {
+            return;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (objects[i] != null) {
+                Arrays.fill(objects[i], rows, rowCount, null);
+            }
+        }
+        rowCount = rows;
+    }
+
+    public void reverse() {
+        for (int left = 0, right = rowCount - 1; left < right; left++, right--) {
+            for (int i = 0; i < names.length; i++) {
+                swap(i, left, right);
+            }
+        }
+    }
+
+    private void swap(int column, int a, int b) {
+        switch (kinds[column]) {
+            case LONG:
+            case DOUBLE:
+                boolean nullA = isNull(a, column);
+                boolean nullB = isNull(b, column);
+                if (kinds[column] == Kind.LONG) {
+                    long tmp = longs[column][a];
+                    longs[column][a] = longs[column][b];
+                    longs[column][b] = tmp;
+                } else {
+                    double tmp = doubles[column][a];
+                    doubles[column][a] = doubles[column][b];
+                    doubles[column][b] = tmp;
+                }
+                if (nullA != nullB) {
+                    if (nullB) {
+                        setNull(column, a);
+                        clearNull(column, b);
+                    } else {
+                        clearNull(column, a);
+                        setNull(column, b);
+                    }
+                }
+                break;
+            case STRING:
+                int code = codes[column][a];
+                codes[column][a] = codes[column][b];
+                codes[column][b] = code;
+                break;
+            default:
+                Object value = objects[column][a];
+                objects[column][a] = objects[column][b];
+                objects[column][b] = value;
+        }
+    }
+
+    /**
+     * View dạng danh sách Map (tương thích client cũ) trên dữ liệu cột, không sao chép.
+     */
+    public List<Map<String, Object>> asRows() {
+        return new RowsView(this);
+    }
+
+    @JsonSerialize(using = ColumnarPageSerializer.RowsSerializer.class)
+    public static class RowsView extends AbstractList<Map<String, Object>> {
+        private final ColumnarPage page;
+
+        private RowsView(ColumnarPage page) {
+            this.page = page;
+        }
+
+        public ColumnarPage getPage() {
+            return page;
+        }
+
+        @Override
+        public Map<String, Object> get(int index) {
+            if (index < 0 || index >= page.rowCount) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + page.rowCount);
+            }
+            return new RowView(page, index);
+        }
+
+        @Override
+        public int size() {
+            return page.rowCount;
+        }
+    }
+
+    private static class RowView extends AbstractMap<String, Object> {
+        private final ColumnarPage page;
+        private final int row;
+
+        private RowView(ColumnarPage page, int row) {
+            this.page = page;
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int column = key instanceof String ? page.findColumn((String) key) : -1;
+            return column < 0 ? null : page.getValue(row, column);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && page.findColumn((String) key) >= 0;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < page.names.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = column++;
+                            return new SimpleImmutableEntry<>(page.names[current], page.getValue(row, current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return page.names.length;
+                }
+            };
+        }
+    }
+}
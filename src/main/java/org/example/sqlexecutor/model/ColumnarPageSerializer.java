@@ -0,0 +1,136 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ghi {@link ColumnarPage} ở dạng cột gọn:
+ * <pre>
+ * {"rowCount": 2, "columns": ["id", "name"],
+ *  "vectors": [{"type": "long", "values": [1, 2]},
+ *              {"type": "dict", "dictionary": ["a"], "codes": [0, -1]}]}
+ * </pre>
+ * Giá trị null của vector long/double được ghi là null, của vector dict là code -1.
+ */
+public class ColumnarPageSerializer extends StdSerializer<ColumnarPage> {
+
+    public ColumnarPageSerializer() {
+        super(ColumnarPage.class);
+    }
+
+    @Override
+    public void serialize(ColumnarPage page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        int rowCount = page.getRowCount();
+        gen.writeStartObject();
+        gen.writeNumberField("rowCount", rowCount);
+
+        gen.writeArrayFieldStart("columns");
+        for (String name : page.getColumnNames()) {
+            gen.writeString(name);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("vectors");
+        for (int column = 0; column < page.getColumnCount(); column++) {
+            gen.writeStartObject();
+            switch (page.getKind(column)) {
+                case LONG:
+                    gen.writeStringField("type", "long");
+                    gen.writeArrayFieldStart("values");
+                    for (int row = 0; row < rowCount; row++) {
+                        if (page.isNull(row, column)) {
+                            gen.writeNull();
+                        } else {
+                            gen.writeNumber(page.getLong(row, column));
+                        }
+                    }
+                    gen.writeEndArray();
+                    break;
+                case DOUBLE:
+                    gen.writeStringField("type", "double");
+                    gen.writeArrayFieldStart("values");
+                    for (int row = 0; row < rowCount; row++) {
+                        if (page.isNull(row, column)) {
+                            gen.writeNull();
+                        } else {
+                            gen.writeNumber(page.getDouble(row, column));
+                        }
+                    }
+                    gen.writeEndArray();
+                    break;
+                case STRING:
+                    gen.writeStringField("type", "dict");
+                    gen.writeArrayFieldStart("dictionary");
+                    for (String value : page.getDictionary(column)) {
+                        gen.writeString(value);
+                    }
+                    gen.writeEndArray();
+                    gen.writeArrayFieldStart("codes");
+                    for (int row = 0; row < rowCount; row++) {
+                        gen.writeNumber(page.getCode(row, column));
+                    }
+                    gen.writeEndArray();
+                    break;
+                default:
+                    gen.writeStringField("type", "object");
+                    gen.writeArrayFieldStart("values");
+                    for (int row = 0; row < rowCount; row++) {
+                        provider.defaultSerializeValue(page.getValue(row, column), gen);
+                    }
+                    gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeEndObject();
+    }
+
+    /**
+     * Ghi dạng tương thích (mảng object theo dòng) thẳng từ vector cột, không tạo Map trung gian.
+     */
+    public static class RowsSerializer extends StdSerializer<ColumnarPage.RowsView> {
+
+        public RowsSerializer() {
+            super(ColumnarPage.RowsView.class);
+        }
+
+        @Override
+        public void serialize(ColumnarPage.RowsView rows, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            ColumnarPage page = rows.getPage();
+            String[] names = page.getColumnNames();
+            gen.writeStartArray();
+            for (int row = 0; row < page.getRowCount(); row++) {
+                gen.writeStartObject();
+                for (int column = 0; column < names.length; column++) {
+                    gen.writeFieldName(names[column]);
+                    if (page.isNull(row, column)) {
+                        gen.writeNull();
+                        continue;
+                    }
+                    switch (page.getKind(column)) {
+                        case LONG:
+                            gen.writeNumber(page.getLong(row, column));
+                            break;
+                        case DOUBLE:
+                            gen.writeNumber(page.getDouble(row, column));
+                            break;
+                        case STRING:
+                            List<String> dictionary = page.getDictionary(column);
+                            gen.writeString(dictionary.get(page.getCode(row, column)));
+                            break;
+                        default:
+                            provider.defaultSerializeValue(page.getValue(row, column), gen);
+                    }
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Cách tính tổng số bản ghi cho truy vấn SELECT có phân trang.
+ */
+public enum CountMode {
+    // SELECT COUNT(*) chính xác trước khi lấy trang (mặc định)
+    EXACT("exact"),
+    // Ước lượng từ EXPLAIN / thống kê của database
+    ESTIMATE("estimate"),
+    // Trả trang ngay, đếm chính xác ở background và client poll kết quả theo countId
+    DEFERRED("deferred"),
+    // Không đếm, chỉ lấy thêm 1 dòng để biết còn trang sau hay không
+    NONE("none");
+
+    private final String value;
+
+    CountMode(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static CountMode fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return EXACT;
+        }
+        for (CountMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown count mode: " + value);
+    }
+}
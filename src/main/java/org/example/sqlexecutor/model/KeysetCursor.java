@@ -0,0 +1,152 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Cursor của keyset pagination: giữ giá trị các cột khóa của dòng biên và hướng đọc.
+ * Client chỉ thấy một chuỗi opaque (Base64 URL-safe của JSON).
+ */
+public class KeysetCursor {
+    public static final String NEXT = "next";
+    public static final String PREV = "prev";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String direction;
+    private List<Object> values;
+    // Kiểu của từng giá trị để bind lại đúng kiểu JDBC ("num", "dec", "str", "ts", "date", "ldt", "ld")
+    private List<String> types;
+
+    public KeysetCursor() {
+    }
+
+    public KeysetCursor(String direction, List<Object> values) {
+        this.direction = direction;
+        this.values = new ArrayList<>();
+        this.types = new ArrayList<>();
+        for (Object value : values) {
+            if (value instanceof Timestamp) {
+                this.values.add(value.toString());
+                this.types.add("ts");
+            } else if (value instanceof java.sql.Date) {
+                this.values.add(value.toString());
+                this.types.add("date");
+            } else if (value instanceof LocalDateTime) {
+                // Connector/J 8 trả DATETIME dạng LocalDateTime
+                this.values.add(value.toString());
+                this.types.add("ldt");
+            } else if (value instanceof LocalDate) {
+                this.values.add(value.toString());
+                this.types.add("ld");
+            } else if (value instanceof BigDecimal) {
+                this.values.add(value.toString());
+                this.types.add("dec");
+            } else if (value instanceof Number || value == null) {
+                this.values.add(value);
+                this.types.add("num");
+            } else {
+                this.values.add(value.toString());
+                this.types.add("str");
+            }
+        }
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public void setValues(List<Object> values) {
+        this.values = values;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+
+    public void setTypes(List<String> types) {
+        this.types = types;
+    }
+
+    @JsonIgnore
+    public boolean isBackward() {
+        return PREV.equals(direction);
+    }
+
+    /**
+     * Giá trị khóa đã chuyển về kiểu JDBC phù hợp để bind vào seek predicate.
+     */
+    public List<Object> toJdbcValues() {
+        List<Object> jdbcValues = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            String type = types != null && i < types.size() ? types.get(i) : "str";
+            if (value == null) {
+                jdbcValues.add(null);
+                continue;
+            }
+            switch (type) {
+                case "ts":
+                    jdbcValues.add(Timestamp.valueOf(value.toString()));
+                    break;
+                case "date":
+                    jdbcValues.add(java.sql.Date.valueOf(value.toString()));
+                    break;
+                case "ldt":
+                    jdbcValues.add(LocalDateTime.parse(value.toString()));
+                    break;
+                case "ld":
+                    jdbcValues.add(LocalDate.parse(value.toString()));
+                    break;
+                case "dec":
+                    jdbcValues.add(new BigDecimal(value.toString()));
+                    break;
+                default:
+                    jdbcValues.add(value);
+            }
+        }
+        return jdbcValues;
+    }
+
+    public String encode() {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(this);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new SqlExecutionException("Error encoding keyset cursor", e);
+        }
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII));
+            KeysetCursor cursor = MAPPER.readValue(json, KeysetCursor.class);
+            if (cursor.getValues() == null) {
+                throw new SqlExecutionException("Invalid keyset cursor");
+            }
+            return cursor;
+        } catch (SqlExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SqlExecutionException("Invalid keyset cursor", e);
+        }
+    }
+}
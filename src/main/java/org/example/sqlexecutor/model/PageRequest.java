@@ -1,9 +1,21 @@
 package org.example.sqlexecutor.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
 public class PageRequest {
     private int page;
     private int size;
 
+    // Keyset (seek) pagination: danh sách cột khóa theo thứ tự sắp xếp tăng dần
+    // và cursor mã hóa giá trị khóa của dòng cuối/đầu trang trước
+    private List<String> keyColumns;
+    private String cursor;
+
+    // Thứ tự sắp xếp khi đọc từ snapshot, mỗi phần tử là "cột" hoặc "cột desc"
+    private List<String> sort;
+
     public PageRequest() {
         this.page = 0;
         this.size = 10;
@@ -30,7 +42,36 @@ public class PageRequest {
         this.size = size;
     }
 
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    public void setKeyColumns(List<String> keyColumns) {
+        this.keyColumns = keyColumns;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public List<String> getSort() {
+        return sort;
+    }
+
+    public void setSort(List<String> sort) {
+        this.sort = sort;
+    }
+
     public int getOffset() {
         return page * size;
     }
-}
\ No newline at end of file
+
+    @JsonIgnore
+    public boolean isKeyset() {
+        return keyColumns != null && !keyColumns.isEmpty();
+    }
+}
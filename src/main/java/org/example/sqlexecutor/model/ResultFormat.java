@@ -0,0 +1,40 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Định dạng dữ liệu trả về của truy vấn SELECT.
+ */
+public enum ResultFormat {
+    // Mảng object theo dòng trong "data" (tương thích client cũ)
+    ROWS("rows"),
+    // Vector theo cột trong "columnar"
+    COLUMNAR("columnar"),
+    // Arrow IPC stream (application/vnd.apache.arrow.stream) thay cho JSON
+    ARROW("arrow");
+
+    private final String value;
+
+    ResultFormat(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static ResultFormat fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return ROWS;
+        }
+        for (ResultFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown result format: " + value);
+    }
+}
@@ -1,10 +1,28 @@
 package org.example.sqlexecutor.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.example.sqlexecutor.sql.SqlStatementType;
+
 public class SqlQuery {
     private String query;
     private PageRequest pagination;
     private String confirmationCode;
     private String dataSourceName = "primary"; // Default to primary
+    // Cursor session: giữ ResultSet mở trên server, các trang sau đọc tiếp thay vì chạy lại query
+    private boolean cursorSession;
+    private String sessionId;
+    // Snapshot: chạy query một lần, ghi kết quả ra đĩa; các trang sau gửi kèm snapshotId để đọc từ snapshot
+    private boolean snapshot;
+    private String snapshotId;
+    // Capture: giữ kết quả trong bộ nhớ để sắp xếp/lọc/gộp lại qua captureId mà không truy vấn lại
+    private boolean capture;
+    // Đọc trước trang kế tiếp ở background sau khi trả trang hiện tại
+    private boolean prefetch;
+    private CountMode countMode = CountMode.EXACT;
+    private ResultFormat resultFormat = ResultFormat.ROWS;
+    // Loại câu lệnh: phân loại một lần rồi dùng chung cho controller, validator và service
+    @JsonIgnore
+    private SqlStatementType statementType;
 
     public SqlQuery() {
         this.pagination = new PageRequest();
@@ -21,6 +39,15 @@ public class SqlQuery {
 
     public void setQuery(String query) {
         this.query = query;
+        this.statementType = null;
+    }
+
+    @JsonIgnore
+    public SqlStatementType getStatementType() {
+        if (statementType == null) {
+            statementType = SqlStatementType.classify(query);
+        }
+        return statementType;
     }
 
     public PageRequest getPagination() {
@@ -46,4 +73,68 @@ public class SqlQuery {
     public void setDataSourceName(String dataSourceName) {
         this.dataSourceName = dataSourceName;
     }
-}
\ No newline at end of file
+
+    public boolean isCursorSession() {
+        return cursorSession;
+    }
+
+    public void setCursorSession(boolean cursorSession) {
+        this.cursorSession = cursorSession;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public boolean isCapture() {
+        return capture;
+    }
+
+    public void setCapture(boolean capture) {
+        this.capture = capture;
+    }
+
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
+
+    public ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    public void setResultFormat(ResultFormat resultFormat) {
+        this.resultFormat = resultFormat;
+    }
+}
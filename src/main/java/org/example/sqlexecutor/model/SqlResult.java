@@ -1,5 +1,6 @@
 package org.example.sqlexecutor.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
@@ -11,6 +12,9 @@ public class SqlResult {
     private String message;
     private List<ColumnInfo> columns;
     private List<Map<String, Object>> data;
+    // Dữ liệu dạng cột, chỉ có khi resultFormat = columnar (khi đó data = null)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ColumnarPage columnar;
     private int affectedRows;
     private String queryType;
     private String dataSourceName;
@@ -22,6 +26,37 @@ public class SqlResult {
     private long totalItems;
     private int totalPages;
 
+    // Chế độ đếm đã dùng; totalItems/totalPages = -1 khi chưa biết tổng số bản ghi
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CountMode countMode;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasNext;
+    // Id để poll kết quả đếm của chế độ deferred
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String countId;
+
+    // Keyset pagination: cursor của trang kế tiếp / trang trước (null nếu không còn)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String prevCursor;
+
+    // Cursor session còn mở (null khi đã đọc hết kết quả)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sessionId;
+
+    // Snapshot trên đĩa chứa toàn bộ kết quả; truncated khi kết quả vượt giới hạn số dòng của snapshot
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String snapshotId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean snapshotTruncated;
+
+    // Kết quả đã capture trong bộ nhớ; truncated khi kết quả vượt giới hạn số dòng của capture
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String captureId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean captureTruncated;
+
     public SqlResult() {
     }
 
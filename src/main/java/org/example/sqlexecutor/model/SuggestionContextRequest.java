@@ -0,0 +1,54 @@
+package org.example.sqlexecutor.model;
+
+/**
+ * Yêu cầu gợi ý theo ngữ cảnh từ editor: toàn bộ nội dung, vị trí con trỏ và id phiên editor
+ * (để server giữ token của lần gõ trước).
+ */
+public class SuggestionContextRequest {
+    private String sessionId;
+    private String text;
+    // Vị trí con trỏ tính theo ký tự; null = cuối nội dung
+    private Integer cursor;
+    private String dataSource = "mysql";
+    private Integer limit;
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Integer getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Integer cursor) {
+        this.cursor = cursor;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public void setDataSource(String dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
+/**
+ * Phép biến đổi chạy trong bộ nhớ trên một kết quả đã capture: lọc, group by kèm hàm gộp,
+ * sắp xếp, top-N rồi phân trang. Thứ tự áp dụng: filters → groupBy/aggregates → sort → limit → pagination.
+ */
+public class TransformRequest {
+    private List<Filter> filters;
+    private List<String> groupBy;
+    private List<Aggregate> aggregates;
+    // Mỗi phần tử là "cột" hoặc "cột desc"
+    private List<String> sort;
+    // Top-N: chỉ giữ N dòng đầu sau khi sắp xếp
+    private Integer limit;
+    private PageRequest pagination = new PageRequest();
+    private ResultFormat resultFormat = ResultFormat.ROWS;
+
+    /**
+     * Điều kiện lọc trên một cột. {@code op}: eq, ne, lt, le, gt, ge, like, in, isNull, notNull
+     * (hoặc ký hiệu =, !=, <, <=, >, >=).
+     */
+    public static class Filter {
+        private String column;
+        private String op;
+        private Object value;
+        private List<Object> values;
+
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public void setOp(String op) {
+            this.op = op;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+
+        public List<Object> getValues() {
+            return values;
+        }
+
+        public void setValues(List<Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public String toString() {
+            return column + " " + op + " " + (values != null ? values : value);
+        }
+    }
+
+    /**
+     * Hàm gộp: count (column null hoặc "*" là COUNT(*)), sum, min, max.
+     */
+    public static class Aggregate {
+        private String function;
+        private String column;
+        private String alias;
+
+        public String getFunction() {
+            return function;
+        }
+
+        public void setFunction(String function) {
+            this.function = function;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public void setAlias(String alias) {
+            this.alias = alias;
+        }
+
+        @Override
+        public String toString() {
+            return function + "(" + column + ") " + alias;
+        }
+    }
+
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<Filter> filters) {
+        this.filters = filters;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    public void setAggregates(List<Aggregate> aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    public List<String> getSort() {
+        return sort;
+    }
+
+    public void setSort(List<String> sort) {
+        this.sort = sort;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public PageRequest getPagination() {
+        return pagination;
+    }
+
+    public void setPagination(PageRequest pagination) {
+        this.pagination = pagination;
+    }
+
+    public ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    public void setResultFormat(ResultFormat resultFormat) {
+        this.resultFormat = resultFormat;
+    }
+
+    /**
+     * Chuỗi đại diện cho phép biến đổi, không gồm phân trang: hai request cùng chữ ký cho cùng kết quả.
+     */
+    @JsonIgnore
+    public String getSignature() {
+        return "filters=" + filters + ";groupBy=" + groupBy + ";aggregates=" + aggregates
+                + ";sort=" + sort + ";limit=" + limit;
+    }
+}
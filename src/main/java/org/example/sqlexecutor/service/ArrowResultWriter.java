@@ -0,0 +1,257 @@
+package org.example.sqlexecutor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi ResultSet thành Arrow IPC stream: kiểu cột JDBC được ánh xạ sang vector Arrow,
+ * dữ liệu được đổ thẳng từ ResultSet vào vector theo từng batch và ghi ra dưới dạng record batch.
+ */
+@Component
+public class ArrowResultWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ArrowResultWriter.class);
+
+    public static final String CONTENT_TYPE = "application/vnd.apache.arrow.stream";
+
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    @Value("${sql.arrow.batch-rows:4096}")
+    private int batchRows;
+
+    // Tạo khi dùng lần đầu: Arrow cần --add-opens=java.base/java.nio trên JDK 17,
+    // thiếu cờ này chỉ làm lỗi các request Arrow chứ không chặn ứng dụng khởi động
+    private BufferAllocator rootAllocator;
+
+    /**
+     * Ghi toàn bộ các dòng còn lại của ResultSet; trả về số dòng đã ghi.
+     * Lỗi ghi ra output stream được bọc trong {@link UncheckedIOException}.
+     */
+    public long write(ResultSet resultSet, OutputStream outputStream) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = ColumnarPage.columnLabels(metaData);
+        List<Field> fields = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            fields.add(toField(metaData, i, names[i - 1]));
+        }
+
+        long rows = 0;
+        try (BufferAllocator allocator = getRootAllocator().newChildAllocator("arrow-result", 0, Long.MAX_VALUE);
+             VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator);
+             ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(outputStream))) {
+            List<FieldVector> vectors = root.getFieldVectors();
+            writer.start();
+            boolean more = true;
+            while (more) {
+                root.allocateNew();
+                int count = 0;
+                while (count < batchRows && (more = resultSet.next())) {
+                    for (int i = 0; i < columnCount; i++) {
+                        setValue(vectors.get(i), count, resultSet, i + 1);
+                    }
+                    count++;
+                }
+                if (count == 0 && rows > 0) {
+                    break;
+                }
+                // Luôn ghi ít nhất một batch (có thể rỗng) để client nhận được schema và dữ liệu nhất quán
+                root.setRowCount(count);
+                writer.writeBatch();
+                rows += count;
+            }
+            writer.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.debug("Wrote {} rows as Arrow IPC stream", rows);
+        return rows;
+    }
+
+    private Field toField(ResultSetMetaData metaData, int index, String name) throws SQLException {
+        ArrowType type;
+        switch (metaData.getColumnType(index)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                type = ArrowType.Bool.INSTANCE;
+                break;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                type = new ArrowType.Int(32, true);
+                break;
+            case Types.INTEGER:
+                // INT UNSIGNED có thể vượt quá int
+                type = metaData.isSigned(index) ? new ArrowType.Int(32, true) : new ArrowType.Int(64, true);
+                break;
+            case Types.BIGINT:
+                // BIGINT UNSIGNED có thể vượt quá long
+                type = metaData.isSigned(index) ? new ArrowType.Int(64, true) : new ArrowType.Decimal(20, 0, 128);
+                break;
+            case Types.REAL:
+                // Số thực 4 byte giữ nguyên độ chính xác đơn, đọc bằng getDouble sẽ thành 0.10000000149011612
+                type = new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+                break;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                type = new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+                break;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = metaData.getPrecision(index);
+                int scale = metaData.getScale(index);
+                // NUMBER không khai báo precision của Oracle (precision 0, scale -127) ghi dạng chuỗi để giữ chính xác
+                type = precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision
+                        ? new ArrowType.Decimal(precision, scale, 128)
+                        : ArrowType.Utf8.INSTANCE;
+                break;
+            case Types.DATE:
+                type = new ArrowType.Date(DateUnit.DAY);
+                break;
+            case Types.TIMESTAMP:
+                type = new ArrowType.Timestamp(TimeUnit.MILLISECOND, null);
+                break;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                type = ArrowType.Binary.INSTANCE;
+                break;
+            default:
+                type = ArrowType.Utf8.INSTANCE;
+        }
+        return new Field(name, FieldType.nullable(type), null);
+    }
+
+    private void setValue(FieldVector vector, int row, ResultSet resultSet, int index) throws SQLException {
+        if (vector instanceof BigIntVector) {
+            long value = resultSet.getLong(index);
+            if (resultSet.wasNull()) {
+                ((BigIntVector) vector).setNull(row);
+            } else {
+                ((BigIntVector) vector).setSafe(row, value);
+            }
+        } else if (vector instanceof IntVector) {
+            int value = resultSet.getInt(index);
+            if (resultSet.wasNull()) {
+                ((IntVector) vector).setNull(row);
+            } else {
+                ((IntVector) vector).setSafe(row, value);
+            }
+        } else if (vector instanceof Float8Vector) {
+            double value = resultSet.getDouble(index);
+            if (resultSet.wasNull()) {
+                ((Float8Vector) vector).setNull(row);
+            } else {
+                ((Float8Vector) vector).setSafe(row, value);
+            }
+        } else if (vector instanceof Float4Vector) {
+            float value = resultSet.getFloat(index);
+            if (resultSet.wasNull()) {
+                ((Float4Vector) vector).setNull(row);
+            } else {
+                ((Float4Vector) vector).setSafe(row, value);
+            }
+        } else if (vector instanceof BitVector) {
+            boolean value = resultSet.getBoolean(index);
+            if (resultSet.wasNull()) {
+                ((BitVector) vector).setNull(row);
+            } else {
+                ((BitVector) vector).setSafe(row, value ? 1 : 0);
+            }
+        } else if (vector instanceof DecimalVector) {
+            DecimalVector decimalVector = (DecimalVector) vector;
+            BigDecimal value = resultSet.getBigDecimal(index);
+            if (value == null) {
+                decimalVector.setNull(row);
+            } else {
+                decimalVector.setSafe(row, value.setScale(decimalVector.getScale(), RoundingMode.HALF_UP));
+            }
+        } else if (vector instanceof DateDayVector) {
+            Date value = resultSet.getDate(index);
+            if (value == null) {
+                ((DateDayVector) vector).setNull(row);
+            } else {
+                ((DateDayVector) vector).setSafe(row, (int) value.toLocalDate().toEpochDay());
+            }
+        } else if (vector instanceof TimeStampMilliVector) {
+            Timestamp value = resultSet.getTimestamp(index);
+            if (value == null) {
+                ((TimeStampMilliVector) vector).setNull(row);
+            } else {
+                // Timestamp không múi giờ của Arrow lưu giờ "wall-clock" như thể ở UTC
+                ((TimeStampMilliVector) vector).setSafe(row,
+                        value.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+        } else if (vector instanceof VarBinaryVector) {
+            byte[] value = resultSet.getBytes(index);
+            if (value == null) {
+                ((VarBinaryVector) vector).setNull(row);
+            } else {
+                ((VarBinaryVector) vector).setSafe(row, value);
+            }
+        } else {
+            String value = resultSet.getString(index);
+            if (value == null) {
+                ((VarCharVector) vector).setNull(row);
+            } else {
+                ((VarCharVector) vector).setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private synchronized BufferAllocator getRootAllocator() {
+        if (rootAllocator == null) {
+            rootAllocator = new RootAllocator();
+        }
+        return rootAllocator;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (rootAllocator != null) {
+            rootAllocator.close();
+        }
+    }
+}
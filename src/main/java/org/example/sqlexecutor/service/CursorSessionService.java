@@ -0,0 +1,276 @@
+package org.example.sqlexecutor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quản lý cursor session: mỗi session giữ một connection riêng với ResultSet forward-only đang mở,
+ * các trang sau chỉ đọc tiếp N dòng thay vì chạy lại COUNT + truy vấn phân trang.
+ * Session nhàn rỗi quá TTL bị đóng; số session mỗi datasource bị giới hạn để không chiếm hết pool.
+ */
+@Service
+public class CursorSessionService {
+    private static final Logger logger = LoggerFactory.getLogger(CursorSessionService.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.cursor-session.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${sql.cursor-session.max-per-datasource:3}")
+    private int maxPerDataSource;
+
+    @Value("${sql.cursor-session.fetch-size:500}")
+    private int fetchSize;
+
+    // Connection của session không đi qua @Transactional: timeout đặt trực tiếp trên statement
+    @Value("${sql.cursor-session.query-timeout-seconds:300}")
+    private int queryTimeoutSeconds;
+
+    private final Map<String, CursorSession> sessions = new ConcurrentHashMap<>();
+
+    // Số session đang mở (chưa vào sessions) theo datasource; cùng với sessions chỉ đổi dưới khóa limitLock
+    private final Map<String, Integer> opening = new HashMap<>();
+    private final Object limitLock = new Object();
+
+    public static class CursorSession {
+        private final String id;
+        private final String dataSourceName;
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final long totalItems;
+        private long rowsConsumed;
+        private volatile long lastAccess;
+        private boolean closed;
+
+        private CursorSession(String id, String dataSourceName, Connection connection,
+                              PreparedStatement statement, ResultSet resultSet, long totalItems) {
+            this.id = id;
+            this.dataSourceName = dataSourceName;
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.totalItems = totalItems;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getDataSourceName() {
+            return dataSourceName;
+        }
+
+        public ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        public long getTotalItems() {
+            return totalItems;
+        }
+
+        public long getRowsConsumed() {
+            return rowsConsumed;
+        }
+
+        public void addRowsConsumed(long rows) {
+            this.rowsConsumed += rows;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Chưa đọc hết thì hủy query trước khi đóng để driver không phải đọc nốt phần còn lại
+            if (totalItems < 0 || rowsConsumed < totalItems) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    logger.debug("Error cancelling cursor session statement", e);
+                }
+            }
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing cursor session result set", e);
+            }
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing cursor session statement", e);
+            }
+            try {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.debug("Error resetting cursor session connection", e);
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error returning cursor session connection to pool", e);
+            }
+        }
+    }
+
+    /**
+     * Mở session mới: lấy connection riêng từ pool và thực thi query với fetch size dạng streaming.
+     */
+    public CursorSession open(String dataSourceName, String query, long totalItems) {
+        // Tên không đăng ký đều trỏ về datasource mặc định nên giới hạn phải tính theo tên đã resolve
+        dataSourceName = dataSourceService.resolveName(dataSourceName);
+        reserveSlot(dataSourceName);
+
+        SqlDatabaseAdapter.DatabaseStrategy strategy = dataSourceService.getDatabaseStrategy(dataSourceName);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        boolean registered = false;
+        try {
+            connection = dataSourceService.getDataSource(dataSourceName).getConnection();
+            // Một số driver (PostgreSQL) chỉ dùng server-side cursor khi tắt auto-commit
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            strategy.applyCursorFetchSize(statement, fetchSize);
+            if (queryTimeoutSeconds > 0) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+            }
+            ResultSet resultSet = statement.executeQuery();
+
+            CursorSession session = new CursorSession(UUID.randomUUID().toString(), dataSourceName,
+                    connection, statement, resultSet, totalItems);
+            synchronized (limitLock) {
+                releaseSlot(dataSourceName);
+                sessions.put(session.getId(), session);
+            }
+            registered = true;
+            logger.info("Opened cursor session {} on datasource [{}]", session.getId(), dataSourceName);
+            return session;
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    logger.debug("Error closing connection", ex);
+                }
+            }
+            throw new SqlExecutionException("Error opening cursor session", e);
+        } finally {
+            if (!registered) {
+                synchronized (limitLock) {
+                    releaseSlot(dataSourceName);
+                }
+            }
+        }
+    }
+
+    public CursorSession get(String sessionId) {
+        CursorSession session = sessions.get(sessionId);
+        if (session == null || session.isClosed()) {
+            throw new SqlExecutionException("Cursor session not found or expired: " + sessionId);
+        }
+        session.lastAccess = System.currentTimeMillis();
+        return session;
+    }
+
+    public void close(String sessionId) {
+        Optional.ofNullable(sessions.remove(sessionId)).ifPresent(session -> {
+            session.close();
+            logger.info("Closed cursor session {}", sessionId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sql.cursor-session.eviction-interval-ms:30000}")
+    public void evictIdleSessions() {
+        long deadline = System.currentTimeMillis() - ttlSeconds * 1000;
+        for (CursorSession session : new ArrayList<>(sessions.values())) {
+            if (session.lastAccess < deadline) {
+                logger.info("Evicting idle cursor session {}", session.getId());
+                close(session.getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (String sessionId : new ArrayList<>(sessions.keySet())) {
+            close(sessionId);
+        }
+    }
+
+    /**
+     * Giữ chỗ cho một session mới của datasource. Đạt giới hạn thì đóng session ít được dùng gần đây nhất;
+     * việc đếm, chọn session bị đóng và giữ chỗ diễn ra dưới cùng một khóa nên các lần mở đồng thời
+     * không cùng vượt qua giới hạn.
+     */
+    private void reserveSlot(String dataSourceName) {
+        List<CursorSession> evicted = new ArrayList<>();
+        synchronized (limitLock) {
+            int pending = opening.getOrDefault(dataSourceName, 0);
+            List<CursorSession> open = new ArrayList<>();
+            for (CursorSession session : sessions.values()) {
+                if (session.getDataSourceName().equals(dataSourceName)) {
+                    open.add(session);
+                }
+            }
+            int excess = open.size() + pending + 1 - maxPerDataSource;
+            if (excess > open.size()) {
+                throw new SqlExecutionException("Too many cursor sessions being opened on datasource: "
+                        + dataSourceName);
+            }
+            open.sort(Comparator.comparingLong(session -> session.lastAccess));
+            for (int i = 0; i < excess; i++) {
+                sessions.remove(open.get(i).getId());
+                evicted.add(open.get(i));
+            }
+            opening.put(dataSourceName, pending + 1);
+        }
+        // Đóng ngoài khóa: hủy và trả connection có thể chậm
+        for (CursorSession session : evicted) {
+            logger.info("Cursor session limit reached on [{}], closing {}", dataSourceName, session.getId());
+            session.close();
+        }
+    }
+
+    private void releaseSlot(String dataSourceName) {
+        opening.computeIfPresent(dataSourceName, (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void closeQuietly(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing statement", e);
+            }
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package org.example.sqlexecutor.service;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.example.sqlexecutor.adapter.DatabaseDialect;
+import org.example.sqlexecutor.adapter.DialectRegistry;
 import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -16,49 +27,132 @@ public class DataSourceService {
     private Map<String, DataSource> dataSourceMap;
 
     @Autowired
-    private SqlDatabaseAdapter databaseAdapter;
+    private DialectRegistry dialectRegistry;
 
     public List<String> getAvailableDataSources() {
         return new ArrayList<>(dataSourceMap.keySet());
     }
 
+    // Tên datasource thực sự được dùng (tên lạ hoặc null trỏ về datasource mặc định)
+    public String resolveName(String dataSourceName) {
+        return dialectRegistry.resolveName(dataSourceName);
+    }
+
     public DataSource getDataSource(String name) {
-        return dataSourceMap.getOrDefault(name, dataSourceMap.get("mysql"));
+        return dialectRegistry.getDataSource(name);
     }
 
     public JdbcTemplate getJdbcTemplate(String dataSourceName) {
+        return dialectRegistry.getJdbcTemplate(dataSourceName);
+    }
+
+    public DatabaseDialect getDialect(String dataSourceName) {
+        return dialectRegistry.getDialect(dataSourceName);
+    }
+
+    /**
+     * Pool Hikari đã bão hòa (có thread đang chờ connection hoặc không còn connection rảnh khi đã đạt max).
+     * Dùng để tránh mở thêm connection song song khi pool đang chịu tải.
+     */
+    public boolean isPoolSaturated(String dataSourceName) {
         DataSource dataSource = getDataSource(dataSourceName);
-        return new JdbcTemplate(dataSource);
+        if (!(dataSource instanceof HikariDataSource)) {
+            return false;
+        }
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return false;
+        }
+        return pool.getThreadsAwaitingConnection() > 0
+                || (pool.getIdleConnections() == 0
+                && pool.getTotalConnections() >= hikariDataSource.getMaximumPoolSize());
     }
 
-    public String getDatabaseType(String dataSourceName) {
-        JdbcTemplate jdbcTemplate = getJdbcTemplate(dataSourceName);
-        try {
-            String dbProductName = jdbcTemplate.getDataSource().getConnection().getMetaData()
-                    .getDatabaseProductName().toLowerCase();
-
-            if (dbProductName.contains("mysql") || dbProductName.contains("mariadb")) {
-                return "mysql";
-            } else if (dbProductName.contains("microsoft") || dbProductName.contains("sql server")) {
-                return "sqlserver";
-            } else if (dbProductName.contains("oracle")) {
-                return "oracle";
+    /**
+     * Chạy query trên connection riêng với statement forward-only, read-only và fetch size streaming
+     * của dialect, để driver không nạp toàn bộ kết quả vào heap trước khi extractor đọc.
+     */
+    public <T> T queryStreaming(String dataSourceName, String sql, int fetchSize, ResultSetExtractor<T> extractor)
+            throws SQLException {
+        return queryStreaming(dataSourceName, sql, fetchSize, 0, extractor);
+    }
+
+    /**
+     * Như {@link #queryStreaming(String, String, int, ResultSetExtractor)} nhưng đặt query timeout (giây) cho statement.
+     * Connection riêng này không đi qua @Transactional nên timeout của transaction không áp dụng; 0 là không giới hạn.
+     */
+    public <T> T queryStreaming(String dataSourceName, String sql, int fetchSize, int timeoutSeconds,
+                                ResultSetExtractor<T> extractor) throws SQLException {
+        return queryStreaming(dataSourceName, sql, fetchSize, timeoutSeconds, null, extractor);
+    }
+
+    /**
+     * Nhận statement của {@link #queryStreaming} ngay trước khi thực thi: cấu hình thêm (ví dụ setMaxRows)
+     * hoặc giữ lại để {@link Statement#cancel()} từ thread khác.
+     */
+    @FunctionalInterface
+    public interface StatementListener {
+        void prepared(Statement statement) throws SQLException;
+    }
+
+    /**
+     * Như trên, và báo statement cho {@code statementListener} ngay trước khi thực thi để nơi gọi có thể
+     * {@link Statement#cancel()} từ thread khác (ngắt thread đọc không dừng được JDBC đang chờ database).
+     * Khi {@code extractor} lỗi giữa chừng (client ngắt kết nối, ghi file lỗi) truy vấn được dừng theo dialect
+     * trước khi đóng ResultSet, để phần kết quả còn lại không bị đọc bỏ qua mạng.
+     */
+    public <T> T queryStreaming(String dataSourceName, String sql, int fetchSize, int timeoutSeconds,
+                                StatementListener statementListener, ResultSetExtractor<T> extractor)
+            throws SQLException {
+        SqlDatabaseAdapter.DatabaseStrategy strategy = getDatabaseStrategy(dataSourceName);
+        try (Connection connection = getDataSource(dataSourceName).getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // PostgreSQL chỉ dùng server-side cursor khi tắt auto-commit
+            connection.setAutoCommit(false);
+            boolean aborted = false;
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                strategy.applyStreamingFetchSize(statement, fetchSize);
+                if (timeoutSeconds > 0) {
+                    statement.setQueryTimeout(timeoutSeconds);
+                }
+                if (statementListener != null) {
+                    statementListener.prepared(statement);
+                }
+                ResultSet resultSet = statement.executeQuery();
+                boolean completed = false;
+                try {
+                    T result = extractor.extractData(resultSet);
+                    completed = true;
+                    return result;
+                } finally {
+                    if (!completed) {
+                        aborted = strategy.stopStreaming(connection, statement);
+                    }
+                    JdbcUtils.closeResultSet(resultSet);
+                }
+            } finally {
+                // Connection đã bị hủy thì không rollback được; pool tự loại bỏ nó khi được trả về
+                if (!aborted) {
+                    connection.rollback();
+                    connection.setAutoCommit(autoCommit);
+                }
             }
-            return "mysql"; // Default
-        } catch (Exception e) {
-            return "mysql"; // Default on error
         }
     }
 
+    public String getDatabaseType(String dataSourceName) {
+        return getDialect(dataSourceName).getType();
+    }
+
     public SqlDatabaseAdapter.DatabaseStrategy getDatabaseStrategy(String dataSourceName) {
-        JdbcTemplate jdbcTemplate = getJdbcTemplate(dataSourceName);
-        return databaseAdapter.getStrategy(jdbcTemplate);
+        return getDialect(dataSourceName).getStrategy();
     }
 
     public String getDataSourceInfo(String name) {
         try {
             JdbcTemplate jdbcTemplate = getJdbcTemplate(name);
-            String query = databaseAdapter.getStrategy(jdbcTemplate).getTableInfoQuery();
             return jdbcTemplate.queryForObject(
                     "SELECT DATABASE() as db", String.class);
         } catch (Exception e) {
@@ -0,0 +1,150 @@
+package org.example.sqlexecutor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Đếm tổng số bản ghi ở background cho chế độ count deferred; client poll kết quả theo countId.
+ */
+@Service
+public class DeferredCountService {
+    private static final Logger logger = LoggerFactory.getLogger(DeferredCountService.class);
+
+    @Autowired
+    @Qualifier("queryExecutor")
+    private ThreadPoolTaskExecutor queryExecutor;
+
+    @Value("${sql.deferred-count.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final Map<String, DeferredCount> counts = new ConcurrentHashMap<>();
+
+    private static class DeferredCount {
+        private final CompletableFuture<Long> future;
+        // Statement JDBC đang chạy câu đếm (null khi chưa bắt đầu hoặc đã xong)
+        private final AtomicReference<Statement> statement;
+        private final long createdAt = System.currentTimeMillis();
+
+        private DeferredCount(CompletableFuture<Long> future, AtomicReference<Statement> statement) {
+            this.future = future;
+            this.statement = statement;
+        }
+
+        // cancel(true) của future không ngắt được JDBC đang chờ database: yêu cầu database dừng câu đếm
+        private void cancel() {
+            future.cancel(true);
+            Statement running = statement.getAndSet(null);
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    logger.debug("Could not cancel deferred count statement: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gửi câu đếm chạy nền; {@code counter} nhận JdbcTemplate (cùng datasource và cấu hình với {@code jdbcTemplate})
+     * ghi lại statement đang chạy để có thể hủy khi hết hạn. Trả về null (bỏ qua đếm) khi hàng đợi đã đầy.
+     */
+    public String submit(String dataSourceName, JdbcTemplate jdbcTemplate, Function<JdbcTemplate, Long> counter) {
+        String countId = UUID.randomUUID().toString();
+        AtomicReference<Statement> countStatement = new AtomicReference<>();
+        JdbcTemplate countTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            protected void applyStatementSettings(Statement statement) throws SQLException {
+                super.applyStatementSettings(statement);
+                countStatement.set(statement);
+            }
+        };
+        countTemplate.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+        countTemplate.setFetchSize(jdbcTemplate.getFetchSize());
+        countTemplate.setMaxRows(jdbcTemplate.getMaxRows());
+
+        CompletableFuture<Long> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return counter.apply(countTemplate);
+                } finally {
+                    countStatement.set(null);
+                }
+            }, queryExecutor);
+        } catch (TaskRejectedException e) {
+            // Không chạy trên thread request: request deferred phải trả về ngay
+            logger.warn("Deferred count queue is full, skipping count on datasource [{}]", dataSourceName);
+            return null;
+        }
+        future.whenComplete((total, error) -> {
+            if (error != null) {
+                logger.warn("Deferred count {} on datasource [{}] failed: {}", countId, dataSourceName, error.getMessage());
+            } else {
+                logger.info("Deferred count {} on datasource [{}] completed: {}", countId, dataSourceName, total);
+            }
+        });
+        counts.put(countId, new DeferredCount(future, countStatement));
+        return countId;
+    }
+
+    /**
+     * Trạng thái của một lần đếm: pending, done (kèm totalItems) hoặc failed (kèm message).
+     */
+    public Map<String, Object> getStatus(String countId) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("countId", countId);
+
+        DeferredCount count = counts.get(countId);
+        if (count == null) {
+            status.put("status", "unknown");
+            return status;
+        }
+
+        CompletableFuture<Long> future = count.future;
+        if (!future.isDone()) {
+            status.put("status", "pending");
+        } else if (future.isCompletedExceptionally()) {
+            status.put("status", "failed");
+            try {
+                future.join();
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                status.put("message", cause.getMessage());
+            }
+        } else {
+            status.put("status", "done");
+            status.put("totalItems", future.join());
+        }
+        return status;
+    }
+
+    @Scheduled(fixedDelayString = "${sql.deferred-count.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long deadline = System.currentTimeMillis() - ttlSeconds * 1000;
+        for (Map.Entry<String, DeferredCount> entry : new ArrayList<>(counts.entrySet())) {
+            if (entry.getValue().createdAt < deadline) {
+                entry.getValue().cancel();
+                counts.remove(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package org.example.sqlexecutor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.export.ExportOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Export chạy nền: job ghi file ra thư mục tạm, client poll tiến độ (số dòng, số byte, ETA)
+ * rồi tải file khi xong. Request HTTP không phải giữ mở trong suốt quá trình export.
+ */
+@Service
+public class ExportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    public static final String QUEUED = "queued";
+    public static final String RUNNING = "running";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+    public static final String CANCELLED = "cancelled";
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Autowired
+    @Qualifier("exportJobExecutor")
+    private ThreadPoolTaskExecutor exportJobExecutor;
+
+    @Value("${sql.export-job.dir:${java.io.tmpdir}/sql-export-jobs}")
+    private String jobDirectory;
+
+    @Value("${sql.export-job.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${sql.export-job.max-per-datasource:2}")
+    private int maxPerDataSource;
+
+    private Path directory;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public static class ExportJob {
+        private final String id;
+        private final String dataSourceName;
+        private final String query;
+        private final ExportOptions options;
+        private final Path file;
+        private final String fileName;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile String status = QUEUED;
+        private volatile long rowsWritten;
+        private volatile long bytesWritten;
+        private volatile Long estimatedRows;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String message;
+        private volatile Future<?> future;
+        // Statement đang đọc kết quả, để cancel() dừng được truy vấn ở phía database
+        private volatile Statement statement;
+
+        private ExportJob(String id, String dataSourceName, String query, ExportOptions options,
+                          Path file, String fileName) {
+            this.id = id;
+            this.dataSourceName = dataSourceName;
+            this.query = query;
+            this.options = options;
+            this.file = file;
+            this.fileName = fileName;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public ExportOptions getOptions() {
+            return options;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        private boolean isActive() {
+            return QUEUED.equals(status) || RUNNING.equals(status);
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(jobDirectory);
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Tạo job export; bị từ chối khi datasource đã có đủ số job đang chạy.
+     */
+    public synchronized ExportJob submit(String dataSourceName, String query, ExportOptions options) {
+        // Tên không đăng ký (kể cả null) đều trỏ về datasource mặc định nên giới hạn tính theo tên đã resolve
+        String resolvedName = dataSourceService.resolveName(dataSourceName);
+        long active = jobs.values().stream()
+                .filter(job -> job.isActive() && job.dataSourceName.equals(resolvedName))
+                .count();
+        if (active >= maxPerDataSource) {
+            throw new SqlExecutionException("Too many export jobs running on datasource " + resolvedName
+                    + ", please wait for one to finish");
+        }
+
+        String id = UUID.randomUUID().toString();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        ExportJob job = new ExportJob(id, resolvedName, query, options,
+                directory.resolve(options.getFileName(id)), options.getFileName("sql_export_" + timestamp));
+        jobs.put(id, job);
+        try {
+            job.future = exportJobExecutor.submit(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(id);
+            throw new SqlExecutionException("Export job queue is full, please try again later", e);
+        }
+        logger.info("Submitted export job {} on datasource [{}]", id, resolvedName);
+        return job;
+    }
+
+    private void run(ExportJob job) {
+        if (!QUEUED.equals(job.status)) {
+            return;
+        }
+        job.status = RUNNING;
+        job.startedAt = System.currentTimeMillis();
+        job.estimatedRows = estimateRows(job);
+
+        try (OutputStream out = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(job.file)), job)) {
+            long rows = exportService.export(job.dataSourceName, job.query, job.options, out,
+                    written -> job.rowsWritten = written, statement -> {
+                        job.statement = statement;
+                        // Bị hủy trong lúc ước lượng số dòng: không bắt đầu truy vấn
+                        if (CANCELLED.equals(job.status)) {
+                            throw new SqlExecutionException("Export job " + job.id + " cancelled");
+                        }
+                    });
+            job.rowsWritten = rows;
+            if (CANCELLED.equals(job.status)) {
+                deleteFile(job);
+                return;
+            }
+            job.status = DONE;
+            logger.info("Export job {} completed: {} rows, {} bytes", job.id, rows, job.bytesWritten);
+        } catch (Exception e) {
+            if (CANCELLED.equals(job.status)) {
+                logger.info("Export job {} cancelled", job.id);
+            } else {
+                job.status = FAILED;
+                job.message = e.getMessage();
+                logger.error("Export job {} failed", job.id, e);
+            }
+            deleteFile(job);
+        } finally {
+            job.statement = null;
+            job.finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    // Ước lượng số dòng từ planner để tính ETA; không có ước lượng thì bỏ qua ETA
+    private Long estimateRows(ExportJob job) {
+        try {
+            return dataSourceService.getDatabaseStrategy(job.dataSourceName)
+                    .estimateRowCount(dataSourceService.getJdbcTemplate(job.dataSourceName), job.query);
+        } catch (Exception e) {
+            logger.debug("Could not estimate rows for export job {}: {}", job.id, e.getMessage());
+            return null;
+        }
+    }
+
+    public ExportJob get(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new SqlExecutionException("Export job not found or expired: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Trạng thái job: rowsWritten, bytesWritten, ước lượng tổng số dòng và ETA (ms) khi đang chạy.
+     */
+    public Map<String, Object> getStatus(String jobId) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("jobId", jobId);
+
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            status.put("status", "unknown");
+            return status;
+        }
+
+        status.put("status", job.status);
+        status.put("dataSourceName", job.dataSourceName);
+        status.put("rowsWritten", job.rowsWritten);
+        status.put("bytesWritten", job.bytesWritten);
+        if (job.estimatedRows != null) {
+            status.put("estimatedRows", job.estimatedRows);
+        }
+        if (job.startedAt > 0) {
+            long end = job.finishedAt > 0 ? job.finishedAt : System.currentTimeMillis();
+            long elapsed = end - job.startedAt;
+            status.put("elapsedMs", elapsed);
+            if (RUNNING.equals(job.status) && job.estimatedRows != null
+                    && job.rowsWritten > 0 && job.estimatedRows > job.rowsWritten) {
+                status.put("etaMs", elapsed * (job.estimatedRows - job.rowsWritten) / job.rowsWritten);
+            }
+        }
+        if (DONE.equals(job.status)) {
+            status.put("fileName", job.fileName);
+        }
+        if (job.message != null) {
+            status.put("message", job.message);
+        }
+        return status;
+    }
+
+    /**
+     * File đã export xong để tải về.
+     */
+    public ExportJob getCompleted(String jobId) {
+        ExportJob job = get(jobId);
+        if (!DONE.equals(job.status)) {
+            throw new SqlExecutionException("Export job " + jobId + " is not completed (status: " + job.status + ")");
+        }
+        return job;
+    }
+
+    /**
+     * Hủy job đang chạy (nếu có) và xóa file.
+     */
+    public void cancel(String jobId) {
+        ExportJob job = jobs.remove(jobId);
+        if (job == null) {
+            return;
+        }
+        if (job.isActive()) {
+            job.status = CANCELLED;
+            Future<?> future = job.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+            // Ngắt thread không dừng được JDBC đang chờ database hoặc driver đang stream dòng
+            Statement statement = job.statement;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    logger.debug("Could not cancel statement of export job {}: {}", jobId, e.getMessage());
+                }
+            }
+        }
+        deleteFile(job);
+        logger.info("Removed export job {}", jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${sql.export-job.cleanup-interval-ms:300000}")
+    public void evictExpired() {
+        long deadline = System.currentTimeMillis() - ttlMinutes * 60_000;
+        for (ExportJob job : new ArrayList<>(jobs.values())) {
+            if (!job.isActive() && Math.max(job.createdAt, job.finishedAt) < deadline) {
+                logger.info("Evicting expired export job {}", job.id);
+                cancel(job.id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cancelAll() {
+        for (String jobId : new ArrayList<>(jobs.keySet())) {
+            cancel(jobId);
+        }
+    }
+
+    private void deleteFile(ExportJob job) {
+        try {
+            Files.deleteIfExists(job.file);
+        } catch (IOException e) {
+            logger.warn("Could not delete export file {}", job.file, e);
+        }
+    }
+
+    // Đếm số byte đã ghi ra file để báo tiến độ
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final ExportJob job;
+
+        private CountingOutputStream(OutputStream out, ExportJob job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkCancelled();
+            out.write(b);
+            job.bytesWritten++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            out.write(b, off, len);
+            job.bytesWritten += len;
+        }
+
+        // Dừng ghi ngay cả khi driver bỏ qua Statement.cancel()
+        private void checkCancelled() throws IOException {
+            if (CANCELLED.equals(job.status)) {
+                throw new IOException("Export job " + job.id + " cancelled");
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.sqlexecutor.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.sqlexecutor.export.ExportOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.function.LongConsumer;
+
+public interface ExportService {
+    /**
+     * Export kết quả SELECT trên datasource {@code dataSourceName} ra response
+     * theo định dạng trong {@code options} (XLSX, CSV, TSV, JSON Lines).
+     */
+    void export(String dataSourceName, String query, ExportOptions options, HttpServletResponse response)
+            throws SQLException;
+
+    /**
+     * Ghi file export ra output stream bất kỳ; {@code progress} nhận số dòng đã ghi sau mỗi batch,
+     * {@code statementListener} (có thể null) nhận statement đang đọc để hủy được từ thread khác.
+     */
+    long export(String dataSourceName, String query, ExportOptions options, OutputStream outputStream,
+                LongConsumer progress, DataSourceService.StatementListener statementListener) throws SQLException, IOException;
+}
@@ -0,0 +1,205 @@
+package org.example.sqlexecutor.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Prefetch trang kế tiếp: sau khi trả trang N, trang N+1 của cùng query được đọc trước ở background
+ * và giữ trong buffer ngắn hạn; request trang đó lấy ngay từ buffer (mỗi trang prefetch dùng một lần).
+ * Không prefetch khi pool connection của datasource đang có thread chờ.
+ */
+@Service
+public class PrefetchService {
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchService.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Autowired
+    @Qualifier("prefetchExecutor")
+    private ThreadPoolTaskExecutor prefetchExecutor;
+
+    @Value("${sql.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql.prefetch.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${sql.prefetch.max-pages:200}")
+    private long maxPages;
+
+    private Cache<String, QueryResultCache.CachedPage> buffer;
+
+    // Các key đang được đọc ở background, tránh prefetch trùng
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Thế hệ theo datasource, tăng mỗi lần invalidate: trang đọc trước một lần invalidate thì không được vào buffer
+    // (riêng với QueryResultCache để vẫn đúng khi cache kết quả bị tắt)
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skippedSaturated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unused = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        buffer = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .removalListener((String key, QueryResultCache.CachedPage page, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        unused.increment();
+                    }
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lấy (và bỏ khỏi buffer) trang đã prefetch; {@code countMiss} khi request có bật prefetch.
+     */
+    public QueryResultCache.CachedPage take(String dataSourceName, String query, String pageKey, boolean countMiss) {
+        if (!enabled) {
+            return null;
+        }
+        QueryResultCache.CachedPage page = buffer.asMap().remove(key(dataSourceName, query, pageKey));
+        if (page != null) {
+            hits.increment();
+        } else if (countMiss) {
+            misses.increment();
+        }
+        return page;
+    }
+
+    /**
+     * Đọc trước trang {@code pageKey} ở background bằng {@code loader}; bỏ qua khi đã có trong buffer,
+     * đang được đọc, pool đang bão hòa hoặc hàng đợi prefetch đầy.
+     */
+    public void submit(String dataSourceName, String query, String pageKey,
+                       Supplier<QueryResultCache.CachedPage> loader) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(dataSourceName, query, pageKey);
+        if (buffer.getIfPresent(key) != null || !pending.add(key)) {
+            return;
+        }
+        if (dataSourceService.isPoolSaturated(dataSourceName)) {
+            pending.remove(key);
+            skippedSaturated.increment();
+            return;
+        }
+        long generation = generation(dataSourceName);
+        try {
+            prefetchExecutor.execute(() -> run(dataSourceName, key, generation, loader));
+            submitted.increment();
+        } catch (TaskRejectedException e) {
+            pending.remove(key);
+            rejected.increment();
+        }
+    }
+
+    private void run(String dataSourceName, String key, long generation,
+                     Supplier<QueryResultCache.CachedPage> loader) {
+        try {
+            // Kiểm tra lại lúc bắt đầu: pool có thể đã bão hòa trong lúc tác vụ nằm trong hàng đợi
+            if (dataSourceService.isPoolSaturated(dataSourceName)) {
+                skippedSaturated.increment();
+                return;
+            }
+            QueryResultCache.CachedPage page = loader.get();
+            if (generation == generation(dataSourceName)) {
+                buffer.put(key, page);
+                // Có invalidate chen vào giữa lúc kiểm tra thế hệ và lúc put thì bỏ trang vừa thêm
+                if (generation != generation(dataSourceName)) {
+                    buffer.invalidate(key);
+                }
+            }
+            completed.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.debug("Prefetch failed on [{}]: {}", dataSourceName, e.getMessage());
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Bỏ các trang prefetch của datasource (sau INSERT/UPDATE/DELETE/DDL). Trong transaction thì bỏ thêm lần nữa
+     * sau commit để không giữ lại trang được đọc giữa lúc cập nhật và lúc commit.
+     */
+    public void invalidate(String dataSourceName) {
+        invalidateBuffer(dataSourceName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateBuffer(dataSourceName);
+                }
+            });
+        }
+    }
+
+    private void invalidateBuffer(String dataSourceName) {
+        generations.computeIfAbsent(dataSourceName, name -> new AtomicLong()).incrementAndGet();
+        String prefix = dataSourceName + '\u0001';
+        buffer.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private long generation(String dataSourceName) {
+        return generations.computeIfAbsent(dataSourceName, name -> new AtomicLong()).get();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("submitted", submitted.sum());
+        result.put("completed", completed.sum());
+        result.put("failed", failed.sum());
+        result.put("skippedPoolSaturated", skippedSaturated.sum());
+        result.put("rejectedQueueFull", rejected.sum());
+        result.put("hits", hitCount);
+        result.put("misses", misses.sum());
+        result.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        result.put("expiredUnused", unused.sum());
+        result.put("buffered", buffer.estimatedSize());
+        result.put("pending", pending.size());
+        return result;
+    }
+
+    // Prefix là datasource để invalidate theo datasource; literal trong query được giữ nguyên trong key
+    private static String key(String dataSourceName, String query, String pageKey) {
+        return QueryResultCache.key(dataSourceName, pageKey, query);
+    }
+}
@@ -0,0 +1,307 @@
+package org.example.sqlexecutor.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.example.sqlexecutor.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache kết quả SELECT (trang dữ liệu và COUNT) trong bộ nhớ, key theo datasource + SQL đã chuẩn hóa + trang.
+ * Giới hạn theo tổng số byte ước lượng, loại bỏ theo W-TinyLFU của Caffeine và hết hạn theo TTL.
+ * Mỗi entry được gắn tag các bảng mà query đọc; INSERT/UPDATE/DELETE/DDL trên bảng đó xóa các entry liên quan.
+ */
+@Service
+public class QueryResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private static final String IDENTIFIER = "[`\"\\[]?[\\w$#]+[`\"\\]]?";
+    private static final String QUALIFIED_NAME = "(?:" + IDENTIFIER + "\\.)*" + IDENTIFIER;
+    private static final String ALIAS = "(?:\\s+(?:AS\\s+)?\\w+)?";
+    // Bảng sau FROM/JOIN/UPDATE/INTO/TABLE, kèm danh sách "FROM a x, b y" (alias chỉ được nuốt khi có dấu phẩy theo sau)
+    private static final Pattern TABLE_PATTERN = Pattern.compile(
+            "\\b(?:FROM|JOIN|UPDATE|INTO|TABLE)\\s+(" + QUALIFIED_NAME + ")"
+                    + "(" + ALIAS + "(?:\\s*,\\s*" + QUALIFIED_NAME + ALIAS + ")+)?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIST_ITEM_PATTERN = Pattern.compile(QUALIFIED_NAME);
+
+    // Tag dùng khi không xác định được bảng: mọi entry của datasource đều bị ảnh hưởng
+    private static final String ALL_TABLES = "*";
+
+    @Value("${sql.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${sql.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<String, Entry> cache;
+
+    // Tăng mỗi lần invalidate; kết quả đọc trước lần invalidate không được đưa vào cache
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private final String dataSourceName;
+        private final Set<String> tables;
+        private final Object value;
+        private final int weight;
+
+        private Entry(String dataSourceName, Set<String> tables, Object value, long weight) {
+            this.dataSourceName = dataSourceName;
+            this.tables = tables;
+            this.value = value;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, weight);
+        }
+    }
+
+    /**
+     * Trang đã cache: cột, dữ liệu (chỉ đọc sau khi cache) và thông tin điều hướng.
+     */
+    public static class CachedPage {
+        private final List<ColumnInfo> columns;
+        private final ColumnarPage page;
+        private final Boolean hasNext;
+        private final String nextCursor;
+        private final String prevCursor;
+
+        public CachedPage(List<ColumnInfo> columns, ColumnarPage page, Boolean hasNext,
+                          String nextCursor, String prevCursor) {
+            this.columns = columns;
+            this.page = page;
+            this.hasNext = hasNext;
+            this.nextCursor = nextCursor;
+            this.prevCursor = prevCursor;
+        }
+
+        public List<ColumnInfo> getColumns() {
+            return columns;
+        }
+
+        public ColumnarPage getPage() {
+            return page;
+        }
+
+        public Boolean getHasNext() {
+            return hasNext;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public String getPrevCursor() {
+            return prevCursor;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Thế hệ hiện tại của datasource, lấy trước khi chạy query và truyền lại khi put.
+     */
+    public long generation(String dataSourceName) {
+        return generations.computeIfAbsent(dataSourceName, name -> new AtomicLong()).get();
+    }
+
+    public CachedPage getPage(String dataSourceName, String query, String pageKey) {
+        return (CachedPage) get(key(dataSourceName, "page:" + pageKey, query));
+    }
+
+    public void putPage(String dataSourceName, String query, String pageKey, CachedPage page, long generation) {
+        String key = key(dataSourceName, "page:" + pageKey, query);
+        long weight = page.getPage().estimateSizeBytes() + 64L * page.getColumns().size() + 2L * key.length();
+        put(key, dataSourceName, query, page, weight, generation);
+    }
+
+    public Long getCount(String dataSourceName, String query) {
+        return (Long) get(key(dataSourceName, "count", query));
+    }
+
+    public void putCount(String dataSourceName, String query, long count, long generation) {
+        String key = key(dataSourceName, "count", query);
+        put(key, dataSourceName, query, count, 96 + 2L * key.length(), generation);
+    }
+
+    /**
+     * Xóa các entry đọc từ bảng bị {@code statement} thay đổi. Trong transaction thì xóa thêm lần nữa sau commit
+     * để không giữ lại kết quả được đọc giữa lúc cập nhật và lúc commit.
+     */
+    public void invalidate(String dataSourceName, String statement) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> tables = referencedTables(statement);
+        invalidateTables(dataSourceName, tables);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateTables(dataSourceName, tables);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("entries", cache.estimatedSize());
+        result.put("weightBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        result.put("maxBytes", maxBytes);
+        return result;
+    }
+
+    private Object get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        return entry != null ? entry.value : null;
+    }
+
+    private void put(String key, String dataSourceName, String query, Object value, long weight, long generation) {
+        if (!enabled || generation != generation(dataSourceName)) {
+            return;
+        }
+        cache.put(key, new Entry(dataSourceName, referencedTables(query), value, weight));
+        // Có invalidate chen vào giữa lúc kiểm tra thế hệ và lúc put thì bỏ entry vừa thêm
+        if (generation != generation(dataSourceName)) {
+            cache.invalidate(key);
+        }
+    }
+
+    private void invalidateTables(String dataSourceName, Set<String> tables) {
+        generations.computeIfAbsent(dataSourceName, name -> new AtomicLong()).incrementAndGet();
+        // Duyệt thẳng các entry thay vì giữ chỉ mục bảng -> key riêng: chỉ mục phải đồng bộ với việc put lại,
+        // hết hạn và loại bỏ của Caffeine, còn tag nằm trên chính entry thì luôn khớp với entry đang sống
+        boolean allTables = tables.contains(ALL_TABLES);
+        int[] removed = {0};
+        cache.asMap().values().removeIf(entry -> {
+            boolean affected = entry.dataSourceName.equals(dataSourceName)
+                    && (allTables || entry.tables.contains(ALL_TABLES)
+                    || !Collections.disjoint(entry.tables, tables));
+            if (affected) {
+                removed[0]++;
+            }
+            return affected;
+        });
+        if (removed[0] > 0) {
+            logger.info("Invalidated {} cached result(s) on [{}] for tables {}", removed[0], dataSourceName, tables);
+        }
+    }
+
+    // Key dùng chung cho cache kết quả, single-flight, prefetch và cache SQL viết lại
+    static String key(String dataSourceName, String variant, String query) {
+        return dataSourceName + '\u0001' + variant + '\u0001' + normalize(query);
+    }
+
+    /**
+     * Dạng chuẩn của query để các biến thể định dạng dùng chung entry: khoảng trắng giữa các token gộp thành
+     * một dấu cách, bỏ khoảng trắng và dấu ';' ở cuối. Token (chuỗi, identifier có quote...) và comment giữa
+     * các token được giữ nguyên như khi viết, nên hai query khác nhau trong literal không bao giờ trùng key.
+     */
+    static String normalize(String query) {
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(query);
+        int end = tokens.size();
+        while (end > 0 && tokens.isPunctuation(end - 1, ';')) {
+            end--;
+        }
+        StringBuilder normalized = new StringBuilder(query.length());
+        int position = 0;
+        for (int i = 0; i < end; i++) {
+            int start = tokens.start(i);
+            if (position < start) {
+                if (query.substring(position, start).isBlank()) {
+                    if (i > 0) {
+                        normalized.append(' ');
+                    }
+                } else {
+                    // Có comment (có thể là hint): giữ nguyên, chỉ bỏ khoảng trắng đầu câu
+                    String gap = query.substring(position, start);
+                    normalized.append(i > 0 ? gap : gap.stripLeading());
+                }
+            }
+            normalized.append(query, start, tokens.end(i));
+            position = tokens.end(i);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Tên bảng (chữ thường, bỏ schema và dấu quote) mà câu lệnh tham chiếu;
+     * không nhận ra bảng nào thì trả về tag "*" để xử lý an toàn.
+     */
+    static Set<String> referencedTables(String statement) {
+        Set<String> tables = new HashSet<>();
+        Matcher matcher = TABLE_PATTERN.matcher(statement);
+        while (matcher.find()) {
+            tables.add(tableName(matcher.group(1)));
+            String list = matcher.group(2);
+            if (list != null) {
+                // Phần trước dấu phẩy đầu tiên là alias của bảng đầu
+                String[] items = list.split(",");
+                for (int i = 1; i < items.length; i++) {
+                    Matcher itemMatcher = LIST_ITEM_PATTERN.matcher(items[i].trim());
+                    if (itemMatcher.lookingAt()) {
+                        tables.add(tableName(itemMatcher.group()));
+                    }
+                }
+            }
+        }
+        tables.remove("dual");
+        if (tables.isEmpty()) {
+            tables.add(ALL_TABLES);
+        }
+        return tables;
+    }
+
+    private static String tableName(String identifier) {
+        String name = identifier.substring(identifier.lastIndexOf('.') + 1);
+        return name.replaceAll("[`\"\\[\\]]", "").toLowerCase();
+    }
+}
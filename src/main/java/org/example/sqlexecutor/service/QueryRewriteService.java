@@ -0,0 +1,219 @@
+package org.example.sqlexecutor.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.example.sqlexecutor.adapter.DatabaseDialect;
+import org.example.sqlexecutor.sql.QueryRewriter;
+import org.example.sqlexecutor.sql.SelectStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Sinh câu COUNT và câu phân trang theo dialect của datasource bằng {@link QueryRewriter}.
+ * SQL đã viết lại được cache theo datasource + SQL chuẩn hóa bằng lexer (như {@link QueryResultCache}), nên các trang
+ * và lần đếm lặp lại của cùng một query không phải phân tích lại. Khóa duy nhất và cột của bảng (để bỏ LEFT JOIN
+ * khi đếm) đọc qua JDBC DatabaseMetaData và cache theo TTL.
+ */
+@Service
+public class QueryRewriteService {
+    private static final Logger logger = LoggerFactory.getLogger(QueryRewriteService.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.rewrite.enabled:true}")
+    private boolean enabled;
+
+    // Bỏ LEFT JOIN tới khóa duy nhất không được dùng khi đếm (cần đọc metadata bảng)
+    @Value("${sql.rewrite.drop-joins:true}")
+    private boolean dropJoins;
+
+    @Value("${sql.rewrite.cache-size:5000}")
+    private long cacheSize;
+
+    // Thời gian giữ SQL đã viết lại và metadata bảng; DDL đổi khóa có hiệu lực sau tối đa khoảng này
+    @Value("${sql.rewrite.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<String, String> queries;
+
+    private Cache<String, Optional<QueryRewriter.TableInfo>> tables;
+
+    @PostConstruct
+    public void init() {
+        queries = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        tables = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Câu đếm số dòng kết quả của query. Với SELECT đơn giản chỉ giữ FROM + WHERE; còn lại bọc thành bảng dẫn xuất.
+     */
+    public String getCountQuery(String dataSourceName, String query) {
+        if (!enabled) {
+            return QueryRewriter.wrapCount(QueryRewriter.stripOrderBy(query));
+        }
+        String name = dataSourceService.resolveName(dataSourceName);
+        return queries.get(key(name, "count", query), k -> {
+            QueryRewriter.TableMetadata metadata = dropJoins
+                    ? (schema, table) -> tableInfo(name, schema, table)
+                    : null;
+            String countQuery = QueryRewriter.countQuery(query, SelectStatement.parse(query), metadata);
+            logger.debug("Count query for [{}]: {}", name, countQuery);
+            return countQuery;
+        });
+    }
+
+    /**
+     * Câu lấy một trang theo cú pháp riêng của dialect, gộp với LIMIT/OFFSET/FETCH/TOP sẵn có trong query.
+     * Dialect không có cú pháp OFFSET (Oracle 11g, SQL Server 2008) hoặc query không phân tích được
+     * thì dùng cách bọc của DatabaseStrategy.
+     */
+    public String getPaginatedQuery(String dataSourceName, String query, int offset, int limit) {
+        String name = dataSourceService.resolveName(dataSourceName);
+        DatabaseDialect dialect = dataSourceService.getDialect(name);
+        QueryRewriter.Paging paging = paging(dialect);
+        if (!enabled || paging == null) {
+            return dialect.getStrategy().getPaginatedQuery(query, offset, limit);
+        }
+        return queries.get(key(name, "page:" + offset + ":" + limit, query), k -> {
+            SelectStatement statement = SelectStatement.parse(query);
+            if (statement == null) {
+                return dialect.getStrategy().getPaginatedQuery(query, offset, limit);
+            }
+            return QueryRewriter.pageQuery(statement, paging, offset, limit);
+        });
+    }
+
+    private static QueryRewriter.Paging paging(DatabaseDialect dialect) {
+        switch (dialect.getType()) {
+            case "oracle":
+                return dialect.isSupportsOffsetFetch() ? QueryRewriter.Paging.OFFSET_FETCH : null;
+            case "sqlserver":
+                return dialect.isSupportsOffsetFetch() ? QueryRewriter.Paging.ORDERED_OFFSET_FETCH : null;
+            case "mysql":
+            case "postgresql":
+            default:
+                return QueryRewriter.Paging.LIMIT_OFFSET;
+        }
+    }
+
+    // SQL viết lại được thực thi thay cho query: key phải giữ nguyên literal, chỉ gộp khoảng trắng giữa token
+    private static String key(String dataSourceName, String variant, String query) {
+        return QueryResultCache.key(dataSourceName, variant, query);
+    }
+
+    private QueryRewriter.TableInfo tableInfo(String dataSourceName, String schema, String table) {
+        String key = dataSourceName + '\u0001' + (schema != null ? schema + "." + table : table).toLowerCase(Locale.ROOT);
+        return tables.get(key, k -> loadTableInfo(dataSourceName, schema, table)).orElse(null);
+    }
+
+    // Cột và khóa duy nhất (khóa chính, unique index) của bảng; rỗng nếu không tìm thấy hoặc lỗi metadata
+    private Optional<QueryRewriter.TableInfo> loadTableInfo(String dataSourceName, String schema, String table) {
+        boolean mysql = "mysql".equals(dataSourceService.getDatabaseType(dataSourceName));
+        try {
+            return dataSourceService.getJdbcTemplate(dataSourceName).execute(
+                    (ConnectionCallback<Optional<QueryRewriter.TableInfo>>) connection -> {
+                        // MySQL dùng catalog cho database; các database khác dùng schema
+                        String catalog = mysql && schema != null ? schema : connection.getCatalog();
+                        String schemaPattern = mysql ? null : (schema != null ? schema : currentSchema(connection));
+                        DatabaseMetaData metaData = connection.getMetaData();
+                        // Tên không quote được lưu theo kiểu chữ riêng của từng database
+                        for (String name : new LinkedHashSet<>(List.of(table, table.toUpperCase(Locale.ROOT),
+                                table.toLowerCase(Locale.ROOT)))) {
+                            Optional<QueryRewriter.TableInfo> info = readTableInfo(metaData, catalog, schemaPattern, name);
+                            if (info.isPresent()) {
+                                return info;
+                            }
+                        }
+                        return Optional.empty();
+                    });
+        } catch (DataAccessException e) {
+            logger.debug("Could not read key metadata of table {} on [{}]: {}", table, dataSourceName, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<QueryRewriter.TableInfo> readTableInfo(DatabaseMetaData metaData, String catalog,
+                                                                  String schemaPattern, String table)
+            throws SQLException {
+        Set<String> columns = new HashSet<>();
+        String escape = metaData.getSearchStringEscape();
+        String tablePattern = escape != null ? table.replace("_", escape + "_").replace("%", escape + "%") : table;
+        try (ResultSet rs = metaData.getColumns(catalog, schemaPattern, tablePattern, null)) {
+            while (rs.next()) {
+                if (table.equals(rs.getString("TABLE_NAME"))) {
+                    columns.add(rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        if (columns.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(catalog, schemaPattern, table)) {
+            while (rs.next()) {
+                keys.computeIfAbsent("\u0000PRIMARY", k -> new HashSet<>())
+                        .add(rs.getString("COLUMN_NAME").toUpperCase(Locale.ROOT));
+            }
+        }
+        try (ResultSet rs = metaData.getIndexInfo(catalog, schemaPattern, table, true, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String columnName = rs.getString("COLUMN_NAME");
+                // Index dạng biểu thức không có tên cột: không dùng làm khóa
+                if (indexName == null || rs.getBoolean("NON_UNIQUE")) {
+                    continue;
+                }
+                Set<String> key = keys.computeIfAbsent(indexName, k -> new HashSet<>());
+                if (columnName == null) {
+                    key.add("\u0000");
+                } else {
+                    key.add(columnName.toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        List<Set<String>> uniqueKeys = new ArrayList<>(keys.size());
+        for (Set<String> key : keys.values()) {
+            if (!key.contains("\u0000")) {
+                uniqueKeys.add(Set.copyOf(key));
+            }
+        }
+        return Optional.of(new QueryRewriter.TableInfo(Set.copyOf(columns), List.copyOf(uniqueKeys)));
+    }
+
+    private static String currentSchema(Connection connection) {
+        try {
+            return connection.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            return null;
+        }
+    }
+}
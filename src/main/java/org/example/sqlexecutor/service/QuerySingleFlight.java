@@ -0,0 +1,96 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Gộp các SELECT giống hệt nhau (cùng datasource, SQL đã chuẩn hóa và trang) đang chạy đồng thời thành một lần
+ * thực thi: request đầu tiên chạy query, các request đến sau chờ và nhận chung kết quả (tối đa max-wait-ms).
+ */
+@Service
+public class QuerySingleFlight {
+    private static final Logger logger = LoggerFactory.getLogger(QuerySingleFlight.class);
+
+    @Value("${sql.single-flight.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sql.single-flight.max-wait-ms:20000}")
+    private long maxWaitMs;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder savedExecutions = new LongAdder();
+    private final LongAdder waitTimeouts = new LongAdder();
+
+    /**
+     * Chạy {@code loader} nếu chưa có lần thực thi nào cùng key, ngược lại chờ kết quả của lần đang chạy.
+     * Lỗi của lần thực thi chung được ném lại cho mọi request đang chờ.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String dataSourceName, String variant, String query, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        // Cùng key với cache kết quả: chỉ khác khoảng trắng giữa token mới được gộp, literal phải giống hệt
+        String key = QueryResultCache.key(dataSourceName, variant, query);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            executions.increment();
+            try {
+                T value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        savedExecutions.increment();
+        logger.info("Joining in-flight execution of identical query on [{}] ({})", dataSourceName, variant);
+        try {
+            return (T) existing.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            waitTimeouts.increment();
+            throw new SqlExecutionException("Timed out after " + maxWaitMs
+                    + " ms waiting for an identical query that is already running", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SqlExecutionException("Interrupted while waiting for an identical query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SqlExecutionException("Error executing SQL query", cause);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("executions", executions.sum());
+        result.put("savedExecutions", savedExecutions.sum());
+        result.put("waitTimeouts", waitTimeouts.sum());
+        result.put("inFlight", inFlight.size());
+        result.put("maxWaitMs", maxWaitMs);
+        return result;
+    }
+}
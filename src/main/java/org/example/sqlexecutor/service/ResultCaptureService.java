@@ -0,0 +1,149 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.capture.ResultCapture;
+import org.example.sqlexecutor.config.SqlLogger;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Capture kết quả SELECT vào bộ nhớ (giới hạn số dòng và số byte) để sắp xếp/lọc/gộp lại bằng
+ * engine trong bộ nhớ. Capture nhàn rỗi quá TTL bị xóa; tổng dung lượng bị giới hạn bằng cách bỏ capture ít dùng nhất.
+ */
+@Service
+public class ResultCaptureService {
+    private static final Logger logger = LoggerFactory.getLogger(ResultCaptureService.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.capture.max-rows:200000}")
+    private int maxRows;
+
+    @Value("${sql.capture.max-bytes:134217728}")
+    private long maxBytes;
+
+    @Value("${sql.capture.max-total-bytes:536870912}")
+    private long maxTotalBytes;
+
+    @Value("${sql.capture.idle-ttl-seconds:900}")
+    private long idleTtlSeconds;
+
+    @Value("${sql.capture.fetch-size:1000}")
+    private int fetchSize;
+
+    // Connection streaming không đi qua @Transactional: timeout đặt trực tiếp trên statement
+    @Value("${sql.capture.query-timeout-seconds:300}")
+    private int queryTimeoutSeconds;
+
+    private final Map<String, ResultCapture> captures = new ConcurrentHashMap<>();
+
+    /**
+     * Chạy {@code query} và giữ tối đa max-rows dòng trong bộ nhớ; vượt max-bytes thì từ chối.
+     */
+    public ResultCapture create(String dataSourceName, String query, ResultSetExtractor<List<ColumnInfo>> columnReader) {
+        String id = UUID.randomUUID().toString();
+        logger.info("Capturing result {} on datasource [{}]: {}", id, dataSourceName, query);
+        SqlLogger.logSqlQuery("CAPTURE DATASOURCE[" + dataSourceName + "]: " + query);
+
+        long startTime = System.currentTimeMillis();
+        ResultCapture capture;
+        try {
+            // Database dừng sau maxRows + 1 dòng (dòng thừa để biết kết quả bị cắt), vì MySQL đọc bỏ mọi dòng
+            // còn lại khi đóng ResultSet streaming; max-bytes được kiểm tra trong lúc đọc chứ không sau khi đã nạp hết
+            capture = dataSourceService.queryStreaming(dataSourceName, query, fetchSize, queryTimeoutSeconds,
+                    statement -> statement.setMaxRows(maxRows < Integer.MAX_VALUE ? maxRows + 1 : 0),
+                    rs -> {
+                        List<ColumnInfo> columns = columnReader.extractData(rs);
+                        ColumnarPage data = ColumnarPage.read(rs, maxRows, maxBytes);
+                        return new ResultCapture(id, dataSourceName, query, columns, data, rs.next());
+                    });
+        } catch (SQLException e) {
+            throw new SqlExecutionException("Error capturing result", e);
+        }
+
+        captures.put(id, capture);
+        logger.info("Captured {} rows{} (~{} bytes) in {} ms", capture.getRowCount(),
+                capture.isTruncated() ? " (truncated)" : "", capture.getSizeBytes(),
+                System.currentTimeMillis() - startTime);
+        enforceTotalBytes(id);
+        return capture;
+    }
+
+    public ResultCapture get(String captureId) {
+        ResultCapture capture = captures.get(captureId);
+        if (capture == null) {
+            throw new SqlExecutionException("Captured result not found or expired: " + captureId);
+        }
+        capture.touch();
+        return capture;
+    }
+
+    public void delete(String captureId) {
+        if (captures.remove(captureId) != null) {
+            logger.info("Released captured result {}", captureId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sql.capture.eviction-interval-ms:60000}")
+    public void evictIdleCaptures() {
+        long deadline = System.currentTimeMillis() - idleTtlSeconds * 1000;
+        for (ResultCapture capture : new ArrayList<>(captures.values())) {
+            if (capture.getLastAccess() < deadline) {
+                logger.info("Evicting idle captured result {}", capture.getId());
+                delete(capture.getId());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("captures", captures.size());
+        result.put("bytes", totalBytes());
+        result.put("maxTotalBytes", maxTotalBytes);
+        result.put("maxRows", maxRows);
+        result.put("maxBytes", maxBytes);
+        return result;
+    }
+
+    private long totalBytes() {
+        return captures.values().stream().mapToLong(ResultCapture::getSizeBytes).sum();
+    }
+
+    // Vượt tổng dung lượng thì bỏ các capture ít được dùng gần đây nhất (trừ capture vừa tạo)
+    private synchronized void enforceTotalBytes(String keepId) {
+        long total = totalBytes();
+        if (total <= maxTotalBytes) {
+            return;
+        }
+        List<ResultCapture> candidates = new ArrayList<>(captures.values());
+        candidates.sort(Comparator.comparingLong(ResultCapture::getLastAccess));
+        for (ResultCapture capture : candidates) {
+            if (total <= maxTotalBytes) {
+                break;
+            }
+            if (capture.getId().equals(keepId)) {
+                continue;
+            }
+            logger.info("Capture memory limit exceeded, releasing {}", capture.getId());
+            total -= capture.getSizeBytes();
+            delete(capture.getId());
+        }
+    }
+}
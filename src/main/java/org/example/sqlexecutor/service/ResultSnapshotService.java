@@ -0,0 +1,170 @@
+package org.example.sqlexecutor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.sqlexecutor.config.SqlLogger;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.snapshot.ResultSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot kết quả trên đĩa: chạy SELECT một lần, ghi toàn bộ kết quả ra file cột được map vào bộ nhớ,
+ * các lần đọc trang / sắp xếp / nhảy trang sau đó dùng snapshotId thay vì chạy lại query.
+ * Snapshot nhàn rỗi quá TTL bị xóa; tổng dung lượng trên đĩa bị giới hạn bằng cách xóa snapshot ít dùng nhất.
+ */
+@Service
+public class ResultSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(ResultSnapshotService.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.snapshot.dir:${java.io.tmpdir}/sql-snapshots}")
+    private String directory;
+
+    @Value("${sql.snapshot.max-rows:1000000}")
+    private int maxRows;
+
+    @Value("${sql.snapshot.max-disk-bytes:2147483648}")
+    private long maxDiskBytes;
+
+    @Value("${sql.snapshot.idle-ttl-seconds:900}")
+    private long idleTtlSeconds;
+
+    @Value("${sql.snapshot.fetch-size:1000}")
+    private int fetchSize;
+
+    // Connection streaming không đi qua @Transactional: timeout đặt trực tiếp trên statement
+    @Value("${sql.snapshot.query-timeout-seconds:300}")
+    private int queryTimeoutSeconds;
+
+    private final Map<String, ResultSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Chạy {@code query} (streaming) và ghi kết quả thành snapshot mới; {@code columnReader} đọc thông tin cột
+     * từ ResultSet để trả lại cho client ở các trang sau.
+     */
+    public ResultSnapshot create(String dataSourceName, String query, ResultSetExtractor<List<ColumnInfo>> columnReader) {
+        String id = UUID.randomUUID().toString();
+        Path snapshotDirectory = Paths.get(directory, id);
+
+        logger.info("Creating snapshot {} on datasource [{}]: {}", id, dataSourceName, query);
+        SqlLogger.logSqlQuery("SNAPSHOT DATASOURCE[" + dataSourceName + "]: " + query);
+
+        long startTime = System.currentTimeMillis();
+        ResultSnapshot snapshot;
+        try {
+            // Database dừng sau maxRows + 1 dòng (dòng thừa để biết kết quả bị cắt): khi đóng ResultSet streaming,
+            // MySQL đọc bỏ mọi dòng còn lại nên break ở maxRows không giới hạn được công việc phía database
+            snapshot = dataSourceService.queryStreaming(dataSourceName, query, fetchSize, queryTimeoutSeconds,
+                    statement -> statement.setMaxRows(maxRows < Integer.MAX_VALUE ? maxRows + 1 : 0),
+                    rs -> {
+                        try {
+                            return ResultSnapshot.create(id, dataSourceName, query, columnReader.extractData(rs),
+                                    snapshotDirectory, rs, maxRows, maxDiskBytes);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw new SqlExecutionException("Error writing snapshot", e.getCause());
+        } catch (SQLException e) {
+            throw new SqlExecutionException("Error creating snapshot", e);
+        }
+
+        snapshots.put(id, snapshot);
+        logger.info("Snapshot {} created: {} rows{}, {} bytes in {} ms", id, snapshot.getRowCount(),
+                snapshot.isTruncated() ? " (truncated)" : "", snapshot.getDiskBytes(),
+                System.currentTimeMillis() - startTime);
+        enforceDiskBudget(id);
+        return snapshot;
+    }
+
+    public ResultSnapshot get(String snapshotId) {
+        ResultSnapshot snapshot = snapshots.get(snapshotId);
+        if (snapshot == null) {
+            throw new SqlExecutionException("Snapshot not found or expired: " + snapshotId);
+        }
+        snapshot.touch();
+        return snapshot;
+    }
+
+    public void delete(String snapshotId) {
+        Optional.ofNullable(snapshots.remove(snapshotId)).ifPresent(snapshot -> {
+            snapshot.close();
+            logger.info("Deleted snapshot {}", snapshotId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sql.snapshot.eviction-interval-ms:60000}")
+    public void evictIdleSnapshots() {
+        long deadline = System.currentTimeMillis() - idleTtlSeconds * 1000;
+        for (ResultSnapshot snapshot : new ArrayList<>(snapshots.values())) {
+            if (snapshot.getLastAccess() < deadline) {
+                logger.info("Evicting idle snapshot {}", snapshot.getId());
+                delete(snapshot.getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void deleteAll() {
+        for (String snapshotId : new ArrayList<>(snapshots.keySet())) {
+            delete(snapshotId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("snapshots", snapshots.size());
+        result.put("diskBytes", totalDiskBytes());
+        result.put("maxDiskBytes", maxDiskBytes);
+        result.put("maxRows", maxRows);
+        return result;
+    }
+
+    private long totalDiskBytes() {
+        return snapshots.values().stream().mapToLong(ResultSnapshot::getDiskBytes).sum();
+    }
+
+    // Vượt ngân sách đĩa thì xóa các snapshot ít được dùng gần đây nhất (trừ snapshot vừa tạo)
+    private synchronized void enforceDiskBudget(String keepId) {
+        long total = totalDiskBytes();
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        List<ResultSnapshot> candidates = new ArrayList<>(snapshots.values());
+        candidates.sort(Comparator.comparingLong(ResultSnapshot::getLastAccess));
+        for (ResultSnapshot snapshot : candidates) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            if (snapshot.getId().equals(keepId)) {
+                continue;
+            }
+            logger.info("Snapshot disk budget exceeded, evicting {}", snapshot.getId());
+            total -= snapshot.getDiskBytes();
+            delete(snapshot.getId());
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.example.sqlexecutor.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.sqlexecutor.catalog.SchemaCatalog;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.suggest.SqlVocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bundle schema gọn (bảng, cột, kiểu, từ khóa, hàm) cho autocomplete phía client, dựng từ catalog metadata.
+ * Bundle nén gzip sẵn, có version và ETag theo nội dung; version chỉ tăng khi nội dung thực sự thay đổi.
+ * Giữ hash từng bảng của vài version gần nhất để trả delta (bảng thêm/đổi và bảng bị xóa) cho client đang giữ bản cũ.
+ */
+@Service
+public class SchemaBundleService {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaBundleService.class);
+
+    private static final int FORMAT = 1;
+
+    @Autowired
+    private SchemaCatalogService schemaCatalogService;
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Số version cũ được giữ để tính delta; client cũ hơn nhận bundle đầy đủ
+    @Value("${sql.bundle.history-size:8}")
+    private int historySize;
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Nội dung trả cho client: JSON đã nén gzip cùng version và ETag.
+     */
+    public static class Bundle {
+        private final long version;
+        private final String etag;
+        private final byte[] gzip;
+        private final boolean delta;
+
+        private Bundle(long version, String etag, byte[] gzip, boolean delta) {
+            this.version = version;
+            this.etag = etag;
+            this.gzip = gzip;
+            this.delta = delta;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public boolean isDelta() {
+            return delta;
+        }
+
+        // JSON chưa nén cho client không nhận gzip
+        public byte[] getJson() {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Version {
+        private final long version;
+        private final String databaseType;
+        // Tên bảng → hash nội dung bảng (tên, loại, comment, cột)
+        private final Map<String, String> tableHashes;
+
+        private Version(long version, String databaseType, Map<String, String> tableHashes) {
+            this.version = version;
+            this.databaseType = databaseType;
+            this.tableHashes = tableHashes;
+        }
+    }
+
+    private static final class State {
+        private final SchemaCatalog catalog;
+        private final Bundle full;
+        private final Deque<Version> history;
+        private final Map<Long, Bundle> deltas = new ConcurrentHashMap<>();
+
+        private State(SchemaCatalog catalog, Bundle full, Deque<Version> history) {
+            this.catalog = catalog;
+            this.full = full;
+            this.history = history;
+        }
+
+        private Version current() {
+            return history.peekLast();
+        }
+    }
+
+    /**
+     * Bundle hiện tại; {@code sinceVersion} là version client đang giữ: trả delta nếu version đó còn trong lịch sử,
+     * ngược lại trả bundle đầy đủ. Null khi catalog của datasource chưa nạp xong.
+     */
+    public Bundle getBundle(String dataSourceName, Long sinceVersion) {
+        State state = state(dataSourceName);
+        if (state == null) {
+            return null;
+        }
+        if (sinceVersion == null || sinceVersion == state.full.getVersion()) {
+            return state.full;
+        }
+        Version base = null;
+        for (Version version : state.history) {
+            if (version.version == sinceVersion) {
+                base = version;
+            }
+        }
+        // Đổi loại database thì từ khóa/hàm cũng đổi; delta chỉ mang bảng nên trả bản đầy đủ
+        if (base == null || !base.databaseType.equals(state.current().databaseType)) {
+            return state.full;
+        }
+        Version from = base;
+        return state.deltas.computeIfAbsent(sinceVersion, key -> buildDelta(state, from));
+    }
+
+    private State state(String dataSourceName) {
+        String name = dataSourceService.resolveName(dataSourceName);
+        SchemaCatalog catalog = schemaCatalogService.getCatalog(name);
+        if (catalog == null) {
+            return null;
+        }
+        State current = states.get(name);
+        if (current != null && current.catalog == catalog) {
+            return current;
+        }
+        return states.compute(name, (key, existing) ->
+                existing != null && existing.catalog == catalog ? existing : build(existing, catalog));
+    }
+
+    private State build(State previous, SchemaCatalog catalog) {
+        long startTime = System.currentTimeMillis();
+        List<Object> tables = new ArrayList<>();
+        Map<String, String> tableHashes = new HashMap<>();
+        for (SchemaCatalog.Table table : catalog.getTables()) {
+            List<Object> entry = tableEntry(table);
+            tables.add(entry);
+            tableHashes.put(table.getName(), hash(writeJson(entry)));
+        }
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("keywords", SqlVocabulary.keywords(catalog.getDatabaseType()));
+        content.put("functions", SqlVocabulary.functions(catalog.getDatabaseType()));
+        content.put("tables", tables);
+        String contentHash = hash(writeJson(content));
+
+        // Catalog được refresh nhưng nội dung không đổi: giữ nguyên version để client không phải tải lại
+        if (previous != null && previous.full.getEtag().equals(etag(contentHash))
+                && previous.current().databaseType.equals(catalog.getDatabaseType())) {
+            State unchanged = new State(catalog, previous.full, previous.history);
+            unchanged.deltas.putAll(previous.deltas);
+            return unchanged;
+        }
+
+        // Version theo thời gian để không trùng version của lần chạy trước khi ứng dụng khởi động lại
+        long version = Math.max(System.currentTimeMillis(), previous != null ? previous.full.getVersion() + 1 : 0);
+        Map<String, Object> bundle = new LinkedHashMap<>();
+        bundle.put("format", FORMAT);
+        bundle.put("dataSource", catalog.getDataSourceName());
+        bundle.put("databaseType", catalog.getDatabaseType());
+        bundle.put("version", version);
+        bundle.putAll(content);
+        byte[] gzip = gzip(writeJson(bundle));
+
+        Deque<Version> history = new ArrayDeque<>(previous != null ? previous.history : List.of());
+        history.addLast(new Version(version, catalog.getDatabaseType(), tableHashes));
+        while (history.size() > Math.max(historySize, 1)) {
+            history.removeFirst();
+        }
+        logger.info("Built schema bundle v{} for datasource [{}]: {} tables, {} bytes gzip in {} ms", version,
+                catalog.getDataSourceName(), tables.size(), gzip.length, System.currentTimeMillis() - startTime);
+        return new State(catalog, new Bundle(version, etag(contentHash), gzip, false), history);
+    }
+
+    private Bundle buildDelta(State state, Version base) {
+        Version current = state.current();
+        List<Object> changed = new ArrayList<>();
+        for (SchemaCatalog.Table table : state.catalog.getTables()) {
+            if (!current.tableHashes.get(table.getName()).equals(base.tableHashes.get(table.getName()))) {
+                changed.add(tableEntry(table));
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String name : base.tableHashes.keySet()) {
+            if (!current.tableHashes.containsKey(name)) {
+                removed.add(name);
+            }
+        }
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("format", FORMAT);
+        delta.put("dataSource", state.catalog.getDataSourceName());
+        delta.put("databaseType", current.databaseType);
+        delta.put("version", current.version);
+        delta.put("baseVersion", base.version);
+        delta.put("tables", changed);
+        delta.put("removedTables", removed);
+        return new Bundle(current.version, state.full.getEtag(), gzip(writeJson(delta)), true);
+    }
+
+    // [tên, "T"/"V", comment, [[cột, kiểu] hoặc [cột, kiểu, comment], ...]]
+    private static List<Object> tableEntry(SchemaCatalog.Table table) {
+        List<Object> columns = new ArrayList<>(table.getColumns().size());
+        for (SchemaCatalog.Column column : table.getColumns()) {
+            columns.add(column.getComment() != null
+                    ? List.of(column.getName(), String.valueOf(column.getDataType()), column.getComment())
+                    : List.of(column.getName(), String.valueOf(column.getDataType())));
+        }
+        List<Object> entry = new ArrayList<>(4);
+        entry.add(table.getName());
+        entry.add(table.isView() ? "V" : "T");
+        entry.add(table.getComment());
+        entry.add(columns);
+        return entry;
+    }
+
+    private byte[] writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new SqlExecutionException("Error serializing schema bundle", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(json.length / 4, 64));
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String etag(String contentHash) {
+        return "\"" + contentHash + "\"";
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            State state = entry.getValue();
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("version", state.full.getVersion());
+            info.put("etag", state.full.getEtag());
+            info.put("gzipBytes", state.full.getGzip().length);
+            info.put("historyVersions", state.history.size());
+            info.put("cachedDeltas", state.deltas.size());
+            result.put(entry.getKey(), info);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,298 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.catalog.CatalogLoader;
+import org.example.sqlexecutor.catalog.SchemaCatalog;
+import org.example.sqlexecutor.sql.SqlKeyword;
+import org.example.sqlexecutor.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog metadata trong bộ nhớ cho mỗi datasource để các đường gợi ý không truy vấn INFORMATION_SCHEMA
+ * theo từng phím gõ. Nạp ở background lúc khởi động, refresh tăng dần theo lịch và sau DDL chạy qua ứng dụng.
+ * Mỗi datasource chỉ có một lượt nạp tại một thời điểm; yêu cầu đến trong lúc nạp được gộp vào lượt kế tiếp.
+ */
+@Service
+public class SchemaCatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCatalogService.class);
+
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Autowired
+    @Qualifier("catalogExecutor")
+    private ThreadPoolTaskExecutor catalogExecutor;
+
+    @Value("${sql.catalog.enabled:true}")
+    private boolean enabled;
+
+    // Số bảng thay đổi tối đa để nạp lại từng bảng; nhiều hơn thì đọc lại toàn bộ cột bằng một query
+    @Value("${sql.catalog.max-incremental-tables:200}")
+    private int maxIncrementalTables;
+
+    // Khoảng chờ tối thiểu giữa hai lần thử nạp do request gợi ý kích hoạt khi catalog chưa có
+    @Value("${sql.catalog.retry-interval-ms:30000}")
+    private long retryIntervalMs;
+
+    // Cứ mỗi N lượt refresh theo lịch thì nạp lại toàn bộ (bắt thay đổi không làm đổi dấu thời gian DDL); 0 để tắt
+    @Value("${sql.catalog.full-refresh-every:12}")
+    private int fullRefreshEvery;
+
+    private final Map<String, SchemaCatalog> catalogs = new ConcurrentHashMap<>();
+
+    // Bảng cần nạp lại của lượt refresh kế tiếp; có key nghĩa là đang có yêu cầu refresh
+    private final Map<String, Set<String>> pendingTables = new ConcurrentHashMap<>();
+    private final Set<String> pendingFull = ConcurrentHashMap.newKeySet();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> lastAttempt = new ConcurrentHashMap<>();
+
+    private final AtomicLong scheduledRuns = new AtomicLong();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder ddlRefreshes = new LongAdder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        for (String dataSourceName : dataSourceService.getAvailableDataSources()) {
+            requestRefresh(dataSourceName, Set.of(), true);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${sql.catalog.refresh-interval-ms:300000}",
+            fixedDelayString = "${sql.catalog.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        long run = scheduledRuns.incrementAndGet();
+        boolean full = fullRefreshEvery > 0 && run % fullRefreshEvery == 0;
+        for (String dataSourceName : dataSourceService.getAvailableDataSources()) {
+            requestRefresh(dataSourceName, Set.of(), full);
+        }
+    }
+
+    /**
+     * Snapshot hiện tại của datasource; null nếu chưa nạp xong (lần đầu gọi sẽ kích hoạt nạp ở background).
+     */
+    public SchemaCatalog getCatalog(String dataSourceName) {
+        if (!enabled) {
+            return null;
+        }
+        String name = dataSourceService.resolveName(dataSourceName);
+        SchemaCatalog catalog = catalogs.get(name);
+        if (catalog == null && !running.contains(name)
+                && System.currentTimeMillis() - lastAttempt.getOrDefault(name, 0L) >= retryIntervalMs) {
+            requestRefresh(name, Set.of(), true);
+        }
+        return catalog;
+    }
+
+    /**
+     * Gọi sau khi chạy câu lệnh không phải SELECT: nếu là DDL thì nạp lại các bảng bị tác động (sau commit
+     * nếu đang trong transaction).
+     */
+    public void onStatementExecuted(String dataSourceName, String statement) {
+        Set<String> tables = enabled ? ddlTargets(statement) : null;
+        if (tables == null) {
+            return;
+        }
+        ddlRefreshes.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestRefresh(dataSourceName, tables, false);
+                }
+            });
+        } else {
+            requestRefresh(dataSourceName, tables, false);
+        }
+    }
+
+    /**
+     * Yêu cầu refresh ở background; {@code tables} luôn được nạp lại dù dấu thời gian DDL không đổi.
+     */
+    public void requestRefresh(String dataSourceName, Set<String> tables, boolean full) {
+        String name = dataSourceService.resolveName(dataSourceName);
+        if (full) {
+            pendingFull.add(name);
+        }
+        // merge nguyên tử với remove() của luồng nạp nên bảng không bị rơi giữa hai lượt
+        pendingTables.merge(name, new HashSet<>(tables), (current, added) -> {
+            current.addAll(added);
+            return current;
+        });
+        if (running.add(name)) {
+            submitRefresh(name);
+        }
+    }
+
+    // Executor đầy thì bỏ lượt này (bảng vẫn nằm trong pendingTables cho lần yêu cầu sau), không chạy trên thread gọi
+    private void submitRefresh(String dataSourceName) {
+        try {
+            catalogExecutor.execute(() -> runRefresh(dataSourceName));
+        } catch (TaskRejectedException e) {
+            running.remove(dataSourceName);
+            logger.warn("Catalog refresh queue is full, skipping refresh of datasource [{}]", dataSourceName);
+        }
+    }
+
+    private void runRefresh(String dataSourceName) {
+        try {
+            Set<String> tables;
+            while ((tables = pendingTables.remove(dataSourceName)) != null) {
+                boolean full = pendingFull.remove(dataSourceName);
+                refresh(dataSourceName, tables, full);
+            }
+        } finally {
+            running.remove(dataSourceName);
+        }
+        // Yêu cầu đến đúng lúc lượt nạp vừa kết thúc
+        if (pendingTables.containsKey(dataSourceName) && running.add(dataSourceName)) {
+            submitRefresh(dataSourceName);
+        }
+    }
+
+    private void refresh(String dataSourceName, Set<String> tables, boolean full) {
+        lastAttempt.put(dataSourceName, System.currentTimeMillis());
+        try {
+            String databaseType = dataSourceService.getDatabaseType(dataSourceName);
+            SchemaCatalog catalog = CatalogLoader.load(dataSourceService.getJdbcTemplate(dataSourceName),
+                    dataSourceName, databaseType, catalogs.get(dataSourceName), tables, full, maxIncrementalTables);
+            catalogs.put(dataSourceName, catalog);
+            refreshes.increment();
+        } catch (RuntimeException e) {
+            // Giữ snapshot cũ; lượt theo lịch sau sẽ thử lại
+            failures.increment();
+            logger.warn("Could not load schema catalog for datasource [{}]: {}", dataSourceName, e.getMessage());
+        }
+    }
+
+    /**
+     * Bảng bị tác động bởi các câu lệnh DDL trong {@code statement} (tách bằng {@code ;}), hoặc null nếu không
+     * có câu lệnh DDL nào. Dùng {@link SqlLexer} nên comment và chuỗi không ảnh hưởng; đối tượng được nhận ra
+     * là TABLE/VIEW x, INDEX ... ON x, RENAME ... TO x và COMMENT ON COLUMN x.c.
+     */
+    static Set<String> ddlTargets(String statement) {
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(statement);
+        Set<String> tables = null;
+        boolean first = true;
+        boolean ddl = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.isPunctuation(i, ';')) {
+                first = true;
+                continue;
+            }
+            if (first) {
+                first = false;
+                ddl = isDdl(tokens.keyword(i));
+                if (ddl && tables == null) {
+                    tables = new HashSet<>();
+                }
+                // TRUNCATE t (không có TABLE) nhận tên ngay sau
+                if (tokens.keyword(i) != SqlKeyword.TRUNCATE) {
+                    continue;
+                }
+            }
+            if (!ddl) {
+                continue;
+            }
+            SqlKeyword keyword = tokens.keyword(i);
+            int name = i + 1;
+            int end;
+            if (keyword == SqlKeyword.TABLE || keyword == SqlKeyword.VIEW || keyword == SqlKeyword.TRUNCATE
+                    || tokens.is(i, "TO")) {
+                if (name < tokens.size() && tokens.is(name, "IF")) {
+                    name++;
+                    if (name < tokens.size() && tokens.keyword(name) == SqlKeyword.NOT) {
+                        name++;
+                    }
+                    if (name < tokens.size() && tokens.keyword(name) == SqlKeyword.EXISTS) {
+                        name++;
+                    }
+                }
+                end = qualifiedNameEnd(tokens, name);
+            } else if ((keyword == SqlKeyword.ON && !(name < tokens.size() && tokens.is(name, "COLUMN")))
+                    || tokens.is(i, "COLUMN")) {
+                // ON TABLE/ON COLUMN để token kế tiếp xử lý; với COLUMN x.c thì bỏ phần tên cột
+                end = qualifiedNameEnd(tokens, name);
+                if (end > name && tokens.is(i, "COLUMN")) {
+                    end = end - 2 > name ? end - 2 : name;
+                }
+            } else {
+                continue;
+            }
+            if (end > name) {
+                tables.add(SchemaCatalog.key(tokens.name(end - 1)));
+                i = end - 1;
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isDdl(SqlKeyword keyword) {
+        return keyword == SqlKeyword.CREATE || keyword == SqlKeyword.ALTER || keyword == SqlKeyword.DROP
+                || keyword == SqlKeyword.RENAME || keyword == SqlKeyword.TRUNCATE || keyword == SqlKeyword.COMMENT;
+    }
+
+    // Vị trí ngay sau tên dạng a.b.c bắt đầu tại from; bằng from nếu ở đó không có tên
+    private static int qualifiedNameEnd(SqlLexer.Tokens tokens, int from) {
+        if (from >= tokens.size() || !tokens.isName(from)) {
+            return from;
+        }
+        int end = from + 1;
+        while (end + 1 < tokens.size() && tokens.isPunctuation(end, '.')
+                && (tokens.type(end + 1) == SqlLexer.IDENTIFIER || tokens.type(end + 1) == SqlLexer.QUOTED_IDENTIFIER)) {
+            end += 2;
+        }
+        return end;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("refreshes", refreshes.sum());
+        result.put("failures", failures.sum());
+        result.put("ddlRefreshes", ddlRefreshes.sum());
+        Map<String, Object> dataSources = new LinkedHashMap<>();
+        for (SchemaCatalog catalog : catalogs.values()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("databaseType", catalog.getDatabaseType());
+            info.put("version", catalog.getVersion());
+            info.put("tables", catalog.getTables().size());
+            info.put("columns", catalog.getColumnCount());
+            info.put("loadedAt", catalog.getLoadedAt());
+            info.put("refreshing", running.contains(catalog.getDataSourceName()));
+            dataSources.put(catalog.getDataSourceName(), info);
+        }
+        result.put("dataSources", dataSources);
+        return result;
+    }
+}
@@ -2,10 +2,17 @@ package org.example.sqlexecutor.service;
 
 import org.example.sqlexecutor.model.SqlQuery;
 import org.example.sqlexecutor.model.SqlResult;
+import org.example.sqlexecutor.model.TransformRequest;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public interface SqlExecutorService {
     SqlResult executeSql(SqlQuery sqlQuery);
+    long streamSelect(SqlQuery sqlQuery, OutputStream outputStream) throws IOException;
+    long writeArrowPage(SqlQuery sqlQuery, OutputStream outputStream) throws IOException;
+    SqlResult transformCapture(String captureId, TransformRequest request);
     long countRecords(JdbcTemplate jdbcTemplate, String query);
     String determineQueryType(String query);
 }
\ No newline at end of file
@@ -6,6 +6,13 @@ import java.util.List;
 
 public interface SqlSuggestionService {
     List<SqlSuggestion> getSuggestions(String partial, String context);
+
+    /**
+     * Gợi ý tại vị trí {@code cursor} (null = cuối {@code text}) theo ngữ cảnh: alias, subquery, CTE và tên
+     * có schema được phân giải. Cùng {@code sessionId} thì giữ token lần trước và chỉ lex lại phần thay đổi.
+     */
+    List<SqlSuggestion> getContextSuggestions(String dataSourceName, String sessionId, String text,
+                                              Integer cursor, Integer limit);
     List<SqlSuggestion> getTableSuggestions(String partial);
     List<SqlSuggestion> getColumnSuggestions(String tableName, String partial);
     List<SqlSuggestion> getKeywordSuggestions(String partial);
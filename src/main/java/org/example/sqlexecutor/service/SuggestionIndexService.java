@@ -0,0 +1,236 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.catalog.SchemaCatalog;
+import org.example.sqlexecutor.model.SqlSuggestion;
+import org.example.sqlexecutor.suggest.SqlVocabulary;
+import org.example.sqlexecutor.suggest.SuggestionIndex;
+import org.example.sqlexecutor.suggest.SuggestionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index gợi ý theo datasource: từ khóa, hàm và bảng trong một {@link SuggestionIndex}; cột có index riêng
+ * theo bảng, dựng khi được hỏi lần đầu. Khi catalog đổi phiên bản, index bảng được dựng lại còn index cột
+ * của bảng không thay đổi được giữ nguyên. Tần suất dùng lấy từ các câu lệnh đã chạy qua ứng dụng.
+ */
+@Service
+public class SuggestionIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndexService.class);
+
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][\\w$#]*");
+
+    @Autowired
+    private SchemaCatalogService schemaCatalogService;
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.suggest.max-results:50}")
+    private int maxResults;
+
+    // Giới hạn số tên được đếm tần suất cho mỗi datasource
+    @Value("${sql.suggest.usage-max-names:100000}")
+    private int usageMaxNames;
+
+    private final Map<String, Indexes> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> usage = new ConcurrentHashMap<>();
+
+    private static final class Indexes {
+        private final SchemaCatalog catalog;
+        private final String databaseType;
+        private final SuggestionIndex index;
+        private final Set<String> columnNames;
+        private final Map<String, ColumnIndex> columnIndexes = new ConcurrentHashMap<>();
+
+        private Indexes(SchemaCatalog catalog, String databaseType, SuggestionIndex index, Set<String> columnNames) {
+            this.catalog = catalog;
+            this.databaseType = databaseType;
+            this.index = index;
+            this.columnNames = columnNames;
+        }
+    }
+
+    private static final class ColumnIndex {
+        // Danh sách cột của catalog dùng để dựng index; cùng instance nghĩa là bảng không đổi
+        private final List<SchemaCatalog.Column> source;
+        private final SuggestionIndex index;
+
+        private ColumnIndex(List<SchemaCatalog.Column> source, SuggestionIndex index) {
+            this.source = source;
+            this.index = index;
+        }
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Catalog của datasource đã nạp chưa; chưa có thì index chỉ chứa từ khóa và hàm.
+     */
+    public boolean hasSchema(String dataSourceName) {
+        return indexes(dataSourceName).catalog != null;
+    }
+
+    /**
+     * Gợi ý từ khóa/hàm/bảng (theo {@code types}) xếp hạng, tối đa {@code limit} (null thì dùng mặc định).
+     */
+    public List<SqlSuggestion> search(String dataSourceName, String partial, Integer limit, SuggestionType... types) {
+        Indexes current = indexes(dataSourceName);
+        return current.index.search(partial, SuggestionType.mask(types), limit(limit), usageOf(dataSourceName));
+    }
+
+    /**
+     * Gợi ý cột của {@code tableName}; null khi catalog chưa nạp, rỗng khi bảng không có trong catalog.
+     */
+    public List<SqlSuggestion> searchColumns(String dataSourceName, String tableName, String partial, Integer limit) {
+        Indexes current = indexes(dataSourceName);
+        if (current.catalog == null) {
+            return null;
+        }
+        SchemaCatalog.Table table = current.catalog.getTable(tableName);
+        if (table == null) {
+            return List.of();
+        }
+        ColumnIndex columnIndex = current.columnIndexes.compute(SchemaCatalog.key(tableName),
+                (key, existing) -> existing != null && existing.source == table.getColumns()
+                        ? existing
+                        : buildColumnIndex(table));
+        return columnIndex.index.search(partial, SuggestionType.COLUMN.mask(), limit(limit), usageOf(dataSourceName));
+    }
+
+    /**
+     * Tăng tần suất cho các tên (bảng, cột, từ khóa, hàm) xuất hiện trong câu lệnh đã chạy.
+     */
+    public void recordUsage(String dataSourceName, String statement) {
+        String name = dataSourceService.resolveName(dataSourceName);
+        Indexes current = indexes.get(name);
+        if (current == null) {
+            return;
+        }
+        Map<String, LongAdder> counts = usage.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+        Matcher matcher = IDENTIFIER_PATTERN.matcher(STRING_LITERAL_PATTERN.matcher(statement).replaceAll("''"));
+        while (matcher.find()) {
+            String identifier = matcher.group().toUpperCase(Locale.ROOT);
+            if (!current.index.contains(identifier) && !current.columnNames.contains(identifier)) {
+                continue;
+            }
+            LongAdder count = counts.get(identifier);
+            if (count == null) {
+                if (counts.size() >= usageMaxNames) {
+                    continue;
+                }
+                count = counts.computeIfAbsent(identifier, key -> new LongAdder());
+            }
+            count.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Indexes> entry : indexes.entrySet()) {
+            Indexes current = entry.getValue();
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("catalogVersion", current.catalog != null ? current.catalog.getVersion() : null);
+            info.put("entries", current.index.size());
+            info.put("columnIndexes", current.columnIndexes.size());
+            Map<String, LongAdder> counts = usage.get(entry.getKey());
+            info.put("usageNames", counts != null ? counts.size() : 0);
+            result.put(entry.getKey(), info);
+        }
+        return result;
+    }
+
+    private int limit(Integer limit) {
+        return limit != null && limit > 0 ? limit : maxResults;
+    }
+
+    private ToLongFunction<String> usageOf(String dataSourceName) {
+        Map<String, LongAdder> counts = usage.get(dataSourceService.resolveName(dataSourceName));
+        if (counts == null) {
+            return name -> 0;
+        }
+        return name -> {
+            LongAdder count = counts.get(name);
+            return count != null ? count.sum() : 0;
+        };
+    }
+
+    // Index hiện tại; dựng lại khi catalog có phiên bản mới hoặc loại database thay đổi
+    private Indexes indexes(String dataSourceName) {
+        String name = dataSourceService.resolveName(dataSourceName);
+        SchemaCatalog catalog = schemaCatalogService.getCatalog(name);
+        String databaseType = catalog != null ? catalog.getDatabaseType() : dataSourceService.getDatabaseType(name);
+        Indexes current = indexes.get(name);
+        if (current != null && current.catalog == catalog && current.databaseType.equals(databaseType)) {
+            return current;
+        }
+        return indexes.compute(name, (key, existing) ->
+                existing != null && existing.catalog == catalog && existing.databaseType.equals(databaseType)
+                        ? existing
+                        : build(existing, catalog, databaseType));
+    }
+
+    private Indexes build(Indexes previous, SchemaCatalog catalog, String databaseType) {
+        long startTime = System.currentTimeMillis();
+        SuggestionIndex.Builder builder = SuggestionIndex.builder();
+        for (String keyword : SqlVocabulary.keywords(databaseType)) {
+            builder.add(SuggestionType.KEYWORD, keyword, "SQL Keyword", null);
+        }
+        for (String function : SqlVocabulary.functions(databaseType)) {
+            builder.add(SuggestionType.FUNCTION, function, "SQL Function", null);
+        }
+        Set<String> columnNames = new HashSet<>();
+        if (catalog != null) {
+            for (SchemaCatalog.Table table : catalog.getTables()) {
+                builder.add(SuggestionType.TABLE, table.getName(),
+                        table.getComment() != null ? table.getComment() : table.isView() ? "View" : "Table", null);
+                for (SchemaCatalog.Column column : table.getColumns()) {
+                    columnNames.add(column.getName().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        Indexes result = new Indexes(catalog, databaseType, builder.build(), columnNames);
+
+        // Giữ index cột của các bảng không thay đổi
+        int reused = 0;
+        if (previous != null && catalog != null) {
+            for (Map.Entry<String, ColumnIndex> entry : previous.columnIndexes.entrySet()) {
+                SchemaCatalog.Table table = catalog.getTable(entry.getKey());
+                if (table != null && table.getColumns() == entry.getValue().source) {
+                    result.columnIndexes.put(entry.getKey(), entry.getValue());
+                    reused++;
+                }
+            }
+        }
+        logger.info("Built suggestion index for catalog v{} ({}): {} entries, {} column indexes reused in {} ms",
+                catalog != null ? catalog.getVersion() : 0, databaseType, result.index.size(), reused,
+                System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    private static ColumnIndex buildColumnIndex(SchemaCatalog.Table table) {
+        SuggestionIndex.Builder builder = SuggestionIndex.builder();
+        for (SchemaCatalog.Column column : table.getColumns()) {
+            builder.add(SuggestionType.COLUMN, column.getName(),
+                    column.getComment() != null ? column.getComment() : column.getDataType(), table.getName());
+        }
+        return new ColumnIndex(table.getColumns(), builder.build());
+    }
+}
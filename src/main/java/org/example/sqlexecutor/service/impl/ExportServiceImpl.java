@@ -0,0 +1,88 @@
+package org.example.sqlexecutor.service.impl;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.sqlexecutor.config.SqlLogger;
+import org.example.sqlexecutor.export.ExportOptions;
+import org.example.sqlexecutor.export.ExportPipeline;
+import org.example.sqlexecutor.export.RowSink;
+import org.example.sqlexecutor.export.RowSinkFactory;
+import org.example.sqlexecutor.service.DataSourceService;
+import org.example.sqlexecutor.service.ExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    @Autowired
+    private DataSourceService dataSourceService;
+
+    @Value("${sql.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    private RowSinkFactory rowSinkFactory;
+
+    @Autowired
+    private ExportPipeline exportPipeline;
+
+    @Override
+    public void export(String dataSourceName, String query, ExportOptions options, HttpServletResponse response)
+            throws SQLException {
+        // Tạo tên file với timestamp
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String filename = options.getFileName("sql_export_" + timestamp);
+
+        // Thiết lập response headers
+        response.setContentType(options.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + filename);
+
+        try {
+            export(dataSourceName, query, options, response.getOutputStream(), rows -> { }, null);
+        } catch (IOException e) {
+            logger.error("Error exporting query results", e);
+            throw new RuntimeException("Failed to export file", e);
+        }
+    }
+
+    @Override
+    public long export(String dataSourceName, String query, ExportOptions options, OutputStream outputStream,
+                       LongConsumer progress, DataSourceService.StatementListener statementListener)
+            throws SQLException, IOException {
+        logger.info("Starting {} export on datasource [{}] for query: {}",
+                options.getFormat().getValue(), dataSourceName, query);
+        SqlLogger.logSqlQuery("EXPORT " + options.getFormat().getValue().toUpperCase()
+                + " DATASOURCE[" + dataSourceName + "]: " + query);
+
+        GZIPOutputStream gzip = options.isGzip() ? new GZIPOutputStream(outputStream, 64 * 1024) : null;
+        try {
+            // Statement forward-only, read-only với fetch size streaming theo dialect: heap không tăng theo số dòng
+            return dataSourceService.queryStreaming(dataSourceName, query, fetchSize, 0, statementListener, rs -> {
+                try (RowSink sink = rowSinkFactory.create(options, gzip != null ? gzip : outputStream)) {
+                    long rows = exportPipeline.run(rs, sink, progress);
+                    if (gzip != null) {
+                        gzip.finish();
+                    }
+                    return rows;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,24 +1,65 @@
 package org.example.sqlexecutor.service.impl;
 
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.capture.CaptureEngine;
+import org.example.sqlexecutor.capture.ResultCapture;
 import org.example.sqlexecutor.config.SqlLogger;
 import org.example.sqlexecutor.exception.SqlExecutionException;
 import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.example.sqlexecutor.model.CountMode;
+import org.example.sqlexecutor.model.KeysetCursor;
 import org.example.sqlexecutor.model.PageRequest;
+import org.example.sqlexecutor.model.ResultFormat;
 import org.example.sqlexecutor.model.SqlQuery;
 import org.example.sqlexecutor.model.SqlResult;
+import org.example.sqlexecutor.model.TransformRequest;
+import org.example.sqlexecutor.service.ArrowResultWriter;
+import org.example.sqlexecutor.service.CursorSessionService;
 import org.example.sqlexecutor.service.DataSourceService;
+import org.example.sqlexecutor.service.DeferredCountService;
+import org.example.sqlexecutor.service.PrefetchService;
+import org.example.sqlexecutor.service.QueryResultCache;
+import org.example.sqlexecutor.service.QueryRewriteService;
+import org.example.sqlexecutor.service.ResultCaptureService;
+import org.example.sqlexecutor.service.QuerySingleFlight;
+import org.example.sqlexecutor.service.ResultSnapshotService;
+import org.example.sqlexecutor.service.SchemaCatalogService;
+import org.example.sqlexecutor.service.SuggestionIndexService;
+import org.example.sqlexecutor.snapshot.ResultSnapshot;
+import org.example.sqlexecutor.sql.QueryRewriter;
+import org.example.sqlexecutor.sql.SelectStatement;
+import org.example.sqlexecutor.sql.SqlStatementType;
 import org.example.sqlexecutor.service.SqlExecutorService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
-import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 @Service
@@ -29,8 +70,63 @@ public class SqlExecutorServiceImpl implements SqlExecutorService {
     @Autowired
     private DataSourceService dataSourceService;
 
+    @Autowired
+    private CursorSessionService cursorSessionService;
+
+    @Autowired
+    private DeferredCountService deferredCountService;
+
+    @Autowired
+    @Qualifier("countExecutor")
+    private ThreadPoolTaskExecutor countExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ArrowResultWriter arrowResultWriter;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private QuerySingleFlight querySingleFlight;
+
+    @Autowired
+    private QueryRewriteService queryRewriteService;
+
+    @Autowired
+    private ResultSnapshotService resultSnapshotService;
+
+    @Autowired
+    private ResultCaptureService resultCaptureService;
+
+    @Autowired
+    private PrefetchService prefetchService;
+
+    @Autowired
+    private SchemaCatalogService schemaCatalogService;
+
+    @Autowired
+    private SuggestionIndexService suggestionIndexService;
+
+    @Value("${sql.stream.fetch-size:1000}")
+    private int streamFetchSize;
+
+    @Value("${sql.stream.flush-rows:1000}")
+    private int streamFlushRows;
+
+    @Value("${sql.stream.query-timeout-seconds:300}")
+    private int streamQueryTimeoutSeconds;
+
+    @Value("${sql.count.parallel:true}")
+    private boolean parallelCount;
+
+    @Value("${sql.count.timeout-ms:10000}")
+    private long countTimeoutMs;
+
     private static final int QUERY_TIMEOUT_SECONDS = 20;
-    private static final Pattern COUNT_PATTERN = Pattern.compile("SELECT\\s+COUNT\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern KEY_COLUMN_PATTERN = Pattern.compile("[A-Za-z_][\\w$#]*(\\.[A-Za-z_][\\w$#]*)?");
 
     @Override
     @Transactional(timeout = QUERY_TIMEOUT_SECONDS)
@@ -54,26 +150,80 @@ public class SqlExecutorServiceImpl implements SqlExecutorService {
             jdbcTemplate.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
 
             // Xác định loại truy vấn
-            String queryType = determineQueryType(query);
+            // Controller đã phân loại cùng đối tượng SqlQuery nên không lex lại
+            String queryType = sqlQuery.getStatementType().name();
             result.setQueryType(queryType);
             result.setDataSourceName(dataSourceName);
 
-            if ("SELECT".equals(queryType)) {
+            if ("SELECT".equals(queryType) && sqlQuery.isCapture()) {
+                ResultCapture capture = resultCaptureService.create(dataSourceName, query,
+                        rs -> readColumns(rs.getMetaData()));
+                TransformRequest request = new TransformRequest();
+                request.setPagination(pagination);
+                ColumnarPage page = applyTransform(capture, request, result);
+                publishPage(result, page, sqlQuery.getResultFormat());
+            } else if ("SELECT".equals(queryType) && (sqlQuery.getSnapshotId() != null || sqlQuery.isSnapshot())) {
+                ColumnarPage page = executeSelectWithSnapshot(sqlQuery, result);
+                publishPage(result, page, sqlQuery.getResultFormat());
+            } else if ("SELECT".equals(queryType) && (sqlQuery.getSessionId() != null || sqlQuery.isCursorSession())) {
+                ColumnarPage page = executeSelectWithCursorSession(jdbcTemplate, sqlQuery, result);
+                publishPage(result, page, sqlQuery.getResultFormat());
+            } else if ("SELECT".equals(queryType)) {
                 // Thiết lập thông tin phân trang
                 result.setCurrentPage(pagination.getPage());
                 result.setPageSize(pagination.getSize());
 
-                // Đếm tổng số bản ghi với timeout và tối ưu
-                long totalItems = countRecordsOptimized(jdbcTemplate, query);
-                result.setTotalItems(totalItems);
-                result.setTotalPages((int) Math.ceil((double) totalItems / pagination.getSize()));
-
-                // Thực hiện truy vấn với phân trang
-                executeSelectWithPagination(jdbcTemplate, query, result, pagination);
+                // Datasource thực sự được dùng (tên lạ rơi về mặc định) để các alias dùng chung entry cache
+                String cacheDataSource = dataSourceService.resolveName(dataSourceName);
+                long cacheGeneration = queryResultCache.generation(cacheDataSource);
+
+                // Đếm tổng số bản ghi theo chế độ count được yêu cầu
+                CountMode countMode = sqlQuery.getCountMode() != null ? sqlQuery.getCountMode() : CountMode.EXACT;
+                PendingCount pendingCount = applyCount(jdbcTemplate, dataSourceName, query, countMode,
+                        result, pagination, cacheDataSource, cacheGeneration);
+
+                // Thực hiện truy vấn với phân trang; khi có thể không có tổng chính xác thì lấy thêm 1 dòng để biết hasNext
+                boolean probeNext = countMode != CountMode.EXACT || pendingCount != null;
+                String pageKey = pageKey(pagination, probeNext);
+                QueryResultCache.CachedPage cached;
+                try {
+                    cached = fetchPage(jdbcTemplate, dataSourceName, query, pagination, probeNext,
+                            cacheDataSource, pageKey, cacheGeneration, sqlQuery.isPrefetch());
+                } catch (RuntimeException | Error e) {
+                    // Trang lỗi thì tổng số không còn ai dùng: dừng COUNT đang chạy song song thay vì giữ connection
+                    if (pendingCount != null) {
+                        pendingCount.cancel();
+                    }
+                    throw e;
+                }
+                result.setColumns(cached.getColumns());
+                result.setHasNext(cached.getHasNext());
+                result.setNextCursor(cached.getNextCursor());
+                result.setPrevCursor(cached.getPrevCursor());
+                ColumnarPage page = cached.getPage();
+                publishPage(result, page, sqlQuery.getResultFormat());
+
+                if (pendingCount != null) {
+                    awaitCount(pendingCount, result, pagination);
+                }
+
+                if (sqlQuery.isPrefetch()) {
+                    prefetchNextPage(jdbcTemplate, dataSourceName, query, pagination, probeNext,
+                            cacheDataSource, result);
+                }
             } else {
                 executeUpdate(jdbcTemplate, query, result);
+                // Xóa các kết quả đã cache đọc từ bảng vừa bị thay đổi
+                String resolvedDataSource = dataSourceService.resolveName(dataSourceName);
+                queryResultCache.invalidate(resolvedDataSource, query);
+                prefetchService.invalidate(resolvedDataSource);
+                // DDL: nạp lại metadata của bảng bị tác động cho gợi ý
+                schemaCatalogService.onStatementExecuted(resolvedDataSource, query);
             }
 
+            // Tên bảng/cột/hàm trong câu lệnh được ưu tiên hơn khi xếp hạng gợi ý
+            suggestionIndexService.recordUsage(dataSourceName, query);
+
             result.setSuccess(true);
             result.setMessage("Query executed successfully");
 
@@ -91,100 +241,654 @@ public class SqlExecutorServiceImpl implements SqlExecutorService {
         return result;
     }
 
+    /**
+     * Chạy SELECT không phân trang và ghi từng dòng dạng NDJSON (mỗi dòng một JSON object) ra output stream.
+     * Driver được cấu hình stream theo dialect nên heap không tăng theo kích thước kết quả.
+     */
     @Override
-    public String determineQueryType(String query) {
-        String upperQuery = query.toUpperCase();
-        if (Pattern.compile("^\\s*SELECT\\s+").matcher(upperQuery).find()) {
-            return "SELECT";
-        } else if (Pattern.compile("^\\s*INSERT\\s+").matcher(upperQuery).find()) {
-            return "INSERT";
-        } else if (Pattern.compile("^\\s*UPDATE\\s+").matcher(upperQuery).find()) {
-            return "UPDATE";
-        } else if (Pattern.compile("^\\s*DELETE\\s+").matcher(upperQuery).find()) {
-            return "DELETE";
-        } else if (Pattern.compile("^\\s*CREATE\\s+").matcher(upperQuery).find()) {
-            return "CREATE";
-        } else if (Pattern.compile("^\\s*ALTER\\s+").matcher(upperQuery).find()) {
-            return "ALTER";
-        } else if (Pattern.compile("^\\s*DROP\\s+").matcher(upperQuery).find()) {
-            return "DROP";
-        } else {
-            return "OTHER";
+    public long streamSelect(SqlQuery sqlQuery, OutputStream outputStream) throws IOException {
+        String query = sqlQuery.getQuery().trim();
+        String dataSourceName = sqlQuery.getDataSourceName();
+
+        logger.info("Streaming SQL on datasource [{}]: {}", dataSourceName, query);
+        SqlLogger.logSqlQuery("STREAM DATASOURCE[" + dataSourceName + "]: " + query);
+
+        long startTime = System.currentTimeMillis();
+        try {
+            long rows = dataSourceService.queryStreaming(dataSourceName, query, streamFetchSize,
+                    streamQueryTimeoutSeconds, rs -> writeNdjson(rs, outputStream));
+            logger.info("Streamed {} rows in {} ms", rows, System.currentTimeMillis() - startTime);
+            return rows;
+        } catch (UncheckedIOException e) {
+            logger.warn("Streaming aborted: {}", e.getCause().getMessage());
+            throw e.getCause();
+        } catch (SQLException | DataAccessException e) {
+            logger.error("Error streaming query", e);
+            throw new SqlExecutionException("Error streaming SQL query", e);
         }
     }
 
+    /**
+     * Chạy trang SELECT được yêu cầu (phân trang theo offset) và ghi kết quả dạng Arrow IPC stream,
+     * đổ thẳng từ ResultSet vào vector Arrow theo batch thay vì dựng JSON.
+     */
     @Override
-    public long countRecords(JdbcTemplate jdbcTemplate, String query) {
-        return countRecordsOptimized(jdbcTemplate, query);
+    public long writeArrowPage(SqlQuery sqlQuery, OutputStream outputStream) throws IOException {
+        String query = sqlQuery.getQuery().trim();
+        String dataSourceName = sqlQuery.getDataSourceName();
+        PageRequest pagination = sqlQuery.getPagination();
+        String paginatedQuery = getPaginatedQuery(dataSourceName, query, pagination.getOffset(), pagination.getSize());
+
+        logger.info("Executing Arrow SQL on datasource [{}]: {}", dataSourceName, paginatedQuery);
+        SqlLogger.logSqlQuery("ARROW DATASOURCE[" + dataSourceName + "]: " + paginatedQuery);
+
+        long startTime = System.currentTimeMillis();
+        try {
+            // Cùng giới hạn thời gian với trang JSON (@Transactional không áp dụng cho connection streaming)
+            long rows = dataSourceService.queryStreaming(dataSourceName, paginatedQuery, streamFetchSize,
+                    QUERY_TIMEOUT_SECONDS, rs -> arrowResultWriter.write(rs, outputStream));
+            logger.info("Wrote {} Arrow rows in {} ms", rows, System.currentTimeMillis() - startTime);
+            return rows;
+        } catch (UncheckedIOException e) {
+            logger.warn("Arrow stream aborted: {}", e.getCause().getMessage());
+            throw e.getCause();
+        } catch (SQLException | DataAccessException e) {
+            logger.error("Error executing Arrow query", e);
+            throw new SqlExecutionException("Error executing SQL query", e);
+        }
     }
 
-    private long countRecordsOptimized(JdbcTemplate jdbcTemplate, String query) {
-        if (COUNT_PATTERN.matcher(query).find()) {
-            try {
-                return jdbcTemplate.queryForObject(query, Long.class);
-            } catch (DataAccessException e) {
-                throw new SqlExecutionException("Error counting records", e);
-            }
+    /**
+     * Sắp xếp / lọc / gộp trong bộ nhớ trên kết quả đã capture, không truy vấn lại database.
+     */
+    @Override
+    public SqlResult transformCapture(String captureId, TransformRequest request) {
+        long startTime = System.currentTimeMillis();
+        ResultCapture capture = resultCaptureService.get(captureId);
+        SqlResult result = new SqlResult();
+        result.setQueryType("SELECT");
+        result.setDataSourceName(capture.getDataSourceName());
+        ColumnarPage page = applyTransform(capture, request, result);
+        publishPage(result, page, request.getResultFormat());
+        result.setSuccess(true);
+        result.setMessage("Transform executed successfully");
+        result.setExecutionTime(System.currentTimeMillis() - startTime);
+        logger.info("Transformed captured result {} in {} ms", captureId, result.getExecutionTime());
+        return result;
+    }
+
+    private ColumnarPage applyTransform(ResultCapture capture, TransformRequest request, SqlResult result) {
+        PageRequest pagination = request.getPagination() != null ? request.getPagination() : new PageRequest();
+        CaptureEngine.Result transformed = capture.transform(request);
+        ColumnarPage page = transformed.page(pagination.getOffset(), pagination.getSize());
+        result.setColumns(transformed.getColumns());
+        result.setCurrentPage(pagination.getPage());
+        result.setPageSize(pagination.getSize());
+        result.setCountMode(CountMode.EXACT);
+        setTotals(result, transformed.getRowCount(), pagination);
+        result.setHasNext((long) pagination.getOffset() + page.getRowCount() < transformed.getRowCount());
+        result.setCaptureId(capture.getId());
+        result.setCaptureTruncated(capture.isTruncated());
+        return page;
+    }
+
+    private long writeNdjson(ResultSet resultSet, OutputStream outputStream) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = ColumnarPage.columnLabels(metaData);
+        ColumnarPage.Kind[] kinds = new ColumnarPage.Kind[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            kinds[i] = ColumnarPage.kindOf(metaData, i + 1);
         }
+        boolean[] singlePrecision = ColumnarPage.singlePrecisionColumns(metaData);
 
-        String optimizedQuery = query.toLowerCase();
-        int orderByIndex = optimizedQuery.lastIndexOf("order by");
-        if (orderByIndex > 0) {
-            query = query.substring(0, orderByIndex);
+        // writeValue mặc định flush sau mỗi giá trị: chỉ flush theo streamFlushRows
+        ObjectWriter valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long rows = 0;
+        try {
+            JsonGenerator gen = objectMapper.getFactory().createGenerator(outputStream);
+            // Không đóng output stream của servlet khi đóng generator
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (resultSet.next()) {
+                gen.writeStartObject();
+                for (int i = 0; i < columnCount; i++) {
+                    int index = i + 1;
+                    gen.writeFieldName(names[i]);
+                    switch (kinds[i]) {
+                        case LONG:
+                            long longValue = resultSet.getLong(index);
+                            if (resultSet.wasNull()) {
+                                gen.writeNull();
+                            } else {
+                                gen.writeNumber(longValue);
+                            }
+                            break;
+                        case DOUBLE:
+                            double doubleValue = ColumnarPage.readDouble(resultSet, index, singlePrecision[i]);
+                            if (resultSet.wasNull()) {
+                                gen.writeNull();
+                            } else {
+                                gen.writeNumber(doubleValue);
+                            }
+                            break;
+                        case STRING:
+                            gen.writeString(resultSet.getString(index));
+                            break;
+                        default:
+                            valueWriter.writeValue(gen, resultSet.getObject(index));
+                    }
+                }
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+                rows++;
+                if (rows % streamFlushRows == 0) {
+                    gen.flush();
+                }
+            }
+            gen.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return rows;
+    }
 
-        String countQuery = "SELECT COUNT(*) FROM (" + query + ") AS count_query";
+    @Override
+    public String determineQueryType(String query) {
+        return SqlStatementType.classify(query).name();
+    }
 
+    @Override
+    public long countRecords(JdbcTemplate jdbcTemplate, String query) {
+        // Không có tên datasource: viết lại câu đếm theo dialect của datasource mặc định
+        return countRecordsOptimized(jdbcTemplate, null, query);
+    }
+
+    private long countRecordsOptimized(JdbcTemplate jdbcTemplate, String dataSourceName, String query) {
+        String countQuery = queryRewriteService.getCountQuery(dataSourceName, query);
         try {
             return jdbcTemplate.queryForObject(countQuery, Long.class);
         } catch (DataAccessException e) {
-            countQuery = "SELECT COUNT(1) FROM (" + query + ") AS count_query";
+            // Câu đếm đã viết lại bị từ chối (cú pháp lạ với parser): đếm trên nguyên câu gốc
+            String wrappedQuery = QueryRewriter.wrapCount(query);
+            if (wrappedQuery.equals(countQuery)) {
+                throw new SqlExecutionException("Error counting records", e);
+            }
+            logger.warn("Rewritten count query failed, falling back to wrapped count: {}", e.getMessage());
             try {
-                return jdbcTemplate.queryForObject(countQuery, Long.class);
+                return jdbcTemplate.queryForObject(wrappedQuery, Long.class);
             } catch (DataAccessException ex) {
                 throw new SqlExecutionException("Error counting records", ex);
             }
         }
     }
 
-    private void executeSelectWithPagination(JdbcTemplate jdbcTemplate, String query, SqlResult result, PageRequest pagination) {
-        // Cập nhật để nhận JdbcTemplate làm tham số
-        String paginatedQuery = getPaginatedQuery(jdbcTemplate, query, pagination);
+    /**
+     * Tính tổng số bản ghi theo countMode. Với chế độ exact, nếu pool và countExecutor còn rảnh thì COUNT được
+     * gửi sang countExecutor (connection riêng) để chạy song song với truy vấn trang; khi đó trả về future cần chờ.
+     * Kết quả COUNT exact được lấy từ / đưa vào cache kết quả.
+     */
+    private PendingCount applyCount(JdbcTemplate jdbcTemplate, String dataSourceName, String query,
+                                               CountMode countMode, SqlResult result, PageRequest pagination,
+                                               String cacheDataSource, long cacheGeneration) {
+        result.setCountMode(countMode);
+        switch (countMode) {
+            case ESTIMATE:
+                Long estimate = estimateRecords(jdbcTemplate, dataSourceName, query);
+                if (estimate != null) {
+                    setTotals(result, estimate, pagination);
+                } else {
+                    setTotals(result, -1, pagination);
+                }
+                break;
+            case DEFERRED:
+                setTotals(result, -1, pagination);
+                result.setCountId(deferredCountService.submit(dataSourceName, jdbcTemplate,
+                        countTemplate -> countRecordsOptimized(countTemplate, dataSourceName, query)));
+                break;
+            case NONE:
+                setTotals(result, -1, pagination);
+                break;
+            case EXACT:
+            default:
+                Long cachedCount = queryResultCache.getCount(cacheDataSource, query);
+                if (cachedCount != null) {
+                    setTotals(result, cachedCount, pagination);
+                    break;
+                }
+                if (!parallelCount || dataSourceService.isPoolSaturated(dataSourceName)) {
+                    // Pool đang chịu tải: đếm tuần tự để không tăng gấp đôi số connection
+                    setTotals(result, exactCount(jdbcTemplate, query, cacheDataSource, cacheGeneration), pagination);
+                    break;
+                }
+                // Giữ statement đang chạy COUNT: cancel(true) của future không ngắt được JDBC đang chờ database
+                AtomicReference<Statement> countStatement = new AtomicReference<>();
+                JdbcTemplate countTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+                    @Override
+                    protected void applyStatementSettings(Statement statement) throws SQLException {
+                        super.applyStatementSettings(statement);
+                        countStatement.set(statement);
+                    }
+                };
+                countTemplate.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(countTimeoutMs)));
+                CompletableFuture<Long> future;
+                try {
+                    future = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return exactCount(countTemplate, query, cacheDataSource, cacheGeneration);
+                        } finally {
+                            countStatement.set(null);
+                        }
+                    }, countExecutor);
+                } catch (TaskRejectedException e) {
+                    // Không còn thread đếm rảnh: đếm tuần tự thay vì chờ sau hàng đợi
+                    setTotals(result, exactCount(jdbcTemplate, query, cacheDataSource, cacheGeneration), pagination);
+                    break;
+                }
+                return new PendingCount(future, countStatement);
+        }
+        return null;
+    }
+
+    // COUNT quá thời gian thì vẫn trả trang, tổng số bản ghi đánh dấu là chưa biết (-1)
+    private void awaitCount(PendingCount pendingCount, SqlResult result, PageRequest pagination)
+            throws InterruptedException {
+        try {
+            setTotals(result, pendingCount.future.get(countTimeoutMs, TimeUnit.MILLISECONDS), pagination);
+        } catch (TimeoutException e) {
+            pendingCount.cancel();
+            logger.warn("Count query timed out after {} ms, returning page without total", countTimeoutMs);
+            setTotals(result, -1, pagination);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SqlExecutionException("Error counting records", cause);
+        }
+    }
+
+    /**
+     * COUNT exact đang chạy song song trên countExecutor cùng statement JDBC hiện tại của nó (null khi chưa bắt đầu,
+     * đã xong hoặc đang chờ một lần đếm giống hệt của request khác).
+     */
+    private static final class PendingCount {
+        private final CompletableFuture<Long> future;
+        private final AtomicReference<Statement> statement;
+
+        private PendingCount(CompletableFuture<Long> future, AtomicReference<Statement> statement) {
+            this.future = future;
+            this.statement = statement;
+        }
+
+        // Bỏ task nếu chưa chạy, và yêu cầu database dừng câu COUNT nếu đang chạy
+        void cancel() {
+            future.cancel(true);
+            Statement running = statement.getAndSet(null);
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    logger.debug("Could not cancel count statement: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // COUNT exact dùng chung giữa các request đồng thời và được đưa vào cache kết quả
+    private long exactCount(JdbcTemplate jdbcTemplate, String query, String cacheDataSource, long cacheGeneration) {
+        return querySingleFlight.execute(cacheDataSource, "count", query, () -> {
+            long total = countRecordsOptimized(jdbcTemplate, cacheDataSource, query);
+            queryResultCache.putCount(cacheDataSource, query, total, cacheGeneration);
+            return total;
+        });
+    }
+
+    // Trang lấy từ bộ đệm prefetch, cache kết quả, hoặc chạy query (gộp với request giống hệt đang chạy)
+    private QueryResultCache.CachedPage fetchPage(JdbcTemplate jdbcTemplate, String dataSourceName, String query,
+                                                  PageRequest pagination, boolean probeNext, String cacheDataSource,
+                                                  String pageKey, long cacheGeneration, boolean prefetch) {
+        QueryResultCache.CachedPage cached = prefetchService.take(cacheDataSource, query, pageKey, prefetch);
+        if (cached != null) {
+            logger.info("Serving page from prefetch buffer");
+            return cached;
+        }
+        cached = queryResultCache.getPage(cacheDataSource, query, pageKey);
+        if (cached != null) {
+            logger.info("Serving page from result cache");
+            return cached;
+        }
+        // Các request giống hệt đang chạy đồng thời dùng chung một lần thực thi
+        return querySingleFlight.execute(cacheDataSource, "page:" + pageKey, query,
+                () -> loadPage(jdbcTemplate, dataSourceName, query, pagination, probeNext,
+                        cacheDataSource, pageKey, cacheGeneration));
+    }
+
+    // Chạy truy vấn trang vào SqlResult tạm để kết quả có thể chia sẻ cho các request chờ và đưa vào cache
+    private QueryResultCache.CachedPage loadPage(JdbcTemplate jdbcTemplate, String dataSourceName, String query,
+                                                 PageRequest pagination, boolean probeNext,
+                                                 String cacheDataSource, String pageKey, long cacheGeneration) {
+        SqlResult pageResult = new SqlResult();
+        pageResult.setDataSourceName(dataSourceName);
+        ColumnarPage page;
+        if (pagination.isKeyset()) {
+            page = executeSelectWithKeyset(jdbcTemplate, dataSourceName, query, pageResult, pagination);
+            if (probeNext) {
+                pageResult.setHasNext(pageResult.getNextCursor() != null);
+            }
+        } else {
+            page = executeSelectWithPagination(jdbcTemplate, query, pageResult, pagination, probeNext);
+        }
+        QueryResultCache.CachedPage loaded = new QueryResultCache.CachedPage(pageResult.getColumns(), page,
+                pageResult.getHasNext(), pageResult.getNextCursor(), pageResult.getPrevCursor());
+        queryResultCache.putPage(cacheDataSource, query, pageKey, loaded, cacheGeneration);
+        return loaded;
+    }
+
+    /**
+     * Đọc trước trang kế tiếp ở background khi biết còn trang sau (hasNext, tổng số bản ghi hoặc cursor kế tiếp).
+     */
+    private void prefetchNextPage(JdbcTemplate jdbcTemplate, String dataSourceName, String query,
+                                  PageRequest pagination, boolean probeNext, String cacheDataSource,
+                                  SqlResult result) {
+        PageRequest next = new PageRequest(pagination.getPage() + 1, pagination.getSize());
+        if (pagination.isKeyset()) {
+            if (result.getNextCursor() == null) {
+                return;
+            }
+            next.setKeyColumns(pagination.getKeyColumns());
+            next.setCursor(result.getNextCursor());
+        } else {
+            boolean more = result.getHasNext() != null
+                    ? result.getHasNext()
+                    : result.getTotalItems() < 0
+                    || (long) pagination.getOffset() + pagination.getSize() < result.getTotalItems();
+            if (!more) {
+                return;
+            }
+        }
+        String nextPageKey = pageKey(next, probeNext);
+        long cacheGeneration = queryResultCache.generation(cacheDataSource);
+        prefetchService.submit(cacheDataSource, query, nextPageKey,
+                () -> loadPage(jdbcTemplate, dataSourceName, query, next, probeNext,
+                        cacheDataSource, nextPageKey, cacheGeneration));
+    }
+
+    // Key trang trong cache: keyset theo cột khóa + cursor, offset theo vị trí; có lấy thêm dòng dò hasNext hay không
+    private String pageKey(PageRequest pagination, boolean probeNext) {
+        String key = pagination.isKeyset()
+                ? "k:" + pagination.getKeyColumns() + ":" + pagination.getCursor() + ":" + pagination.getSize()
+                : "o:" + pagination.getOffset() + ":" + pagination.getSize();
+        return probeNext ? key + "+1" : key;
+    }
+
+    private void setTotals(SqlResult result, long totalItems, PageRequest pagination) {
+        result.setTotalItems(totalItems);
+        result.setTotalPages(totalItems < 0 ? -1 : (int) Math.ceil((double) totalItems / pagination.getSize()));
+    }
+
+    private Long estimateRecords(JdbcTemplate jdbcTemplate, String dataSourceName, String query) {
+        try {
+            Long estimate = dataSourceService.getDatabaseStrategy(dataSourceName)
+                    .estimateRowCount(jdbcTemplate, QueryRewriter.stripOrderBy(query));
+            logger.info("Estimated row count: {}", estimate);
+            return estimate;
+        } catch (Exception e) {
+            logger.warn("Could not estimate row count: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private ColumnarPage executeSelectWithPagination(JdbcTemplate jdbcTemplate, String query, SqlResult result,
+                                                     PageRequest pagination, boolean probeNext) {
+        int limit = probeNext ? pagination.getSize() + 1 : pagination.getSize();
+        String paginatedQuery = getPaginatedQuery(result.getDataSourceName(), query, pagination.getOffset(), limit);
 
         logger.info("Paginated query: {}", paginatedQuery);
         SqlLogger.logSqlQuery(paginatedQuery);
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(paginatedQuery);
-        SqlRowSetMetaData metaData = rowSet.getMetaData();
+        ColumnarPage page = queryPage(jdbcTemplate, paginatedQuery, result, limit);
 
-        List<ColumnInfo> columns = new ArrayList<>();
-        for (int i = 1; i <= metaData.getColumnCount(); i++) {
-            String columnName = metaData.getColumnName(i);
-            String columnType = metaData.getColumnTypeName(i);
+        if (probeNext) {
+            boolean hasNext = page.getRowCount() > pagination.getSize();
+            page.truncate(pagination.getSize());
+            result.setHasNext(hasNext);
+        }
+        return page;
+    }
 
-            if (columnType.equals("VARCHAR") || columnType.equals("CHAR")) {
-                int columnSize = metaData.getColumnDisplaySize(i);
-                columnType = columnType + "(" + columnSize + ")";
-            } else if (columnType.equals("DECIMAL") || columnType.equals("NUMERIC")) {
-                int precision = metaData.getPrecision(i);
-                int scale = metaData.getScale(i);
-                columnType = columnType + "(" + precision + "," + scale + ")";
+    /**
+     * Keyset (seek) pagination: thay vì OFFSET, lọc theo giá trị khóa của dòng biên
+     * trang trước nên chi phí trang sâu tương đương trang đầu (khi có index trên khóa).
+     */
+    private ColumnarPage executeSelectWithKeyset(JdbcTemplate jdbcTemplate, String dataSourceName, String query,
+                                                 SqlResult result, PageRequest pagination) {
+        List<String> keyColumns = new ArrayList<>();
+        for (String keyColumn : pagination.getKeyColumns()) {
+            String column = keyColumn == null ? "" : keyColumn.trim();
+            if (!KEY_COLUMN_PATTERN.matcher(column).matches()) {
+                throw new SqlExecutionException("Invalid keyset column: " + keyColumn);
             }
+            // Truy vấn gốc được bọc thành bảng dẫn xuất nên chỉ dùng tên cột không kèm alias
+            keyColumns.add(column.substring(column.lastIndexOf('.') + 1));
+        }
 
-            columns.add(new ColumnInfo(columnName, columnType));
+        // Thứ tự trang do các cột khóa quyết định (luôn tăng dần): không lặng lẽ bỏ ORDER BY của người dùng,
+        // và FOR UPDATE không được phép nằm trong bảng dẫn xuất
+        SelectStatement statement = SelectStatement.parse(query);
+        if (statement != null && statement.hasOrderBy()) {
+            throw new SqlExecutionException("Keyset pagination orders rows by the key columns; "
+                    + "remove ORDER BY from the query or use offset pagination");
+        }
+        if (statement != null && statement.hasLockClause()) {
+            throw new SqlExecutionException("Keyset pagination does not support locking clauses (FOR UPDATE)");
+        }
+
+        KeysetCursor cursor = null;
+        if (pagination.getCursor() != null && !pagination.getCursor().isEmpty()) {
+            cursor = KeysetCursor.decode(pagination.getCursor());
+            if (cursor.getValues().size() != keyColumns.size()) {
+                throw new SqlExecutionException("Keyset cursor does not match key columns");
+            }
+            if (cursor.getValues().contains(null)) {
+                throw new SqlExecutionException("Invalid keyset cursor");
+            }
+        }
+        boolean backward = cursor != null && cursor.isBackward();
+
+        SqlDatabaseAdapter.DatabaseStrategy strategy = dataSourceService.getDatabaseStrategy(dataSourceName);
+        // Lấy thêm 1 dòng để biết còn trang tiếp theo (theo hướng đọc) hay không
+        String keysetQuery = strategy.getKeysetQuery(query, keyColumns, cursor != null,
+                backward, pagination.getSize() + 1);
+        Object[] parameters = cursor != null
+                ? strategy.getKeysetParameters(cursor.toJdbcValues())
+                : new Object[0];
+
+        logger.info("Keyset query: {}", keysetQuery);
+        SqlLogger.logSqlQuery(keysetQuery);
+
+        ColumnarPage page = jdbcTemplate.query(keysetQuery, rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            requireNotNullKeys(metaData, keyColumns);
+            result.setColumns(readColumns(metaData));
+            return ColumnarPage.read(rs, pagination.getSize() + 1);
+        }, parameters);
+
+        boolean hasMore = page.getRowCount() > pagination.getSize();
+        page.truncate(pagination.getSize());
+        if (backward) {
+            page.reverse();
         }
-        result.setColumns(columns);
 
-        List<Map<String, Object>> data = new ArrayList<>();
-        while (rowSet.next()) {
-            Map<String, Object> row = new HashMap<>();
-            for (ColumnInfo column : columns) {
-                row.put(column.getName(), rowSet.getObject(column.getName()));
+        if (page.getRowCount() > 0) {
+            boolean hasNext = backward || hasMore;
+            boolean hasPrev = backward ? hasMore : cursor != null;
+            if (hasNext) {
+                result.setNextCursor(new KeysetCursor(KeysetCursor.NEXT,
+                        keyValues(page, page.getRowCount() - 1, keyColumns)).encode());
+            }
+            if (hasPrev) {
+                result.setPrevCursor(new KeysetCursor(KeysetCursor.PREV,
+                        keyValues(page, 0, keyColumns)).encode());
             }
-            data.add(row);
         }
-        result.setData(data);
-        result.setAffectedRows(data.size());
+        return page;
+    }
+
+    /**
+     * Snapshot: lần gọi đầu chạy query một lần và ghi toàn bộ kết quả ra đĩa, các lần sau (gửi kèm snapshotId)
+     * đọc trang bất kỳ, theo thứ tự sắp xếp bất kỳ, từ snapshot mà không chạy lại query.
+     */
+    private ColumnarPage executeSelectWithSnapshot(SqlQuery sqlQuery, SqlResult result) {
+        PageRequest pagination = sqlQuery.getPagination();
+        ResultSnapshot snapshot = sqlQuery.getSnapshotId() != null
+                ? resultSnapshotService.get(sqlQuery.getSnapshotId())
+                : resultSnapshotService.create(sqlQuery.getDataSourceName(), sqlQuery.getQuery().trim(),
+                        rs -> readColumns(rs.getMetaData()));
+
+        ColumnarPage page = snapshot.readPage(pagination.getOffset(), pagination.getSize(), pagination.getSort());
+        result.setColumns(snapshot.getColumns());
+        result.setCurrentPage(pagination.getPage());
+        result.setPageSize(pagination.getSize());
+        result.setCountMode(CountMode.EXACT);
+        setTotals(result, snapshot.getRowCount(), pagination);
+        result.setHasNext((long) pagination.getOffset() + page.getRowCount() < snapshot.getRowCount());
+        result.setSnapshotId(snapshot.getId());
+        result.setSnapshotTruncated(snapshot.isTruncated());
+        return page;
+    }
+
+    /**
+     * Cursor session: lần gọi đầu đếm tổng số bản ghi một lần và mở ResultSet trên connection riêng,
+     * các lần sau (gửi kèm sessionId) đọc tiếp từ cursor đang mở. Chỉ hỗ trợ đi tới.
+     */
+    private ColumnarPage executeSelectWithCursorSession(JdbcTemplate jdbcTemplate, SqlQuery sqlQuery, SqlResult result)
+            throws SQLException {
+        PageRequest pagination = sqlQuery.getPagination();
+        CursorSessionService.CursorSession session;
+        if (sqlQuery.getSessionId() != null) {
+            session = cursorSessionService.get(sqlQuery.getSessionId());
+        } else {
+            String query = sqlQuery.getQuery().trim();
+            // Session tự biết khi nào hết dữ liệu nên chỉ đếm khi client cần tổng chính xác
+            long totalItems = sqlQuery.getCountMode() == null || sqlQuery.getCountMode() == CountMode.EXACT
+                    ? countRecordsOptimized(jdbcTemplate, result.getDataSourceName(), query)
+                    : -1;
+            SqlLogger.logSqlQuery("CURSOR SESSION: " + query);
+            session = cursorSessionService.open(result.getDataSourceName(), query, totalItems);
+        }
+
+        result.setCurrentPage(pagination.getPage());
+        result.setPageSize(pagination.getSize());
+        setTotals(result, session.getTotalItems(), pagination);
+
+        boolean exhausted;
+        ColumnarPage page;
+        synchronized (session) {
+            if (session.isClosed()) {
+                throw new SqlExecutionException("Cursor session not found or expired: " + session.getId());
+            }
+            long offset = (long) pagination.getOffset();
+            if (offset < session.getRowsConsumed()) {
+                throw new SqlExecutionException("Cursor session is forward-only; page "
+                        + pagination.getPage() + " has already been read");
+            }
+
+            ResultSet resultSet = session.getResultSet();
+            // Bỏ qua các dòng nếu client nhảy tới trang xa hơn
+            exhausted = false;
+            while (session.getRowsConsumed() < offset) {
+                if (!resultSet.next()) {
+                    exhausted = true;
+                    break;
+                }
+                session.addRowsConsumed(1);
+            }
+
+            result.setColumns(readColumns(resultSet.getMetaData()));
+            page = ColumnarPage.read(resultSet, exhausted ? 0 : pagination.getSize());
+            if (!exhausted) {
+                session.addRowsConsumed(page.getRowCount());
+                exhausted = page.getRowCount() < pagination.getSize()
+                        || (session.getTotalItems() >= 0 && session.getRowsConsumed() >= session.getTotalItems());
+            }
+        }
+
+        if (exhausted) {
+            cursorSessionService.close(session.getId());
+        } else {
+            result.setSessionId(session.getId());
+        }
+        result.setHasNext(!exhausted);
+        return page;
+    }
+
+    private List<Object> keyValues(ColumnarPage page, int row, List<String> keyColumns) {
+        List<Object> values = new ArrayList<>(keyColumns.size());
+        for (String keyColumn : keyColumns) {
+            // Oracle trả tên cột in hoa, MySQL giữ nguyên như khai báo
+            int column = page.findColumn(keyColumn);
+            if (column < 0) {
+                throw new SqlExecutionException("Keyset column not found in result: " + keyColumn);
+            }
+            Object value = page.getValue(row, column);
+            // So sánh với NULL không chọn được dòng nào: cursor như vậy sẽ bỏ sót hoặc lặp dữ liệu
+            if (value == null) {
+                throw new SqlExecutionException("Keyset column contains NULL: " + keyColumn);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    // Seek predicate không lấy được dòng có khóa NULL (NULL nằm đầu hoặc cuối tùy database): chỉ nhận cột NOT NULL
+    private static void requireNotNullKeys(ResultSetMetaData metaData, List<String> keyColumns) throws SQLException {
+        for (String keyColumn : keyColumns) {
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (metaData.getColumnLabel(i).equalsIgnoreCase(keyColumn)
+                        && metaData.isNullable(i) == ResultSetMetaData.columnNullable) {
+                    throw new SqlExecutionException("Keyset column is nullable: " + keyColumn
+                            + "; keyset pagination requires NOT NULL key columns");
+                }
+            }
+        }
+    }
+
+    private ColumnarPage queryPage(JdbcTemplate jdbcTemplate, String sql, SqlResult result, int maxRows,
+                                   Object... parameters) {
+        return jdbcTemplate.query(sql, rs -> {
+            result.setColumns(readColumns(rs.getMetaData()));
+            return ColumnarPage.read(rs, maxRows);
+        }, parameters);
+    }
+
+    private void publishPage(SqlResult result, ColumnarPage page, ResultFormat resultFormat) {
+        if (resultFormat == ResultFormat.COLUMNAR) {
+            result.setColumnar(page);
+        } else {
+            // View theo dòng trên dữ liệu cột, serialize thẳng mà không tạo Map cho từng dòng
+            result.setData(page.asRows());
+        }
+        result.setAffectedRows(page.getRowCount());
+    }
+
+    private List<ColumnInfo> readColumns(ResultSetMetaData metaData) throws SQLException {
+        // Cùng tên với key của dữ liệu trang (label trùng đã được đánh số)
+        String[] names = ColumnarPage.columnLabels(metaData);
+        List<ColumnInfo> columns = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(toColumnInfo(names[i - 1], metaData.getColumnTypeName(i),
+                    metaData.getColumnDisplaySize(i), metaData.getPrecision(i), metaData.getScale(i)));
+        }
+        return columns;
+    }
+
+    private ColumnInfo toColumnInfo(String columnName, String columnType, int columnSize, int precision, int scale) {
+        if (columnType.equals("VARCHAR") || columnType.equals("CHAR")) {
+            columnType = columnType + "(" + columnSize + ")";
+        } else if (columnType.equals("DECIMAL") || columnType.equals("NUMERIC")) {
+            columnType = columnType + "(" + precision + "," + scale + ")";
+        }
+        return new ColumnInfo(columnName, columnType);
     }
 
     private void executeUpdate(JdbcTemplate jdbcTemplate, String query, SqlResult result) {
@@ -199,37 +903,8 @@ public class SqlExecutorServiceImpl implements SqlExecutorService {
         result.setTotalPages(0);
     }
 
-    private String getPaginatedQuery(JdbcTemplate jdbcTemplate, String query, PageRequest pagination) {
-        String dbProductName = "";
-        try {
-            dbProductName = jdbcTemplate.getDataSource().getConnection().getMetaData().getDatabaseProductName().toLowerCase();
-        } catch (Exception e) {
-            dbProductName = "mysql";
-        }
-
-        switch (dbProductName) {
-            case "oracle":
-                int offset = pagination.getOffset();
-                int limit = pagination.getSize();
-                return "SELECT * FROM (" +
-                        "SELECT a.*, ROWNUM rnum FROM (" + query + ") a " +
-                        "WHERE ROWNUM <= " + (offset + limit) + ") " +
-                        "WHERE rnum > " + offset;
-
-            case "microsoft sql server":
-                return query + " OFFSET " + pagination.getOffset() +
-                        " ROWS FETCH NEXT " + pagination.getSize() + " ROWS ONLY";
-
-            case "db2":
-                return query + " LIMIT " + pagination.getSize() +
-                        " OFFSET " + pagination.getOffset();
-
-            case "postgresql":
-            case "mysql":
-            case "mariadb":
-            default:
-                return query + " LIMIT " + pagination.getSize() +
-                        " OFFSET " + pagination.getOffset();
-        }
+    private String getPaginatedQuery(String dataSourceName, String query, int offset, int limit) {
+        // Cú pháp phân trang theo dialect, gộp với LIMIT/TOP sẵn có; kết quả cache theo SQL chuẩn hóa
+        return queryRewriteService.getPaginatedQuery(dataSourceName, query, offset, limit);
     }
 }
\ No newline at end of file
@@ -1,24 +1,38 @@
 package org.example.sqlexecutor.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.example.sqlexecutor.adapter.DialectRegistry;
 import org.example.sqlexecutor.model.SqlSuggestion;
 import org.example.sqlexecutor.service.SqlSuggestionService;
+import org.example.sqlexecutor.service.SuggestionIndexService;
+import org.example.sqlexecutor.sql.SqlContext;
+import org.example.sqlexecutor.sql.SqlContextAnalyzer;
+import org.example.sqlexecutor.sql.SqlLexer;
+import org.example.sqlexecutor.suggest.SuggestionType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,77 +44,27 @@ public class SqlSuggestionServiceImpl implements SqlSuggestionService {
     private JdbcTemplate jdbcTemplate;
 
     @Autowired
-    private DataSource dataSource;
-
-    // Các từ khóa chung cho tất cả SQL
-    private static final List<String> COMMON_SQL_KEYWORDS = Arrays.asList(
-            "SELECT", "FROM", "WHERE", "GROUP BY", "HAVING", "ORDER BY",
-            "INSERT", "UPDATE", "DELETE", "JOIN", "INNER JOIN", "LEFT JOIN",
-            "RIGHT JOIN", "FULL JOIN", "UNION", "CREATE", "ALTER", "DROP",
-            "TABLE", "VIEW", "INDEX", "AND", "OR", "NOT", "IN", "BETWEEN",
-            "LIKE", "IS NULL", "IS NOT NULL"
-    );
-
-    // Các hàm chung cho tất cả SQL
-    private static final List<String> COMMON_SQL_FUNCTIONS = Arrays.asList(
-            "COUNT", "SUM", "AVG", "MIN", "MAX", "CONCAT", "SUBSTRING",
-            "TRIM", "LENGTH", "UPPER", "LOWER", "ROUND"
-    );
-
-    // Các từ khóa đặc thù cho từng loại DB
-    private static final Map<String, List<String>> DB_SPECIFIC_KEYWORDS = new HashMap<>();
-    static {
-        // MySQL keywords
-        DB_SPECIFIC_KEYWORDS.put("mysql", Arrays.asList(
-                "LIMIT", "OFFSET", "SHOW", "DESCRIBE", "EXPLAIN", "USE", "IGNORE"
-        ));
-
-        // Oracle keywords
-        DB_SPECIFIC_KEYWORDS.put("oracle", Arrays.asList(
-                "ROWNUM", "ROWID", "CONNECT BY", "START WITH", "PRIOR", "LEVEL",
-                "CONNECT_BY_ROOT", "SYS_CONNECT_BY_PATH", "NOCYCLE"
-        ));
-
-        // SQL Server keywords
-        DB_SPECIFIC_KEYWORDS.put("sqlserver", Arrays.asList(
-                "TOP", "OFFSET FETCH", "OUTPUT", "IDENTITY", "MERGE", "PIVOT", "UNPIVOT",
-                "OVER", "PARTITION BY", "WITH TIES", "CROSS APPLY", "OUTER APPLY"
-        ));
-
-        // PostgreSQL keywords
-        DB_SPECIFIC_KEYWORDS.put("postgresql", Arrays.asList(
-                "LIMIT", "OFFSET", "RETURNING", "WITH", "LATERAL", "WINDOW", "OVER",
-                "PARTITION BY", "USING"
-        ));
-    }
+    private DialectRegistry dialectRegistry;
 
-    // Các hàm đặc thù cho từng loại DB
-    private static final Map<String, List<String>> DB_SPECIFIC_FUNCTIONS = new HashMap<>();
-    static {
-        // MySQL functions
-        DB_SPECIFIC_FUNCTIONS.put("mysql", Arrays.asList(
-                "NOW()", "CURDATE()", "CURTIME()", "DATE_FORMAT", "STR_TO_DATE",
-                "IFNULL", "IF", "CASE", "GROUP_CONCAT"
-        ));
-
-        // Oracle functions
-        DB_SPECIFIC_FUNCTIONS.put("oracle", Arrays.asList(
-                "SYSDATE", "SYSTIMESTAMP", "NVL", "DECODE", "TO_CHAR", "TO_DATE",
-                "TO_NUMBER", "LISTAGG", "REGEXP_LIKE", "REGEXP_REPLACE"
-        ));
-
-        // SQL Server functions
-        DB_SPECIFIC_FUNCTIONS.put("sqlserver", Arrays.asList(
-                "GETDATE()", "GETUTCDATE()", "ISNULL", "COALESCE", "CONVERT", "CAST",
-                "DATEADD", "DATEDIFF", "DATENAME", "FORMAT", "STRING_AGG"
-        ));
-
-        // PostgreSQL functions
-        DB_SPECIFIC_FUNCTIONS.put("postgresql", Arrays.asList(
-                "NOW()", "CURRENT_DATE", "CURRENT_TIME", "TO_CHAR", "TO_DATE",
-                "COALESCE", "NULLIF", "STRING_AGG", "ARRAY_AGG", "JSONB_AGG"
-        ));
-    }
+    @Autowired
+    private SuggestionIndexService suggestionIndexService;
+
+    @Autowired
+    @Qualifier("suggestionExecutor")
+    private ThreadPoolTaskExecutor suggestionExecutor;
+
+    // Thời gian tối đa chờ các lookup metadata chạy song song trong getSuggestions
+    @Value("${sql.suggest.deadline-ms:150}")
+    private long deadlineMs;
+
+    // Trạng thái lex theo phiên editor để mỗi lần gõ chỉ lex lại phần thay đổi
+    @Value("${sql.suggest.session-max:10000}")
+    private long sessionMax;
+
+    @Value("${sql.suggest.session-idle-seconds:600}")
+    private long sessionIdleSeconds;
+
+    private Cache<String, SqlLexer.Tokens> sessions;
 
     // Chiến lược xử lý metadata cho từng loại DB
     private interface MetadataStrategy {
@@ -114,6 +78,14 @@ public class SqlSuggestionServiceImpl implements SqlSuggestionService {
         initializeMetadataStrategies();
     }
 
+    @PostConstruct
+    public void init() {
+        sessions = Caffeine.newBuilder()
+                .maximumSize(sessionMax)
+                .expireAfterAccess(Duration.ofSeconds(sessionIdleSeconds))
+                .build();
+    }
+
     private void initializeMetadataStrategies() {
         // MySQL/MariaDB strategy
         metadataStrategies.put("mysql", new MetadataStrategy() {
@@ -408,84 +380,185 @@ public class SqlSuggestionServiceImpl implements SqlSuggestionService {
         });
     }
 
-    private String getDatabaseType() {
-        String dbType = "mysql"; // Mặc định
-
-        try (Connection conn = dataSource.getConnection()) {
-            DatabaseMetaData metaData = conn.getMetaData();
-            String databaseProductName = metaData.getDatabaseProductName().toLowerCase();
-
-            if (databaseProductName.contains("mysql") || databaseProductName.contains("mariadb")) {
-                dbType = "mysql";
-            } else if (databaseProductName.contains("oracle")) {
-                dbType = "oracle";
-            } else if (databaseProductName.contains("microsoft") || databaseProductName.contains("sql server")) {
-                dbType = "sqlserver";
-            } else if (databaseProductName.contains("postgresql")) {
-                dbType = "postgresql";
-            }
+    private String getDatabaseType(String dataSourceName) {
+        // Dialect đã được cache trong registry
+        return dialectRegistry.getDialect(dataSourceName).getType();
+    }
 
-            logger.info("Detected database type: {}", dbType);
+    @Override
+    public List<SqlSuggestion> getSuggestions(String partial, String context) {
+        // context là đoạn trước con trỏ; có thể đã hoặc chưa chứa phần đang gõ
+        String text = context == null ? partial : context.endsWith(partial) ? context : context + partial;
+        return suggest(DialectRegistry.DEFAULT_DATA_SOURCE, SqlContextAnalyzer.analyze(text, text.length()), null);
+    }
 
-        } catch (SQLException e) {
-            logger.error("Error determining database type", e);
+    @Override
+    public List<SqlSuggestion> getContextSuggestions(String dataSourceName, String sessionId, String text,
+                                                     Integer cursor, Integer limit) {
+        String sql = text != null ? text : "";
+        int position = cursor != null ? cursor : sql.length();
+        if (sessionId == null || sessionId.isEmpty()) {
+            return suggest(dataSourceName, SqlContextAnalyzer.analyze(sql, position), limit);
         }
+        // Token của lần gõ trước trong cùng phiên editor: chỉ lex lại phần sau đoạn không đổi
+        SqlLexer.Tokens tokens = sessions.get(sessionId, key -> new SqlLexer.Tokens());
+        SqlContext context;
+        synchronized (tokens) {
+            context = SqlContextAnalyzer.analyze(tokens.update(sql), position);
+        }
+        return suggest(dataSourceName, context, limit);
+    }
 
-        return dbType;
+    /**
+     * Gợi ý theo ngữ cảnh đã phân tích: bảng (kèm CTE) sau FROM/JOIN, cột của đúng bảng mà alias trỏ tới,
+     * cột của mọi bảng nhìn thấy được khi không có qualifier, từ khóa ở vị trí còn lại.
+     */
+    private List<SqlSuggestion> suggest(String dataSourceName, SqlContext context, Integer limit) {
+        String partial = context.getPartial();
+        List<Supplier<List<SqlSuggestion>>> lookups = new ArrayList<>();
+        switch (context.getKind()) {
+            case TABLE -> {
+                if (context.getQualifier() == null) {
+                    lookups.add(() -> cteSuggestions(context));
+                }
+                lookups.add(() -> tableSuggestions(dataSourceName, partial, limit));
+            }
+            case COLUMN -> {
+                if (context.getQualifier() != null) {
+                    SqlContext.TableRef table = context.resolveQualifier();
+                    if (table == null) {
+                        // Qualifier là tên bảng chưa khai báo trong FROM (đang gõ dở câu lệnh)
+                        lookups.add(() -> columnSuggestions(dataSourceName, context.getQualifier(), partial, limit));
+                    } else if (table.isPhysical()) {
+                        lookups.add(() -> columnSuggestions(dataSourceName, table.getName(), partial, limit));
+                    }
+                    // Subquery/CTE: chưa biết cột, không gợi ý sai từ bảng khác
+                } else {
+                    for (String table : physicalTables(context)) {
+                        lookups.add(() -> columnSuggestions(dataSourceName, table, partial, limit));
+                    }
+                    lookups.add(() -> suggestionIndexService.search(dataSourceName, partial, limit,
+                            SuggestionType.FUNCTION, SuggestionType.KEYWORD));
+                }
+            }
+            case KEYWORD -> lookups.add(() -> suggestionIndexService.search(dataSourceName, partial, limit,
+                    SuggestionType.KEYWORD));
+            case NONE -> {
+                return new ArrayList<>();
+            }
+        }
+        // Index và từ khóa không cần database; chỉ song song hóa khi phải truy vấn metadata
+        return suggestionIndexService.hasSchema(dataSourceName) ? runInline(lookups) : fanOut(lookups);
     }
 
-    @Override
-    public List<SqlSuggestion> getSuggestions(String partial, String context) {
-        // Phân tích ngữ cảnh để xác định loại gợi ý
-        if (isAfterFrom(context) || isAfterJoin(context)) {
-            return getTableSuggestions(partial);
-        } else if (isAfterSelect(context) || isAfterWhere(context)) {
-            // Lấy tên bảng từ ngữ cảnh để gợi ý cột
-            String tableName = extractTableName(context);
-            if (tableName != null) {
-                return getColumnSuggestions(tableName, partial);
+    private static List<SqlSuggestion> cteSuggestions(SqlContext context) {
+        List<SqlSuggestion> suggestions = new ArrayList<>();
+        String partial = context.getPartial().toUpperCase(Locale.ROOT);
+        for (String name : context.getCteNames()) {
+            if (name.toUpperCase(Locale.ROOT).startsWith(partial)) {
+                suggestions.add(new SqlSuggestion("table", name, "CTE"));
+            }
+        }
+        return suggestions;
+    }
+
+    // Bảng thật nhìn thấy từ con trỏ, mỗi tên một lần
+    private static Set<String> physicalTables(SqlContext context) {
+        Set<String> tables = new LinkedHashSet<>();
+        for (SqlContext.TableRef table : context.getTables()) {
+            if (table.isPhysical()) {
+                tables.add(table.getName());
             }
         }
+        return tables;
+    }
 
-        // Mặc định: kết hợp tất cả loại gợi ý
+    private List<SqlSuggestion> runInline(List<Supplier<List<SqlSuggestion>>> lookups) {
         List<SqlSuggestion> allSuggestions = new ArrayList<>();
-        allSuggestions.addAll(getKeywordSuggestions(partial));
-        allSuggestions.addAll(getFunctionSuggestions(partial));
-        allSuggestions.addAll(getTableSuggestions(partial));
-
-        // Nếu ngữ cảnh chứa FROM, thêm gợi ý cột cho tất cả bảng
-        if (context.toUpperCase().contains("FROM")) {
-            List<String> tables = extractAllTableNames(context);
-            for (String table : tables) {
-                allSuggestions.addAll(getColumnSuggestions(table, partial));
+        for (Supplier<List<SqlSuggestion>> lookup : lookups) {
+            allSuggestions.addAll(lookup.get());
+        }
+        return allSuggestions;
+    }
+
+    /**
+     * Chạy song song các lookup truy vấn metadata và chỉ chờ đến deadline; lookup chưa xong hoặc bị từ chối
+     * vì executor đầy thì bỏ qua để editor không phải chờ query catalog chậm nhất.
+     */
+    private List<SqlSuggestion> fanOut(List<Supplier<List<SqlSuggestion>>> lookups) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        List<CompletableFuture<List<SqlSuggestion>>> futures = new ArrayList<>();
+        for (Supplier<List<SqlSuggestion>> lookup : lookups) {
+            try {
+                futures.add(CompletableFuture.supplyAsync(lookup, suggestionExecutor));
+            } catch (TaskRejectedException e) {
+                logger.debug("Suggestion executor is full, skipping a lookup");
             }
         }
 
-        return allSuggestions.stream()
-                .filter(s -> s.getName().toUpperCase().contains(partial.toUpperCase()))
-                .collect(Collectors.toList());
+        List<SqlSuggestion> allSuggestions = new ArrayList<>();
+        int dropped = lookups.size() - futures.size();
+        for (CompletableFuture<List<SqlSuggestion>> future : futures) {
+            try {
+                // Hết deadline thì get(0) chỉ lấy được lookup đã xong
+                long remaining = Math.max(deadline - System.nanoTime(), 0);
+                allSuggestions.addAll(future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                dropped++;
+            } catch (ExecutionException e) {
+                dropped++;
+                logger.debug("Suggestion lookup failed: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (dropped > 0) {
+            logger.debug("Returned suggestions without {} of {} lookups after {} ms deadline",
+                    dropped, lookups.size(), deadlineMs);
+        }
+        return allSuggestions;
     }
 
     @Override
     public List<SqlSuggestion> getTableSuggestions(String partial) {
-        String dbType = getDatabaseType();
-        MetadataStrategy strategy = metadataStrategies.getOrDefault(dbType, metadataStrategies.get("mysql"));
+        return tableSuggestions(DialectRegistry.DEFAULT_DATA_SOURCE, partial, null);
+    }
+
+    @Override
+    public List<SqlSuggestion> getColumnSuggestions(String tableName, String partial) {
+        return columnSuggestions(DialectRegistry.DEFAULT_DATA_SOURCE, tableName, partial, null);
+    }
+
+    private List<SqlSuggestion> tableSuggestions(String dataSourceName, String partial, Integer limit) {
+        // Phục vụ từ index trong bộ nhớ; chỉ truy vấn metadata khi catalog chưa nạp xong
+        if (suggestionIndexService.hasSchema(dataSourceName)) {
+            return suggestionIndexService.search(dataSourceName, partial, limit, SuggestionType.TABLE);
+        }
+
+        MetadataStrategy strategy = metadataStrategies.getOrDefault(
+                getDatabaseType(dataSourceName), metadataStrategies.get("mysql"));
 
         try {
-            return strategy.getTableSuggestions(jdbcTemplate, partial);
+            return strategy.getTableSuggestions(dialectRegistry.getJdbcTemplate(dataSourceName), partial);
         } catch (Exception e) {
             logger.error("Error getting table suggestions", e);
             return new ArrayList<>();
         }
     }
 
-    @Override
-    public List<SqlSuggestion> getColumnSuggestions(String tableName, String partial) {
-        String dbType = getDatabaseType();
-        MetadataStrategy strategy = metadataStrategies.getOrDefault(dbType, metadataStrategies.get("mysql"));
+    private List<SqlSuggestion> columnSuggestions(String dataSourceName, String tableName, String partial,
+                                                  Integer limit) {
+        List<SqlSuggestion> indexed = suggestionIndexService.searchColumns(dataSourceName, tableName, partial, limit);
+        if (indexed != null) {
+            return indexed;
+        }
+
+        MetadataStrategy strategy = metadataStrategies.getOrDefault(
+                getDatabaseType(dataSourceName), metadataStrategies.get("mysql"));
 
         try {
-            return strategy.getColumnSuggestions(jdbcTemplate, tableName, partial);
+            return strategy.getColumnSuggestions(dialectRegistry.getJdbcTemplate(dataSourceName), tableName, partial);
         } catch (Exception e) {
             logger.error("Error getting column suggestions for table: " + tableName, e);
             return new ArrayList<>();
@@ -494,75 +567,11 @@ public class SqlSuggestionServiceImpl implements SqlSuggestionService {
 
     @Override
     public List<SqlSuggestion> getKeywordSuggestions(String partial) {
-        String dbType = getDatabaseType();
-
-        // Kết hợp từ khóa chung và từ khóa đặc thù
-        List<String> keywords = new ArrayList<>(COMMON_SQL_KEYWORDS);
-        List<String> dbSpecificKeywords = DB_SPECIFIC_KEYWORDS.getOrDefault(dbType, new ArrayList<>());
-        keywords.addAll(dbSpecificKeywords);
-
-        return keywords.stream()
-                .filter(keyword -> keyword.toUpperCase().contains(partial.toUpperCase()))
-                .map(keyword -> new SqlSuggestion("keyword", keyword, "SQL Keyword"))
-                .collect(Collectors.toList());
+        return suggestionIndexService.search(DialectRegistry.DEFAULT_DATA_SOURCE, partial, null, SuggestionType.KEYWORD);
     }
 
     @Override
     public List<SqlSuggestion> getFunctionSuggestions(String partial) {
-        String dbType = getDatabaseType();
-
-        // Kết hợp hàm chung và hàm đặc thù
-        List<String> functions = new ArrayList<>(COMMON_SQL_FUNCTIONS);
-        List<String> dbSpecificFunctions = DB_SPECIFIC_FUNCTIONS.getOrDefault(dbType, new ArrayList<>());
-        functions.addAll(dbSpecificFunctions);
-
-        return functions.stream()
-                .filter(function -> function.toUpperCase().contains(partial.toUpperCase()))
-                .map(function -> new SqlSuggestion("function", function, "SQL Function"))
-                .collect(Collectors.toList());
-    }
-
-    // Helper methods để phân tích ngữ cảnh SQL
-
-    private boolean isAfterFrom(String context) {
-        Pattern pattern = Pattern.compile("FROM\\s+$", Pattern.CASE_INSENSITIVE);
-        return pattern.matcher(context).find();
-    }
-
-    private boolean isAfterJoin(String context) {
-        Pattern pattern = Pattern.compile("JOIN\\s+$", Pattern.CASE_INSENSITIVE);
-        return pattern.matcher(context).find();
-    }
-
-    private boolean isAfterSelect(String context) {
-        Pattern pattern = Pattern.compile("SELECT\\s+$", Pattern.CASE_INSENSITIVE);
-        return pattern.matcher(context).find();
-    }
-
-    private boolean isAfterWhere(String context) {
-        Pattern pattern = Pattern.compile("WHERE\\s+$", Pattern.CASE_INSENSITIVE);
-        return pattern.matcher(context).find();
-    }
-
-    private String extractTableName(String context) {
-        Pattern pattern = Pattern.compile("FROM\\s+([\\w_]+)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(context);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
-
-    private List<String> extractAllTableNames(String context) {
-        List<String> tables = new ArrayList<>();
-        Pattern pattern = Pattern.compile("FROM\\s+([\\w_]+)|JOIN\\s+([\\w_]+)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(context);
-
-        while (matcher.find()) {
-            String table = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
-            tables.add(table);
-        }
-
-        return tables;
+        return suggestionIndexService.search(DialectRegistry.DEFAULT_DATA_SOURCE, partial, null, SuggestionType.FUNCTION);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,352 @@
+package org.example.sqlexecutor.snapshot;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Toàn bộ kết quả của một SELECT được ghi ra đĩa theo cột và map vào bộ nhớ (read-only).
+ * Các trang, kể cả trang đã sắp xếp lại, được đọc thẳng từ file mà không chạy lại query.
+ */
+public class ResultSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(ResultSnapshot.class);
+
+    // Số thứ tự sắp xếp được giữ lại cho mỗi snapshot (mỗi thứ tự tốn 4 byte/dòng)
+    private static final int MAX_SORT_INDEXES = 4;
+
+    private final String id;
+    private final String dataSourceName;
+    private final String query;
+    private final List<ColumnInfo> columns;
+    private final Path directory;
+    private final String[] names;
+    private final ColumnarPage.Kind[] kinds;
+    private final BitSet[] nulls;
+    private final int rowCount;
+    private final boolean truncated;
+    private final long diskBytes;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long lastAccess = createdAt;
+
+    private MappedByteBuffer[] fixed;
+    private MappedByteBuffer[] offsets;
+    private MappedByteBuffer[] data;
+    private volatile boolean closed;
+
+    private final Map<String, int[]> sortIndexes = new LinkedHashMap<>(MAX_SORT_INDEXES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MAX_SORT_INDEXES;
+        }
+    };
+
+    private ResultSnapshot(String id, String dataSourceName, String query, List<ColumnInfo> columns,
+                           SnapshotWriter writer, int rowCount, boolean truncated) throws IOException {
+        this.id = id;
+        this.dataSourceName = dataSourceName;
+        this.query = query;
+        this.columns = columns;
+        this.directory = writer.getDirectory();
+        this.names = writer.getNames();
+        this.kinds = writer.getKinds();
+        this.nulls = writer.getNulls();
+        this.rowCount = rowCount;
+        this.truncated = truncated;
+        this.diskBytes = writer.getBytesWritten();
+
+        int columnCount = names.length;
+        this.fixed = new MappedByteBuffer[columnCount];
+        this.offsets = new MappedByteBuffer[columnCount];
+        this.data = new MappedByteBuffer[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            if (kinds[i] == ColumnarPage.Kind.LONG || kinds[i] == ColumnarPage.Kind.DOUBLE) {
+                fixed[i] = map(SnapshotWriter.fixedFile(directory, i));
+            } else {
+                offsets[i] = map(SnapshotWriter.offsetFile(directory, i));
+                data[i] = map(SnapshotWriter.dataFile(directory, i));
+            }
+        }
+    }
+
+    /**
+     * Ghi tối đa {@code maxRows} dòng của ResultSet vào {@code directory} rồi map các file cột.
+     * Vượt {@code maxBytes} thì dừng với lỗi; vượt số dòng thì snapshot chỉ giữ phần đầu và được đánh dấu truncated.
+     */
+    public static ResultSnapshot create(String id, String dataSourceName, String query, List<ColumnInfo> columns,
+                                        Path directory, ResultSet resultSet, int maxRows, long maxBytes)
+            throws SQLException, IOException {
+        Files.createDirectories(directory);
+        int rows = 0;
+        boolean truncated = false;
+        try (SnapshotWriter writer = new SnapshotWriter(directory, resultSet.getMetaData())) {
+            while (resultSet.next()) {
+                if (rows == maxRows) {
+                    truncated = true;
+                    break;
+                }
+                writer.writeRow(resultSet, rows++);
+                if (writer.getBytesWritten() > maxBytes) {
+                    throw new SqlExecutionException("Snapshot exceeds disk budget of " + maxBytes + " bytes");
+                }
+            }
+            writer.finish();
+            return new ResultSnapshot(id, dataSourceName, query, columns, writer, rows, truncated);
+        } catch (SQLException | IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Mapping vẫn hợp lệ sau khi đóng channel
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Đọc {@code size} dòng bắt đầu từ {@code offset} theo thứ tự {@code sort}
+     * (mỗi phần tử là "cột" hoặc "cột desc"; rỗng thì giữ thứ tự của query).
+     */
+    public ColumnarPage readPage(long offset, int size, List<String> sort) {
+        touch();
+        int[] order = sort == null || sort.isEmpty() ? null : sortIndex(sort);
+        ColumnarPage page = new ColumnarPage(names, kinds);
+        long end = Math.min(rowCount, offset + size);
+        Object[] values = new Object[names.length];
+        synchronized (this) {
+            ensureOpen();
+            for (long position = offset; position < end; position++) {
+                int row = order != null ? order[(int) position] : (int) position;
+                for (int i = 0; i < names.length; i++) {
+                    values[i] = value(row, i);
+                }
+                page.appendRow(values);
+            }
+        }
+        return page;
+    }
+
+    private Object value(int row, int column) {
+        if (nulls[column].get(row)) {
+            return null;
+        }
+        switch (kinds[column]) {
+            case LONG:
+                return fixed[column].getLong(row * 8);
+            case DOUBLE:
+                return fixed[column].getDouble(row * 8);
+            case STRING:
+                return new String(bytes(row, column), StandardCharsets.UTF_8);
+            default:
+                return SnapshotWriter.decode(bytes(row, column));
+        }
+    }
+
+    private byte[] bytes(int row, int column) {
+        int start = (int) offsets[column].getLong(row * 8);
+        int end = (int) offsets[column].getLong((row + 1) * 8);
+        byte[] bytes = new byte[end - start];
+        data[column].get(start, bytes);
+        return bytes;
+    }
+
+    // Thứ tự dòng theo sort, tính một lần bằng parallel sort và giữ lại cho các trang sau
+    private int[] sortIndex(List<String> sort) {
+        String key = String.join(",", sort).toLowerCase();
+        synchronized (sortIndexes) {
+            int[] cached = sortIndexes.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Comparator<Integer> comparator = null;
+        synchronized (this) {
+            ensureOpen();
+            for (String item : sort) {
+                String[] parts = item.trim().split("\\s+");
+                int column = findColumn(parts[0]);
+                if (column < 0) {
+                    throw new SqlExecutionException("Sort column not found in snapshot: " + parts[0]);
+                }
+                boolean descending = parts.length > 1 && "desc".equalsIgnoreCase(parts[1]);
+                Comparator<Integer> next = columnComparator(column);
+                next = descending ? next.reversed() : next;
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        Integer[] rows = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        // Sắp xếp ổn định: các dòng bằng nhau giữ thứ tự của query
+        Arrays.parallelSort(rows, comparator);
+        int[] order = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            order[i] = rows[i];
+        }
+        logger.info("Sorted snapshot {} by {} ({} rows) in {} ms", id, sort, rowCount,
+                System.currentTimeMillis() - startTime);
+
+        synchronized (sortIndexes) {
+            sortIndexes.put(key, order);
+        }
+        return order;
+    }
+
+    // Khóa sắp xếp của cột được đọc lên heap một lần; NULL đứng đầu khi tăng dần (giống MySQL)
+    private Comparator<Integer> columnComparator(int column) {
+        BitSet columnNulls = nulls[column];
+        switch (kinds[column]) {
+            case LONG: {
+                long[] keys = new long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    keys[row] = fixed[column].getLong(row * 8);
+                }
+                return (a, b) -> {
+                    int nullOrder = Boolean.compare(!columnNulls.get(a), !columnNulls.get(b));
+                    return nullOrder != 0 ? nullOrder : Long.compare(keys[a], keys[b]);
+                };
+            }
+            case DOUBLE: {
+                double[] keys = new double[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    keys[row] = fixed[column].getDouble(row * 8);
+                }
+                return (a, b) -> {
+                    int nullOrder = Boolean.compare(!columnNulls.get(a), !columnNulls.get(b));
+                    return nullOrder != 0 ? nullOrder : Double.compare(keys[a], keys[b]);
+                };
+            }
+            default: {
+                Object[] keys = new Object[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    keys[row] = value(row, column);
+                }
+                return (a, b) -> compareValues(keys[a], keys[b]);
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private int findColumn(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new SqlExecutionException("Snapshot has been evicted: " + id);
+        }
+    }
+
+    /**
+     * Bỏ mapping và xóa file. Vùng nhớ map được giải phóng khi buffer được GC thu hồi.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fixed = null;
+        offsets = null;
+        data = null;
+        synchronized (sortIndexes) {
+            sortIndexes.clear();
+        }
+        deleteDirectory(directory);
+    }
+
+    private static void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = new ArrayList<>();
+            files.forEach(paths::add);
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            logger.warn("Could not delete snapshot directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
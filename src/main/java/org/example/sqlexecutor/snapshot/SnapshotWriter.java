@@ -0,0 +1,271 @@
+package org.example.sqlexecutor.snapshot;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnarPage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+
+/**
+ * Ghi ResultSet thành các file cột trong thư mục snapshot: cột số dùng file độ rộng cố định 8 byte/dòng,
+ * cột chuỗi/đối tượng dùng file offset (8 byte/dòng) kèm file dữ liệu. NULL được giữ trong bitmap.
+ */
+class SnapshotWriter implements Closeable {
+    static final byte TAG_STRING = 'S';
+    static final byte TAG_DECIMAL = 'D';
+    static final byte TAG_BIG_INTEGER = 'I';
+    static final byte TAG_LONG = 'J';
+    static final byte TAG_DOUBLE = 'F';
+    static final byte TAG_BOOLEAN = 'B';
+    static final byte TAG_BYTES = 'b';
+    static final byte TAG_TIMESTAMP = 'T';
+    static final byte TAG_DATE = 'd';
+    static final byte TAG_TIME = 't';
+    static final byte TAG_LOCAL_DATE_TIME = 'L';
+    static final byte TAG_LOCAL_DATE = 'l';
+    static final byte TAG_LOCAL_TIME = 'h';
+
+    private final Path directory;
+    private final String[] names;
+    private final ColumnarPage.Kind[] kinds;
+    private final boolean[] singlePrecision;
+    private final DataOutputStream[] fixed;
+    private final DataOutputStream[] offsets;
+    private final DataOutputStream[] data;
+    private final long[] dataSizes;
+    private final BitSet[] nulls;
+    private long bytesWritten;
+
+    SnapshotWriter(Path directory, ResultSetMetaData metaData) throws SQLException, IOException {
+        this.directory = directory;
+        int columnCount = metaData.getColumnCount();
+        this.names = ColumnarPage.columnLabels(metaData);
+        this.kinds = new ColumnarPage.Kind[columnCount];
+        this.singlePrecision = ColumnarPage.singlePrecisionColumns(metaData);
+        this.fixed = new DataOutputStream[columnCount];
+        this.offsets = new DataOutputStream[columnCount];
+        this.data = new DataOutputStream[columnCount];
+        this.dataSizes = new long[columnCount];
+        this.nulls = new BitSet[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            kinds[i] = ColumnarPage.kindOf(metaData, i + 1);
+            nulls[i] = new BitSet();
+            if (kinds[i] == ColumnarPage.Kind.LONG || kinds[i] == ColumnarPage.Kind.DOUBLE) {
+                fixed[i] = open(fixedFile(directory, i));
+            } else {
+                offsets[i] = open(offsetFile(directory, i));
+                data[i] = open(dataFile(directory, i));
+            }
+        }
+    }
+
+    static Path fixedFile(Path directory, int column) {
+        return directory.resolve("c" + column + ".fix");
+    }
+
+    static Path offsetFile(Path directory, int column) {
+        return directory.resolve("c" + column + ".off");
+    }
+
+    static Path dataFile(Path directory, int column) {
+        return directory.resolve("c" + column + ".dat");
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+    }
+
+    String[] getNames() {
+        return names;
+    }
+
+    ColumnarPage.Kind[] getKinds() {
+        return kinds;
+    }
+
+    BitSet[] getNulls() {
+        return nulls;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Ghi dòng hiện tại của ResultSet ở vị trí {@code row}.
+     */
+    void writeRow(ResultSet resultSet, int row) throws SQLException, IOException {
+        for (int i = 0; i < kinds.length; i++) {
+            int index = i + 1;
+            switch (kinds[i]) {
+                case LONG:
+                    fixed[i].writeLong(resultSet.getLong(index));
+                    bytesWritten += 8;
+                    if (resultSet.wasNull()) {
+                        nulls[i].set(row);
+                    }
+                    break;
+                case DOUBLE:
+                    fixed[i].writeDouble(ColumnarPage.readDouble(resultSet, index, singlePrecision[i]));
+                    bytesWritten += 8;
+                    if (resultSet.wasNull()) {
+                        nulls[i].set(row);
+                    }
+                    break;
+                case STRING:
+                    String text = resultSet.getString(index);
+                    writeVariable(i, row, text == null ? null : text.getBytes(StandardCharsets.UTF_8));
+                    break;
+                default:
+                    writeVariable(i, row, encode(resultSet.getObject(index)));
+            }
+        }
+    }
+
+    private void writeVariable(int column, int row, byte[] bytes) throws IOException {
+        offsets[column].writeLong(dataSizes[column]);
+        bytesWritten += 8;
+        if (bytes == null) {
+            nulls[column].set(row);
+            return;
+        }
+        if (dataSizes[column] + bytes.length > Integer.MAX_VALUE) {
+            // Mỗi file được map bằng một MappedByteBuffer nên không vượt quá 2 GB
+            throw new SqlExecutionException("Snapshot column " + names[column] + " exceeds 2 GB");
+        }
+        data[column].write(bytes);
+        dataSizes[column] += bytes.length;
+        bytesWritten += bytes.length;
+    }
+
+    // Giá trị kiểu đối tượng: 1 byte tag + dữ liệu, đọc lại đúng kiểu Java ban đầu
+    private static byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return tagged(TAG_DECIMAL, ((BigDecimal) value).toString());
+        } else if (value instanceof BigInteger) {
+            return tagged(TAG_BIG_INTEGER, value.toString());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            return tagged(TAG_LONG, value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            return tagged(TAG_DOUBLE, value.toString());
+        } else if (value instanceof Boolean) {
+            return tagged(TAG_BOOLEAN, value.toString());
+        } else if (value instanceof java.sql.Timestamp) {
+            return tagged(TAG_TIMESTAMP, ((java.sql.Timestamp) value).toLocalDateTime().toString());
+        } else if (value instanceof java.sql.Date) {
+            return tagged(TAG_DATE, ((java.sql.Date) value).toLocalDate().toString());
+        } else if (value instanceof java.sql.Time) {
+            return tagged(TAG_TIME, ((java.sql.Time) value).toLocalTime().toString());
+        } else if (value instanceof LocalDateTime) {
+            return tagged(TAG_LOCAL_DATE_TIME, value.toString());
+        } else if (value instanceof LocalDate) {
+            return tagged(TAG_LOCAL_DATE, value.toString());
+        } else if (value instanceof LocalTime) {
+            return tagged(TAG_LOCAL_TIME, value.toString());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            byte[] result = new byte[bytes.length + 1];
+            result[0] = TAG_BYTES;
+            System.arraycopy(bytes, 0, result, 1, bytes.length);
+            return result;
+        }
+        return tagged(TAG_STRING, value.toString());
+    }
+
+    private static byte[] tagged(byte tag, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[bytes.length + 1];
+        result[0] = tag;
+        System.arraycopy(bytes, 0, result, 1, bytes.length);
+        return result;
+    }
+
+    static Object decode(byte[] bytes) {
+        String text = new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        switch (bytes[0]) {
+            case TAG_DECIMAL:
+                return new BigDecimal(text);
+            case TAG_BIG_INTEGER:
+                return new BigInteger(text);
+            case TAG_LONG:
+                return Long.parseLong(text);
+            case TAG_DOUBLE:
+                return Double.parseDouble(text);
+            case TAG_BOOLEAN:
+                return Boolean.parseBoolean(text);
+            case TAG_TIMESTAMP:
+                return java.sql.Timestamp.valueOf(LocalDateTime.parse(text));
+            case TAG_DATE:
+                return java.sql.Date.valueOf(LocalDate.parse(text));
+            case TAG_TIME:
+                return java.sql.Time.valueOf(LocalTime.parse(text));
+            case TAG_LOCAL_DATE_TIME:
+                return LocalDateTime.parse(text);
+            case TAG_LOCAL_DATE:
+                return LocalDate.parse(text);
+            case TAG_LOCAL_TIME:
+                return LocalTime.parse(text);
+            case TAG_BYTES:
+                byte[] value = new byte[bytes.length - 1];
+                System.arraycopy(bytes, 1, value, 0, value.length);
+                return value;
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * Ghi offset kết thúc cho cột biến độ dài và đóng các file.
+     */
+    void finish() throws IOException {
+        for (int i = 0; i < kinds.length; i++) {
+            if (offsets[i] != null) {
+                offsets[i].writeLong(dataSizes[i]);
+                bytesWritten += 8;
+            }
+        }
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (DataOutputStream[] streams : new DataOutputStream[][]{fixed, offsets, data}) {
+            for (DataOutputStream stream : streams) {
+                if (stream == null) {
+                    continue;
+                }
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,375 @@
+package org.example.sqlexecutor.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Viết lại câu SELECT thành câu đếm và câu phân trang dựa trên {@link SelectStatement} thay vì nối chuỗi:
+ * <ul>
+ *   <li>COUNT: SELECT đơn giản được đếm thẳng trên FROM + WHERE (bỏ danh sách cột, ORDER BY và các
+ *   LEFT JOIN tới khóa duy nhất không được dùng ở nơi khác); còn lại bọc thành bảng dẫn xuất,
+ *   bỏ ORDER BY khi không có phân trang.</li>
+ *   <li>Phân trang: gộp với LIMIT/OFFSET/FETCH/TOP sẵn có (trang nằm trong giới hạn của câu gốc)
+ *   và sinh cú pháp riêng của dialect, chèn trước FOR UPDATE.</li>
+ * </ul>
+ * Mọi hàm là hàm thuần; cache và metadata do service đảm nhận.
+ */
+public final class QueryRewriter {
+
+    public enum Paging {
+        // MySQL, PostgreSQL
+        LIMIT_OFFSET,
+        // Oracle 12c+
+        OFFSET_FETCH,
+        // SQL Server 2012+: OFFSET ... FETCH bắt buộc có ORDER BY
+        ORDERED_OFFSET_FETCH
+    }
+
+    /**
+     * Metadata bảng cần để quyết định bỏ LEFT JOIN khi đếm. Tên cột viết hoa.
+     */
+    public interface TableMetadata {
+        // Null nếu không tra được bảng
+        TableInfo lookup(String schema, String table);
+    }
+
+    public static final class TableInfo {
+        private final Set<String> columns;
+        private final List<Set<String>> uniqueKeys;
+
+        public TableInfo(Set<String> columns, List<Set<String>> uniqueKeys) {
+            this.columns = columns;
+            this.uniqueKeys = uniqueKeys;
+        }
+
+        public Set<String> getColumns() {
+            return columns;
+        }
+
+        // Khóa chính và các unique index, mỗi khóa là tập cột
+        public List<Set<String>> getUniqueKeys() {
+            return uniqueKeys;
+        }
+    }
+
+    private QueryRewriter() {
+    }
+
+    // ===== COUNT =====
+
+    /**
+     * Câu đếm số dòng của {@code sql}. {@code statement} là kết quả {@link SelectStatement#parse} (null nếu
+     * không phân tích được: bọc nguyên câu); {@code metadata} null thì không bỏ JOIN nào.
+     */
+    public static String countQuery(String sql, SelectStatement statement, TableMetadata metadata) {
+        if (statement == null) {
+            return wrapCount(sql);
+        }
+        if (statement.isCountQuery()) {
+            return statement.body();
+        }
+        if (statement.isPlainSelect()) {
+            StringBuilder count = new StringBuilder(statement.withPrefix()).append("SELECT COUNT(*) FROM ");
+            List<SelectStatement.FromItem> items = statement.fromItems();
+            if (metadata != null) {
+                items = withoutNeutralJoins(statement, items, metadata);
+            }
+            for (int i = 0; i < items.size(); i++) {
+                SelectStatement.FromItem item = items.get(i);
+                if (i > 0) {
+                    count.append(' ');
+                }
+                count.append(statement.slice(item.start, item.end));
+            }
+            if (statement.whereIndex >= 0) {
+                count.append(' ').append(statement.slice(statement.whereIndex,
+                        statement.clauseEnd(statement.whereIndex)));
+            }
+            return count.toString();
+        }
+        // DISTINCT, GROUP BY, UNION, LIMIT...: đếm trên kết quả; ORDER BY vô nghĩa trừ khi đi cùng phân trang
+        int bodyEnd = statement.lockIndex >= 0 ? statement.lockIndex : statement.end;
+        if (statement.hasOrderBy() && !statement.hasPaging()) {
+            bodyEnd = Math.min(bodyEnd, statement.orderIndex);
+        }
+        return statement.withPrefix() + "SELECT COUNT(*) FROM (" + statement.slice(statement.selectIndex, bodyEnd)
+                + ") count_query";
+    }
+
+    // Dạng bọc nguyên câu, dùng khi không phân tích được hoặc khi câu đếm đã viết lại bị database từ chối
+    public static String wrapCount(String sql) {
+        return "SELECT COUNT(*) FROM (" + trimStatement(sql) + "\n) count_query";
+    }
+
+    /**
+     * Bỏ các LEFT JOIN không đổi số dòng: nối tới bảng thật qua đẳng thức phủ một khóa duy nhất (mỗi dòng bên trái
+     * khớp tối đa một dòng), điều kiện ON chỉ gồm AND, và bảng không được tham chiếu trong WHERE hay JOIN khác.
+     * Duyệt lặp từ JOIN cuối vì bỏ một JOIN có thể giải phóng JOIN mà nó tham chiếu.
+     */
+    static List<SelectStatement.FromItem> withoutNeutralJoins(SelectStatement statement,
+                                                              List<SelectStatement.FromItem> items,
+                                                              TableMetadata metadata) {
+        List<SelectStatement.FromItem> kept = new ArrayList<>(items);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int k = kept.size() - 1; k >= 1; k--) {
+                SelectStatement.FromItem item = kept.get(k);
+                if (item.leftJoinTable && isNeutral(statement, kept, item, metadata)) {
+                    kept.remove(k);
+                    changed = true;
+                }
+            }
+        }
+        return kept;
+    }
+
+    private static boolean isNeutral(SelectStatement statement, List<SelectStatement.FromItem> items,
+                                     SelectStatement.FromItem item, TableMetadata metadata) {
+        String qualifier = item.qualifier();
+        int whereEnd = statement.whereIndex >= 0 ? statement.clauseEnd(statement.whereIndex) : -1;
+        for (SelectStatement.FromItem other : items) {
+            if (other != item && references(statement, other.start, other.end, qualifier)) {
+                return false;
+            }
+        }
+        if (whereEnd > 0 && references(statement, statement.whereIndex + 1, whereEnd, qualifier)) {
+            return false;
+        }
+
+        if (item.schema == null && statement.isCteName(item.table)) {
+            return false;
+        }
+        TableInfo info = metadata.lookup(item.schema, item.table);
+        if (info == null || info.getUniqueKeys() == null || info.getUniqueKeys().isEmpty()) {
+            return false;
+        }
+        // Cột không có qualifier ở WHERE/ON khác có thể thuộc bảng này
+        for (SelectStatement.FromItem other : items) {
+            if (other != item && other.onStart > 0
+                    && mayReferenceColumns(statement, other.onStart, other.end, info)) {
+                return false;
+            }
+        }
+        if (whereEnd > 0 && mayReferenceColumns(statement, statement.whereIndex + 1, whereEnd, info)) {
+            return false;
+        }
+
+        Set<String> keyColumns = equalityColumns(statement, item, info);
+        if (keyColumns == null) {
+            return false;
+        }
+        for (Set<String> key : info.getUniqueKeys()) {
+            if (!key.isEmpty() && keyColumns.containsAll(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cột của bảng được JOIN bị ràng buộc bằng đẳng thức với biểu thức không phụ thuộc bảng đó.
+     * Null nếu điều kiện ON có OR ở mức ngoài (không bảo đảm khớp tối đa một dòng).
+     */
+    private static Set<String> equalityColumns(SelectStatement statement, SelectStatement.FromItem item,
+                                               TableInfo info) {
+        SqlLexer.Tokens tokens = statement.tokens;
+        int from = item.onStart;
+        int to = item.end;
+        while (to - from >= 2 && tokens.isPunctuation(from, '(') && statement.closing(from) == to - 1) {
+            from++;
+            to--;
+        }
+        String qualifier = item.qualifier();
+        Set<String> columns = new HashSet<>();
+        int conjunctStart = from;
+        int depth = 0;
+        for (int i = from; i <= to; i++) {
+            if (i < to && tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (i < to && tokens.isPunctuation(i, ')')) {
+                depth--;
+            } else if (i < to && depth == 0 && tokens.keyword(i) == SqlKeyword.OR) {
+                return null;
+            } else if (i == to || (depth == 0 && tokens.keyword(i) == SqlKeyword.AND)) {
+                String column = equalityColumn(statement, conjunctStart, i, qualifier, info);
+                if (column != null) {
+                    columns.add(column);
+                }
+                conjunctStart = i + 1;
+            }
+        }
+        return columns;
+    }
+
+    // "q.col = expr" hoặc "expr = q.col" với expr không phụ thuộc bảng q
+    private static String equalityColumn(SelectStatement statement, int from, int to, String qualifier,
+                                         TableInfo info) {
+        SqlLexer.Tokens tokens = statement.tokens;
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (tokens.isPunctuation(i, ')')) {
+                depth--;
+            } else if (depth == 0 && tokens.type(i) == SqlLexer.OPERATOR) {
+                if (tokens.end(i) - tokens.start(i) != 1 || tokens.text().charAt(tokens.start(i)) != '=') {
+                    return null;
+                }
+                String column = qualifiedColumn(statement, from, i, qualifier);
+                if (column != null && i + 1 < to && independent(statement, i + 1, to, qualifier, info)) {
+                    return column;
+                }
+                column = qualifiedColumn(statement, i + 1, to, qualifier);
+                if (column != null && from < i && independent(statement, from, i, qualifier, info)) {
+                    return column;
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String qualifiedColumn(SelectStatement statement, int from, int to, String qualifier) {
+        SqlLexer.Tokens tokens = statement.tokens;
+        if (to - from == 3 && tokens.isName(from) && tokens.isPunctuation(from + 1, '.') && tokens.isName(from + 2)
+                && tokens.name(from).equalsIgnoreCase(qualifier)) {
+            return tokens.name(from + 2).toUpperCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    private static boolean independent(SelectStatement statement, int from, int to, String qualifier,
+                                       TableInfo info) {
+        return !references(statement, from, to, qualifier) && !mayReferenceColumns(statement, from, to, info);
+    }
+
+    // Có "qualifier.cột" trong [from, to)
+    private static boolean references(SelectStatement statement, int from, int to, String qualifier) {
+        SqlLexer.Tokens tokens = statement.tokens;
+        for (int i = from; i + 1 < to; i++) {
+            if (tokens.isName(i) && tokens.isPunctuation(i + 1, '.') && (i == 0 || !tokens.isPunctuation(i - 1, '.'))
+                    && tokens.name(i).equalsIgnoreCase(qualifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Có tên không qualifier (không phải hàm) trùng cột của bảng; không biết danh sách cột thì coi là có
+    private static boolean mayReferenceColumns(SelectStatement statement, int from, int to, TableInfo info) {
+        SqlLexer.Tokens tokens = statement.tokens;
+        for (int i = from; i < to; i++) {
+            if (!tokens.isName(i) || (i > 0 && tokens.isPunctuation(i - 1, '.'))) {
+                continue;
+            }
+            if (i + 1 < statement.end && (tokens.isPunctuation(i + 1, '.') || tokens.isPunctuation(i + 1, '('))) {
+                continue;
+            }
+            if (info.getColumns() == null || info.getColumns().contains(tokens.name(i).toUpperCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ===== Phân trang =====
+
+    /**
+     * Câu lấy {@code limit} dòng từ vị trí {@code offset} của kết quả câu lệnh. Nếu câu gốc đã có
+     * LIMIT/OFFSET/FETCH/TOP hằng số thì trang được tính bên trong cửa sổ đó (offset cộng dồn, limit lấy nhỏ hơn).
+     */
+    public static String pageQuery(SelectStatement statement, Paging paging, long offset, int limit) {
+        String text = statement.getText();
+        SqlLexer.Tokens tokens = statement.tokens;
+        if (statement.hasPaging()) {
+            if (!statement.pagingLiteral) {
+                return wrapPage(statement, paging, offset, limit);
+            }
+            long start = statement.offsetValue + offset;
+            long count = statement.limitValue == null
+                    ? limit
+                    : Math.max(0, Math.min(limit, statement.limitValue - offset));
+            if (count == 0) {
+                return statement.withPrefix() + "SELECT * FROM (" + statement.mainSelect() + ") page_query WHERE 1 = 0";
+            }
+            if (statement.topIndex >= 0) {
+                if (start == 0) {
+                    // Trang đầu: chỉ thu nhỏ TOP
+                    return text.substring(0, tokens.start(statement.topValueIndex)) + count
+                            + text.substring(tokens.end(statement.topValueIndex), tokens.end(statement.end - 1));
+                }
+                if (paging == Paging.LIMIT_OFFSET || (!statement.hasOrderBy() && statement.isCompound())) {
+                    return wrapPage(statement, paging, offset, limit);
+                }
+                String withoutTop = text.substring(0, tokens.start(statement.topIndex))
+                        + text.substring(tokens.start(statement.topEnd), tokens.end(statement.end - 1));
+                return withoutTop + (statement.hasOrderBy() ? "" : " ORDER BY (SELECT NULL)")
+                        + paging(paging, start, count);
+            }
+            String head = text.substring(0, tokens.end(statement.pagingIndex - 1));
+            if (paging == Paging.ORDERED_OFFSET_FETCH && !statement.hasOrderBy()) {
+                if (statement.isCompound()) {
+                    return wrapPage(statement, paging, offset, limit);
+                }
+                head += " ORDER BY (SELECT NULL)";
+            }
+            return head + paging(paging, start, count) + lockClause(statement);
+        }
+
+        int insertAt = statement.lockIndex >= 0 ? statement.lockIndex : statement.end;
+        String head = text.substring(0, tokens.end(insertAt - 1));
+        if (paging == Paging.ORDERED_OFFSET_FETCH && !statement.hasOrderBy()) {
+            // ORDER BY (SELECT NULL) không dùng được sau UNION trên SQL Server
+            if (statement.isCompound()) {
+                return wrapPage(statement, paging, offset, limit);
+            }
+            head += " ORDER BY (SELECT NULL)";
+        }
+        return head + paging(paging, offset, limit) + lockClause(statement);
+    }
+
+    private static String wrapPage(SelectStatement statement, Paging paging, long offset, int limit) {
+        int bodyEnd = statement.lockIndex >= 0 ? statement.lockIndex : statement.end;
+        return statement.withPrefix() + "SELECT * FROM (" + statement.slice(statement.selectIndex, bodyEnd)
+                + ") page_query" + (paging == Paging.ORDERED_OFFSET_FETCH ? " ORDER BY (SELECT NULL)" : "")
+                + paging(paging, offset, limit);
+    }
+
+    private static String paging(Paging paging, long offset, long limit) {
+        if (paging == Paging.LIMIT_OFFSET) {
+            return " LIMIT " + limit + " OFFSET " + offset;
+        }
+        return " OFFSET " + offset + " ROWS FETCH NEXT " + limit + " ROWS ONLY";
+    }
+
+    private static String lockClause(SelectStatement statement) {
+        return statement.lockIndex >= 0 ? " " + statement.slice(statement.lockIndex, statement.end) : "";
+    }
+
+    // ===== Tiện ích =====
+
+    /**
+     * Bỏ ORDER BY mức ngoài (không đụng ORDER BY trong subquery, hàm cửa sổ, chuỗi hay comment).
+     * Giữ nguyên câu lệnh nếu ORDER BY đi cùng phân trang hoặc không phân tích được.
+     */
+    public static String stripOrderBy(String sql) {
+        SelectStatement statement = SelectStatement.parse(sql);
+        if (statement == null || !statement.hasOrderBy() || statement.hasPaging()) {
+            return sql;
+        }
+        return sql.substring(0, statement.tokens.end(statement.orderIndex - 1)) + lockClause(statement);
+    }
+
+    // Bỏ khoảng trắng và dấu ; ở cuối
+    private static String trimStatement(String sql) {
+        int end = sql.length();
+        while (end > 0 && (Character.isWhitespace(sql.charAt(end - 1)) || sql.charAt(end - 1) == ';')) {
+            end--;
+        }
+        return sql.substring(0, end);
+    }
+}
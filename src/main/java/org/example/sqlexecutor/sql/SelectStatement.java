@@ -0,0 +1,619 @@
+package org.example.sqlexecutor.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cấu trúc mức ngoài cùng của một câu SELECT, dựng từ token của {@link SqlLexer}: vị trí các mệnh đề
+ * (WITH, SELECT, FROM và từng JOIN, WHERE, GROUP BY, HAVING, ORDER BY, LIMIT/OFFSET/FETCH, FOR UPDATE)
+ * ở độ sâu ngoặc 0, cùng giá trị LIMIT/OFFSET/TOP nếu là hằng số. Subquery, chuỗi và comment không ảnh hưởng
+ * tới việc nhận diện mệnh đề. Dùng cho {@link QueryRewriter}; không phải parser SQL đầy đủ.
+ */
+public final class SelectStatement {
+
+    private static final String[] AGGREGATES = {
+            "COUNT", "SUM", "AVG", "MIN", "MAX", "GROUP_CONCAT", "LISTAGG", "STRING_AGG", "ARRAY_AGG",
+            "JSON_ARRAYAGG", "JSON_OBJECTAGG", "JSON_AGG", "STDDEV", "STDDEV_POP", "STDDEV_SAMP", "VARIANCE",
+            "VAR_POP", "VAR_SAMP", "BIT_AND", "BIT_OR", "BIT_XOR", "BOOL_AND", "BOOL_OR", "EVERY", "MEDIAN",
+            "COUNT_BIG", "CHECKSUM_AGG", "GROUPING"
+    };
+
+    final SqlLexer.Tokens tokens;
+    // Số token của câu lệnh, không tính dấu ; cuối
+    final int end;
+    // SELECT chính (sau phần WITH nếu có)
+    final int selectIndex;
+    final boolean distinct;
+    // TOP n (SQL Server): vị trí từ khóa, token giá trị và token đầu tiên sau TOP; -1 nếu không có
+    final int topIndex;
+    final int topValueIndex;
+    final int topEnd;
+    final int projectionStart;
+    final int fromIndex;
+    final int whereIndex;
+    final int groupIndex;
+    final int havingIndex;
+    final int orderIndex;
+    // LIMIT/OFFSET/FETCH đầu tiên ở mức ngoài
+    final int pagingIndex;
+    // FOR UPDATE / FOR SHARE / LOCK IN SHARE MODE
+    final int lockIndex;
+    // UNION/EXCEPT/INTERSECT/MINUS ở mức ngoài
+    final boolean compound;
+    // CONNECT BY, START WITH, PIVOT, INTO, WINDOW, FOR XML...: không viết lại COUNT theo FROM/WHERE
+    final boolean unsupportedClause;
+    final boolean aggregateProjection;
+    // Giá trị LIMIT/OFFSET/TOP khi là hằng số; pagingLiteral = false nếu là tham số/biểu thức/PERCENT/WITH TIES
+    final Long limitValue;
+    final long offsetValue;
+    final boolean pagingLiteral;
+
+    private SelectStatement(SqlLexer.Tokens tokens, int end, int selectIndex, Scan scan) {
+        this.tokens = tokens;
+        this.end = end;
+        this.selectIndex = selectIndex;
+        this.distinct = scan.distinct;
+        this.topIndex = scan.topIndex;
+        this.topValueIndex = scan.topValueIndex;
+        this.topEnd = scan.topEnd;
+        this.projectionStart = scan.projectionStart;
+        this.fromIndex = scan.fromIndex;
+        this.whereIndex = scan.whereIndex;
+        this.groupIndex = scan.groupIndex;
+        this.havingIndex = scan.havingIndex;
+        this.orderIndex = scan.orderIndex;
+        this.pagingIndex = scan.pagingIndex;
+        this.lockIndex = scan.lockIndex;
+        this.compound = scan.compound;
+        this.unsupportedClause = scan.unsupportedClause;
+        this.aggregateProjection = scan.aggregateProjection;
+        this.limitValue = scan.limitValue;
+        this.offsetValue = scan.offsetValue;
+        this.pagingLiteral = scan.pagingLiteral;
+    }
+
+    /**
+     * Phân tích một câu SELECT (có thể bắt đầu bằng WITH). Trả về null nếu không phải đúng một câu SELECT
+     * hoặc có cấu trúc không nhận diện được (chuỗi chưa đóng, SELECT trong ngoặc ở mức ngoài...).
+     */
+    public static SelectStatement parse(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(sql);
+        if (tokens.isUnterminated()) {
+            return null;
+        }
+        int end = tokens.size();
+        while (end > 0 && tokens.isPunctuation(end - 1, ';')) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        int selectIndex = findSelect(tokens, end);
+        if (selectIndex < 0) {
+            return null;
+        }
+        Scan scan = new Scan();
+        if (!scan.run(tokens, selectIndex, end)) {
+            return null;
+        }
+        return new SelectStatement(tokens, end, selectIndex, scan);
+    }
+
+    private static int findSelect(SqlLexer.Tokens tokens, int end) {
+        if (tokens.keyword(0) == SqlKeyword.SELECT) {
+            return 0;
+        }
+        if (tokens.keyword(0) != SqlKeyword.WITH) {
+            return -1;
+        }
+        int depth = 0;
+        for (int i = 1; i < end; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (tokens.isPunctuation(i, ')')) {
+                depth--;
+            } else if (depth == 0 && tokens.isPunctuation(i, ';')) {
+                return -1;
+            } else if (depth == 0 && tokens.keyword(i) != null) {
+                SqlKeyword keyword = tokens.keyword(i);
+                if (keyword == SqlKeyword.SELECT) {
+                    return i;
+                }
+                if (keyword == SqlKeyword.INSERT || keyword == SqlKeyword.UPDATE || keyword == SqlKeyword.DELETE
+                        || keyword == SqlKeyword.MERGE) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static final class Scan {
+        boolean distinct;
+        int topIndex = -1;
+        int topValueIndex = -1;
+        int topEnd = -1;
+        int projectionStart;
+        int fromIndex = -1;
+        int whereIndex = -1;
+        int groupIndex = -1;
+        int havingIndex = -1;
+        int orderIndex = -1;
+        int pagingIndex = -1;
+        int lockIndex = -1;
+        boolean compound;
+        boolean unsupportedClause;
+        boolean aggregateProjection;
+        Long limitValue;
+        long offsetValue;
+        boolean pagingLiteral = true;
+
+        boolean run(SqlLexer.Tokens tokens, int selectIndex, int end) {
+            int i = selectIndex + 1;
+            if (i < end && (tokens.keyword(i) == SqlKeyword.DISTINCT || tokens.is(i, "DISTINCTROW")
+                    || tokens.is(i, "UNIQUE"))) {
+                distinct = true;
+                i++;
+            } else if (i < end && tokens.is(i, "ALL")) {
+                i++;
+            }
+            if (i < end && tokens.keyword(i) == SqlKeyword.TOP) {
+                topIndex = i;
+                i = scanTop(tokens, i + 1, end);
+                if (i < 0) {
+                    return false;
+                }
+            }
+            projectionStart = i;
+
+            int depth = 0;
+            for (; i < end; i++) {
+                if (tokens.isPunctuation(i, '(')) {
+                    depth++;
+                    continue;
+                }
+                if (tokens.isPunctuation(i, ')')) {
+                    if (--depth < 0) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (depth > 0) {
+                    continue;
+                }
+                if (tokens.isPunctuation(i, ';')) {
+                    return false;
+                }
+                if (fromIndex < 0 && !compound && tokens.keyword(i) == SqlKeyword.FROM) {
+                    fromIndex = i;
+                }
+                SqlKeyword keyword = tokens.keyword(i);
+                if (keyword == null) {
+                    if (tokens.is(i, "LOCK") && i + 1 < end && tokens.keyword(i + 1) == SqlKeyword.IN) {
+                        lockIndex = lockIndex < 0 ? i : lockIndex;
+                    } else if (tokens.is(i, "QUALIFY")) {
+                        unsupportedClause = true;
+                    }
+                    continue;
+                }
+                switch (keyword) {
+                    case WHERE -> whereIndex = whereIndex < 0 && !compound ? i : whereIndex;
+                    case GROUP -> groupIndex = groupIndex < 0 && !compound ? i : groupIndex;
+                    case HAVING -> havingIndex = havingIndex < 0 && !compound ? i : havingIndex;
+                    case ORDER -> orderIndex = orderIndex < 0 ? i : orderIndex;
+                    case LIMIT, OFFSET, FETCH -> pagingIndex = pagingIndex < 0 ? i : pagingIndex;
+                    case UNION, EXCEPT, INTERSECT, MINUS -> {
+                        // ORDER BY/LIMIT trước toán tử tập hợp thuộc về nhánh trước, không phải cả câu
+                        compound = true;
+                        orderIndex = -1;
+                        pagingIndex = -1;
+                    }
+                    case FOR -> {
+                        if (i + 1 < end && (tokens.keyword(i + 1) == SqlKeyword.UPDATE || tokens.is(i + 1, "SHARE")
+                                || tokens.is(i + 1, "NO") || tokens.is(i + 1, "KEY"))) {
+                            lockIndex = lockIndex < 0 ? i : lockIndex;
+                        } else {
+                            unsupportedClause = true;
+                        }
+                    }
+                    case CONNECT, START, WINDOW, PIVOT, UNPIVOT, INTO -> unsupportedClause = true;
+                    default -> {
+                    }
+                }
+            }
+            if (depth != 0) {
+                return false;
+            }
+            aggregateProjection = hasAggregate(tokens, projectionStart, fromIndex >= 0 ? fromIndex : end);
+            if (pagingIndex >= 0) {
+                scanPaging(tokens, pagingIndex, lockIndex > pagingIndex ? lockIndex : end);
+            }
+            return true;
+        }
+
+        // TOP n | TOP (n) [PERCENT] [WITH TIES]; trả về vị trí sau phần TOP, -1 nếu không đọc được
+        private int scanTop(SqlLexer.Tokens tokens, int i, int end) {
+            if (i < end && tokens.type(i) == SqlLexer.NUMBER) {
+                topValueIndex = i;
+                i++;
+            } else if (i + 2 < end && tokens.isPunctuation(i, '(') && tokens.isPunctuation(i + 2, ')')
+                    && tokens.type(i + 1) == SqlLexer.NUMBER) {
+                topValueIndex = i + 1;
+                i += 3;
+            } else if (i < end && tokens.isPunctuation(i, '(')) {
+                // TOP (@n), TOP (biểu thức)
+                int depth = 0;
+                do {
+                    if (tokens.isPunctuation(i, '(')) {
+                        depth++;
+                    } else if (tokens.isPunctuation(i, ')')) {
+                        depth--;
+                    }
+                    i++;
+                } while (i < end && depth > 0);
+                pagingLiteral = false;
+            } else if (i < end && tokens.type(i) == SqlLexer.PARAMETER) {
+                pagingLiteral = false;
+                i++;
+            } else {
+                return -1;
+            }
+            if (i < end && tokens.is(i, "PERCENT")) {
+                pagingLiteral = false;
+                i++;
+            }
+            if (i + 1 < end && tokens.keyword(i) == SqlKeyword.WITH && tokens.is(i + 1, "TIES")) {
+                pagingLiteral = false;
+                i += 2;
+            }
+            topEnd = i;
+            if (pagingLiteral) {
+                limitValue = number(tokens, topValueIndex);
+                pagingLiteral = limitValue != null;
+            }
+            return i;
+        }
+
+        // LIMIT n [OFFSET m] | LIMIT m, n | LIMIT ALL | OFFSET m [ROWS] [FETCH FIRST|NEXT n ROWS ONLY]
+        private void scanPaging(SqlLexer.Tokens tokens, int i, int end) {
+            if (topIndex >= 0) {
+                pagingLiteral = false;
+                return;
+            }
+            Long limit = null;
+            long offset = 0;
+            while (i < end) {
+                SqlKeyword keyword = tokens.keyword(i);
+                if (keyword == SqlKeyword.LIMIT && i + 1 < end) {
+                    if (tokens.is(i + 1, "ALL")) {
+                        i += 2;
+                        continue;
+                    }
+                    Long first = number(tokens, i + 1);
+                    if (first == null) {
+                        break;
+                    }
+                    if (i + 2 < end && tokens.isPunctuation(i + 2, ',')) {
+                        Long second = i + 3 < end ? number(tokens, i + 3) : null;
+                        if (second == null) {
+                            break;
+                        }
+                        offset = first;
+                        limit = second;
+                        i += 4;
+                    } else {
+                        limit = first;
+                        i += 2;
+                    }
+                } else if (keyword == SqlKeyword.OFFSET && i + 1 < end) {
+                    Long value = number(tokens, i + 1);
+                    if (value == null) {
+                        break;
+                    }
+                    offset = value;
+                    i += 2;
+                    if (i < end && (tokens.is(i, "ROW") || tokens.is(i, "ROWS"))) {
+                        i++;
+                    }
+                } else if (keyword == SqlKeyword.FETCH && i + 1 < end
+                        && (tokens.is(i + 1, "FIRST") || tokens.is(i + 1, "NEXT"))) {
+                    i += 2;
+                    limit = 1L;
+                    if (i < end && tokens.type(i) == SqlLexer.NUMBER) {
+                        limit = number(tokens, i);
+                        if (limit == null) {
+                            break;
+                        }
+                        i++;
+                    }
+                    if (i + 1 < end && (tokens.is(i, "ROW") || tokens.is(i, "ROWS")) && tokens.is(i + 1, "ONLY")) {
+                        i += 2;
+                    } else {
+                        break;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (i < end) {
+                pagingLiteral = false;
+                return;
+            }
+            limitValue = limit;
+            offsetValue = offset;
+        }
+    }
+
+    /**
+     * Danh sách cột có hàm tổng hợp hoặc OVER (...) của chính câu lệnh này. Hàm lồng trong biểu thức
+     * (COALESCE(SUM(x), 0)) vẫn tính; hàm nằm trong subquery vô hướng thì không.
+     */
+    private static boolean hasAggregate(SqlLexer.Tokens tokens, int from, int to) {
+        int depth = 0;
+        int subqueryDepth = -1;
+        for (int i = from; i < to; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+                if (subqueryDepth < 0 && i + 1 < to && (tokens.keyword(i + 1) == SqlKeyword.SELECT
+                        || tokens.keyword(i + 1) == SqlKeyword.WITH)) {
+                    subqueryDepth = depth;
+                }
+            } else if (tokens.isPunctuation(i, ')')) {
+                if (depth-- == subqueryDepth) {
+                    subqueryDepth = -1;
+                }
+            } else if (subqueryDepth < 0 && tokens.type(i) == SqlLexer.IDENTIFIER && i + 1 < to
+                    && tokens.isPunctuation(i + 1, '(') && (i == 0 || !tokens.isPunctuation(i - 1, '.'))) {
+                if (tokens.is(i, "OVER")) {
+                    return true;
+                }
+                for (String aggregate : AGGREGATES) {
+                    if (tokens.is(i, aggregate)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Long number(SqlLexer.Tokens tokens, int index) {
+        if (tokens.type(index) != SqlLexer.NUMBER) {
+            return null;
+        }
+        String text = tokens.text().substring(tokens.start(index), tokens.end(index));
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return null;
+            }
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ===== Truy cập cấu trúc =====
+
+    public String getText() {
+        return tokens.text();
+    }
+
+    public boolean isCompound() {
+        return compound;
+    }
+
+    public boolean hasOrderBy() {
+        return orderIndex >= 0;
+    }
+
+    // FOR UPDATE / FOR SHARE / LOCK IN SHARE MODE ở mức ngoài
+    public boolean hasLockClause() {
+        return lockIndex >= 0;
+    }
+
+    // Có LIMIT/OFFSET/FETCH hoặc TOP ở mức ngoài
+    public boolean hasPaging() {
+        return pagingIndex >= 0 || topIndex >= 0;
+    }
+
+    /**
+     * SELECT chỉ đọc từ FROM/WHERE: không DISTINCT, GROUP BY, HAVING, hàm tổng hợp/cửa sổ ở danh sách cột,
+     * toán tử tập hợp, phân trang hay mệnh đề đặc thù. Số dòng của câu lệnh bằng số dòng của FROM + WHERE.
+     */
+    public boolean isPlainSelect() {
+        return fromIndex >= 0 && !distinct && groupIndex < 0 && havingIndex < 0 && !aggregateProjection
+                && !compound && !hasPaging() && !unsupportedClause;
+    }
+
+    // Câu lệnh đã là "SELECT COUNT(...) FROM ..." không GROUP BY: trả đúng một dòng là số đếm
+    public boolean isCountQuery() {
+        int i = projectionStart;
+        if (compound || distinct || groupIndex >= 0 || topIndex >= 0 || i + 1 >= end
+                || !tokens.is(i, "COUNT") || !tokens.isPunctuation(i + 1, '(')) {
+            return false;
+        }
+        int close = closing(i + 1);
+        int projectionEnd = fromIndex >= 0 ? fromIndex : clauseEnd(projectionStart);
+        int next = close + 1;
+        if (next < projectionEnd && tokens.keyword(next) == SqlKeyword.AS) {
+            next++;
+        }
+        if (next < projectionEnd && tokens.isName(next)) {
+            next++;
+        }
+        return close > 0 && next == projectionEnd;
+    }
+
+    // Vị trí dấu ) đóng dấu ( tại index, -1 nếu không có
+    int closing(int index) {
+        int depth = 0;
+        for (int i = index; i < end; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (tokens.isPunctuation(i, ')') && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Token kết thúc (không bao gồm) mệnh đề bắt đầu tại index: mệnh đề mức ngoài kế tiếp hoặc hết câu
+    int clauseEnd(int index) {
+        int result = end;
+        int[] clauses = {fromIndex, whereIndex, groupIndex, havingIndex, orderIndex, pagingIndex, lockIndex};
+        for (int clause : clauses) {
+            if (clause > index && clause < result) {
+                result = clause;
+            }
+        }
+        return result;
+    }
+
+    // Chuỗi gốc của token [from, to)
+    String slice(int from, int to) {
+        if (from >= to) {
+            return "";
+        }
+        return tokens.text().substring(tokens.start(from), tokens.end(to - 1));
+    }
+
+    // Toàn bộ câu lệnh (từ đầu chuỗi, giữ comment/hint) tới token cuối, không có dấu ; và comment cuối
+    String body() {
+        return tokens.text().substring(0, tokens.end(end - 1));
+    }
+
+    // Phần WITH ... trước SELECT chính (kèm khoảng trắng cuối), rỗng nếu không có
+    String withPrefix() {
+        return selectIndex > 0 ? tokens.text().substring(0, tokens.start(selectIndex)) : "";
+    }
+
+    // Tên được định nghĩa trong phần WITH (tên đứng sau WITH/RECURSIVE hoặc dấu phẩy ở mức ngoài)
+    boolean isCteName(String name) {
+        int depth = 0;
+        for (int i = 1; i < selectIndex; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (tokens.isPunctuation(i, ')')) {
+                depth--;
+            } else if (depth == 0 && tokens.isName(i) && (tokens.isPunctuation(i - 1, ',')
+                    || tokens.keyword(i - 1) == SqlKeyword.WITH || tokens.keyword(i - 1) == SqlKeyword.RECURSIVE)
+                    && tokens.name(i).equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SELECT chính (không có WITH), tới token cuối
+    String mainSelect() {
+        return selectIndex > 0 ? slice(selectIndex, end) : body();
+    }
+
+    /**
+     * Các phần tử của FROM mức ngoài: phần tử đầu tiên là nguồn gốc, các phần tử sau bắt đầu bằng dấu phẩy
+     * hoặc từ khóa JOIN/APPLY. Rỗng nếu không có FROM.
+     */
+    List<FromItem> fromItems() {
+        List<FromItem> items = new ArrayList<>();
+        if (fromIndex < 0) {
+            return items;
+        }
+        int to = clauseEnd(fromIndex);
+        int itemStart = fromIndex + 1;
+        int depth = 0;
+        for (int i = itemStart; i < to; i++) {
+            if (tokens.isPunctuation(i, '(')) {
+                depth++;
+            } else if (tokens.isPunctuation(i, ')')) {
+                depth--;
+            } else if (depth == 0 && i > itemStart
+                    && (tokens.isPunctuation(i, ',') || (isJoinWord(i) && !isJoinWord(i - 1)))) {
+                items.add(new FromItem(this, itemStart, i));
+                itemStart = i;
+            }
+        }
+        if (itemStart < to) {
+            items.add(new FromItem(this, itemStart, to));
+        }
+        return items;
+    }
+
+    private boolean isJoinWord(int i) {
+        SqlKeyword keyword = tokens.keyword(i);
+        if (keyword == null) {
+            return false;
+        }
+        return switch (keyword) {
+            case JOIN, INNER, LEFT, RIGHT, FULL, CROSS, OUTER, NATURAL, STRAIGHT_JOIN, APPLY -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Một nguồn dữ liệu trong FROM kèm từ khóa nối phía trước và điều kiện ON của nó.
+     */
+    static final class FromItem {
+        final int start;
+        final int end;
+        // LEFT [OUTER] JOIN bảng [AS] alias ON ...: ứng viên để bỏ khi đếm
+        final boolean leftJoinTable;
+        final String schema;
+        final String table;
+        final String alias;
+        // Token đầu tiên của điều kiện ON, -1 nếu không có
+        final int onStart;
+
+        private FromItem(SelectStatement statement, int start, int end) {
+            this.start = start;
+            this.end = end;
+            SqlLexer.Tokens tokens = statement.tokens;
+            int i = start;
+            boolean left = false;
+            boolean natural = false;
+            if (tokens.isPunctuation(i, ',')) {
+                i++;
+            }
+            while (i < end && statement.isJoinWord(i)) {
+                left |= tokens.keyword(i) == SqlKeyword.LEFT;
+                natural |= tokens.keyword(i) == SqlKeyword.NATURAL;
+                i++;
+            }
+            String schemaName = null;
+            String tableName = null;
+            String aliasName = null;
+            int on = -1;
+            if (i < end && tokens.isName(i)) {
+                tableName = tokens.name(i++);
+                while (i + 1 < end && tokens.isPunctuation(i, '.') && tokens.isName(i + 1)) {
+                    schemaName = schemaName == null ? tableName : schemaName + "." + tableName;
+                    tableName = tokens.name(i + 1);
+                    i += 2;
+                }
+                if (i < end && tokens.keyword(i) == SqlKeyword.AS) {
+                    i++;
+                }
+                if (i < end && tokens.isName(i)) {
+                    aliasName = tokens.name(i++);
+                }
+                if (i < end && tokens.keyword(i) == SqlKeyword.ON) {
+                    on = i + 1;
+                }
+            }
+            this.leftJoinTable = left && !natural && tableName != null && on > 0;
+            this.schema = schemaName;
+            this.table = tableName;
+            this.alias = aliasName;
+            this.onStart = on;
+        }
+
+        // Tên dùng để tham chiếu cột của nguồn này (alias nếu có)
+        String qualifier() {
+            return alias != null ? alias : table;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.sqlexecutor.sql;
+
+import java.util.List;
+
+/**
+ * Ngữ cảnh tại vị trí con trỏ trong editor: loại gợi ý cần trả, phần tên đang gõ dở và các bảng nhìn thấy
+ * được từ vị trí đó (scope hiện tại trước, rồi đến các scope bao ngoài cho subquery tương quan).
+ */
+public final class SqlContext {
+
+    public enum Kind {
+        // Sau FROM/JOIN/UPDATE/INTO hoặc dấu phẩy trong danh sách FROM
+        TABLE,
+        // Trong SELECT/WHERE/ON/GROUP BY/ORDER BY/HAVING/SET, hoặc sau "alias."
+        COLUMN,
+        // Sau một biểu thức/bảng hoàn chỉnh: chờ từ khóa kế tiếp (hoặc alias)
+        KEYWORD,
+        // Trong chuỗi, comment hoặc đang đặt tên (alias, CTE): không gợi ý
+        NONE
+    }
+
+    private final Kind kind;
+    private final String partial;
+    private final String qualifier;
+    private final List<TableRef> tables;
+    private final List<String> cteNames;
+
+    SqlContext(Kind kind, String partial, String qualifier, List<TableRef> tables, List<String> cteNames) {
+        this.kind = kind;
+        this.partial = partial;
+        this.qualifier = qualifier;
+        this.tables = tables;
+        this.cteNames = cteNames;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Phần tên đang gõ tại con trỏ (không có quote), rỗng nếu con trỏ đứng sau khoảng trắng/toán tử
+    public String getPartial() {
+        return partial;
+    }
+
+    // Tên trước dấu chấm: alias/bảng với COLUMN, schema với TABLE; null nếu không có
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    public List<TableRef> getTables() {
+        return tables;
+    }
+
+    // Tên CTE (WITH ...) dùng được tại con trỏ
+    public List<String> getCteNames() {
+        return cteNames;
+    }
+
+    /**
+     * Bảng mà qualifier trỏ tới: khớp alias trước, sau đó khớp tên bảng. Null nếu không thấy trong câu lệnh.
+     */
+    public TableRef resolveQualifier() {
+        if (qualifier == null) {
+            return null;
+        }
+        for (TableRef table : tables) {
+            if (qualifier.equalsIgnoreCase(table.getAlias())) {
+                return table;
+            }
+        }
+        for (TableRef table : tables) {
+            if (table.getAlias() == null && qualifier.equalsIgnoreCase(table.getName())) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Một nguồn dữ liệu trong FROM/JOIN: bảng thật (có thể kèm schema), CTE hoặc subquery (không có tên).
+     */
+    public static final class TableRef {
+        private final String schema;
+        private final String name;
+        private String alias;
+        private boolean cte;
+
+        TableRef(String schema, String name) {
+            this.schema = schema;
+            this.name = name;
+        }
+
+        public String getSchema() {
+            return schema;
+        }
+
+        // Null với subquery
+        public String getName() {
+            return name;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        void setAlias(String alias) {
+            this.alias = alias;
+        }
+
+        public boolean isCte() {
+            return cte;
+        }
+
+        void setCte(boolean cte) {
+            this.cte = cte;
+        }
+
+        public boolean isDerived() {
+            return name == null;
+        }
+
+        // Bảng thật trong database, tra được cột từ catalog
+        public boolean isPhysical() {
+            return name != null && !cte;
+        }
+
+        public String getQualifiedName() {
+            return schema != null ? schema + "." + name : name;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package org.example.sqlexecutor.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Phân tích ngữ cảnh tại con trỏ trên token đã lex: chỉ xét câu lệnh chứa con trỏ (tách theo {@code ;}),
+ * dựng scope theo cặp ngoặc để biết bảng/alias/CTE nào nhìn thấy được, rồi suy ra loại gợi ý.
+ * Một lượt qua token của câu lệnh, không regex; bảng khai báo sau con trỏ ({@code SELECT o.| FROM orders o})
+ * vẫn được tính.
+ */
+public final class SqlContextAnalyzer {
+
+    // Trạng thái đọc FROM/JOIN trong một scope
+    private static final int FROM_NONE = 0;
+    private static final int FROM_EXPECT_TABLE = 1;
+    private static final int FROM_AFTER_TABLE = 2;
+    private static final int FROM_EXPECT_ALIAS = 3;
+    private static final int FROM_AFTER_ALIAS = 4;
+
+    // Trạng thái đọc WITH name [(cột)] AS (...) [, ...]
+    private static final int WITH_NONE = 0;
+    private static final int WITH_EXPECT_NAME = 1;
+    private static final int WITH_AFTER_NAME = 2;
+    private static final int WITH_EXPECT_BODY = 3;
+    private static final int WITH_AFTER_BODY = 4;
+
+    private SqlContextAnalyzer() {
+    }
+
+    private static final class Scope {
+        private final Scope parent;
+        // Mở sau FROM/JOIN: subquery làm bảng dẫn xuất
+        private final boolean derived;
+        // Thân của một CTE
+        private final boolean cteBody;
+        private List<SqlContext.TableRef> tables;
+        private List<String> cteNames;
+        private SqlKeyword clause;
+        private int fromState;
+        private boolean fromList;
+        private int withState;
+        private SqlContext.TableRef lastTable;
+
+        private Scope(Scope parent, boolean derived, boolean cteBody) {
+            this.parent = parent;
+            this.derived = derived;
+            this.cteBody = cteBody;
+            // Ngoặc biểu thức/hàm thuộc cùng mệnh đề với scope ngoài; subquery sẽ đặt lại khi gặp SELECT
+            this.clause = parent != null ? parent.clause : null;
+        }
+
+        private void addTable(SqlContext.TableRef table) {
+            if (tables == null) {
+                tables = new ArrayList<>(4);
+            }
+            tables.add(table);
+            lastTable = table;
+            fromState = FROM_AFTER_TABLE;
+        }
+
+        private void addCte(String name) {
+            if (cteNames == null) {
+                cteNames = new ArrayList<>(2);
+            }
+            cteNames.add(name);
+        }
+    }
+
+    // Trạng thái scope tại con trỏ
+    private static final class Snapshot {
+        private final Scope scope;
+        private final SqlKeyword clause;
+        private final int fromState;
+        private final int withState;
+
+        private Snapshot(Scope scope) {
+            this.scope = scope;
+            this.clause = scope.clause;
+            this.fromState = scope.fromState;
+            this.withState = scope.withState;
+        }
+    }
+
+    public static SqlContext analyze(String text, int cursor) {
+        return analyze(SqlLexer.tokenize(text), cursor);
+    }
+
+    public static SqlContext analyze(SqlLexer.Tokens tokens, int cursor) {
+        String text = tokens.text();
+        cursor = Math.max(0, Math.min(cursor, text.length()));
+
+        // Token chạm con trỏ từ bên trái: tên đang gõ dở, hoặc con trỏ nằm trong chuỗi/số
+        int partialIndex = -1;
+        String partial = "";
+        int cursorIndex = tokens.indexAfter(cursor - 1);
+        if (cursorIndex < tokens.size() && tokens.start(cursorIndex) < cursor) {
+            byte type = tokens.type(cursorIndex);
+            if (type == SqlLexer.IDENTIFIER || type == SqlLexer.QUOTED_IDENTIFIER) {
+                partialIndex = cursorIndex;
+                int start = tokens.start(cursorIndex) + (type == SqlLexer.QUOTED_IDENTIFIER ? 1 : 0);
+                partial = text.substring(Math.min(start, cursor), cursor);
+            } else if (type == SqlLexer.STRING || type == SqlLexer.NUMBER || type == SqlLexer.PARAMETER) {
+                if (cursor < tokens.end(cursorIndex) || type != SqlLexer.STRING
+                        || (tokens.isUnterminated() && cursorIndex == tokens.size() - 1)) {
+                    return none(partial);
+                }
+                cursorIndex++;
+            } else {
+                cursorIndex++;
+            }
+        }
+        if (insideComment(tokens, cursorIndex, partialIndex >= 0 ? tokens.start(partialIndex) : cursor)) {
+            return none(partial);
+        }
+
+        // Phạm vi câu lệnh chứa con trỏ
+        int from = cursorIndex;
+        while (from > 0 && !tokens.isPunctuation(from - 1, ';')) {
+            from--;
+        }
+        int to = partialIndex >= 0 ? partialIndex + 1 : cursorIndex;
+        while (to < tokens.size() && !tokens.isPunctuation(to, ';')) {
+            to++;
+        }
+
+        Scope root = new Scope(null, false, false);
+        Scope scope = root;
+        Snapshot snapshot = null;
+        for (int i = from; i < to; i++) {
+            if (i == cursorIndex && snapshot == null) {
+                snapshot = new Snapshot(scope);
+            }
+            if (i == partialIndex) {
+                continue;
+            }
+            byte type = tokens.type(i);
+            SqlKeyword keyword = tokens.keyword(i);
+            if (type == SqlLexer.PUNCTUATION) {
+                char c = text.charAt(tokens.start(i));
+                if (c == '(') {
+                    scope = new Scope(scope, scope.fromState == FROM_EXPECT_TABLE,
+                            scope.withState == WITH_EXPECT_BODY);
+                } else if (c == ')' && scope.parent != null) {
+                    Scope closed = scope;
+                    scope = scope.parent;
+                    if (closed.derived) {
+                        scope.addTable(new SqlContext.TableRef(null, null));
+                    } else if (closed.cteBody) {
+                        scope.withState = WITH_AFTER_BODY;
+                    }
+                } else if (c == ',') {
+                    if (scope.withState == WITH_AFTER_BODY) {
+                        scope.withState = WITH_EXPECT_NAME;
+                    } else if (scope.fromList
+                            && (scope.fromState == FROM_AFTER_TABLE || scope.fromState == FROM_AFTER_ALIAS)) {
+                        scope.fromState = FROM_EXPECT_TABLE;
+                    }
+                }
+            } else if (keyword != null) {
+                onKeyword(scope, keyword);
+            } else if (type == SqlLexer.IDENTIFIER || type == SqlLexer.QUOTED_IDENTIFIER) {
+                if (scope.withState == WITH_EXPECT_NAME) {
+                    scope.addCte(tokens.name(i));
+                    scope.withState = WITH_AFTER_NAME;
+                } else if (scope.fromState == FROM_EXPECT_TABLE) {
+                    i = readTableName(tokens, i, to, cursorIndex, partialIndex, scope);
+                } else if ((scope.fromState == FROM_AFTER_TABLE || scope.fromState == FROM_EXPECT_ALIAS)
+                        && !isQualified(tokens, i, to)) {
+                    scope.lastTable.setAlias(tokens.name(i));
+                    scope.fromState = FROM_AFTER_ALIAS;
+                } else {
+                    scope.fromState = FROM_NONE;
+                }
+            } else if (scope.fromState != FROM_EXPECT_TABLE) {
+                scope.fromState = FROM_NONE;
+            }
+        }
+        if (snapshot == null) {
+            snapshot = new Snapshot(scope);
+        }
+
+        List<SqlContext.TableRef> tables = new ArrayList<>();
+        List<String> cteNames = new ArrayList<>();
+        for (Scope s = snapshot.scope; s != null; s = s.parent) {
+            if (s.tables != null) {
+                tables.addAll(s.tables);
+            }
+            if (s.cteNames != null) {
+                cteNames.addAll(s.cteNames);
+            }
+        }
+        for (SqlContext.TableRef table : tables) {
+            if (table.getName() != null && table.getSchema() == null && containsIgnoreCase(cteNames, table.getName())) {
+                table.setCte(true);
+            }
+        }
+
+        int previous = (partialIndex >= 0 ? partialIndex : cursorIndex) - 1;
+        boolean hasPrevious = previous >= from;
+        String qualifier = null;
+        if (hasPrevious && tokens.isPunctuation(previous, '.') && previous - 1 >= from && tokens.isName(previous - 1)) {
+            qualifier = tokens.name(previous - 1);
+        }
+
+        SqlContext.Kind kind;
+        if (snapshot.withState == WITH_EXPECT_NAME || snapshot.withState == WITH_AFTER_NAME) {
+            kind = SqlContext.Kind.NONE;
+        } else if (snapshot.fromState == FROM_EXPECT_TABLE) {
+            kind = SqlContext.Kind.TABLE;
+        } else if (qualifier != null) {
+            kind = SqlContext.Kind.COLUMN;
+        } else if (snapshot.fromState == FROM_EXPECT_ALIAS) {
+            kind = SqlContext.Kind.NONE;
+        } else if (snapshot.fromState == FROM_AFTER_TABLE || snapshot.fromState == FROM_AFTER_ALIAS) {
+            kind = SqlContext.Kind.KEYWORD;
+        } else if (isColumnClause(snapshot.clause) && !(hasPrevious && endsOperand(tokens, previous))) {
+            kind = SqlContext.Kind.COLUMN;
+        } else {
+            kind = SqlContext.Kind.KEYWORD;
+        }
+        return new SqlContext(kind, partial, qualifier, Collections.unmodifiableList(tables),
+                Collections.unmodifiableList(cteNames));
+    }
+
+    private static void onKeyword(Scope scope, SqlKeyword keyword) {
+        switch (keyword) {
+            case WITH -> {
+                scope.withState = WITH_EXPECT_NAME;
+                scope.fromState = FROM_NONE;
+            }
+            case RECURSIVE, LATERAL -> {
+                // Không đổi trạng thái: WITH RECURSIVE name, JOIN LATERAL (...)
+            }
+            case AS -> {
+                if (scope.withState == WITH_AFTER_NAME) {
+                    scope.withState = WITH_EXPECT_BODY;
+                } else if (scope.fromState == FROM_AFTER_TABLE) {
+                    scope.fromState = FROM_EXPECT_ALIAS;
+                }
+            }
+            case FROM, UPDATE -> {
+                scope.clause = keyword;
+                scope.fromState = FROM_EXPECT_TABLE;
+                scope.fromList = true;
+                endWith(scope);
+            }
+            case JOIN, STRAIGHT_JOIN, APPLY, INTO, TABLE, DESCRIBE -> {
+                scope.clause = keyword == SqlKeyword.STRAIGHT_JOIN || keyword == SqlKeyword.APPLY
+                        ? SqlKeyword.JOIN : keyword;
+                scope.fromState = FROM_EXPECT_TABLE;
+                scope.fromList = false;
+            }
+            case SELECT, INSERT, DELETE, MERGE, REPLACE, UPSERT -> {
+                scope.clause = keyword;
+                scope.fromState = FROM_NONE;
+                endWith(scope);
+            }
+            case WHERE, ON, USING, SET, VALUES, GROUP, ORDER, HAVING, LIMIT, OFFSET, FETCH, RETURNING,
+                 CONNECT, START, WINDOW, PIVOT, UNPIVOT -> {
+                scope.clause = keyword;
+                scope.fromState = FROM_NONE;
+            }
+            case UNION, EXCEPT, INTERSECT, MINUS -> {
+                scope.clause = null;
+                scope.fromState = FROM_NONE;
+            }
+            default -> {
+                if (scope.fromState != FROM_EXPECT_TABLE) {
+                    scope.fromState = FROM_NONE;
+                }
+            }
+        }
+    }
+
+    // Câu lệnh chính sau các CTE bắt đầu: dấu phẩy không còn mở CTE mới
+    private static void endWith(Scope scope) {
+        scope.withState = WITH_NONE;
+    }
+
+    /**
+     * Đọc tên bảng có thể kèm schema ({@code a.b.c}); trả về chỉ số token cuối đã đọc.
+     * Gặp "schema." ngay trước con trỏ thì chưa có bảng: giữ trạng thái chờ tên bảng.
+     */
+    private static int readTableName(SqlLexer.Tokens tokens, int i, int to, int cursorIndex, int partialIndex,
+                                     Scope scope) {
+        int last = i;
+        while (last + 2 < to && tokens.isPunctuation(last + 1, '.') && last + 2 != partialIndex
+                && last + 2 != cursorIndex && tokens.isName(last + 2)) {
+            last += 2;
+        }
+        if (last + 1 < to && tokens.isPunctuation(last + 1, '.')
+                && (last + 2 == cursorIndex || last + 2 == partialIndex || last + 2 == to)) {
+            return last;
+        }
+        String schema = null;
+        if (last > i) {
+            StringBuilder qualified = new StringBuilder(tokens.name(i));
+            for (int part = i + 2; part < last; part += 2) {
+                qualified.append('.').append(tokens.name(part));
+            }
+            schema = qualified.toString();
+        }
+        scope.addTable(new SqlContext.TableRef(schema, tokens.name(last)));
+        return last;
+    }
+
+    // Tên theo sau bởi '.' là qualifier của cột (o.id), không phải alias
+    private static boolean isQualified(SqlLexer.Tokens tokens, int i, int to) {
+        return i + 1 < to && tokens.isPunctuation(i + 1, '.');
+    }
+
+    private static boolean isColumnClause(SqlKeyword clause) {
+        if (clause == null) {
+            return false;
+        }
+        return switch (clause) {
+            // INTO: danh sách cột trong INSERT INTO t (...)
+            case SELECT, WHERE, ON, USING, SET, GROUP, ORDER, HAVING, RETURNING, CONNECT, START, INTO -> true;
+            default -> false;
+        };
+    }
+
+    // Token kết thúc một toán hạng (tên, số, chuỗi, ')'): sau đó thường là từ khóa/toán tử chứ không phải cột
+    private static boolean endsOperand(SqlLexer.Tokens tokens, int index) {
+        byte type = tokens.type(index);
+        if (type == SqlLexer.IDENTIFIER) {
+            SqlKeyword keyword = tokens.keyword(index);
+            return keyword == null || keyword == SqlKeyword.NULL || keyword == SqlKeyword.END;
+        }
+        return type == SqlLexer.QUOTED_IDENTIFIER || type == SqlLexer.STRING || type == SqlLexer.NUMBER
+                || type == SqlLexer.PARAMETER || tokens.isPunctuation(index, ')');
+    }
+
+    // Con trỏ nằm trong comment: giữa token trước và con trỏ có "--" chưa xuống dòng hoặc "/*" chưa đóng
+    private static boolean insideComment(SqlLexer.Tokens tokens, int cursorIndex, int cursor) {
+        String text = tokens.text();
+        int gapStart = cursorIndex > 0 ? Math.min(tokens.end(cursorIndex - 1), cursor) : 0;
+        for (int i = gapStart; i + 1 < cursor; i++) {
+            char c = text.charAt(i);
+            char n = text.charAt(i + 1);
+            if (c == '-' && n == '-') {
+                int newline = text.indexOf('\n', i);
+                if (newline < 0 || newline >= cursor) {
+                    return true;
+                }
+                i = newline;
+            } else if (c == '/' && n == '*') {
+                int close = text.indexOf("*/", i + 2);
+                if (close < 0 || close + 2 > cursor) {
+                    return true;
+                }
+                i = close + 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SqlContext none(String partial) {
+        return new SqlContext(SqlContext.Kind.NONE, partial, null, List.of(), List.of());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.sqlexecutor.sql;
+
+/**
+ * Từ khóa SQL mà lexer nhận diện. Tra cứu không phân biệt hoa thường, không cắt chuỗi và không cấp phát.
+ */
+public enum SqlKeyword {
+    SELECT, FROM, WHERE, JOIN, INNER, LEFT, RIGHT, FULL, CROSS, OUTER, NATURAL, STRAIGHT_JOIN, ON, USING, AS,
+    GROUP, ORDER, BY, HAVING, LIMIT, OFFSET, FETCH, UNION, EXCEPT, INTERSECT, MINUS, WITH, RECURSIVE,
+    INSERT, INTO, UPDATE, DELETE, MERGE, REPLACE, UPSERT, SET, VALUES, CREATE, ALTER, DROP, TRUNCATE, RENAME,
+    COMMENT, TABLE, VIEW, INDEX, TEMPORARY, AND, OR, NOT, DISTINCT, CASE, WHEN, THEN, ELSE, END, WINDOW,
+    RETURNING, APPLY, PIVOT, UNPIVOT, CONNECT, START, FOR, LATERAL, IN, IS, NULL, LIKE, BETWEEN, EXISTS,
+    TOP, EXPLAIN, SHOW, DESCRIBE, DESC, CALL, EXEC, EXECUTE, GRANT, REVOKE, BEGIN, DECLARE, USE;
+
+    private static final int MAX_LENGTH = 16;
+    private static final SqlKeyword[] SLOTS = new SqlKeyword[512];
+
+    static {
+        for (SqlKeyword keyword : values()) {
+            String name = keyword.name();
+            int slot = hash(name, 0, name.length()) & (SLOTS.length - 1);
+            while (SLOTS[slot] != null) {
+                slot = (slot + 1) & (SLOTS.length - 1);
+            }
+            SLOTS[slot] = keyword;
+        }
+    }
+
+    /**
+     * Từ khóa tương ứng đoạn {@code text[start, end)}, hoặc null nếu không phải từ khóa.
+     */
+    public static SqlKeyword lookup(String text, int start, int end) {
+        int length = end - start;
+        if (length < 2 || length > MAX_LENGTH) {
+            return null;
+        }
+        int slot = hash(text, start, end);
+        if (slot < 0) {
+            return null;
+        }
+        slot &= SLOTS.length - 1;
+        SqlKeyword keyword;
+        while ((keyword = SLOTS[slot]) != null) {
+            String name = keyword.name();
+            if (name.length() == length && text.regionMatches(true, start, name, 0, length)) {
+                return keyword;
+            }
+            slot = (slot + 1) & (SLOTS.length - 1);
+        }
+        return null;
+    }
+
+    // Hash theo ký tự viết hoa ASCII; -1 nếu có ký tự không thể thuộc từ khóa
+    private static int hash(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            } else if ((c < 'A' || c > 'Z') && c != '_') {
+                return -1;
+            }
+            hash = hash * 31 + c;
+        }
+        return hash & 0x7fffffff;
+    }
+}
@@ -0,0 +1,482 @@
+package org.example.sqlexecutor.sql;
+
+import java.util.Arrays;
+
+/**
+ * Lexer SQL một lượt trên chuỗi gốc: không regex, không cắt chuỗi, không cấp phát cho từng token.
+ * Khoảng trắng và comment ({@code --}, {@code /* *}{@code /}) bị bỏ qua; chuỗi, identifier có quote
+ * ({@code "x"}, {@code `x`}, {@code [x]}) là một token nên từ khóa bên trong không bị nhầm.
+ * Dùng trực tiếp như cursor ({@link #next()}) hoặc gom thành {@link Tokens} để phân tích nhiều lần.
+ */
+public final class SqlLexer {
+    public static final byte IDENTIFIER = 1;
+    public static final byte QUOTED_IDENTIFIER = 2;
+    public static final byte STRING = 3;
+    public static final byte NUMBER = 4;
+    // Một ký tự: ( ) , ; .
+    public static final byte PUNCTUATION = 5;
+    public static final byte OPERATOR = 6;
+    // ?, :name, @var
+    public static final byte PARAMETER = 7;
+
+    private final String text;
+    private final int limit;
+    private int position;
+    private byte type;
+    private int start;
+    private int end;
+    // Chuỗi/identifier có quote chưa đóng khi hết input (đang gõ dở)
+    private boolean unterminated;
+
+    public SqlLexer(String text) {
+        this(text, 0, text.length());
+    }
+
+    public SqlLexer(String text, int from, int limit) {
+        this.text = text;
+        this.position = from;
+        this.limit = limit;
+    }
+
+    /**
+     * Sang token kế tiếp; false khi hết input.
+     */
+    public boolean next() {
+        skipWhitespaceAndComments();
+        if (position >= limit) {
+            type = 0;
+            start = end = limit;
+            return false;
+        }
+        start = position;
+        unterminated = false;
+        char c = text.charAt(position);
+        if (isIdentifierStart(c)) {
+            position++;
+            while (position < limit && isIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            type = IDENTIFIER;
+        } else if (c == '\'') {
+            readQuoted('\'');
+            type = STRING;
+        } else if (c == '"' || c == '`') {
+            readQuoted(c);
+            type = QUOTED_IDENTIFIER;
+        } else if (c == '[') {
+            readQuoted(']');
+            type = QUOTED_IDENTIFIER;
+        } else if (isDigit(c) || (c == '.' && position + 1 < limit && isDigit(text.charAt(position + 1)))) {
+            readNumber();
+            type = NUMBER;
+        } else if (c == '(' || c == ')' || c == ',' || c == ';' || c == '.') {
+            position++;
+            type = PUNCTUATION;
+        } else if (c == '?' || ((c == ':' || c == '@') && position + 1 < limit
+                && isIdentifierStart(text.charAt(position + 1)))) {
+            position++;
+            while (position < limit && isIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            type = PARAMETER;
+        } else {
+            position++;
+            while (position < limit && isOperator(text.charAt(position)) && !startsComment(position)) {
+                position++;
+            }
+            type = OPERATOR;
+        }
+        end = position;
+        return true;
+    }
+
+    /**
+     * Bỏ qua phần còn lại của câu lệnh hiện tại, dừng sau dấu {@code ;} nằm ngoài chuỗi/comment.
+     * Chỉ quét ký tự, không tạo token; false khi hết input mà không gặp {@code ;}.
+     */
+    public boolean skipStatement() {
+        String source = text;
+        int i = position;
+        // Không còn ; nào đứng trước một câu lệnh khác: khỏi quét từng ký tự (trường hợp phổ biến)
+        int first = source.indexOf(';', i);
+        if (first < 0 || first >= limit
+                || (source.lastIndexOf(';', limit - 1) == first && isBlank(first + 1, limit))) {
+            position = limit;
+            return false;
+        }
+        while (i < limit) {
+            switch (source.charAt(i)) {
+                case ';' -> {
+                    position = i + 1;
+                    return true;
+                }
+                case '\'', '"', '`', '[', '-', '/' -> {
+                    position = i;
+                    char c = source.charAt(i);
+                    if (c == '[') {
+                        readQuoted(']');
+                    } else if (c == '-' || c == '/') {
+                        if (startsComment(i)) {
+                            skipWhitespaceAndComments();
+                        } else {
+                            position++;
+                        }
+                    } else {
+                        readQuoted(c);
+                    }
+                    i = position;
+                }
+                default -> i++;
+            }
+        }
+        position = limit;
+        return false;
+    }
+
+    public byte type() {
+        return type;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public boolean isUnterminated() {
+        return unterminated;
+    }
+
+    // Vị trí lexer sẽ đọc tiếp (sau token hiện tại)
+    public int position() {
+        return position;
+    }
+
+    public SqlKeyword keyword() {
+        return type == IDENTIFIER ? SqlKeyword.lookup(text, start, end) : null;
+    }
+
+    public boolean isPunctuation(char c) {
+        return type == PUNCTUATION && text.charAt(start) == c;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < limit) {
+            char c = text.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (c == '-' && position + 1 < limit && text.charAt(position + 1) == '-') {
+                position += 2;
+                while (position < limit && text.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (c == '/' && position + 1 < limit && text.charAt(position + 1) == '*') {
+                int close = text.indexOf("*/", position + 2);
+                position = close < 0 || close + 2 > limit ? limit : close + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsComment(int at) {
+        if (at + 1 >= limit) {
+            return false;
+        }
+        char c = text.charAt(at);
+        char n = text.charAt(at + 1);
+        return (c == '-' && n == '-') || (c == '/' && n == '*');
+    }
+
+    // Quote đôi bên trong ('', "", ``, ]]) là ký tự thoát
+    private void readQuoted(char close) {
+        position++;
+        while (position < limit) {
+            if (text.charAt(position++) == close) {
+                if (position < limit && text.charAt(position) == close) {
+                    position++;
+                } else {
+                    return;
+                }
+            }
+        }
+        unterminated = true;
+    }
+
+    private void readNumber() {
+        while (position < limit && (isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < limit && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            int exponent = position + 1;
+            if (exponent < limit && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < limit && isDigit(text.charAt(exponent))) {
+                position = exponent;
+                while (position < limit && isDigit(text.charAt(position))) {
+                    position++;
+                }
+            }
+        }
+    }
+
+    // # đầu tên là bảng tạm SQL Server, $ và # trong tên là hợp lệ với Oracle/MySQL
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '#'
+                || (c > 127 && Character.isLetter(c));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c) || c == '$';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOperator(char c) {
+        return "<>=!|&+-*/%^~:".indexOf(c) >= 0;
+    }
+
+    /**
+     * Tên của identifier (bỏ quote, quote đôi bên trong được gộp lại).
+     */
+    public static String identifierName(String text, int start, int end) {
+        char open = text.charAt(start);
+        if (open != '"' && open != '`' && open != '[') {
+            return text.substring(start, end);
+        }
+        char close = open == '[' ? ']' : open;
+        int last = end - 1 > start && text.charAt(end - 1) == close ? end - 1 : end;
+        String name = text.substring(start + 1, last);
+        String doubled = String.valueOf(new char[]{close, close});
+        return name.contains(doubled) ? name.replace(doubled, String.valueOf(close)) : name;
+    }
+
+    public static Tokens tokenize(String text) {
+        Tokens tokens = new Tokens();
+        tokens.lexFrom(text, 0);
+        return tokens;
+    }
+
+    /**
+     * Các token đã lex của một đoạn SQL, lưu trong mảng song song.
+     * {@link #update(String)} chỉ lex lại phần sau đoạn đầu không đổi so với lần trước.
+     */
+    public static final class Tokens {
+        private String text = "";
+        private byte[] types = new byte[64];
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private SqlKeyword[] keywords = new SqlKeyword[64];
+        private int size;
+        private boolean unterminated;
+        // Token mới lex khi cập nhật, trước khi ghép với phần đuôi dùng lại
+        private byte[] scratchTypes = new byte[16];
+        private int[] scratchStarts = new int[16];
+        private int[] scratchEnds = new int[16];
+        private SqlKeyword[] scratchKeywords = new SqlKeyword[16];
+        // Vị trí bắt đầu lex lại của lần cập nhật gần nhất
+        private int relexedFrom;
+
+        public String text() {
+            return text;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public byte type(int index) {
+            return types[index];
+        }
+
+        public int start(int index) {
+            return starts[index];
+        }
+
+        public int end(int index) {
+            return ends[index];
+        }
+
+        public SqlKeyword keyword(int index) {
+            return keywords[index];
+        }
+
+        public boolean isPunctuation(int index, char c) {
+            return types[index] == PUNCTUATION && text.charAt(starts[index]) == c;
+        }
+
+        // Token là từ {@code word} (không phân biệt hoa thường), kể cả từ không nằm trong SqlKeyword
+        public boolean is(int index, String word) {
+            return types[index] == IDENTIFIER && ends[index] - starts[index] == word.length()
+                    && text.regionMatches(true, starts[index], word, 0, word.length());
+        }
+
+        public boolean isName(int index) {
+            return (types[index] == IDENTIFIER && keywords[index] == null) || types[index] == QUOTED_IDENTIFIER;
+        }
+
+        // Token cuối là chuỗi/identifier có quote chưa đóng
+        public boolean isUnterminated() {
+            return unterminated;
+        }
+
+        public int relexedFrom() {
+            return relexedFrom;
+        }
+
+        public String name(int index) {
+            return identifierName(text, starts[index], ends[index]);
+        }
+
+        /**
+         * Cập nhật theo nội dung mới. Token kết thúc trước phần thay đổi (cách ít nhất hai ký tự, đủ cho
+         * lookahead của lexer) được giữ lại và lex lại từ cuối token giữ lại cuối cùng. Lexer không mang trạng thái
+         * qua ranh giới token, nên khi token mới bắt đầu đúng vị trí một token cũ trong phần đuôi không đổi
+         * thì phần đuôi còn lại được dùng lại, chỉ dời vị trí.
+         */
+        public Tokens update(String newText) {
+            int oldLength = text.length();
+            int newLength = newText.length();
+            int max = Math.min(oldLength, newLength);
+            int common = 0;
+            while (common < max && text.charAt(common) == newText.charAt(common)) {
+                common++;
+            }
+            if (common == oldLength && common == newLength) {
+                relexedFrom = newLength;
+                return this;
+            }
+            int suffix = 0;
+            while (suffix < max - common
+                    && text.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)) {
+                suffix++;
+            }
+            int delta = newLength - oldLength;
+            // Từ đây về sau nội dung cũ giống nội dung mới (dời delta)
+            int unchangedFrom = oldLength - suffix;
+
+            int keep = size;
+            while (keep > 0 && ends[keep - 1] + 2 > common) {
+                keep--;
+            }
+            int from = keep > 0 ? ends[keep - 1] : 0;
+            text = newText;
+            relexedFrom = from;
+
+            int scratchSize = 0;
+            int resume = keep;
+            int oldSize = size;
+            boolean synced = false;
+            boolean lastUnterminated = false;
+            SqlLexer lexer = new SqlLexer(newText, from, newLength);
+            while (lexer.next()) {
+                int oldStart = lexer.start() - delta;
+                if (oldStart >= unchangedFrom) {
+                    while (resume < oldSize && starts[resume] < oldStart) {
+                        resume++;
+                    }
+                    if (resume < oldSize && starts[resume] == oldStart) {
+                        synced = true;
+                        break;
+                    }
+                }
+                if (scratchSize == scratchTypes.length) {
+                    growScratch();
+                }
+                scratchTypes[scratchSize] = lexer.type();
+                scratchStarts[scratchSize] = lexer.start();
+                scratchEnds[scratchSize] = lexer.end();
+                scratchKeywords[scratchSize] = lexer.keyword();
+                lastUnterminated = lexer.isUnterminated();
+                scratchSize++;
+            }
+
+            int tail = synced ? oldSize - resume : 0;
+            ensureCapacity(keep + scratchSize + tail);
+            if (tail > 0) {
+                System.arraycopy(types, resume, types, keep + scratchSize, tail);
+                System.arraycopy(starts, resume, starts, keep + scratchSize, tail);
+                System.arraycopy(ends, resume, ends, keep + scratchSize, tail);
+                System.arraycopy(keywords, resume, keywords, keep + scratchSize, tail);
+                for (int i = keep + scratchSize; i < keep + scratchSize + tail; i++) {
+                    starts[i] += delta;
+                    ends[i] += delta;
+                }
+            } else {
+                unterminated = lastUnterminated;
+            }
+            System.arraycopy(scratchTypes, 0, types, keep, scratchSize);
+            System.arraycopy(scratchStarts, 0, starts, keep, scratchSize);
+            System.arraycopy(scratchEnds, 0, ends, keep, scratchSize);
+            System.arraycopy(scratchKeywords, 0, keywords, keep, scratchSize);
+            Arrays.fill(scratchKeywords, 0, scratchSize, null);
+            size = keep + scratchSize + tail;
+            return this;
+        }
+
+        private void lexFrom(String newText, int from) {
+            text = newText;
+            relexedFrom = from;
+            unterminated = false;
+            SqlLexer lexer = new SqlLexer(newText, from, newText.length());
+            while (lexer.next()) {
+                ensureCapacity(size + 1);
+                types[size] = lexer.type();
+                starts[size] = lexer.start();
+                ends[size] = lexer.end();
+                keywords[size] = lexer.keyword();
+                unterminated = lexer.isUnterminated();
+                size++;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > types.length) {
+                int grown = Math.max(capacity, types.length * 2);
+                types = Arrays.copyOf(types, grown);
+                starts = Arrays.copyOf(starts, grown);
+                ends = Arrays.copyOf(ends, grown);
+                keywords = Arrays.copyOf(keywords, grown);
+            }
+        }
+
+        private void growScratch() {
+            int grown = scratchTypes.length * 2;
+            scratchTypes = Arrays.copyOf(scratchTypes, grown);
+            scratchStarts = Arrays.copyOf(scratchStarts, grown);
+            scratchEnds = Arrays.copyOf(scratchEnds, grown);
+            scratchKeywords = Arrays.copyOf(scratchKeywords, grown);
+        }
+
+        /**
+         * Chỉ số token đầu tiên có {@code end > position}; {@link #size()} nếu không có.
+         */
+        public int indexAfter(int position) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] > position) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.sqlexecutor.sql;
+
+/**
+ * Loại câu lệnh SQL, xác định bằng một lượt {@link SqlLexer} trên chuỗi gốc: bỏ qua comment và chuỗi,
+ * hiểu {@code WITH ... SELECT/INSERT/UPDATE/DELETE} và SELECT trong ngoặc.
+ * Với nhiều câu lệnh (tách bằng {@code ;}), kết quả là SELECT chỉ khi mọi câu lệnh đều là SELECT;
+ * ngược lại là loại của câu lệnh không phải SELECT đầu tiên.
+ * {@code SELECT ... INTO} (tạo bảng trên SQL Server, ghi file/biến trên MySQL) không được coi là SELECT mà là OTHER;
+ * {@code SELECT ... FOR UPDATE} vẫn là SELECT vì chỉ khóa dòng trong transaction của chính nó.
+ */
+public enum SqlStatementType {
+    SELECT, INSERT, UPDATE, DELETE, CREATE, ALTER, DROP, OTHER;
+
+    public static SqlStatementType classify(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        SqlLexer lexer = new SqlLexer(sql);
+        SqlStatementType result = null;
+        SqlStatementType current = null;
+        boolean started = false;
+        boolean inWith = false;
+        int depth = 0;
+        while (lexer.next()) {
+            if (lexer.isPunctuation(';')) {
+                result = combine(result, current, started);
+                started = false;
+                inWith = false;
+                depth = 0;
+                continue;
+            }
+            started = true;
+            if (lexer.isPunctuation('(')) {
+                depth++;
+            } else if (lexer.isPunctuation(')')) {
+                depth = Math.max(depth - 1, 0);
+            } else {
+                SqlKeyword keyword = lexer.keyword();
+                if (inWith) {
+                    // Câu lệnh chính là từ khóa DML đầu tiên nằm ngoài thân các CTE
+                    if (depth == 0 && keyword != null && isCteTarget(keyword)) {
+                        current = of(keyword);
+                    }
+                } else if (keyword == SqlKeyword.WITH) {
+                    inWith = true;
+                } else {
+                    current = of(keyword);
+                }
+            }
+            if (current != null) {
+                // Đã biết loại câu lệnh: chỉ quét ký tự tới dấu ; kế tiếp
+                int from = lexer.position();
+                boolean more = lexer.skipStatement();
+                if (current == SELECT && writesInto(sql, from, lexer.position())) {
+                    current = OTHER;
+                }
+                result = combine(result, current, true);
+                if (!more) {
+                    return result;
+                }
+                current = null;
+                started = false;
+                inWith = false;
+                depth = 0;
+            }
+        }
+        result = combine(result, null, started);
+        return result != null ? result : OTHER;
+    }
+
+    // Có INTO ở mức ngoài của phần SELECT [from, to); chỉ lex lại khi đoạn đó chứa chữ "into"
+    private static boolean writesInto(String sql, int from, int to) {
+        boolean found = false;
+        for (int i = from; i + 4 <= to && !found; i++) {
+            found = sql.regionMatches(true, i, "into", 0, 4);
+        }
+        if (!found) {
+            return false;
+        }
+        SqlLexer lexer = new SqlLexer(sql, from, to);
+        int depth = 0;
+        while (lexer.next()) {
+            if (lexer.isPunctuation('(')) {
+                depth++;
+            } else if (lexer.isPunctuation(')')) {
+                depth--;
+            } else if (depth == 0 && lexer.keyword() == SqlKeyword.INTO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isSelect() {
+        return this == SELECT;
+    }
+
+    private static SqlStatementType combine(SqlStatementType result, SqlStatementType statement, boolean started) {
+        if (!started) {
+            return result;
+        }
+        SqlStatementType type = statement != null ? statement : OTHER;
+        return result == null || result == SELECT ? type : result;
+    }
+
+    private static boolean isCteTarget(SqlKeyword keyword) {
+        return keyword == SqlKeyword.SELECT || keyword == SqlKeyword.INSERT || keyword == SqlKeyword.UPDATE
+                || keyword == SqlKeyword.DELETE || keyword == SqlKeyword.MERGE;
+    }
+
+    private static SqlStatementType of(SqlKeyword keyword) {
+        if (keyword == null) {
+            return OTHER;
+        }
+        return switch (keyword) {
+            case SELECT -> SELECT;
+            case INSERT, REPLACE, UPSERT -> INSERT;
+            case UPDATE -> UPDATE;
+            case DELETE -> DELETE;
+            case CREATE -> CREATE;
+            case ALTER -> ALTER;
+            case DROP -> DROP;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.sqlexecutor.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Từ khóa và hàm SQL dùng cho gợi ý: phần chung cho mọi database cộng phần đặc thù theo loại DB.
+ */
+public final class SqlVocabulary {
+    // Các từ khóa chung cho tất cả SQL
+    private static final List<String> COMMON_SQL_KEYWORDS = Arrays.asList(
+            "SELECT", "FROM", "WHERE", "GROUP BY", "HAVING", "ORDER BY",
+            "INSERT", "UPDATE", "DELETE", "JOIN", "INNER JOIN", "LEFT JOIN",
+            "RIGHT JOIN", "FULL JOIN", "UNION", "CREATE", "ALTER", "DROP",
+            "TABLE", "VIEW", "INDEX", "AND", "OR", "NOT", "IN", "BETWEEN",
+            "LIKE", "IS NULL", "IS NOT NULL"
+    );
+
+    // Các hàm chung cho tất cả SQL
+    private static final List<String> COMMON_SQL_FUNCTIONS = Arrays.asList(
+            "COUNT", "SUM", "AVG", "MIN", "MAX", "CONCAT", "SUBSTRING",
+            "TRIM", "LENGTH", "UPPER", "LOWER", "ROUND"
+    );
+
+    // Các từ khóa đặc thù cho từng loại DB
+    private static final Map<String, List<String>> DB_SPECIFIC_KEYWORDS = new HashMap<>();
+    static {
+        // MySQL keywords
+        DB_SPECIFIC_KEYWORDS.put("mysql", Arrays.asList(
+                "LIMIT", "OFFSET", "SHOW", "DESCRIBE", "EXPLAIN", "USE", "IGNORE"
+        ));
+
+        // Oracle keywords
+        DB_SPECIFIC_KEYWORDS.put("oracle", Arrays.asList(
+                "ROWNUM", "ROWID", "CONNECT BY", "START WITH", "PRIOR", "LEVEL",
+                "CONNECT_BY_ROOT", "SYS_CONNECT_BY_PATH", "NOCYCLE"
+        ));
+
+        // SQL Server keywords
+        DB_SPECIFIC_KEYWORDS.put("sqlserver", Arrays.asList(
+                "TOP", "OFFSET FETCH", "OUTPUT", "IDENTITY", "MERGE", "PIVOT", "UNPIVOT",
+                "OVER", "PARTITION BY", "WITH TIES", "CROSS APPLY", "OUTER APPLY"
+        ));
+
+        // PostgreSQL keywords
+        DB_SPECIFIC_KEYWORDS.put("postgresql", Arrays.asList(
+                "LIMIT", "OFFSET", "RETURNING", "WITH", "LATERAL", "WINDOW", "OVER",
+                "PARTITION BY", "USING"
+        ));
+    }
+
+    // Các hàm đặc thù cho từng loại DB
+    private static final Map<String, List<String>> DB_SPECIFIC_FUNCTIONS = new HashMap<>();
+    static {
+        // MySQL functions
+        DB_SPECIFIC_FUNCTIONS.put("mysql", Arrays.asList(
+                "NOW()", "CURDATE()", "CURTIME()", "DATE_FORMAT", "STR_TO_DATE",
+                "IFNULL", "IF", "CASE", "GROUP_CONCAT"
+        ));
+
+        // Oracle functions
+        DB_SPECIFIC_FUNCTIONS.put("oracle", Arrays.asList(
+                "SYSDATE", "SYSTIMESTAMP", "NVL", "DECODE", "TO_CHAR", "TO_DATE",
+                "TO_NUMBER", "LISTAGG", "REGEXP_LIKE", "REGEXP_REPLACE"
+        ));
+
+        // SQL Server functions
+        DB_SPECIFIC_FUNCTIONS.put("sqlserver", Arrays.asList(
+                "GETDATE()", "GETUTCDATE()", "ISNULL", "COALESCE", "CONVERT", "CAST",
+                "DATEADD", "DATEDIFF", "DATENAME", "FORMAT", "STRING_AGG"
+        ));
+
+        // PostgreSQL functions
+        DB_SPECIFIC_FUNCTIONS.put("postgresql", Arrays.asList(
+                "NOW()", "CURRENT_DATE", "CURRENT_TIME", "TO_CHAR", "TO_DATE",
+                "COALESCE", "NULLIF", "STRING_AGG", "ARRAY_AGG", "JSONB_AGG"
+        ));
+    }
+
+    private SqlVocabulary() {
+    }
+
+    public static List<String> keywords(String dbType) {
+        List<String> keywords = new ArrayList<>(COMMON_SQL_KEYWORDS);
+        keywords.addAll(DB_SPECIFIC_KEYWORDS.getOrDefault(dbType, Collections.emptyList()));
+        return keywords;
+    }
+
+    public static List<String> functions(String dbType) {
+        List<String> functions = new ArrayList<>(COMMON_SQL_FUNCTIONS);
+        functions.addAll(DB_SPECIFIC_FUNCTIONS.getOrDefault(dbType, Collections.emptyList()));
+        return functions;
+    }
+}
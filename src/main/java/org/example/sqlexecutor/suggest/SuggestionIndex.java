@@ -0,0 +1,390 @@
+package org.example.sqlexecutor.suggest;
+
+import org.example.sqlexecutor.model.SqlSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index gợi ý chỉ đọc: trie theo tiền tố và index trigram cho khớp chuỗi con/gõ sai.
+ * Kết quả xếp hạng theo mức khớp (trùng khớp > tiền tố > chuỗi con > gần đúng), khoảng cách sửa,
+ * tần suất dùng rồi độ dài tên; chỉ giữ top-K trong hai mảng cố định nên không cấp phát theo số entry.
+ */
+public final class SuggestionIndex {
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    private static final int SUBSTRING = 2;
+    private static final int FUZZY = 1;
+
+    // score = mức khớp | khoảng cách sửa | bậc tần suất (log2) | độ dài chênh lệch
+    private static final long CLASS_WEIGHT = 1L << 40;
+    private static final long DISTANCE_WEIGHT = 1L << 32;
+    private static final long USAGE_WEIGHT = 1L << 12;
+    private static final int MAX_LENGTH_PENALTY = (1 << 12) - 1;
+
+    private static final SuggestionType[] TYPES = SuggestionType.values();
+    private static final int[] NO_IDS = new int[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final String[] names;
+    private final String[] upperNames;
+    private final byte[] types;
+    private final String[] descriptions;
+    private final String[] categories;
+    private final Node root;
+    private final long[] trigramKeys;
+    private final int[][] trigramPostings;
+
+    private static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int[] ids = NO_IDS;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            Node node = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+
+    private SuggestionIndex(Builder builder) {
+        int size = builder.names.size();
+        names = builder.names.toArray(new String[0]);
+        upperNames = new String[size];
+        types = new byte[size];
+        descriptions = builder.descriptions.toArray(new String[0]);
+        categories = builder.categories.toArray(new String[0]);
+        root = new Node();
+
+        Map<Long, List<Integer>> trigrams = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            String upper = names[id].toUpperCase(Locale.ROOT);
+            upperNames[id] = upper;
+            types[id] = (byte) builder.types.get(id).ordinal();
+
+            Node node = root;
+            for (int i = 0; i < upper.length(); i++) {
+                node = node.addChild(upper.charAt(i));
+            }
+            node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+            node.ids[node.ids.length - 1] = id;
+
+            for (int i = 0; i + 3 <= upper.length(); i++) {
+                List<Integer> posting = trigrams.computeIfAbsent(trigram(upper, i), key -> new ArrayList<>());
+                // id tăng dần nên chỉ cần so với phần tử cuối để bỏ trigram lặp trong cùng tên
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != id) {
+                    posting.add(id);
+                }
+            }
+        }
+
+        trigramKeys = new long[trigrams.size()];
+        int index = 0;
+        for (Long key : trigrams.keySet()) {
+            trigramKeys[index++] = key;
+        }
+        Arrays.sort(trigramKeys);
+        trigramPostings = new int[trigramKeys.length][];
+        for (int i = 0; i < trigramKeys.length; i++) {
+            trigramPostings[i] = trigrams.get(trigramKeys[i]).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    // Có entry (bất kỳ loại nào) đúng tên này không; {@code upperName} đã viết hoa
+    public boolean contains(String upperName) {
+        Node node = find(upperName);
+        return node != null && node.ids.length > 0;
+    }
+
+    /**
+     * Top {@code limit} entry thuộc các loại trong {@code typeMask} khớp {@code partial}.
+     * {@code usage} trả về số lần tên (viết hoa) đã được dùng, để ưu tiên tên hay dùng.
+     */
+    public List<SqlSuggestion> search(String partial, int typeMask, int limit, ToLongFunction<String> usage) {
+        String term = partial == null ? "" : partial.trim().toUpperCase(Locale.ROOT);
+        TopK top = new TopK(Math.max(Math.min(limit, names.length), 1));
+
+        if (term.isEmpty()) {
+            for (int id = 0; id < names.length; id++) {
+                // Chưa gõ gì: tên hay dùng trước, còn lại theo thứ tự tên
+                if (accepts(id, typeMask)) {
+                    top.offer(id, usageRank(id, usage) * USAGE_WEIGHT);
+                }
+            }
+            return top.toList();
+        }
+
+        Node prefixNode = find(term);
+        if (prefixNode != null) {
+            collectPrefix(prefixNode, term.length(), typeMask, usage, top);
+        }
+
+        if (!top.excludes(SUBSTRING)) {
+            if (term.length() >= 3) {
+                int[] posting = rarestPosting(term);
+                if (posting != null) {
+                    for (int id : posting) {
+                        offerSubstring(id, term, typeMask, usage, top);
+                    }
+                }
+            } else {
+                for (int id = 0; id < names.length; id++) {
+                    offerSubstring(id, term, typeMask, usage, top);
+                }
+            }
+        }
+
+        // Gõ sai: tên có chung ít nhất một trigram và khoảng cách sửa tới một tiền tố của tên đủ nhỏ
+        if (term.length() >= 3 && !top.excludes(FUZZY)) {
+            int maxDistance = term.length() <= 4 ? 1 : 2;
+            int[] row = new int[term.length() + 1];
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                int index = Arrays.binarySearch(trigramKeys, trigram(term, i));
+                if (index < 0) {
+                    continue;
+                }
+                for (int id : trigramPostings[index]) {
+                    offerFuzzy(id, term, typeMask, usage, top, row, maxDistance);
+                }
+            }
+            // Term ngắn chỉ có một hai trigram, một lỗi gõ là mất hết ("USR" không chung trigram nào với USERS):
+            // xét thêm mọi tên cùng chữ cái đầu
+            if (term.length() <= 4) {
+                Node firstLetter = root.child(term.charAt(0));
+                if (firstLetter != null) {
+                    collectFuzzy(firstLetter, term, typeMask, usage, top, row, maxDistance);
+                }
+            }
+        }
+        return top.toList();
+    }
+
+    private void collectFuzzy(Node node, String term, int typeMask, ToLongFunction<String> usage, TopK top,
+                              int[] row, int maxDistance) {
+        for (int id : node.ids) {
+            offerFuzzy(id, term, typeMask, usage, top, row, maxDistance);
+        }
+        for (Node child : node.children) {
+            collectFuzzy(child, term, typeMask, usage, top, row, maxDistance);
+        }
+    }
+
+    private void offerFuzzy(int id, String term, int typeMask, ToLongFunction<String> usage, TopK top,
+                            int[] row, int maxDistance) {
+        // Tên chứa term đã được lấy ở bước tiền tố/chuỗi con
+        if (!accepts(id, typeMask) || upperNames[id].contains(term)) {
+            return;
+        }
+        int distance = prefixDistance(term, upperNames[id], row, maxDistance);
+        if (distance <= maxDistance) {
+            top.offer(id, score(FUZZY, distance, id, term.length(), usage));
+        }
+    }
+
+    private void collectPrefix(Node node, int termLength, int typeMask, ToLongFunction<String> usage, TopK top) {
+        for (int id : node.ids) {
+            if (accepts(id, typeMask)) {
+                int matchClass = upperNames[id].length() == termLength ? EXACT : PREFIX;
+                top.offer(id, score(matchClass, 0, id, termLength, usage));
+            }
+        }
+        for (Node child : node.children) {
+            collectPrefix(child, termLength, typeMask, usage, top);
+        }
+    }
+
+    private void offerSubstring(int id, String term, int typeMask, ToLongFunction<String> usage, TopK top) {
+        String upper = upperNames[id];
+        // Tên bắt đầu bằng term đã được lấy ở bước tiền tố
+        if (accepts(id, typeMask) && !upper.startsWith(term) && upper.contains(term)) {
+            top.offer(id, score(SUBSTRING, 0, id, term.length(), usage));
+        }
+    }
+
+    private boolean accepts(int id, int typeMask) {
+        return (typeMask & (1 << types[id])) != 0;
+    }
+
+    private long score(int matchClass, int distance, int id, int termLength, ToLongFunction<String> usage) {
+        int lengthPenalty = Math.min(Math.abs(names[id].length() - termLength), MAX_LENGTH_PENALTY);
+        return matchClass * CLASS_WEIGHT - distance * DISTANCE_WEIGHT + usageRank(id, usage) * USAGE_WEIGHT - lengthPenalty;
+    }
+
+    private int usageRank(int id, ToLongFunction<String> usage) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(usage.applyAsLong(upperNames[id]), 0));
+    }
+
+    private Node find(String upperTerm) {
+        Node node = root;
+        for (int i = 0; i < upperTerm.length() && node != null; i++) {
+            node = node.child(upperTerm.charAt(i));
+        }
+        return node;
+    }
+
+    // Danh sách ngắn nhất trong các trigram của term; null nếu có trigram không tồn tại (không tên nào chứa term)
+    private int[] rarestPosting(String term) {
+        int[] rarest = null;
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            int index = Arrays.binarySearch(trigramKeys, trigram(term, i));
+            if (index < 0) {
+                return null;
+            }
+            if (rarest == null || trigramPostings[index].length < rarest.length) {
+                rarest = trigramPostings[index];
+            }
+        }
+        return rarest;
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    /**
+     * Khoảng cách Levenshtein nhỏ nhất giữa {@code term} và một tiền tố bất kỳ của {@code name}
+     * ("custmer" so với "CUSTOMER_ORDERS" là 1). Dừng sớm khi mọi ô đã vượt {@code maxDistance}.
+     */
+    static int prefixDistance(String term, String name, int[] row, int maxDistance) {
+        int m = term.length();
+        for (int i = 0; i <= m; i++) {
+            row[i] = i;
+        }
+        int best = row[m];
+        for (int j = 1; j <= name.length(); j++) {
+            char c = name.charAt(j - 1);
+            int diagonal = row[0];
+            row[0] = j;
+            int rowMin = row[0];
+            for (int i = 1; i <= m; i++) {
+                int above = row[i];
+                int cost = term.charAt(i - 1) == c ? 0 : 1;
+                row[i] = Math.min(Math.min(row[i - 1] + 1, above + 1), diagonal + cost);
+                diagonal = above;
+                rowMin = Math.min(rowMin, row[i]);
+            }
+            best = Math.min(best, row[m]);
+            if (rowMin > maxDistance) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    // Top-K giảm dần theo score, hòa thì theo tên
+    private final class TopK {
+        private final int[] ids;
+        private final long[] scores;
+        private int size;
+
+        private TopK(int limit) {
+            ids = new int[limit];
+            scores = new long[limit];
+        }
+
+        // Đầy và mọi phần tử đều thuộc mức khớp cao hơn matchClass: bước tìm mức này không thể chen vào
+        private boolean excludes(int matchClass) {
+            return size == ids.length && scores[size - 1] >= (matchClass + 1) * CLASS_WEIGHT - CLASS_WEIGHT / 2;
+        }
+
+        private void offer(int id, long score) {
+            if (size == ids.length && !before(id, score, ids[size - 1], scores[size - 1])) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            int position = size == ids.length ? size - 1 : size++;
+            while (position > 0 && before(id, score, ids[position - 1], scores[position - 1])) {
+                ids[position] = ids[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            ids[position] = id;
+            scores[position] = score;
+        }
+
+        private boolean before(int id, long score, int otherId, long otherScore) {
+            if (score != otherScore) {
+                return score > otherScore;
+            }
+            return names[id].compareToIgnoreCase(names[otherId]) < 0;
+        }
+
+        private List<SqlSuggestion> toList() {
+            List<SqlSuggestion> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int id = ids[i];
+                SqlSuggestion suggestion = new SqlSuggestion(TYPES[types[id]].getName(),
+                        names[id], descriptions[id]);
+                suggestion.setCategory(categories[id]);
+                result.add(suggestion);
+            }
+            return result;
+        }
+    }
+
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<SuggestionType> types = new ArrayList<>();
+        private final List<String> descriptions = new ArrayList<>();
+        private final List<String> categories = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+
+        private Builder() {
+        }
+
+        // Bỏ qua entry trùng loại và tên (không phân biệt hoa thường)
+        public Builder add(SuggestionType type, String name, String description, String category) {
+            if (name == null || name.isEmpty() || !seen.add(type.ordinal() + ":" + name.toUpperCase(Locale.ROOT))) {
+                return this;
+            }
+            names.add(name);
+            types.add(type);
+            descriptions.add(description);
+            categories.add(category);
+            return this;
+        }
+
+        public SuggestionIndex build() {
+            return new SuggestionIndex(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.sqlexecutor.suggest;
+
+public enum SuggestionType {
+    KEYWORD("keyword"),
+    FUNCTION("function"),
+    TABLE("table"),
+    COLUMN("column");
+
+    private final String name;
+
+    SuggestionType(String name) {
+        this.name = name;
+    }
+
+    // Giá trị "type" trả về cho client
+    public String getName() {
+        return name;
+    }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static int mask(SuggestionType... types) {
+        int mask = 0;
+        for (SuggestionType type : types) {
+            mask |= type.mask();
+        }
+        return mask;
+    }
+}
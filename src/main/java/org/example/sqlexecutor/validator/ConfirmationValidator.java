@@ -1,5 +1,6 @@
 package org.example.sqlexecutor.validator;
 
+import org.example.sqlexecutor.sql.SqlStatementType;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -8,14 +9,16 @@ import java.time.format.DateTimeFormatter;
 @Component
 public class ConfirmationValidator {
 
-    public boolean validateConfirmationCode(String code, String queryType) {
+    public boolean validateConfirmationCode(String code, SqlStatementType statementType) {
         if (code == null || code.length() != 8) {
             return false;
         }
 
         // Kiểm tra chỉ chứa các chữ số
-        if (!code.matches("\\d{8}")) {
-            return false;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) < '0' || code.charAt(i) > '9') {
+                return false;
+            }
         }
 
         // Lấy ngày hiện tại
@@ -23,7 +26,7 @@ public class ConfirmationValidator {
 
         // Định dạng khác nhau dựa trên loại truy vấn
         String expectedCode;
-        if ("SELECT".equalsIgnoreCase(queryType)) {
+        if (statementType == SqlStatementType.SELECT) {
             // DDMMYYYY cho SELECT
             expectedCode = today.format(DateTimeFormatter.ofPattern("ddMMyyyy"));
         } else {
@@ -0,0 +1,68 @@
+package org.example.sqlexecutor;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ResultSet trong bộ nhớ (mock) cho unit test đọc kết quả: mỗi dòng là mảng giá trị theo thứ tự cột.
+ */
+public final class TestResultSets {
+
+    private TestResultSets() {
+    }
+
+    public static ResultSet of(String[] labels, int[] types, Object[]... rows) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(labels[i]);
+            when(metaData.getColumnName(i + 1)).thenReturn(labels[i]);
+            when(metaData.getColumnType(i + 1)).thenReturn(types[i]);
+        }
+        when(metaData.isSigned(anyInt())).thenReturn(true);
+
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenAnswer(invocation -> ++cursor[0] < rows.length);
+        when(resultSet.wasNull()).thenAnswer(invocation -> wasNull[0]);
+        when(resultSet.getObject(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value;
+        });
+        when(resultSet.getString(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? null : value.toString();
+        });
+        when(resultSet.getLong(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0L : ((Number) value).longValue();
+        });
+        when(resultSet.getDouble(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0d : ((Number) value).doubleValue();
+        });
+        when(resultSet.getFloat(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0f : ((Number) value).floatValue();
+        });
+        when(resultSet.getBigDecimal(anyInt())).thenAnswer(invocation -> {
+            Object value = rows[cursor[0]][(int) invocation.getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? null : new BigDecimal(value.toString());
+        });
+        return resultSet;
+    }
+}
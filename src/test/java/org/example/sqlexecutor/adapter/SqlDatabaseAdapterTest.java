@@ -0,0 +1,64 @@
+package org.example.sqlexecutor.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlDatabaseAdapterTest {
+
+    private final SqlDatabaseAdapter adapter = new SqlDatabaseAdapter();
+
+    private static final List<String> KEYS = List.of("created_at", "id");
+
+    @Test
+    void mysqlUsesRowValueSeekPredicate() {
+        SqlDatabaseAdapter.DatabaseStrategy strategy = adapter.getStrategy("mysql");
+        assertEquals("SELECT * FROM (SELECT * FROM t) keyset_query ORDER BY created_at ASC, id ASC LIMIT 11",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, false, false, 11));
+        assertEquals("SELECT * FROM (SELECT * FROM t) keyset_query WHERE (created_at, id) > (?, ?)"
+                        + " ORDER BY created_at ASC, id ASC LIMIT 11",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, true, false, 11));
+        assertEquals("SELECT * FROM (SELECT * FROM t) keyset_query WHERE (created_at, id) < (?, ?)"
+                        + " ORDER BY created_at DESC, id DESC LIMIT 11",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, true, true, 11));
+        assertArrayEquals(new Object[]{"2024-01-01", 7}, strategy.getKeysetParameters(List.of("2024-01-01", 7)));
+    }
+
+    @Test
+    void postgresqlSharesMysqlSyntax() {
+        assertEquals(adapter.getStrategy("mysql").getKeysetQuery("SELECT * FROM t", KEYS, true, false, 5),
+                adapter.getStrategy("postgresql").getKeysetQuery("SELECT * FROM t", KEYS, true, false, 5));
+    }
+
+    @Test
+    void sqlServerExpandsSeekPredicate() {
+        SqlDatabaseAdapter.DatabaseStrategy strategy = adapter.getStrategy("sqlserver");
+        assertEquals("SELECT * FROM (SELECT * FROM t) keyset_query"
+                        + " WHERE (created_at > ? OR (created_at = ? AND id > ?))"
+                        + " ORDER BY created_at ASC, id ASC OFFSET 0 ROWS FETCH NEXT 11 ROWS ONLY",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, true, false, 11));
+        assertEquals("SELECT * FROM (SELECT * FROM t) keyset_query"
+                        + " WHERE (created_at < ? OR (created_at = ? AND id < ?))"
+                        + " ORDER BY created_at DESC, id DESC OFFSET 0 ROWS FETCH NEXT 11 ROWS ONLY",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, true, true, 11));
+        // Mỗi nhánh OR bind lại các khóa đứng trước nó
+        assertArrayEquals(new Object[]{"2024-01-01", "2024-01-01", 7},
+                strategy.getKeysetParameters(List.of("2024-01-01", 7)));
+    }
+
+    @Test
+    void oracleExpandsSeekPredicateAndLimitsWithRownum() {
+        SqlDatabaseAdapter.DatabaseStrategy strategy = adapter.getStrategy("oracle");
+        assertEquals("SELECT * FROM (SELECT * FROM (SELECT * FROM t) keyset_query"
+                        + " WHERE (created_at > ? OR (created_at = ? AND id > ?))"
+                        + " ORDER BY created_at ASC, id ASC) WHERE ROWNUM <= 11",
+                strategy.getKeysetQuery("SELECT * FROM t", KEYS, true, false, 11));
+        assertEquals("SELECT * FROM (SELECT * FROM (SELECT * FROM t) keyset_query"
+                        + " ORDER BY id DESC) WHERE ROWNUM <= 3",
+                strategy.getKeysetQuery("SELECT * FROM t", List.of("id"), false, true, 3));
+        assertArrayEquals(new Object[]{1, 1, 2, 1, 2, 3}, strategy.getKeysetParameters(List.of(1, 2, 3)));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.sqlexecutor.capture;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnInfo;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.example.sqlexecutor.model.TransformRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CaptureEngineTest {
+
+    private static final List<ColumnInfo> COLUMNS = List.of(new ColumnInfo("id", "INT"),
+            new ColumnInfo("name", "VARCHAR"), new ColumnInfo("amount", "BIGINT"));
+
+    private static ColumnarPage page(Object[]... rows) {
+        ColumnarPage page = new ColumnarPage(new String[]{"id", "name", "amount"},
+                new ColumnarPage.Kind[]{ColumnarPage.Kind.LONG, ColumnarPage.Kind.STRING, ColumnarPage.Kind.LONG});
+        for (Object[] row : rows) {
+            page.appendRow(row);
+        }
+        return page;
+    }
+
+    private static TransformRequest.Filter filter(String column, String op, Object value) {
+        TransformRequest.Filter filter = new TransformRequest.Filter();
+        filter.setColumn(column);
+        filter.setOp(op);
+        filter.setValue(value);
+        return filter;
+    }
+
+    private static TransformRequest.Aggregate aggregate(String function, String column) {
+        TransformRequest.Aggregate aggregate = new TransformRequest.Aggregate();
+        aggregate.setFunction(function);
+        aggregate.setColumn(column);
+        return aggregate;
+    }
+
+    private static List<Object> column(CaptureEngine.Result result, int column) {
+        ColumnarPage page = result.page(0, result.getRowCount());
+        List<Object> values = new ArrayList<>();
+        for (int row = 0; row < page.getRowCount(); row++) {
+            values.add(page.getValue(row, column));
+        }
+        return values;
+    }
+
+    private static List<Object> ids(ColumnarPage source, TransformRequest request) {
+        return column(CaptureEngine.transform(source, COLUMNS, request), 0);
+    }
+
+    private static List<Object> likeIds(ColumnarPage source, String pattern) {
+        TransformRequest request = new TransformRequest();
+        request.setFilters(List.of(filter("name", "like", pattern)));
+        return ids(source, request);
+    }
+
+    @Test
+    void sortPutsNullsFirstAscendingAndLastDescending() {
+        ColumnarPage source = page(new Object[]{1L, "b", 3L}, new Object[]{2L, "a", null},
+                new Object[]{3L, "c", 1L}, new Object[]{4L, "d", null});
+        TransformRequest request = new TransformRequest();
+
+        request.setSort(List.of("amount"));
+        assertEquals(List.of(2L, 4L, 3L, 1L), ids(source, request));
+
+        request.setSort(List.of("amount desc"));
+        assertEquals(List.of(1L, 3L, 2L, 4L), ids(source, request));
+    }
+
+    @Test
+    void topNKeepsOriginalOrderForTies() {
+        // limit < số dòng / 8 nên đi nhánh top-N thay vì sort toàn bộ
+        Object[][] rows = new Object[100][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{(long) i, "n" + i, (long) (i % 10)};
+        }
+        ColumnarPage source = page(rows);
+        TransformRequest request = new TransformRequest();
+        request.setSort(List.of("amount"));
+        request.setLimit(5);
+
+        assertEquals(List.of(0L, 10L, 20L, 30L, 40L), ids(source, request));
+
+        request.setSort(List.of("amount desc"));
+        assertEquals(List.of(9L, 19L, 29L, 39L, 49L), ids(source, request));
+    }
+
+    @Test
+    void likeIsCaseInsensitiveAndQuotesRegexCharacters() {
+        ColumnarPage source = page(new Object[]{1L, "Alice", 1L}, new Object[]{2L, "alex", 1L},
+                new Object[]{3L, "al", 1L}, new Object[]{4L, "a.b(c)", 1L}, new Object[]{5L, null, 1L},
+                new Object[]{6L, "axb(c)", 1L});
+
+        assertEquals(List.of(1L, 2L, 3L), likeIds(source, "AL%"));
+        assertEquals(List.of(2L), likeIds(source, "al_x"));
+        assertEquals(List.of(1L, 2L), likeIds(source, "al__%"));
+        assertEquals(List.of(4L), likeIds(source, "a.b(c)"));
+        assertEquals(List.of(4L, 6L), likeIds(source, "a_b(%"));
+    }
+
+    @Test
+    void sumOverflowIsAnError() {
+        ColumnarPage source = page(new Object[]{1L, "a", Long.MAX_VALUE}, new Object[]{2L, "b", 1L});
+        TransformRequest request = new TransformRequest();
+        request.setAggregates(List.of(aggregate("sum", "amount")));
+
+        assertThrows(SqlExecutionException.class, () -> CaptureEngine.transform(source, COLUMNS, request));
+    }
+
+    @Test
+    void sumOfOnlyNullsIsNullPerGroup() {
+        ColumnarPage source = page(new Object[]{1L, "a", null}, new Object[]{2L, "b", 4L},
+                new Object[]{3L, "a", null}, new Object[]{4L, "b", 5L});
+        TransformRequest request = new TransformRequest();
+        request.setGroupBy(List.of("name"));
+        request.setAggregates(List.of(aggregate("sum", "amount"), aggregate("count", "amount")));
+        request.setSort(List.of("name"));
+
+        CaptureEngine.Result result = CaptureEngine.transform(source, COLUMNS, request);
+
+        assertEquals(List.of("a", "b"), column(result, 0));
+        List<Object> sums = column(result, 1);
+        assertNull(sums.get(0));
+        assertEquals(9L, sums.get(1));
+        assertEquals(List.of(0L, 2L), column(result, 2));
+    }
+}
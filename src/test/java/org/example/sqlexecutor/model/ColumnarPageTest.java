@@ -0,0 +1,81 @@
+package org.example.sqlexecutor.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.sqlexecutor.TestResultSets;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ColumnarPageTest {
+
+    private static ResultSetMetaData metaData(String... labels) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(labels[i]);
+        }
+        when(metaData.getColumnType(anyInt())).thenReturn(Types.INTEGER);
+        return metaData;
+    }
+
+    @Test
+    void numbersDuplicateLabels() throws Exception {
+        assertArrayEquals(new String[]{"id", "name", "id_2", "id_3"},
+                ColumnarPage.columnLabels(metaData("id", "name", "id", "id")));
+        // Không đè lên label đã có sẵn trong kết quả
+        assertArrayEquals(new String[]{"id", "id_2", "id_3"},
+                ColumnarPage.columnLabels(metaData("id", "id_2", "id")));
+        assertArrayEquals(new String[]{"a", "b"}, ColumnarPage.columnLabels(metaData("a", "b")));
+    }
+
+    @Test
+    void joinedColumnsSerializeWithDistinctKeys() throws Exception {
+        ResultSetMetaData metaData = metaData("id", "id");
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getLong(2)).thenReturn(2L);
+
+        ColumnarPage page = ColumnarPage.read(resultSet, 10);
+
+        assertEquals("[{\"id\":1,\"id_2\":2}]", new ObjectMapper().writeValueAsString(page.asRows()));
+    }
+
+    @Test
+    void readStopsWhenOverByteBudget() throws Exception {
+        ResultSetMetaData metaData = metaData("id");
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(1L);
+
+        // Dừng ở lần kiểm tra đầu tiên thay vì đọc đủ maxRows vào heap
+        assertThrows(SqlExecutionException.class, () -> ColumnarPage.read(resultSet, 1_000_000, 1024));
+        verify(resultSet, times(4096)).getLong(1);
+    }
+
+    @Test
+    void realColumnsAreNotWidenedThroughDouble() throws Exception {
+        ResultSet resultSet = TestResultSets.of(new String[]{"ratio", "amount"},
+                new int[]{Types.REAL, Types.DOUBLE}, new Object[]{0.1f, 0.1d}, new Object[]{null, null});
+
+        ColumnarPage page = ColumnarPage.read(resultSet, 10);
+
+        assertEquals(0.1d, page.getValue(0, 0));
+        assertEquals("[{\"ratio\":0.1,\"amount\":0.1},{\"ratio\":null,\"amount\":null}]",
+                new ObjectMapper().writeValueAsString(page.asRows()));
+    }
+}
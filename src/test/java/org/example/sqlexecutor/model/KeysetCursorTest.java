@@ -0,0 +1,53 @@
+package org.example.sqlexecutor.model;
+
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsEveryKeyType() {
+        LocalDateTime created = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+        Timestamp updated = Timestamp.valueOf("2024-03-02 08:00:00.5");
+        KeysetCursor cursor = new KeysetCursor(KeysetCursor.NEXT, List.of(42L, new BigDecimal("10.50"), "abc",
+                created, LocalDate.of(2024, 3, 1), updated, java.sql.Date.valueOf("2024-01-31")));
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertFalse(decoded.isBackward());
+        List<Object> values = decoded.toJdbcValues();
+        assertEquals(42L, ((Number) values.get(0)).longValue());
+        assertEquals(new BigDecimal("10.50"), values.get(1));
+        assertEquals("abc", values.get(2));
+        assertEquals(created, values.get(3));
+        assertEquals(LocalDate.of(2024, 3, 1), values.get(4));
+        assertEquals(updated, values.get(5));
+        assertEquals(java.sql.Date.valueOf("2024-01-31"), values.get(6));
+    }
+
+    @Test
+    void localDateTimeWithoutSecondsRoundTrips() {
+        // LocalDateTime.toString() bỏ phần giây khi bằng 0
+        LocalDateTime value = LocalDateTime.of(2024, 3, 1, 10, 15);
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(KeysetCursor.PREV, List.of(value)).encode());
+        assertTrue(decoded.isBackward());
+        assertEquals(value, decoded.toJdbcValues().get(0));
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        assertThrows(SqlExecutionException.class, () -> KeysetCursor.decode("not a cursor"));
+        assertThrows(SqlExecutionException.class, () -> KeysetCursor.decode("e30"));
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CursorSessionServiceTest {
+
+    private final CursorSessionService service = new CursorSessionService();
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSourceService dataSourceService = mock(DataSourceService.class);
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSourceService.resolveName(anyString())).thenReturn("mysql");
+        when(dataSourceService.getDatabaseStrategy(anyString()))
+                .thenReturn(new SqlDatabaseAdapter().getStrategy("mysql"));
+        when(dataSourceService.getDataSource(anyString())).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        ReflectionTestUtils.setField(service, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(service, "maxPerDataSource", 2);
+        ReflectionTestUtils.setField(service, "fetchSize", 500);
+        ReflectionTestUtils.setField(service, "queryTimeoutSeconds", 60);
+    }
+
+    @Test
+    void opensWithServerCursorAndTimeout() throws Exception {
+        service.open("mysql", "SELECT * FROM big", 1000);
+
+        // Fetch size dương (cursor phía server) thay vì streaming Integer.MIN_VALUE
+        verify(statement).setFetchSize(500);
+        verify(statement).setQueryTimeout(60);
+    }
+
+    @Test
+    void cancelsUnfinishedSessionBeforeClosing() throws Exception {
+        CursorSessionService.CursorSession session = service.open("mysql", "SELECT * FROM big", 1000);
+        session.addRowsConsumed(100);
+
+        service.close(session.getId());
+
+        InOrder order = inOrder(statement, resultSet);
+        order.verify(statement).cancel();
+        order.verify(resultSet).close();
+    }
+
+    @Test
+    void doesNotCancelExhaustedSession() throws Exception {
+        CursorSessionService.CursorSession session = service.open("mysql", "SELECT * FROM big", 100);
+        session.addRowsConsumed(100);
+
+        service.close(session.getId());
+
+        verify(statement, never()).cancel();
+        verify(resultSet).close();
+    }
+
+    @Test
+    void limitCountsUnknownNamesAsTheDefaultDataSource() {
+        CursorSessionService.CursorSession first = service.open("mysql", "SELECT 1", -1);
+        CursorSessionService.CursorSession second = service.open("no_such_db", "SELECT 2", -1);
+        // Hai session có thể mở trong cùng một mili giây: đánh dấu session đầu là ít dùng gần đây nhất
+        ReflectionTestUtils.setField(first, "lastAccess", 0L);
+        // Tên lạ resolve về "mysql" nên vẫn bị tính vào giới hạn của datasource đó
+        CursorSessionService.CursorSession third = service.open("other_unknown", "SELECT 3", -1);
+
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertFalse(third.isClosed());
+        assertEquals("mysql", third.getDataSourceName());
+    }
+
+    @Test
+    void concurrentOpensStayWithinLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CursorSessionService.CursorSession>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> service.open("mysql", "SELECT 1", -1)));
+            }
+            for (Future<CursorSessionService.CursorSession> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Bị từ chối khi mọi chỗ đều đang được mở: chấp nhận được
+                    assertTrue(e.getCause() instanceof SqlExecutionException);
+                }
+            }
+            assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(service, "sessions")).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
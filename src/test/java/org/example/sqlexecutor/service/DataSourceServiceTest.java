@@ -0,0 +1,95 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.adapter.DatabaseDialect;
+import org.example.sqlexecutor.adapter.DialectRegistry;
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataSourceServiceTest {
+
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    private DataSourceService service(String databaseType) throws Exception {
+        DialectRegistry dialectRegistry = mock(DialectRegistry.class);
+        DatabaseDialect dialect = mock(DatabaseDialect.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dialectRegistry.getDialect(anyString())).thenReturn(dialect);
+        when(dialect.getStrategy()).thenReturn(new SqlDatabaseAdapter().getStrategy(databaseType));
+        when(dialectRegistry.getDataSource(anyString())).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        DataSourceService service = new DataSourceService();
+        ReflectionTestUtils.setField(service, "dialectRegistry", dialectRegistry);
+        return service;
+    }
+
+    private static Object failWrite(ResultSet rs) {
+        throw new UncheckedIOException(new IOException("Broken pipe"));
+    }
+
+    @Test
+    void mysqlAbortsConnectionBeforeClosingAbandonedStream() throws Exception {
+        DataSourceService service = service("mysql");
+
+        UncheckedIOException error = assertThrows(UncheckedIOException.class,
+                () -> service.queryStreaming("mysql", "SELECT * FROM big", 1000, DataSourceServiceTest::failWrite));
+
+        assertEquals("Broken pipe", error.getCause().getMessage());
+        // Hủy connection trước khi đóng ResultSet: đóng ResultSet streaming sẽ đọc bỏ mọi dòng còn lại
+        InOrder order = inOrder(connection, resultSet);
+        order.verify(connection).abort(any(Executor.class));
+        order.verify(resultSet).close();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    void otherDialectsCancelStatementBeforeClosingAbandonedStream() throws Exception {
+        DataSourceService service = service("sqlserver");
+
+        assertThrows(UncheckedIOException.class,
+                () -> service.queryStreaming("db", "SELECT * FROM big", 1000, DataSourceServiceTest::failWrite));
+
+        InOrder order = inOrder(statement, resultSet, connection);
+        order.verify(statement).cancel();
+        order.verify(resultSet).close();
+        order.verify(connection).rollback();
+    }
+
+    @Test
+    void completedStreamIsNotStopped() throws Exception {
+        DataSourceService service = service("mysql");
+
+        assertSame(resultSet, service.queryStreaming("mysql", "SELECT 1", 1000, rs -> rs));
+
+        verify(connection, never()).abort(any(Executor.class));
+        verify(statement, never()).cancel();
+        verify(connection).rollback();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.sqlexecutor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeferredCountServiceTest {
+
+    private final DeferredCountService service = new DeferredCountService();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    private void useExecutor(int queueCapacity) {
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        ReflectionTestUtils.setField(service, "queryExecutor", executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void fullQueueSkipsCountInsteadOfRunningOnCaller() throws Exception {
+        useExecutor(0);
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(mock(DataSource.class));
+        try {
+            assertNotNull(service.submit("mysql", jdbcTemplate, template -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1L;
+            }));
+            Thread caller = Thread.currentThread();
+            // Thread duy nhất đang bận, không có hàng đợi: lần đếm thứ hai bị bỏ, không chạy trên thread gọi
+            assertNull(service.submit("mysql", jdbcTemplate, template -> {
+                assertTrue(Thread.currentThread() != caller);
+                return 2L;
+            }));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void evictionCancelsRunningStatement() throws Exception {
+        useExecutor(10);
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        // Giả lập câu đếm chỉ dừng khi statement bị cancel
+        when(statement.executeQuery(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            cancelled.await(10, TimeUnit.SECONDS);
+            throw new java.sql.SQLException("Query execution was interrupted");
+        });
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(statement).cancel();
+
+        String countId = service.submit("mysql", new JdbcTemplate(dataSource),
+                template -> template.queryForObject("SELECT COUNT(*) FROM big", Long.class));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        ReflectionTestUtils.setField(service, "ttlSeconds", -1L);
+        service.evictExpired();
+
+        assertEquals(0, cancelled.getCount());
+        assertEquals("unknown", service.getStatus(countId).get("status"));
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.export.ExportOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportJobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private ExportJobService exportJobService;
+    private ExportService exportService;
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exportService = mock(ExportService.class);
+        DataSourceService dataSourceService = mock(DataSourceService.class);
+        when(dataSourceService.resolveName(any())).thenReturn("mysql");
+        when(dataSourceService.getDatabaseStrategy(anyString())).thenReturn(mock(SqlDatabaseAdapter.DatabaseStrategy.class));
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.initialize();
+
+        exportJobService = new ExportJobService();
+        ReflectionTestUtils.setField(exportJobService, "exportService", exportService);
+        ReflectionTestUtils.setField(exportJobService, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(exportJobService, "exportJobExecutor", executor);
+        ReflectionTestUtils.setField(exportJobService, "jobDirectory", directory.toString());
+        ReflectionTestUtils.setField(exportJobService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(exportJobService, "maxPerDataSource", 2);
+        exportJobService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void cancelStopsRunningStatement() throws Exception {
+        Statement statement = mock(Statement.class);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(statement).cancel();
+        // Giả lập driver đang chờ database: không phản ứng với interrupt, chỉ dừng khi statement bị cancel
+        doAnswer(invocation -> {
+            ((DataSourceService.StatementListener) invocation.getArgument(5)).prepared(statement);
+            started.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cancelled.getCount() > 0 && System.nanoTime() < deadline) {
+                try {
+                    cancelled.await(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // JDBC đang đọc socket không dừng khi thread bị interrupt
+                }
+            }
+            finished.countDown();
+            throw new SQLException("Query execution was interrupted");
+        }).when(exportService).export(anyString(), anyString(), any(ExportOptions.class), any(OutputStream.class),
+                any(), any());
+
+        ExportJobService.ExportJob job = exportJobService.submit("mysql", "SELECT * FROM big",
+                ExportOptions.of("csv", null, false));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        exportJobService.cancel(job.getId());
+
+        verify(statement).cancel();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(ExportJobService.CANCELLED, job.getStatus());
+    }
+
+    @Test
+    void limitCountsUnknownAndNullNamesAsTheDefaultDataSource() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return 0L;
+        }).when(exportService).export(anyString(), anyString(), any(ExportOptions.class), any(OutputStream.class),
+                any(), any());
+        try {
+            exportJobService.submit(null, "SELECT 1", ExportOptions.of("csv", null, false));
+            ExportJobService.ExportJob job = exportJobService.submit("no_such_db", "SELECT 2",
+                    ExportOptions.of("csv", null, false));
+
+            assertEquals("mysql", exportJobService.getStatus(job.getId()).get("dataSourceName"));
+            // Hai job trên đều thuộc "mysql" nên job thứ ba vượt giới hạn 2
+            assertThrows(SqlExecutionException.class,
+                    () -> exportJobService.submit("mysql", "SELECT 3", ExportOptions.of("csv", null, false)));
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.sqlexecutor.service;
+
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrefetchServiceTest {
+
+    private PrefetchService prefetchService;
+
+    @BeforeEach
+    void setUp() {
+        DataSourceService dataSourceService = mock(DataSourceService.class);
+        when(dataSourceService.isPoolSaturated(anyString())).thenReturn(false);
+        // Chạy tác vụ prefetch ngay trên thread gọi
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        prefetchService = new PrefetchService();
+        ReflectionTestUtils.setField(prefetchService, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(prefetchService, "prefetchExecutor", executor);
+        ReflectionTestUtils.setField(prefetchService, "enabled", true);
+        ReflectionTestUtils.setField(prefetchService, "ttlSeconds", 30L);
+        ReflectionTestUtils.setField(prefetchService, "maxPages", 100L);
+        prefetchService.init();
+    }
+
+    @Test
+    void takeDoesNotReturnPageOfQueryDifferingInLiteral() {
+        QueryResultCache.CachedPage page = page();
+        prefetchService.submit("mysql", "SELECT * FROM t WHERE name = 'a  b'", "1:50", () -> page);
+
+        assertNull(prefetchService.take("mysql", "SELECT * FROM t WHERE name = 'a b'", "1:50", true));
+        assertSame(page, prefetchService.take("mysql", "SELECT *\nFROM t WHERE name = 'a  b';", "1:50", true));
+    }
+
+    @Test
+    void invalidateDropsPagesOfDataSource() {
+        prefetchService.submit("mysql", "SELECT 1", "1:50", PrefetchServiceTest::page);
+        prefetchService.invalidate("mysql");
+
+        assertNull(prefetchService.take("mysql", "SELECT 1", "1:50", true));
+    }
+
+    @Test
+    void pageReadBeforeInvalidateIsNotBuffered() {
+        // Lệnh ghi chạy xong trong lúc trang kế tiếp đang được đọc
+        prefetchService.submit("mysql", "SELECT 1", "1:50", () -> {
+            prefetchService.invalidate("mysql");
+            return page();
+        });
+
+        assertNull(prefetchService.take("mysql", "SELECT 1", "1:50", true));
+    }
+
+    @Test
+    void invalidateInTransactionRepeatsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            prefetchService.invalidate("mysql");
+            // Trang đọc giữa lúc cập nhật và lúc commit (còn thấy dữ liệu cũ)
+            prefetchService.submit("mysql", "SELECT 1", "1:50", PrefetchServiceTest::page);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(prefetchService.take("mysql", "SELECT 1", "1:50", true));
+    }
+
+    private static QueryResultCache.CachedPage page() {
+        ColumnarPage columns = new ColumnarPage(new String[]{"id"}, new ColumnarPage.Kind[]{ColumnarPage.Kind.LONG});
+        return new QueryResultCache.CachedPage(List.of(), columns, false, null, null);
+    }
+}
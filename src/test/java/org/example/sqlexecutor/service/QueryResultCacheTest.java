@@ -0,0 +1,106 @@
+package org.example.sqlexecutor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryResultCacheTest {
+
+    private QueryResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new QueryResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.init();
+    }
+
+    @Test
+    void normalizeCollapsesWhitespaceBetweenTokens() {
+        assertEquals("SELECT * FROM t WHERE id = 1",
+                QueryResultCache.normalize("  SELECT *\n  FROM t\tWHERE id = 1 ;; "));
+    }
+
+    @Test
+    void normalizeKeepsWhitespaceInsideLiteralsAndQuotedIdentifiers() {
+        assertNotEquals(QueryResultCache.normalize("SELECT * FROM t WHERE name = 'a  b'"),
+                QueryResultCache.normalize("SELECT * FROM t WHERE name = 'a b'"));
+        assertNotEquals(QueryResultCache.normalize("SELECT \"first  name\" FROM t"),
+                QueryResultCache.normalize("SELECT \"first name\" FROM t"));
+        assertEquals("SELECT * FROM t WHERE name = 'a  b;'",
+                QueryResultCache.normalize("SELECT * FROM t WHERE name = 'a  b;';"));
+    }
+
+    @Test
+    void normalizeKeepsComments() {
+        assertNotEquals(QueryResultCache.normalize("SELECT /*+ INDEX(t i1) */ * FROM t"),
+                QueryResultCache.normalize("SELECT /*+ INDEX(t i2) */ * FROM t"));
+        assertNotEquals(QueryResultCache.normalize("SELECT 1 -- x\n, 2"),
+                QueryResultCache.normalize("SELECT 1, 2"));
+    }
+
+    @Test
+    void queriesDifferingOnlyInLiteralWhitespaceDoNotShareEntries() {
+        String spaced = "SELECT * FROM users WHERE name = 'a  b'";
+        String single = "SELECT * FROM users WHERE name = 'a b'";
+        cache.putCount("mysql", spaced, 7, cache.generation("mysql"));
+
+        assertNull(cache.getCount("mysql", single));
+        assertEquals(7L, cache.getCount("mysql", spaced));
+        assertEquals(7L, cache.getCount("mysql", "SELECT *  FROM users\nWHERE name = 'a  b';"));
+    }
+
+    @Test
+    void writeInvalidatesEntryThatWasReplaced() {
+        String query = "SELECT COUNT(*) FROM users";
+        cache.putCount("mysql", query, 1, cache.generation("mysql"));
+        // Entry hết hạn rồi được nạp lại cũng đi qua put lên cùng key
+        cache.putCount("mysql", query, 2, cache.generation("mysql"));
+
+        cache.invalidate("mysql", "INSERT INTO users (name) VALUES ('x')");
+
+        assertNull(cache.getCount("mysql", query));
+    }
+
+    @Test
+    void writeInvalidatesOnlyEntriesReadingTheTable() {
+        cache.putCount("mysql", "SELECT * FROM users u JOIN orders o ON o.uid = u.id", 1, cache.generation("mysql"));
+        cache.putCount("mysql", "SELECT * FROM products", 2, cache.generation("mysql"));
+        cache.putCount("replica", "SELECT * FROM orders", 3, cache.generation("replica"));
+
+        cache.invalidate("mysql", "UPDATE orders SET total = 0");
+
+        assertNull(cache.getCount("mysql", "SELECT * FROM users u JOIN orders o ON o.uid = u.id"));
+        assertEquals(2L, cache.getCount("mysql", "SELECT * FROM products"));
+        assertEquals(3L, cache.getCount("replica", "SELECT * FROM orders"));
+    }
+
+    @Test
+    void unknownTablesAreInvalidatedByAnyWrite() {
+        cache.putCount("mysql", "SELECT 1", 1, cache.generation("mysql"));
+        cache.putCount("mysql", "SELECT * FROM products", 2, cache.generation("mysql"));
+
+        cache.invalidate("mysql", "DELETE FROM users");
+        assertNull(cache.getCount("mysql", "SELECT 1"));
+        assertEquals(2L, cache.getCount("mysql", "SELECT * FROM products"));
+
+        // Câu ghi không nhận ra bảng xóa mọi entry của datasource
+        cache.invalidate("mysql", "CALL refresh_all()");
+        assertNull(cache.getCount("mysql", "SELECT * FROM products"));
+    }
+
+    @Test
+    void resultReadBeforeInvalidateIsNotCached() {
+        long generation = cache.generation("mysql");
+        cache.invalidate("mysql", "DELETE FROM users");
+        cache.putCount("mysql", "SELECT COUNT(*) FROM users", 5, generation);
+
+        assertNull(cache.getCount("mysql", "SELECT COUNT(*) FROM users"));
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.sqlexecutor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuerySingleFlightTest {
+
+    private QuerySingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new QuerySingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "enabled", true);
+        ReflectionTestUtils.setField(singleFlight, "maxWaitMs", 5000L);
+    }
+
+    @Test
+    void queriesDifferingOnlyInsideLiteralRunSeparately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("mysql", "count", "SELECT * FROM t WHERE name = 'a  b'", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "first";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        String second = singleFlight.execute("mysql", "count", "SELECT * FROM t WHERE name = 'a b'", () -> {
+            executions.incrementAndGet();
+            return "second";
+        });
+        release.countDown();
+
+        assertEquals("second", second);
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void formattingVariantsShareOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("mysql", "count", "SELECT * FROM t WHERE id = 1", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "shared";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("mysql", "count", "SELECT *\n  FROM t WHERE id = 1;", () -> {
+                    executions.incrementAndGet();
+                    return "separate";
+                }));
+        // Chờ request thứ hai nhập vào lần thực thi đang chạy rồi mới cho lần đầu kết thúc
+        while (singleFlight.getStats().get("savedExecutions").equals(0L)) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS));
+        assertEquals("shared", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResultSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void capsRowsAndTimeoutOnStatement() throws Exception {
+        DataSourceService dataSourceService = mock(DataSourceService.class);
+        Statement statement = mock(Statement.class);
+        // Chỉ kiểm tra cấu hình statement, không đọc dữ liệu
+        when(dataSourceService.queryStreaming(anyString(), anyString(), anyInt(), anyInt(), any(), any()))
+                .thenAnswer(invocation -> {
+                    ((DataSourceService.StatementListener) invocation.getArgument(4)).prepared(statement);
+                    throw new java.sql.SQLException("stop");
+                });
+        ResultSnapshotService service = new ResultSnapshotService();
+        ReflectionTestUtils.setField(service, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(service, "directory", directory.toString());
+        ReflectionTestUtils.setField(service, "maxRows", 1000);
+        ReflectionTestUtils.setField(service, "fetchSize", 100);
+        ReflectionTestUtils.setField(service, "queryTimeoutSeconds", 30);
+
+        assertThrows(RuntimeException.class, () -> service.create("mysql", "SELECT * FROM big", rs -> null));
+
+        verify(statement).setMaxRows(1001);
+        verify(dataSourceService).queryStreaming(eq("mysql"), eq("SELECT * FROM big"), eq(100), eq(30), any(), any());
+    }
+}
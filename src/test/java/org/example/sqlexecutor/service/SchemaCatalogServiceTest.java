@@ -0,0 +1,90 @@
+package org.example.sqlexecutor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SchemaCatalogServiceTest {
+
+    private final SchemaCatalogService service = new SchemaCatalogService();
+    private final DataSourceService dataSourceService = mock(DataSourceService.class);
+    private final ThreadPoolTaskExecutor catalogExecutor = mock(ThreadPoolTaskExecutor.class);
+
+    @BeforeEach
+    void setUp() {
+        when(dataSourceService.resolveName(anyString())).thenReturn("mysql");
+        ReflectionTestUtils.setField(service, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(service, "catalogExecutor", catalogExecutor);
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void rejectedRefreshIsSkippedNotRunOnCaller() {
+        doThrow(new TaskRejectedException("full")).doNothing().when(catalogExecutor).execute(any(Runnable.class));
+
+        service.requestRefresh("mysql", Set.of("users"), false);
+
+        // Không nạp catalog trên thread gọi
+        verify(dataSourceService, never()).getJdbcTemplate(anyString());
+        // Lần yêu cầu sau vẫn được gửi lại executor
+        service.requestRefresh("mysql", Set.of(), false);
+        verify(catalogExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void onlyOneRefreshQueuedPerDataSource() {
+        doNothing().when(catalogExecutor).execute(any(Runnable.class));
+
+        service.requestRefresh("mysql", Set.of("users"), false);
+        service.requestRefresh("mysql", Set.of("orders"), true);
+
+        verify(catalogExecutor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void ddlAfterLeadingCommentTriggersRefresh() {
+        doNothing().when(catalogExecutor).execute(any(Runnable.class));
+
+        service.onStatementExecuted("mysql", "/* migration 42 */ -- add column\nALTER TABLE users ADD COLUMN age INT");
+
+        verify(catalogExecutor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void dmlDoesNotTriggerRefresh() {
+        service.onStatementExecuted("mysql", "INSERT INTO logs (msg) VALUES ('CREATE TABLE x')");
+        service.onStatementExecuted("mysql", "-- DROP TABLE users\nUPDATE users SET name = 'a'");
+
+        verify(catalogExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void ddlTargetsFindsAffectedTables() {
+        assertEquals(Set.of("USERS"), SchemaCatalogService.ddlTargets("CREATE TABLE IF NOT EXISTS app.`users` (id INT)"));
+        assertEquals(Set.of("ORDERS"), SchemaCatalogService.ddlTargets("CREATE INDEX idx_customer ON orders (customer_id)"));
+        assertEquals(Set.of("OLD_NAME", "NEW_NAME"), SchemaCatalogService.ddlTargets("RENAME TABLE old_name TO new_name"));
+        assertEquals(Set.of("USERS"), SchemaCatalogService.ddlTargets("COMMENT ON COLUMN public.users.email IS 'mail'"));
+        assertEquals(Set.of("AUDIT"), SchemaCatalogService.ddlTargets("TRUNCATE audit"));
+        assertEquals(Set.of("ORDERS"), SchemaCatalogService.ddlTargets(
+                "ALTER TABLE orders ADD CONSTRAINT fk FOREIGN KEY (c) REFERENCES customers (id) ON DELETE CASCADE"));
+        // Câu lệnh DML đứng trước không che DDL phía sau, tên trong chuỗi bị bỏ qua
+        assertEquals(Set.of("T"), SchemaCatalogService.ddlTargets("SELECT 'TABLE x'; DROP TABLE t"));
+        assertNull(SchemaCatalogService.ddlTargets("SELECT * FROM users"));
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.sqlexecutor.service.impl;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.sqlexecutor.TestResultSets;
+import org.example.sqlexecutor.adapter.DatabaseDialect;
+import org.example.sqlexecutor.adapter.DialectRegistry;
+import org.example.sqlexecutor.adapter.SqlDatabaseAdapter;
+import org.example.sqlexecutor.export.ExportOptions;
+import org.example.sqlexecutor.export.ExportPipeline;
+import org.example.sqlexecutor.export.RowSinkFactory;
+import org.example.sqlexecutor.service.DataSourceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportServiceImplTest {
+
+    private final ThreadPoolTaskExecutor readerExecutor = new ThreadPoolTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        readerExecutor.shutdown();
+    }
+
+    @Test
+    void clientAbortStopsQueryBeforeClosingResultSet() throws Exception {
+        Object[][] rows = new Object[20_000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{(long) i, "row " + i};
+        }
+        ResultSet resultSet = TestResultSets.of(new String[]{"id", "name"},
+                new int[]{Types.INTEGER, Types.VARCHAR}, rows);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        // Client đóng kết nối: mọi lần ghi đều lỗi như ClientAbortException của Tomcat
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+
+        assertThrows(RuntimeException.class, () -> exportService(connection)
+                .export("mysql", "SELECT * FROM big", ExportOptions.of("csv", null, false), response));
+
+        // Dừng truy vấn trước khi đóng ResultSet streaming, không đọc nốt phần còn lại
+        InOrder order = inOrder(connection, resultSet);
+        order.verify(connection).abort(any(Executor.class));
+        order.verify(resultSet).close();
+    }
+
+    private ExportServiceImpl exportService(Connection connection) throws Exception {
+        DialectRegistry dialectRegistry = mock(DialectRegistry.class);
+        DatabaseDialect dialect = mock(DatabaseDialect.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dialectRegistry.getDialect(anyString())).thenReturn(dialect);
+        when(dialect.getStrategy()).thenReturn(new SqlDatabaseAdapter().getStrategy("mysql"));
+        when(dialectRegistry.getDataSource(anyString())).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        DataSourceService dataSourceService = new DataSourceService();
+        ReflectionTestUtils.setField(dataSourceService, "dialectRegistry", dialectRegistry);
+
+        readerExecutor.setCorePoolSize(1);
+        readerExecutor.initialize();
+        ExportPipeline exportPipeline = new ExportPipeline();
+        ReflectionTestUtils.setField(exportPipeline, "exportReaderExecutor", readerExecutor);
+        ReflectionTestUtils.setField(exportPipeline, "batchRows", 500);
+        ReflectionTestUtils.setField(exportPipeline, "queueBatches", 8);
+
+        ExportServiceImpl exportService = new ExportServiceImpl();
+        ReflectionTestUtils.setField(exportService, "dataSourceService", dataSourceService);
+        ReflectionTestUtils.setField(exportService, "rowSinkFactory", new RowSinkFactory());
+        ReflectionTestUtils.setField(exportService, "exportPipeline", exportPipeline);
+        ReflectionTestUtils.setField(exportService, "fetchSize", 1000);
+        return exportService;
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.sqlexecutor.snapshot;
+
+import org.example.sqlexecutor.TestResultSets;
+import org.example.sqlexecutor.exception.SqlExecutionException;
+import org.example.sqlexecutor.model.ColumnarPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultSnapshotTest {
+
+    private static final String[] LABELS = {"id", "score", "name", "amount", "created"};
+    private static final int[] TYPES = {Types.INTEGER, Types.DOUBLE, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP};
+
+    @TempDir
+    Path directory;
+
+    private ResultSnapshot snapshot(int maxRows, Object[]... rows) throws Exception {
+        ResultSet resultSet = TestResultSets.of(LABELS, TYPES, rows);
+        return ResultSnapshot.create("s1", "mysql", "SELECT ...", List.of(), directory.resolve("s1"),
+                resultSet, maxRows, Long.MAX_VALUE);
+    }
+
+    private static List<Object> column(ColumnarPage page, int column) {
+        List<Object> values = new ArrayList<>();
+        for (int row = 0; row < page.getRowCount(); row++) {
+            values.add(page.getValue(row, column));
+        }
+        return values;
+    }
+
+    @Test
+    void roundTripsEveryColumnKind() throws Exception {
+        LocalDateTime created = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+        ResultSnapshot snapshot = snapshot(100,
+                new Object[]{1L, 1.5, "Ánh", new BigDecimal("10.25"), created},
+                new Object[]{null, null, null, null, null});
+
+        assertEquals(2, snapshot.getRowCount());
+        assertFalse(snapshot.isTruncated());
+        ColumnarPage page = snapshot.readPage(0, 10, null);
+        assertEquals(2, page.getRowCount());
+        assertEquals(1L, page.getValue(0, 0));
+        assertEquals(1.5, page.getValue(0, 1));
+        assertEquals("Ánh", page.getValue(0, 2));
+        assertEquals(new BigDecimal("10.25"), page.getValue(0, 3));
+        assertEquals(created, page.getValue(0, 4));
+        for (int column = 0; column < LABELS.length; column++) {
+            assertNull(page.getValue(1, column), "column " + column);
+        }
+    }
+
+    @Test
+    void readsPageAtOffset() throws Exception {
+        ResultSnapshot snapshot = snapshot(100,
+                new Object[]{1L, 0.0, "a", null, null},
+                new Object[]{2L, 0.0, "b", null, null},
+                new Object[]{3L, 0.0, "c", null, null});
+
+        assertEquals(List.of(2L, 3L), column(snapshot.readPage(1, 5, null), 0));
+        assertEquals(0, snapshot.readPage(3, 5, null).getRowCount());
+    }
+
+    @Test
+    void marksSnapshotTruncatedAtMaxRows() throws Exception {
+        ResultSnapshot snapshot = snapshot(2,
+                new Object[]{1L, 0.0, "a", null, null},
+                new Object[]{2L, 0.0, "b", null, null},
+                new Object[]{3L, 0.0, "c", null, null});
+
+        assertEquals(2, snapshot.getRowCount());
+        assertTrue(snapshot.isTruncated());
+    }
+
+    @Test
+    void sortsWithNullsFirstAndKeepsQueryOrderForTies() throws Exception {
+        ResultSnapshot snapshot = snapshot(100,
+                new Object[]{1L, 2.0, "b", null, null},
+                new Object[]{2L, null, "a", null, null},
+                new Object[]{3L, 1.0, "b", null, null},
+                new Object[]{4L, 2.0, "c", null, null});
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), column(snapshot.readPage(0, 10, List.of("score")), 0));
+        assertEquals(List.of(1L, 4L, 3L, 2L), column(snapshot.readPage(0, 10, List.of("score desc")), 0));
+        // Khóa thứ hai quyết định thứ tự khi khóa đầu bằng nhau
+        assertEquals(List.of(2L, 3L, 1L, 4L),
+                column(snapshot.readPage(0, 10, List.of("name", "id desc")), 0));
+        assertEquals(List.of(4L, 1L, 3L, 2L), column(snapshot.readPage(0, 10, List.of("NAME DESC")), 0));
+    }
+
+    @Test
+    void sortsPageAfterOffset() throws Exception {
+        ResultSnapshot snapshot = snapshot(100,
+                new Object[]{3L, 0.0, "c", null, null},
+                new Object[]{1L, 0.0, "a", null, null},
+                new Object[]{2L, 0.0, "b", null, null});
+
+        assertEquals(List.of(2L, 3L), column(snapshot.readPage(1, 2, List.of("id")), 0));
+    }
+
+    @Test
+    void rejectsUnknownSortColumn() throws Exception {
+        ResultSnapshot snapshot = snapshot(100, new Object[]{1L, 0.0, "a", null, null});
+        assertThrows(SqlExecutionException.class, () -> snapshot.readPage(0, 10, List.of("missing")));
+    }
+
+    @Test
+    void deletesFilesWhenDiskBudgetIsExceeded() throws Exception {
+        ResultSet resultSet = TestResultSets.of(LABELS, TYPES,
+                new Object[]{1L, 0.0, "a".repeat(100), null, null});
+        Path target = directory.resolve("s2");
+
+        assertThrows(SqlExecutionException.class, () -> ResultSnapshot.create("s2", "mysql", "SELECT ...",
+                List.of(), target, resultSet, 100, 50));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void closeDeletesFiles() throws Exception {
+        ResultSnapshot snapshot = snapshot(100, new Object[]{1L, 0.0, "a", null, null});
+        snapshot.close();
+
+        assertFalse(Files.exists(directory.resolve("s1")));
+        assertThrows(SqlExecutionException.class, () -> snapshot.readPage(0, 1, null));
+    }
+}
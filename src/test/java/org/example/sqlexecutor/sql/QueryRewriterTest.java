@@ -0,0 +1,241 @@
+package org.example.sqlexecutor.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryRewriterTest {
+
+    private static final QueryRewriter.TableMetadata METADATA = (schema, table) -> switch (table.toLowerCase()) {
+        case "customers" -> new QueryRewriter.TableInfo(Set.of("ID", "NAME", "EMAIL"),
+                List.of(Set.of("ID"), Set.of("EMAIL")));
+        case "addresses" -> new QueryRewriter.TableInfo(Set.of("CUSTOMER_ID", "KIND", "CITY"),
+                List.of(Set.of("CUSTOMER_ID", "KIND")));
+        case "orders" -> new QueryRewriter.TableInfo(Set.of("ID", "CUSTOMER_ID", "STATUS", "TOTAL"),
+                List.of(Set.of("ID")));
+        case "tags" -> new QueryRewriter.TableInfo(Set.of("ORDER_ID", "TAG"), List.of());
+        default -> null;
+    };
+
+    private static String count(String sql) {
+        return QueryRewriter.countQuery(sql, SelectStatement.parse(sql), METADATA);
+    }
+
+    private static String page(String sql, QueryRewriter.Paging paging, long offset, int limit) {
+        return QueryRewriter.pageQuery(SelectStatement.parse(sql), paging, offset, limit);
+    }
+
+    // ===== COUNT =====
+
+    @Test
+    void plainSelectIsCountedOverFromAndWhere() {
+        assertEquals("SELECT COUNT(*) FROM orders WHERE status = 'A'",
+                count("SELECT id, total FROM orders WHERE status = 'A' ORDER BY id;"));
+        assertEquals("SELECT COUNT(*) FROM orders",
+                count("SELECT (SELECT MAX(order_id) FROM tags) m, id FROM orders ORDER BY id"));
+        assertEquals("SELECT COUNT(*) FROM orders", count("SELECT * FROM orders FOR UPDATE"));
+    }
+
+    @Test
+    void orderByInsideLiteralOrCommentIsNotAClause() {
+        assertEquals("SELECT COUNT(*) FROM orders WHERE note = 'order by x'",
+                count("SELECT * FROM orders WHERE note = 'order by x' -- order by y"));
+    }
+
+    @Test
+    void withPrefixIsKeptOutsideCount() {
+        assertEquals("WITH x AS (SELECT * FROM orders) SELECT COUNT(*) FROM x WHERE id > 3",
+                count("WITH x AS (SELECT * FROM orders) SELECT * FROM x WHERE id > 3 ORDER BY id"));
+    }
+
+    @Test
+    void existingCountQueryRunsAsIs() {
+        assertEquals("SELECT COUNT(*) FROM orders WHERE status = 'A'",
+                count("SELECT COUNT(*) FROM orders WHERE status = 'A';"));
+    }
+
+    @Test
+    void distinctGroupByAndUnionAreWrapped() {
+        assertEquals("SELECT COUNT(*) FROM (SELECT DISTINCT status FROM orders) count_query",
+                count("SELECT DISTINCT status FROM orders ORDER BY status"));
+        assertEquals("SELECT COUNT(*) FROM (SELECT status, COUNT(*) FROM orders GROUP BY status) count_query",
+                count("SELECT status, COUNT(*) FROM orders GROUP BY status ORDER BY 2 DESC"));
+        assertEquals("SELECT COUNT(*) FROM (SELECT a FROM t1 UNION SELECT a FROM t2) count_query",
+                count("SELECT a FROM t1 UNION SELECT a FROM t2 ORDER BY a"));
+    }
+
+    @Test
+    void aggregatesAndWindowFunctionsAreWrapped() {
+        assertEquals("SELECT COUNT(*) FROM (SELECT COALESCE(SUM(total), 0) FROM orders) count_query",
+                count("SELECT COALESCE(SUM(total), 0) FROM orders"));
+        assertEquals("SELECT COUNT(*) FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY id) FROM orders) count_query",
+                count("SELECT id, ROW_NUMBER() OVER (ORDER BY id) FROM orders"));
+    }
+
+    @Test
+    void orderByIsKeptWhenPagingDependsOnIt() {
+        assertEquals("SELECT COUNT(*) FROM (SELECT * FROM orders ORDER BY id LIMIT 10) count_query",
+                count("SELECT * FROM orders ORDER BY id LIMIT 10"));
+    }
+
+    @Test
+    void unparsableStatementIsWrappedWhole() {
+        assertEquals("SELECT COUNT(*) FROM (SELECT 1\n) count_query",
+                QueryRewriter.countQuery("SELECT 1;", null, METADATA));
+    }
+
+    // ===== Bỏ LEFT JOIN khi đếm =====
+
+    @Test
+    void leftJoinOnUniqueKeyIsDropped() {
+        assertEquals("SELECT COUNT(*) FROM orders o WHERE o.status = 'X'",
+                count("SELECT o.id, c.name FROM orders o LEFT JOIN customers c ON c.id = o.customer_id "
+                        + "WHERE o.status = 'X'"));
+        assertEquals("SELECT COUNT(*) FROM orders o",
+                count("SELECT o.id FROM orders o LEFT JOIN customers c ON c.email = o.note"));
+    }
+
+    @Test
+    void chainedNeutralJoinsAreDroppedFromLastToFirst() {
+        assertEquals("SELECT COUNT(*) FROM orders o WHERE status = 1",
+                count("SELECT o.id FROM orders o LEFT JOIN customers c ON c.id = o.customer_id "
+                        + "LEFT JOIN addresses ad ON ad.customer_id = c.id AND ad.kind = 'HOME' WHERE status = 1"));
+    }
+
+    @Test
+    void joinReferencedInWhereIsKept() {
+        String sql = "SELECT o.id FROM orders o LEFT JOIN customers c ON c.id = o.customer_id WHERE c.name = 'X'";
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN customers c ON c.id = o.customer_id WHERE c.name = 'X'",
+                count(sql));
+    }
+
+    @Test
+    void joinWhoseColumnMayBeUsedUnqualifiedIsKept() {
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN customers c ON c.id = o.customer_id WHERE name = 'x'",
+                count("SELECT o.id FROM orders o LEFT JOIN customers c ON c.id = o.customer_id WHERE name = 'x'"));
+    }
+
+    @Test
+    void joinNotCoveringAUniqueKeyIsKept() {
+        // Khóa (customer_id, kind) chỉ được ràng buộc một phần
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN addresses ad ON ad.customer_id = o.customer_id",
+                count("SELECT o.id FROM orders o LEFT JOIN addresses ad ON ad.customer_id = o.customer_id"));
+        // Bảng không có khóa duy nhất
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN tags t ON t.order_id = o.id",
+                count("SELECT o.id FROM orders o LEFT JOIN tags t ON t.order_id = o.id"));
+        // Không có metadata
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN unknown u ON u.id = o.id",
+                count("SELECT o.id FROM orders o LEFT JOIN unknown u ON u.id = o.id"));
+    }
+
+    @Test
+    void joinWithOrConditionIsKept() {
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN customers c ON (c.id = o.customer_id OR c.email = 'a')",
+                count("SELECT o.id FROM orders o LEFT JOIN customers c ON (c.id = o.customer_id OR c.email = 'a')"));
+    }
+
+    @Test
+    void innerJoinAndCteJoinAreKept() {
+        assertEquals("SELECT COUNT(*) FROM orders o JOIN customers c ON c.id = o.customer_id",
+                count("SELECT o.id FROM orders o JOIN customers c ON c.id = o.customer_id"));
+        assertEquals("WITH customers AS (SELECT 1 id UNION ALL SELECT 1) SELECT COUNT(*) FROM orders o "
+                        + "LEFT JOIN customers c ON c.id = o.customer_id",
+                count("WITH customers AS (SELECT 1 id UNION ALL SELECT 1) SELECT o.id FROM orders o "
+                        + "LEFT JOIN customers c ON c.id = o.customer_id"));
+    }
+
+    @Test
+    void joinsAreKeptWithoutMetadata() {
+        String sql = "SELECT o.id FROM orders o LEFT JOIN customers c ON c.id = o.customer_id";
+        assertEquals("SELECT COUNT(*) FROM orders o LEFT JOIN customers c ON c.id = o.customer_id",
+                QueryRewriter.countQuery(sql, SelectStatement.parse(sql), null));
+    }
+
+    // ===== Phân trang =====
+
+    @Test
+    void limitOffsetIsAppendedBeforeLockingClause() {
+        assertEquals("SELECT * FROM orders ORDER BY id LIMIT 10 OFFSET 20",
+                page("SELECT * FROM orders ORDER BY id;", QueryRewriter.Paging.LIMIT_OFFSET, 20, 10));
+        assertEquals("SELECT * FROM orders WHERE id > 1 LIMIT 20 OFFSET 20 FOR UPDATE",
+                page("SELECT * FROM orders WHERE id > 1 FOR UPDATE", QueryRewriter.Paging.LIMIT_OFFSET, 20, 20));
+    }
+
+    @Test
+    void offsetFetchIsUsedForOracle() {
+        assertEquals("SELECT * FROM orders ORDER BY id OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+                page("SELECT * FROM orders ORDER BY id", QueryRewriter.Paging.OFFSET_FETCH, 20, 10));
+        assertEquals("SELECT * FROM orders OFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY",
+                page("SELECT * FROM orders", QueryRewriter.Paging.OFFSET_FETCH, 0, 10));
+    }
+
+    @Test
+    void orderedOffsetFetchAddsOrderByForSqlServer() {
+        assertEquals("SELECT * FROM orders ORDER BY (SELECT NULL) OFFSET 0 ROWS FETCH NEXT 20 ROWS ONLY",
+                page("SELECT * FROM orders", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 0, 20));
+        assertEquals("SELECT * FROM orders ORDER BY id OFFSET 40 ROWS FETCH NEXT 20 ROWS ONLY",
+                page("SELECT * FROM orders ORDER BY id", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 40, 20));
+        assertEquals("SELECT * FROM (SELECT a FROM t1 UNION SELECT a FROM t2) page_query ORDER BY (SELECT NULL) "
+                        + "OFFSET 0 ROWS FETCH NEXT 20 ROWS ONLY",
+                page("SELECT a FROM t1 UNION SELECT a FROM t2", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 0, 20));
+    }
+
+    @Test
+    void existingLimitIsMergedWithPage() {
+        assertEquals("SELECT * FROM orders ORDER BY id LIMIT 10 OFFSET 90",
+                page("SELECT * FROM orders ORDER BY id LIMIT 100", QueryRewriter.Paging.LIMIT_OFFSET, 90, 20));
+        assertEquals("SELECT * FROM orders ORDER BY id LIMIT 20 OFFSET 5",
+                page("SELECT * FROM orders ORDER BY id LIMIT 5, 100", QueryRewriter.Paging.LIMIT_OFFSET, 0, 20));
+        assertEquals("SELECT * FROM orders ORDER BY id LIMIT 20 OFFSET 25",
+                page("SELECT * FROM orders ORDER BY id LIMIT 100 OFFSET 5 -- c", QueryRewriter.Paging.LIMIT_OFFSET,
+                        20, 20));
+    }
+
+    @Test
+    void pageBeyondExistingLimitIsEmpty() {
+        assertEquals("SELECT * FROM (SELECT * FROM orders ORDER BY id LIMIT 100) page_query WHERE 1 = 0",
+                page("SELECT * FROM orders ORDER BY id LIMIT 100", QueryRewriter.Paging.LIMIT_OFFSET, 120, 20));
+    }
+
+    @Test
+    void existingFetchIsMergedWithPage() {
+        assertEquals("SELECT * FROM orders ORDER BY id OFFSET 30 ROWS FETCH NEXT 20 ROWS ONLY",
+                page("SELECT * FROM orders ORDER BY id OFFSET 10 ROWS FETCH NEXT 50 ROWS ONLY",
+                        QueryRewriter.Paging.OFFSET_FETCH, 20, 20));
+        assertEquals("SELECT * FROM orders OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+                page("SELECT * FROM orders FETCH FIRST 30 ROWS ONLY", QueryRewriter.Paging.OFFSET_FETCH, 20, 20));
+    }
+
+    @Test
+    void existingTopIsMergedWithPage() {
+        assertEquals("SELECT TOP 20 * FROM orders ORDER BY id",
+                page("SELECT TOP 50 * FROM orders ORDER BY id", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 0, 20));
+        assertEquals("SELECT * FROM orders ORDER BY id OFFSET 40 ROWS FETCH NEXT 10 ROWS ONLY",
+                page("SELECT TOP (50) * FROM orders ORDER BY id", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 40, 20));
+    }
+
+    @Test
+    void nonLiteralLimitIsWrapped() {
+        assertEquals("SELECT * FROM (SELECT * FROM orders LIMIT ?) page_query LIMIT 20 OFFSET 20",
+                page("SELECT * FROM orders LIMIT ?", QueryRewriter.Paging.LIMIT_OFFSET, 20, 20));
+        assertEquals("SELECT * FROM (SELECT TOP 10 PERCENT * FROM orders) page_query ORDER BY (SELECT NULL) "
+                        + "OFFSET 40 ROWS FETCH NEXT 20 ROWS ONLY",
+                page("SELECT TOP 10 PERCENT * FROM orders", QueryRewriter.Paging.ORDERED_OFFSET_FETCH, 40, 20));
+    }
+
+    // ===== Bỏ ORDER BY =====
+
+    @Test
+    void stripOrderByOnlyRemovesOuterOrderBy() {
+        assertEquals("SELECT * FROM (SELECT * FROM t ORDER BY a LIMIT 3) x WHERE s = 'order by'",
+                QueryRewriter.stripOrderBy("SELECT * FROM (SELECT * FROM t ORDER BY a LIMIT 3) x WHERE s = 'order by' "
+                        + "ORDER BY b"));
+        assertEquals("SELECT ROW_NUMBER() OVER (ORDER BY a) FROM t",
+                QueryRewriter.stripOrderBy("SELECT ROW_NUMBER() OVER (ORDER BY a) FROM t"));
+        assertEquals("SELECT * FROM t ORDER BY a LIMIT 5",
+                QueryRewriter.stripOrderBy("SELECT * FROM t ORDER BY a LIMIT 5"));
+    }
+}
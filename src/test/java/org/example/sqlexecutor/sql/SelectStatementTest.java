@@ -0,0 +1,72 @@
+package org.example.sqlexecutor.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SelectStatementTest {
+
+    @Test
+    void parsesOnlySingleSelect() {
+        assertNotNull(SelectStatement.parse("SELECT 1;"));
+        assertNotNull(SelectStatement.parse("WITH x AS (SELECT 1 a) SELECT a FROM x"));
+        assertNull(SelectStatement.parse("UPDATE t SET a = 1"));
+        assertNull(SelectStatement.parse("WITH x AS (SELECT 1) DELETE FROM t"));
+        assertNull(SelectStatement.parse("SELECT 1; SELECT 2"));
+        assertNull(SelectStatement.parse("SELECT 'unterminated"));
+        assertNull(SelectStatement.parse("SELECT (1"));
+    }
+
+    @Test
+    void plainSelectExcludesShapeChangingClauses() {
+        assertTrue(SelectStatement.parse("SELECT a, (SELECT MAX(b) FROM u) FROM t WHERE c = 1 ORDER BY a")
+                .isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT DISTINCT a FROM t").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT a FROM t GROUP BY a").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT MAX(a) FROM t").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT a FROM t UNION SELECT a FROM u").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT a FROM t LIMIT 5").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT TOP 5 a FROM t").isPlainSelect());
+        assertFalse(SelectStatement.parse("SELECT a FROM t START WITH a = 1 CONNECT BY PRIOR a = b").isPlainSelect());
+    }
+
+    @Test
+    void readsLiteralPagingValues() {
+        SelectStatement limit = SelectStatement.parse("SELECT a FROM t LIMIT 5, 10");
+        assertTrue(limit.pagingLiteral);
+        assertEquals(10L, limit.limitValue);
+        assertEquals(5L, limit.offsetValue);
+
+        SelectStatement fetch = SelectStatement.parse("SELECT a FROM t ORDER BY a OFFSET 3 ROWS FETCH NEXT 7 ROWS ONLY");
+        assertEquals(7L, fetch.limitValue);
+        assertEquals(3L, fetch.offsetValue);
+
+        assertFalse(SelectStatement.parse("SELECT a FROM t LIMIT ?").pagingLiteral);
+        assertFalse(SelectStatement.parse("SELECT a FROM t FETCH FIRST 5 ROWS WITH TIES").pagingLiteral);
+    }
+
+    @Test
+    void orderByBeforeSetOperatorBelongsToBranch() {
+        SelectStatement statement = SelectStatement.parse("SELECT a FROM (SELECT a FROM t ORDER BY a) x UNION SELECT b FROM u");
+        assertTrue(statement.isCompound());
+        assertFalse(statement.hasOrderBy());
+    }
+
+    @Test
+    void recognisesCountQuery() {
+        assertTrue(SelectStatement.parse("SELECT COUNT(*) AS n FROM t WHERE a = 1").isCountQuery());
+        assertFalse(SelectStatement.parse("SELECT COUNT(*), a FROM t").isCountQuery());
+        assertFalse(SelectStatement.parse("SELECT COUNT(*) FROM t GROUP BY a").isCountQuery());
+    }
+
+    @Test
+    void recognisesOuterLockClause() {
+        assertTrue(SelectStatement.parse("SELECT a FROM t WHERE a = 1 FOR UPDATE").hasLockClause());
+        assertTrue(SelectStatement.parse("SELECT a FROM t LOCK IN SHARE MODE").hasLockClause());
+        assertFalse(SelectStatement.parse("SELECT a FROM t WHERE b = 'for update'").hasLockClause());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.sqlexecutor.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlContextAnalyzerTest {
+
+    // Dấu | đánh dấu vị trí con trỏ
+    private static SqlContext analyze(String textWithCursor) {
+        int cursor = textWithCursor.indexOf('|');
+        return SqlContextAnalyzer.analyze(textWithCursor.replace("|", ""), cursor);
+    }
+
+    private static String resolved(String textWithCursor) {
+        SqlContext.TableRef table = analyze(textWithCursor).resolveQualifier();
+        return table != null ? table.getQualifiedName() : null;
+    }
+
+    @Test
+    void tableContextAfterFromAndSchema() {
+        SqlContext context = analyze("SELECT * FROM ord|");
+        assertEquals(SqlContext.Kind.TABLE, context.getKind());
+        assertEquals("ord", context.getPartial());
+
+        context = analyze("SELECT * FROM sales.ord|");
+        assertEquals(SqlContext.Kind.TABLE, context.getKind());
+        assertEquals("sales", context.getQualifier());
+        assertEquals("ord", context.getPartial());
+    }
+
+    @Test
+    void resolvesAliasDeclaredAfterCursor() {
+        assertEquals("orders", resolved("SELECT o.| FROM orders o JOIN customers c ON c.id = o.cid"));
+        assertEquals("customers", resolved("SELECT c.| FROM orders o JOIN customers c ON c.id = o.cid"));
+        assertEquals("sales.orders", resolved("SELECT o.na| FROM sales.orders AS o"));
+        assertEquals("na", analyze("SELECT o.na| FROM sales.orders AS o").getPartial());
+    }
+
+    @Test
+    void resolvesTableNameWithoutAlias() {
+        assertEquals("orders", resolved("SELECT orders.| FROM orders"));
+        // Alias che tên bảng: "o" khớp alias, tên bảng khác không khớp
+        assertNull(resolved("SELECT x.| FROM orders o"));
+    }
+
+    @Test
+    void resolvesQuotedAndBracketedNames() {
+        assertEquals("Order Items", resolved("SELECT * FROM \"Order Items\" oi WHERE oi.|"));
+        assertEquals("dbo.Orders", resolved("SELECT * FROM [dbo].[Orders] o WHERE o.|"));
+    }
+
+    @Test
+    void subqueryScopeSeesInnerTablesFirst() {
+        SqlContext context = analyze("SELECT x FROM orders o WHERE o.id IN (SELECT i.| FROM items i WHERE i.oid = o.id)");
+        assertEquals("items", context.resolveQualifier().getQualifiedName());
+        List<SqlContext.TableRef> tables = context.getTables();
+        assertEquals("items", tables.get(0).getName());
+        assertEquals("orders", tables.get(1).getName());
+        // Subquery tương quan vẫn nhìn thấy alias của scope ngoài
+        assertEquals("orders", resolved("SELECT x FROM orders o WHERE o.id IN (SELECT 1 FROM items i WHERE o.|)"));
+    }
+
+    @Test
+    void cteAliasResolvesToCte() {
+        SqlContext context = analyze("WITH recent AS (SELECT * FROM orders), big AS (SELECT * FROM recent) "
+                + "SELECT r.| FROM recent r JOIN customers c ON 1 = 1");
+        SqlContext.TableRef table = context.resolveQualifier();
+        assertEquals("recent", table.getName());
+        assertTrue(table.isCte());
+        assertEquals(List.of("recent", "big"), context.getCteNames());
+    }
+
+    @Test
+    void derivedTableHasAliasButNoName() {
+        SqlContext context = analyze("SELECT t.| FROM (SELECT id FROM orders) t");
+        SqlContext.TableRef table = context.resolveQualifier();
+        assertTrue(table.isDerived());
+        assertEquals("t", table.getAlias());
+    }
+
+    @Test
+    void onlyStatementAtCursorIsAnalyzed() {
+        SqlContext context = analyze("SELECT 1 FROM a; SELECT * FROM x WHERE x.| ; SELECT * FROM y");
+        assertEquals(1, context.getTables().size());
+        assertEquals("x", context.resolveQualifier().getName());
+    }
+
+    @Test
+    void dmlStatementsExposeTheirTable() {
+        assertEquals("orders", resolved("UPDATE orders o SET o.| = 1"));
+        assertEquals(SqlContext.Kind.COLUMN, analyze("INSERT INTO orders (|) VALUES (1)").getKind());
+        assertEquals("orders", analyze("DELETE FROM orders WHERE |").getTables().get(0).getName());
+    }
+
+    @Test
+    void noSuggestionsInsideLiteralOrComment() {
+        assertEquals(SqlContext.Kind.NONE, analyze("SELECT * FROM t WHERE a = '|").getKind());
+        assertEquals(SqlContext.Kind.NONE, analyze("SELECT * FROM t -- com|").getKind());
+        assertEquals(SqlContext.Kind.NONE, analyze("SELECT * FROM t /* o.| */").getKind());
+    }
+
+    @Test
+    void incrementalTokensGiveSameContext() {
+        String text = "SELECT o. FROM orders o JOIN customers c ON c.id = o.cid";
+        SqlLexer.Tokens tokens = SqlLexer.tokenize("SELECT o FROM orders o JOIN customers c ON c.id = o.cid");
+        tokens = tokens.update(text);
+        SqlContext context = SqlContextAnalyzer.analyze(tokens, 9);
+        assertEquals(SqlContext.Kind.COLUMN, context.getKind());
+        assertEquals("orders", context.resolveQualifier().getQualifiedName());
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.sqlexecutor.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlLexerTest {
+
+    private static final String SCRIPT;
+
+    static {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            script.append("-- query ").append(i).append('\n')
+                    .append("SELECT o.id, c.name, 'it''s' AS s, 1.5e3, [Order Id], `x`, :p FROM sales.orders o\n")
+                    .append("  JOIN customers c ON c.id = o.customer_id /* c */\n")
+                    .append("  WHERE o.total >= 10 AND o.id IN (SELECT oid FROM items WHERE qty <> 2)\n")
+                    .append("  ORDER BY o.id;\n");
+        }
+        SCRIPT = script.toString();
+    }
+
+    @Test
+    void tokenizesLiteralsIdentifiersAndSkipsComments() {
+        SqlLexer.Tokens tokens = SqlLexer.tokenize("SELECT 'a''b', \"q id\", [x y], 1.5, ? -- c\nFROM /* d */ t;");
+        byte[] types = {SqlLexer.IDENTIFIER, SqlLexer.STRING, SqlLexer.PUNCTUATION, SqlLexer.QUOTED_IDENTIFIER,
+                SqlLexer.PUNCTUATION, SqlLexer.QUOTED_IDENTIFIER, SqlLexer.PUNCTUATION, SqlLexer.NUMBER,
+                SqlLexer.PUNCTUATION, SqlLexer.PARAMETER, SqlLexer.IDENTIFIER, SqlLexer.IDENTIFIER,
+                SqlLexer.PUNCTUATION};
+        assertEquals(types.length, tokens.size());
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(types[i], tokens.type(i), "token " + i);
+        }
+        assertEquals(SqlKeyword.SELECT, tokens.keyword(0));
+        assertEquals(SqlKeyword.FROM, tokens.keyword(10));
+        assertEquals("q id", tokens.name(3));
+        assertEquals("x y", tokens.name(5));
+        assertNull(tokens.keyword(11));
+        assertFalse(tokens.isUnterminated());
+    }
+
+    @Test
+    void marksUnterminatedLiteral() {
+        assertTrue(SqlLexer.tokenize("SELECT * FROM t WHERE a = 'abc").isUnterminated());
+    }
+
+    @Test
+    void skipStatementIgnoresSemicolonsInLiteralsAndComments() {
+        SqlLexer lexer = new SqlLexer("SELECT 'a;b' /* ; */ -- ;\n FROM t; DELETE FROM t");
+        assertTrue(lexer.next());
+        assertTrue(lexer.skipStatement());
+        assertTrue(lexer.next());
+        assertEquals(SqlKeyword.DELETE, lexer.keyword());
+    }
+
+    @Test
+    void incrementalUpdateMatchesFullLexOnTyping() {
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(SCRIPT);
+        int at = SCRIPT.indexOf("ORDER BY o.id;", SCRIPT.length() / 2);
+        String typed = " AND o.name = 'x;y' /* z */";
+        for (int i = 0; i <= typed.length(); i++) {
+            String text = SCRIPT.substring(0, at) + typed.substring(0, i) + SCRIPT.substring(at);
+            tokens = tokens.update(text);
+            assertSameTokens(SqlLexer.tokenize(text), tokens);
+        }
+    }
+
+    @Test
+    void incrementalUpdateMatchesFullLexOnRandomEdits() {
+        Random random = new Random(42);
+        String alphabet = "abc '\"`[]-/*();.,\n=x1";
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(SCRIPT);
+        String text = SCRIPT;
+        for (int edit = 0; edit < 5000; edit++) {
+            int position = random.nextInt(text.length() + 1);
+            if (random.nextBoolean() && position < text.length()) {
+                text = text.substring(0, position) + text.substring(position + 1);
+            } else {
+                text = text.substring(0, position) + alphabet.charAt(random.nextInt(alphabet.length()))
+                        + text.substring(position);
+            }
+            tokens = tokens.update(text);
+            assertSameTokens(SqlLexer.tokenize(text), tokens);
+            if (edit % 250 == 0) {
+                text = SCRIPT;
+                tokens = tokens.update(text);
+            }
+        }
+    }
+
+    @Test
+    void incrementalUpdateHandlesReplacingWholeText() {
+        SqlLexer.Tokens tokens = SqlLexer.tokenize(SCRIPT);
+        tokens = tokens.update("");
+        assertEquals(0, tokens.size());
+        tokens = tokens.update("SELECT 1");
+        assertSameTokens(SqlLexer.tokenize("SELECT 1"), tokens);
+    }
+
+    private static void assertSameTokens(SqlLexer.Tokens expected, SqlLexer.Tokens actual) {
+        assertEquals(expected.size(), actual.size(), "token count");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.type(i), actual.type(i), "type of token " + i);
+            assertEquals(expected.start(i), actual.start(i), "start of token " + i);
+            assertEquals(expected.end(i), actual.end(i), "end of token " + i);
+            assertEquals(expected.keyword(i), actual.keyword(i), "keyword of token " + i);
+        }
+        assertEquals(expected.isUnterminated(), actual.isUnterminated(), "unterminated");
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.sqlexecutor.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlStatementTypeTest {
+
+    @Test
+    void classifiesSimpleStatements() {
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("select * from t"));
+        assertEquals(SqlStatementType.INSERT, SqlStatementType.classify("INSERT INTO t VALUES (1)"));
+        assertEquals(SqlStatementType.UPDATE, SqlStatementType.classify("UPDATE t SET a = 1"));
+        assertEquals(SqlStatementType.DELETE, SqlStatementType.classify("DELETE FROM t"));
+        assertEquals(SqlStatementType.CREATE, SqlStatementType.classify("CREATE TABLE t (a INT)"));
+        assertEquals(SqlStatementType.ALTER, SqlStatementType.classify("ALTER TABLE t ADD b INT"));
+        assertEquals(SqlStatementType.DROP, SqlStatementType.classify("DROP TABLE t"));
+        assertEquals(SqlStatementType.OTHER, SqlStatementType.classify("TRUNCATE TABLE t"));
+        assertEquals(SqlStatementType.OTHER, SqlStatementType.classify(""));
+        assertEquals(SqlStatementType.OTHER, SqlStatementType.classify(null));
+    }
+
+    @Test
+    void selectFollowedByDmlIsNotSelect() {
+        assertEquals(SqlStatementType.DELETE, SqlStatementType.classify("SELECT 1; DELETE FROM t"));
+        assertEquals(SqlStatementType.UPDATE, SqlStatementType.classify("SELECT 1;\nSELECT 2;\nUPDATE t SET a = 1;"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT 1; SELECT 2;"));
+    }
+
+    @Test
+    void leadingCommentsAreSkipped() {
+        assertEquals(SqlStatementType.DELETE, SqlStatementType.classify("/* SELECT */ DELETE FROM t"));
+        assertEquals(SqlStatementType.UPDATE, SqlStatementType.classify("-- SELECT\nUPDATE t SET a = 1"));
+        assertEquals(SqlStatementType.DELETE, SqlStatementType.classify("/* a */ -- b\n /* c */DELETE FROM t"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("-- DELETE FROM t\nSELECT 1"));
+    }
+
+    @Test
+    void withClauseIsClassifiedByMainStatement() {
+        assertEquals(SqlStatementType.SELECT,
+                SqlStatementType.classify("WITH x AS (SELECT id FROM t) SELECT * FROM x"));
+        assertEquals(SqlStatementType.DELETE,
+                SqlStatementType.classify("WITH x AS (SELECT id FROM t) DELETE FROM t WHERE id IN (SELECT id FROM x)"));
+        assertEquals(SqlStatementType.UPDATE,
+                SqlStatementType.classify("WITH RECURSIVE x AS (SELECT 1) UPDATE t SET a = (SELECT 1 FROM x)"));
+        assertEquals(SqlStatementType.INSERT,
+                SqlStatementType.classify("WITH x AS (SELECT 1 a) INSERT INTO t SELECT a FROM x"));
+    }
+
+    @Test
+    void semicolonInsideLiteralOrCommentDoesNotSplit() {
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT ';DELETE FROM t' FROM dual"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT \"a;b\" FROM t"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT 1 /* ; DELETE FROM t */"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT 1 -- ; DELETE FROM t"));
+        assertEquals(SqlStatementType.DELETE, SqlStatementType.classify("SELECT 'a;b'; DELETE FROM t"));
+    }
+
+    @Test
+    void parenthesizedSelectIsSelect() {
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("(SELECT 1) UNION (SELECT 2)"));
+    }
+
+    @Test
+    void selectIntoWritesAndIsNotSelect() {
+        assertEquals(SqlStatementType.OTHER, SqlStatementType.classify("SELECT * INTO backup_t FROM t"));
+        assertEquals(SqlStatementType.OTHER, SqlStatementType.classify("SELECT a INTO OUTFILE '/tmp/x' FROM t"));
+        assertEquals(SqlStatementType.OTHER,
+                SqlStatementType.classify("WITH x AS (SELECT 1 a) SELECT a INTO copy_t FROM x"));
+        // INTO trong chuỗi, comment hoặc tên không phải là SELECT ... INTO
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT 'into' FROM t -- into"));
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT intoxicated FROM t"));
+    }
+
+    @Test
+    void selectForUpdateIsSelect() {
+        assertEquals(SqlStatementType.SELECT, SqlStatementType.classify("SELECT * FROM t WHERE id = 1 FOR UPDATE"));
+        assertEquals(SqlStatementType.DELETE,
+                SqlStatementType.classify("SELECT * FROM t FOR UPDATE; DELETE FROM t WHERE id = 1"));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.sqlexecutor.suggest;
+
+import org.example.sqlexecutor.model.SqlSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionIndexTest {
+
+    private static final ToLongFunction<String> NO_USAGE = name -> 0;
+    private static final int TABLES = SuggestionType.TABLE.mask();
+
+    private static SuggestionIndex tables(String... names) {
+        SuggestionIndex.Builder builder = SuggestionIndex.builder();
+        for (String name : names) {
+            builder.add(SuggestionType.TABLE, name, "Table", null);
+        }
+        return builder.build();
+    }
+
+    private static List<String> names(List<SqlSuggestion> suggestions) {
+        return suggestions.stream().map(SqlSuggestion::getName).collect(Collectors.toList());
+    }
+
+    private static int prefixDistance(String term, String name, int maxDistance) {
+        return SuggestionIndex.prefixDistance(term, name, new int[term.length() + 1], maxDistance);
+    }
+
+    @Test
+    void prefixDistanceMeasuresAgainstBestPrefix() {
+        assertEquals(0, prefixDistance("CUST", "CUSTOMER_ORDERS", 2));
+        assertEquals(1, prefixDistance("CUSTMER", "CUSTOMER_ORDERS", 2));
+        assertEquals(1, prefixDistance("USR", "USERS", 1));
+        assertEquals(2, prefixDistance("ODRERS", "ORDERS", 2));
+        // Dừng sớm: kết quả chỉ cần lớn hơn maxDistance
+        assertTrue(prefixDistance("PRODUCT", "USERS", 2) > 2);
+    }
+
+    @Test
+    void ranksExactThenPrefixThenSubstringThenFuzzy() {
+        SuggestionIndex index = tables("ORDER_ITEMS", "ORDERS", "ORDER", "BACKORDER", "ORDRE_LOG");
+
+        assertEquals(List.of("ORDER", "ORDERS", "ORDER_ITEMS", "BACKORDER", "ORDRE_LOG"),
+                names(index.search("order", TABLES, 10, NO_USAGE)));
+    }
+
+    @Test
+    void usageAndLengthBreakTiesWithinMatchClass() {
+        SuggestionIndex index = tables("USER_ROLES", "USER_LOGS", "USERS");
+
+        // Cùng mức tiền tố: tên ngắn hơn trước, bằng nhau thì theo tên
+        assertEquals(List.of("USERS", "USER_LOGS", "USER_ROLES"), names(index.search("user", TABLES, 10, NO_USAGE)));
+        Map<String, Long> usage = Map.of("USER_ROLES", 8L);
+        assertEquals(List.of("USER_ROLES", "USERS", "USER_LOGS"),
+                names(index.search("user", TABLES, 10, name -> usage.getOrDefault(name, 0L))));
+    }
+
+    @Test
+    void fullTopKOfBetterMatchesExcludesWeakerClasses() {
+        SuggestionIndex index = tables("ORDERS", "ORDER_ITEMS", "BACKORDER", "ORDRE");
+
+        // Hai chỗ đã đầy bằng kết quả tiền tố: bỏ qua chuỗi con và gần đúng
+        assertEquals(List.of("ORDERS", "ORDER_ITEMS"), names(index.search("order", TABLES, 2, NO_USAGE)));
+        assertEquals(List.of("ORDERS", "ORDER_ITEMS", "BACKORDER"),
+                names(index.search("order", TABLES, 3, NO_USAGE)));
+    }
+
+    @Test
+    void shortTermMatchesTypoWithoutSharedTrigram() {
+        SuggestionIndex index = tables("USERS", "PRODUCTS", "AUDIT_LOG");
+
+        assertEquals(List.of("USERS"), names(index.search("usr", TABLES, 10, NO_USAGE)));
+        assertEquals(List.of("PRODUCTS"), names(index.search("prdu", TABLES, 10, NO_USAGE)));
+    }
+
+    @Test
+    void typeMaskFiltersEntries() {
+        SuggestionIndex index = SuggestionIndex.builder()
+                .add(SuggestionType.KEYWORD, "SELECT", "SQL Keyword", null)
+                .add(SuggestionType.TABLE, "SELECTIONS", "Table", null)
+                .build();
+
+        assertEquals(List.of("SELECTIONS"), names(index.search("sel", TABLES, 10, NO_USAGE)));
+        assertEquals(List.of("SELECT", "SELECTIONS"),
+                names(index.search("sel", SuggestionType.mask(SuggestionType.KEYWORD, SuggestionType.TABLE), 10,
+                        NO_USAGE)));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.sqlexecutor.validator;
+
+import org.example.sqlexecutor.sql.SqlStatementType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfirmationValidatorTest {
+
+    private final ConfirmationValidator validator = new ConfirmationValidator();
+
+    private static String today(String pattern) {
+        return LocalDate.now().format(DateTimeFormatter.ofPattern(pattern));
+    }
+
+    @Test
+    void selectUsesDayMonthYear() {
+        assertTrue(validator.validateConfirmationCode(today("ddMMyyyy"), SqlStatementType.SELECT));
+    }
+
+    @Test
+    void otherStatementsUseYearMonthDay() {
+        for (SqlStatementType type : SqlStatementType.values()) {
+            if (type != SqlStatementType.SELECT) {
+                assertTrue(validator.validateConfirmationCode(today("yyyyMMdd"), type), type.name());
+            }
+        }
+    }
+
+    @Test
+    void selectCodeDoesNotConfirmMixedScript() {
+        SqlStatementType type = SqlStatementType.classify("SELECT 1; DELETE FROM t");
+        String selectCode = today("ddMMyyyy");
+        // Hai định dạng chỉ trùng nhau ở vài ngày đặc biệt; khi đó không phân biệt được
+        if (!selectCode.equals(today("yyyyMMdd"))) {
+            assertFalse(validator.validateConfirmationCode(selectCode, type));
+        }
+        assertTrue(validator.validateConfirmationCode(today("yyyyMMdd"), type));
+    }
+
+    @Test
+    void rejectsMalformedCodes() {
+        assertFalse(validator.validateConfirmationCode(null, SqlStatementType.SELECT));
+        assertFalse(validator.validateConfirmationCode("", SqlStatementType.SELECT));
+        assertFalse(validator.validateConfirmationCode("1234567", SqlStatementType.SELECT));
+        assertFalse(validator.validateConfirmationCode("1234567a", SqlStatementType.DELETE));
+        assertFalse(validator.validateConfirmationCode("123456789", SqlStatementType.DELETE));
+        assertFalse(validator.validateConfirmationCode("00000000", SqlStatementType.DELETE));
+    }
+}